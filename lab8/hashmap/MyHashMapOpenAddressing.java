@@ -0,0 +1,296 @@
+package hashmap;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Hash Table with open addressing: instead of an array of bucket objects,
+ * entries live directly in parallel key/value arrays, and a key that
+ * collides is placed in the next free slot (linear probing). There are no
+ * Node or bucket objects, so an entry costs two array slots and a cached
+ * int hash, and a lookup scans adjacent slots instead of chasing pointers.
+ *
+ * Removal uses backward-shift deletion rather than tombstones: entries
+ * after the removed one in its probe run are shifted back into the gap
+ * when that brings them no further from their home slot, so lookups never
+ * wade through deleted markers and the table never needs cleaning.
+ *
+ * Assumes null keys will never be inserted, and does not resize down upon
+ * remove().
+ */
+public class MyHashMapOpenAddressing<K, V> implements Map61B<K, V> {
+
+    /** Default initial number of slots. */
+    private static final int DEFAULT_SIZE = 16;
+    /** Default maximum load factor. */
+    private static final double DEFAULT_MAX_LOAD = 0.75;
+
+    /* Instance Variables */
+    /** Key in each slot, or null if the slot is empty. */
+    private Object[] keys;
+    /** Value in each slot. */
+    private Object[] values;
+    /** Spread hash of the key in each slot, so that probing and resizing
+     *  need not call hashCode or equals on non-matching keys. */
+    private int[] hashes;
+    /** Number of key-value mappings. */
+    private int size;
+    /** Maximum ratio of size to the number of slots. */
+    private final double maxLoad;
+    /** Number of changes to the keys, to detect changes during
+     *  iteration. */
+    private int modCount;
+
+    /**
+     * Constructor that creates a backing array with default
+     * initial size and load factor
+     */
+    public MyHashMapOpenAddressing() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LOAD);
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize
+     * and default load factor
+     *
+     * @param initialSize initial size of backing array
+     */
+    public MyHashMapOpenAddressing(int initialSize) {
+        this(initialSize, DEFAULT_MAX_LOAD);
+    }
+
+    /**
+     * Constructor that creates a backing array of at least initialSize.
+     * The load factor (# items / # slots) should always be <= loadFactor,
+     * which must be less than 1 so that some slot is always free.
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapOpenAddressing(int initialSize, double maxLoad) {
+        if (!(maxLoad > 0 && maxLoad < 1)) {
+            throw new IllegalArgumentException("maxLoad must be in (0, 1)");
+        }
+        this.maxLoad = maxLoad;
+        allocate(tableSizeFor(initialSize));
+    }
+
+    @Override
+    public void clear() {
+        allocate(keys.length);
+        size = 0;
+        modCount += 1;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int i = find(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (key == null) {
+            throw new IllegalArgumentException("null key");
+        }
+        int h = hash(key);
+        int mask = keys.length - 1;
+        int i = h & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == h && key.equals(keys[i])) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = h;
+        size += 1;
+        modCount += 1;
+        if (size > maxLoad * keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<K> keySet() {
+        Set<K> result = new HashSet<>();
+        for (Object key : keys) {
+            if (key != null) {
+                result.add((K) key);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        V old = (V) values[i];
+        delete(i);
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key, V value) {
+        int i = find(key);
+        if (i < 0 || (value == null ? values[i] != null
+                      : !value.equals(values[i]))) {
+            return null;
+        }
+        V old = (V) values[i];
+        delete(i);
+        return old;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new KeyIterator();
+    }
+
+    /** Iterates over the keys in slot order. */
+    private class KeyIterator implements Iterator<K> {
+        /** Index of the next slot to examine. */
+        private int next;
+        /** modCount when this iterator was created. */
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (next < keys.length && keys[next] == null) {
+                next += 1;
+            }
+            return next < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K result = (K) keys[next];
+            next += 1;
+            return result;
+        }
+    }
+
+    /**
+     * Returns the slot holding key, or -1 if there is none. A probe stops
+     * at the first empty slot, since backward-shift deletion never leaves
+     * a gap inside a probe run.
+     */
+    private int find(K key) {
+        if (key == null) {
+            return -1;
+        }
+        int h = hash(key);
+        int mask = keys.length - 1;
+        int i = h & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == h && key.equals(keys[i])) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empties slot i by backward-shift deletion: each later entry in the
+     * same run of occupied slots moves back into the gap if its home slot
+     * does not lie cyclically after the gap, and the gap moves to where
+     * that entry was, until an empty slot ends the run.
+     */
+    private void delete(int i) {
+        int mask = keys.length - 1;
+        int gap = i;
+        int j = (gap + 1) & mask;
+        while (keys[j] != null) {
+            int home = hashes[j] & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                hashes[gap] = hashes[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[gap] = null;
+        values[gap] = null;
+        size -= 1;
+        modCount += 1;
+    }
+
+    /** Rehashes every entry into a new table of capacity slots. */
+    private void resize(int capacity) {
+        Object[] oldKeys = keys, oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int k = 0; k < oldKeys.length; k += 1) {
+            if (oldKeys[k] != null) {
+                int i = oldHashes[k] & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                values[i] = oldValues[k];
+                hashes[i] = oldHashes[k];
+            }
+        }
+    }
+
+    /** Replaces the table with an empty one of capacity slots. */
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+    }
+
+    /**
+     * Returns the hash of key, with its bits mixed so that keys whose
+     * hashCodes differ only in their high bits, or are consecutive, still
+     * spread over the table instead of forming long probe runs.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the smallest power of two that is at least n and 2. */
+    private static int tableSizeFor(int n) {
+        if (n >= 1 << 30) {
+            return 1 << 30;
+        }
+        int result = 2;
+        while (result < n) {
+            result *= 2;
+        }
+        return result;
+    }
+}
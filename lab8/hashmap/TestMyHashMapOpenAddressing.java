@@ -0,0 +1,148 @@
+package hashmap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/** Tests of the open addressing hash map. */
+public class TestMyHashMapOpenAddressing {
+
+    /** A key whose hashCode is chosen, to force collisions. */
+    private static class Collider {
+        private final int id;
+        private final int hash;
+
+        Collider(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Collider && ((Collider) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    public void sanityTest() {
+        MyHashMapOpenAddressing<String, Integer> b =
+            new MyHashMapOpenAddressing<>();
+        assertEquals(0, b.size());
+        assertNull(b.get("starChild"));
+        assertFalse(b.containsKey("starChild"));
+        b.put("starChild", 5);
+        assertEquals(5, b.get("starChild").intValue());
+        assertTrue(b.containsKey("starChild"));
+        b.put("starChild", 6);
+        assertEquals(1, b.size());
+        assertEquals(6, b.get("starChild").intValue());
+    }
+
+    @Test
+    public void clearAndKeySetTest() {
+        MyHashMapOpenAddressing<String, Integer> b =
+            new MyHashMapOpenAddressing<>(1);
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < 455; i++) {
+            b.put("hi" + i, i);
+            values.add("hi" + i);
+        }
+        assertEquals(455, b.size());
+        assertEquals(values, b.keySet());
+        Set<String> iterated = new HashSet<>();
+        for (String key : b) {
+            iterated.add(key);
+        }
+        assertEquals(values, iterated);
+        b.clear();
+        assertEquals(0, b.size());
+        for (int i = 0; i < 455; i++) {
+            assertFalse(b.containsKey("hi" + i));
+        }
+        assertFalse(b.iterator().hasNext());
+    }
+
+    @Test
+    public void testRemoveThreeCases() {
+        MyHashMapOpenAddressing<String, String> q =
+            new MyHashMapOpenAddressing<>();
+        q.put("c", "a");
+        q.put("b", "a");
+        q.put("a", "a");
+        q.put("d", "a");
+        q.put("e", "a");
+        assertEquals("a", q.remove("e"));
+        assertNull(q.remove("e"));
+        assertNull(q.remove("c", "b"));
+        assertEquals("a", q.remove("c", "a"));
+        assertTrue(q.containsKey("a"));
+        assertTrue(q.containsKey("b"));
+        assertTrue(q.containsKey("d"));
+        assertFalse(q.containsKey("c"));
+        assertEquals(3, q.size());
+    }
+
+    /** Removing from the middle of a probe run must shift the rest of the
+     *  run back, or keys after the gap would become unreachable. */
+    @Test
+    public void backwardShiftTest() {
+        MyHashMapOpenAddressing<Collider, Integer> q =
+            new MyHashMapOpenAddressing<>(64);
+        for (int i = 0; i < 20; i++) {
+            q.put(new Collider(i, i % 3), i);
+        }
+        for (int i = 0; i < 20; i += 2) {
+            assertEquals(i, q.remove(new Collider(i, i % 3)).intValue());
+            for (int k = 0; k < 20; k++) {
+                boolean present = k > i || k % 2 == 1;
+                assertEquals(present, q.containsKey(new Collider(k, k % 3)));
+            }
+        }
+        assertEquals(10, q.size());
+    }
+
+    @Test(expected = java.util.ConcurrentModificationException.class)
+    public void iteratorModificationTest() {
+        MyHashMapOpenAddressing<String, Integer> q =
+            new MyHashMapOpenAddressing<>();
+        q.put("a", 1);
+        q.put("b", 2);
+        Iterator<String> keys = q.iterator();
+        q.remove("a");
+        keys.hasNext();
+    }
+
+    /** Random puts and removes, checked against java.util.HashMap. */
+    @Test
+    public void randomizedTest() {
+        Random random = new Random(61);
+        MyHashMapOpenAddressing<Integer, Integer> q =
+            new MyHashMapOpenAddressing<>(2, 0.9);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), q.remove(key));
+            } else {
+                expected.put(key, i);
+                q.put(key, i);
+            }
+            assertEquals(expected.size(), q.size());
+        }
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), q.get(key));
+        }
+        assertEquals(expected.keySet(), q.keySet());
+    }
+}
@@ -0,0 +1,75 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The comparison of CommitCodecBenchmark, of CommitCodec against Java
+ *  serialization, as JMH benchmarks.  Run with mvn -P jmh verify, which
+ *  generates the JMH harness and runs gitlet.CommitCodecJmh; the
+ *  Makefile does not build this directory. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitCodecJmh {
+
+    /** Number of files each commit tracks. */
+    @Param({ "10", "100", "1000" })
+    public int files;
+
+    /** Commit encoded and decoded. */
+    private Commit commit;
+    /** COMMIT in CommitCodec's format. */
+    private byte[] encoded;
+    /** COMMIT as Utils.serialize writes it. */
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        List<Commit> history = CommitCodecBenchmark.history(files, 2);
+        commit = history.get(1);
+        encoded = CommitCodec.encode(commit);
+        serialized = Utils.serialize(commit);
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() {
+        return CommitCodec.encode(commit);
+    }
+
+    @Benchmark
+    public Commit decodeCodec() {
+        return CommitCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] encodeSerialized() {
+        return Utils.serialize(commit);
+    }
+
+    @Benchmark
+    public Commit decodeSerialized() throws IOException,
+                                            ClassNotFoundException {
+        try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (Commit) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Times gitlet commands on a synthetic repository and writes the results
+ *  as a JSON report, so that runs can be compared by tools.  Usage:
+ *      java gitlet.BenchmarkSuite CLASSPATH REPORT [RUNS [FILES [COMMITS
+ *          [BRANCHES [MERGE_EVERY [SIZE [SEED]]]]]]]
+ *  A repository of the shape given by FILES .. SEED (see
+ *  SyntheticRepository) is generated in a temporary directory.  Each
+ *  command in COMMANDS is then timed RUNS times (default 5) in two ways:
+ *  end to end, each run its own JVM with CLASSPATH as users run it, and
+ *  in process, all runs in one JVM after one untimed warm-up run, which
+ *  leaves out startup, class loading, and JIT compilation.  Output is
+ *  discarded.  Pushes go to a remote emptied before each run; gc, which
+ *  repacks the repository, is timed last.
+ *
+ *  The report, written to REPORT, is a JSON object with the shape, the
+ *  Java version, the number of runs, the time to generate the
+ *  repository, and, for each command, its arguments and, for each way of
+ *  running it, the minimum, median, mean, and maximum times and the
+ *  times of all runs, in milliseconds.  A summary is printed as well. */
+public class BenchmarkSuite {
+
+    /** The commands timed, in the order they are run.  Operands FIRST,
+     *  HEAD, and BRANCH stand for the commits of those names printed by
+     *  SyntheticRepository. */
+    private static final String[][] COMMANDS = {
+        { "diff", "FIRST", "HEAD" },
+        { "diff", "--histogram", "BRANCH", "HEAD" },
+        { "diff", "HEAD" },
+        { "push", "bench", "HEAD" },
+        { "gc" },
+    };
+
+    /** Name of the benchmark remote's directory, beside the repository,
+     *  emptied before each push. */
+    private static final String REMOTE = "remote";
+
+    /** Run the benchmark as described in the class comment, using ARGS.
+     *  With a first argument of --in-process, instead time the command in
+     *  ARGS[3 ..] RUNS=ARGS[1] times after a warm-up, emptying the
+     *  directory ARGS[2] (unless "-") before each run, and print the
+     *  times on one line. */
+    public static void main(String[] args)
+        throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--in-process")) {
+            inProcess(Integer.parseInt(args[1]), args[2],
+                      Arrays.copyOfRange(args, 3, args.length));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: java gitlet.BenchmarkSuite "
+                               + "CLASSPATH REPORT [RUNS [FILES [COMMITS "
+                               + "[BRANCHES [MERGE_EVERY [SIZE [SEED]]]]]]]");
+            System.exit(1);
+        }
+        String classpath = args[0];
+        File report = new File(args[1]);
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        SyntheticRepository.Shape shape =
+            new SyntheticRepository.Shape(args, 3);
+
+        File top = Files.createTempDirectory("gitlet-suite").toFile();
+        try {
+            File dir = new File(top, "repo");
+            File remote = new File(top, REMOTE);
+            dir.mkdir();
+            List<String> generator = new ArrayList<>();
+            generator.add("gitlet.SyntheticRepository");
+            generator.addAll(shape.toArgs());
+            long start = System.nanoTime();
+            List<String> lines = run(classpath, dir, generator);
+            double generate = (System.nanoTime() - start) / 1e6;
+            Map<String, String> commits = new HashMap<>();
+            for (String line : lines) {
+                String[] words = line.split(" ");
+                commits.put(words[0].toUpperCase(), words[1]);
+            }
+            run(classpath, dir, List.of("gitlet.Main", "add-remote", "bench",
+                                        remote.getPath()));
+
+            StringBuilder json = new StringBuilder();
+            json.append("{\n  \"shape\": ").append(shape.toJson())
+                .append(",\n  \"java\": \"")
+                .append(System.getProperty("java.version"))
+                .append("\",\n  \"runs\": ").append(runs)
+                .append(",\n  \"generateMs\": ")
+                .append(String.format(Locale.ROOT, "%.1f", generate))
+                .append(",\n  \"commands\": [");
+            System.out.printf("%s, generated in %.0f ms%n", shape.toJson(),
+                              generate);
+            System.out.printf("%d runs, median ms per command%n", runs);
+            System.out.printf("%-32s %12s %12s%n", "command", "process",
+                              "in-process");
+            for (int i = 0; i < COMMANDS.length; i += 1) {
+                List<String> command = new ArrayList<>();
+                for (String word : COMMANDS[i]) {
+                    command.add(commits.getOrDefault(word, word));
+                }
+                String fresh = COMMANDS[i][0].equals("push")
+                    ? remote.getPath() : "-";
+                double[] process = new double[runs];
+                for (int r = 0; r < runs; r += 1) {
+                    List<String> main = new ArrayList<>();
+                    main.add("gitlet.Main");
+                    main.addAll(command);
+                    empty(fresh);
+                    start = System.nanoTime();
+                    run(classpath, dir, main);
+                    process[r] = (System.nanoTime() - start) / 1e6;
+                }
+                List<String> timer = new ArrayList<>(List.of(
+                    "gitlet.BenchmarkSuite", "--in-process",
+                    Integer.toString(runs), fresh));
+                timer.addAll(command);
+                double[] inProcess = Arrays.stream(
+                    run(classpath, dir, timer).get(0).trim().split(" "))
+                    .mapToDouble(Double::parseDouble).toArray();
+
+                String name = String.join(" ", COMMANDS[i]);
+                json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(name)
+                    .append("\", \"args\": [");
+                for (int k = 0; k < command.size(); k += 1) {
+                    json.append(k == 0 ? "\"" : ", \"").append(command.get(k))
+                        .append('"');
+                }
+                json.append("],\n     \"process\": ").append(stats(process))
+                    .append(",\n     \"inProcess\": ")
+                    .append(stats(inProcess)).append('}');
+                System.out.printf("%-32s %12.1f %12.1f%n", name,
+                                  median(process), median(inProcess));
+            }
+            json.append("\n  ]\n}\n");
+            Utils.writeContents(report, json.toString());
+        } finally {
+            delete(top);
+        }
+    }
+
+    /** Run gitlet.Main on COMMAND RUNS times in this JVM after one untimed
+     *  run, emptying the directory FRESH, unless it is "-", before each,
+     *  and print the time of each timed run in milliseconds on one line.
+     *  The commands' output is discarded. */
+    private static void inProcess(int runs, String fresh, String[] command) {
+        PrintStream out = System.out;
+        StringBuilder times = new StringBuilder();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int r = -1; r < runs; r += 1) {
+                empty(fresh);
+                long start = System.nanoTime();
+                Main.run(command);
+                if (r >= 0) {
+                    times.append(String.format(
+                        Locale.ROOT, "%.3f ",
+                        (System.nanoTime() - start) / 1e6));
+                }
+            }
+        } finally {
+            System.setOut(out);
+        }
+        System.out.println(times.toString().trim());
+    }
+
+    /** Run the class and arguments COMMAND in a new JVM with CLASSPATH in
+     *  directory DIR, and return the lines of its standard output.  Throws
+     *  IllegalStateException if it fails. */
+    private static List<String> run(String classpath, File dir,
+                                    List<String> command)
+        throws IOException, InterruptedException {
+        List<String> java = new ArrayList<>();
+        java.add(System.getProperty("java.home") + File.separator + "bin"
+                 + File.separator + "java");
+        java.add("-cp");
+        java.add(classpath);
+        java.addAll(command);
+        Process process = new ProcessBuilder(java)
+            .directory(dir)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                 new InputStreamReader(process.getInputStream()))) {
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                lines.add(line);
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("failed: " + command);
+        }
+        return lines;
+    }
+
+    /** Return the JSON object of statistics of TIMES. */
+    private static String stats(double[] times) {
+        StringBuilder result = new StringBuilder();
+        double[] sorted = times.clone();
+        Arrays.sort(sorted);
+        result.append(String.format(
+            Locale.ROOT, "{\"minMs\": %.3f, \"medianMs\": %.3f, "
+            + "\"meanMs\": %.3f, \"maxMs\": %.3f, \"samplesMs\": [",
+            sorted[0], median(times), Arrays.stream(times).average()
+            .orElse(0), sorted[sorted.length - 1]));
+        for (int i = 0; i < times.length; i += 1) {
+            result.append(String.format(Locale.ROOT,
+                                        i == 0 ? "%.3f" : ", %.3f",
+                                        times[i]));
+        }
+        return result.append("]}").toString();
+    }
+
+    /** Return the median of TIMES. */
+    private static double median(double[] times) {
+        double[] sorted = times.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2]
+            : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+
+    /** Make the directory DIR exist and be empty, unless it is "-". */
+    private static void empty(String dir) {
+        if (!dir.equals("-")) {
+            File file = new File(dir);
+            delete(file);
+            file.mkdirs();
+        }
+    }
+
+    /** Delete FILE and, if it is a directory, everything in it. */
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
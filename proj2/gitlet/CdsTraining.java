@@ -0,0 +1,164 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/** A training run for an AppCDS archive, which replays the commands of
+ *  the integration tests so that the JVM records the classes gitlet
+ *  loads.  Usage:
+ *      java -XX:ArchiveClassesAtExit=gitlet.jsa -cp gitlet.jar \
+ *           gitlet.CdsTraining TESTDIR
+ *  in an empty scratch directory, where TESTDIR is the testing directory,
+ *  holding the samples and src subdirectories.  Then
+ *      java -XX:SharedArchiveFile=gitlet.jsa -cp gitlet.jar gitlet.Main ...
+ *  maps those classes, already parsed and verified, into the process
+ *  instead of loading them from the jar.  The pom's appcds profile does
+ *  both steps.
+ *
+ *  Each .in file in TESTDIR/samples and TESTDIR/student_tests is replayed
+ *  in this one JVM, in the scratch directory (the current directory),
+ *  which is emptied before each: its commands go to Main.run, its files
+ *  are added from TESTDIR/src or removed as the file says, and its
+ *  includes are followed.  Output is discarded and nothing is checked;
+ *  tester.py does that.  Lines that only check results or set up
+ *  substitutions are skipped, so a command whose arguments need them
+ *  simply fails, which trains the error paths. */
+public class CdsTraining {
+
+    /** Replay the tests under ARGS[0] as described in the class
+     *  comment. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java gitlet.CdsTraining TESTDIR");
+            System.exit(1);
+        }
+        String[] existing = Repository.CWD.list();
+        if (existing == null || existing.length > 0) {
+            System.err.println("gitlet.CdsTraining must be run in an empty "
+                               + "directory, which it uses as scratch.");
+            System.exit(1);
+        }
+        File testDir = new File(args[0]).getAbsoluteFile();
+        List<File> tests = new ArrayList<>();
+        for (String sub : new String[] { "samples", "student_tests" }) {
+            File[] files = new File(testDir, sub).listFiles(
+                (dir, name) -> name.endsWith(".in"));
+            if (files != null) {
+                Arrays.sort(files);
+                tests.addAll(Arrays.asList(files));
+            }
+        }
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (File test : tests) {
+                clear(Repository.CWD);
+                Repository.reset();
+                replay(test, new File(testDir, "src"));
+            }
+            clear(Repository.CWD);
+        } finally {
+            System.setOut(stdout);
+        }
+        stdout.printf("Replayed %d tests.%n", tests.size());
+    }
+
+    /** Run the commands in the test TEST, taking added files from SRC. */
+    private static void replay(File test, File src) throws IOException {
+        Deque<Iterator<String>> inputs = new ArrayDeque<>();
+        inputs.push(Files.readAllLines(test.toPath()).iterator());
+        while (!inputs.isEmpty()) {
+            Iterator<String> input = inputs.peek();
+            if (!input.hasNext()) {
+                inputs.pop();
+                continue;
+            }
+            String line = input.next().strip();
+            String[] words = line.split("\\s+", 2);
+            String rest = words.length > 1 ? words[1].strip() : "";
+            switch (words[0]) {
+            case "I":
+                File included = new File(test.getParentFile(), rest);
+                inputs.push(Files.readAllLines(included.toPath()).iterator());
+                break;
+            case ">":
+                Main.run(tokenize(rest));
+                while (input.hasNext() && !input.next().startsWith("<<<")) {
+                    continue;
+                }
+                break;
+            case "+":
+                String[] names = rest.split("\\s+");
+                Files.copy(new File(src, names[1]).toPath(),
+                           Utils.join(Repository.CWD, names[0]).toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+                break;
+            case "-":
+                Utils.join(Repository.CWD, rest).delete();
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /** Return the words of the command line LINE, which may be quoted
+     *  with single or double quotes as in the shell. */
+    static String[] tokenize(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder word = null;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    word.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (word != null) {
+                    result.add(word.toString());
+                    word = null;
+                }
+            } else {
+                if (word == null) {
+                    word = new StringBuilder();
+                }
+                if (c == '"' || c == '\'') {
+                    quote = c;
+                } else {
+                    word.append(c);
+                }
+            }
+        }
+        if (word != null) {
+            result.add(word.toString());
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /** Delete everything in the directory DIR, but not DIR itself. */
+    private static void clear(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                clear(file);
+            }
+            Files.delete(file.toPath());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Writes blobs from an object store into the files of a working
+ *  directory, several files at once on a ForkJoinPool.  No blob passes
+ *  through a byte[]: each is copied by ObjectStore.copyTo into a
+ *  temporary file's FileChannel, which transfers an uncompressed loose
+ *  object file to file with FileChannel.transferTo, writes an
+ *  uncompressed packed one straight from the mapped pack, and streams
+ *  compressed ones through the decompressor.  The temporary file is then
+ *  renamed over the working file, so a reader never sees it half
+ *  written.
+ *
+ *  Checkout is bound by the file system more than the processor, so the
+ *  number of threads is kept small, and a few files are written on the
+ *  calling thread rather than paying to start a pool. */
+class Checkout {
+
+    /** Default number of threads. */
+    static final int DEFAULT_PARALLELISM =
+        Math.min(8, Runtime.getRuntime().availableProcessors());
+
+    /** Number of files below which a task writes them itself rather than
+     *  splitting them, and below which no pool is started at all. */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    /** A Checkout into directory DIR from STORE, writing on up to
+     *  PARALLELISM threads. */
+    Checkout(ObjectStore store, File dir, int parallelism) {
+        _store = store;
+        _dir = dir;
+        _parallelism = parallelism;
+    }
+
+    /** A Checkout into directory DIR from STORE using
+     *  DEFAULT_PARALLELISM threads. */
+    Checkout(ObjectStore store, File dir) {
+        this(store, dir, DEFAULT_PARALLELISM);
+    }
+
+    /** Replace each file NAMES[i], a path relative to the directory, with
+     *  the contents of the blob IDS[i], creating parent directories as
+     *  needed.  Throws IllegalArgumentException if a blob is missing or in
+     *  case of problems; files already written stay written. */
+    void write(List<String> names, List<String> ids) {
+        File last = null;
+        for (String name : names) {
+            File parent = Utils.join(_dir, name).getParentFile();
+            if (!parent.equals(last)) {
+                parent.mkdirs();
+                last = parent;
+            }
+        }
+        if (_parallelism <= 1 || names.size() < SPLIT_THRESHOLD) {
+            try (Trace.Phase phase = Trace.phase("checkout")) {
+                for (int i = 0; i < names.size(); i += 1) {
+                    write(ids.get(i), Utils.join(_dir, names.get(i)));
+                }
+            }
+            return;
+        }
+        /* Open the packs before the threads share the store. */
+        _store.packs();
+        ForkJoinPool pool = new ForkJoinPool(_parallelism);
+        try (Trace.Phase phase = Trace.phase("checkout")) {
+            pool.invoke(new WriteTask(names, ids, 0, names.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Change the files of the directory from those listed by the root
+     *  Tree FROM in TREES to those listed by the root Tree TO: write the
+     *  files that TO lists differently or not at all, and delete those
+     *  that only FROM lists.  Directories whose Trees are the same in
+     *  both are skipped (see Tree.compare). */
+    void update(ObjectStore trees, String from, String to) {
+        List<String> names = new ArrayList<>(), ids = new ArrayList<>();
+        Tree.compare(trees, from, to, (name, a, b) -> {
+                if (b == null) {
+                    Utils.join(_dir, name).delete();
+                } else {
+                    names.add(name);
+                    ids.add(b);
+                }
+            });
+        write(names, ids);
+    }
+
+    /** Replace FILE with the contents of the blob with id ID, as described
+     *  in the class comment. */
+    void write(String id, File file) {
+        File tmp = null;
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            tmp = File.createTempFile(".gitlet-", ".tmp", dir);
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                                                    StandardOpenOption.WRITE)) {
+                if (!_store.copyTo(id, out)) {
+                    throw new IllegalArgumentException("no blob " + id);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /** Writes the files NAMES[LO .. HI-1] from the blobs IDS[LO .. HI-1],
+     *  splitting the range in half until it is small. */
+    private class WriteTask extends RecursiveAction {
+
+        /** A task writing NAMES[LO .. HI-1] from IDS[LO .. HI-1]. */
+        WriteTask(List<String> names, List<String> ids, int lo, int hi) {
+            _names = names;
+            _ids = ids;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= SPLIT_THRESHOLD) {
+                for (int i = _lo; i < _hi; i += 1) {
+                    write(_ids.get(i), Utils.join(_dir, _names.get(i)));
+                }
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new WriteTask(_names, _ids, _lo, mid),
+                          new WriteTask(_names, _ids, mid, _hi));
+            }
+        }
+
+        /** The names of all files being written. */
+        private final List<String> _names;
+        /** The blob ids of the files in _names. */
+        private final List<String> _ids;
+        /** Bounds of the range of _names handled by this task. */
+        private final int _lo, _hi;
+    }
+
+    /** The store the blobs are read from. */
+    private final ObjectStore _store;
+    /** The working directory written. */
+    private final File _dir;
+    /** Number of threads used for writing. */
+    private final int _parallelism;
+}
@@ -0,0 +1,100 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Compares ways of checking out many files.  Usage:
+ *      java gitlet.CheckoutBenchmark [FILES [SIZE [THREADS]]]
+ *  FILES blobs (default 10000) of about SIZE bytes (default 4096) of text
+ *  are stored and packed, once uncompressed and once with DEFLATE, and
+ *  then written to a fresh working directory three ways: by reading each
+ *  blob into a byte[] and writing it with Utils.writeContents, by
+ *  Checkout on one thread, and by Checkout on THREADS threads (default
+ *  Checkout.DEFAULT_PARALLELISM). */
+public class CheckoutBenchmark {
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Checkout.DEFAULT_PARALLELISM;
+        File dir = Files.createTempDirectory("gitlet-checkout").toFile();
+        try {
+            System.out.printf("%d files of %d bytes, %d threads%n", files,
+                              size, threads);
+            System.out.printf("%-10s %10s %10s %10s%n", "store", "byte[]",
+                              "channel", "parallel");
+            run("plain", new File(dir, "plain"), null, files, size,
+                threads);
+            run("deflate", new File(dir, "deflate"), Codec.DEFLATE, files,
+                size, threads);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Print the row for a packed store NAME in DIR compressed with CODEC
+     *  (none if null) holding FILES blobs of SIZE bytes, checking out with
+     *  THREADS threads in parallel. */
+    private static void run(String name, File dir, Codec codec, int files,
+                            int size, int threads) {
+        ObjectStore store = reopen(dir, codec);
+        Random random = new Random(61);
+        List<String> names = new ArrayList<>(), ids = new ArrayList<>();
+        for (int i = 0; i < files; i += 1) {
+            StringBuilder text = new StringBuilder(size + 32);
+            while (text.length() < size) {
+                text.append("line ").append(random.nextInt(1000))
+                    .append(" of file ").append(i).append('\n');
+            }
+            names.add(String.format("dir%03d/file%06d.txt", i / 100, i));
+            ids.add(store.write(text.toString().getBytes()));
+        }
+        store.gc();
+
+        File work = new File(dir, "naive");
+        long start = System.nanoTime();
+        store = reopen(dir, codec);
+        for (int i = 0; i < files; i += 1) {
+            File file = Utils.join(work, names.get(i));
+            file.getParentFile().mkdirs();
+            Utils.writeContents(file, store.read(ids.get(i)));
+        }
+        double naive = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        new Checkout(reopen(dir, codec), new File(dir, "serial"), 1)
+            .write(names, ids);
+        double serial = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        new Checkout(reopen(dir, codec), new File(dir, "parallel"), threads)
+            .write(names, ids);
+        double parallel = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-10s %10.1f %10.1f %10.1f%n", name, naive,
+                          serial, parallel);
+    }
+
+    /** Return the store in DIR compressed with CODEC (none if null),
+     *  newly opened so that no run benefits from another's caches. */
+    private static ObjectStore reopen(File dir, Codec codec) {
+        return codec == null ? new ObjectStore(new File(dir, "objects"))
+            : new ObjectStore(new File(dir, "objects"), codec);
+    }
+
+    /** Delete FILE and, if it is a directory, everything in it. */
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,118 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/** Tests of Checkout against a serial checkout through byte arrays. */
+public class CheckoutTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return the UTF-8 bytes of TEXT. */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Return a map from the path of each plain file under DIR, relative
+     *  to DIR, to its contents as a string of its SHA-1. */
+    private static Map<String, String> files(File dir) throws IOException {
+        Map<String, String> result = new TreeMap<>();
+        Path root = dir.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(path)) {
+                    result.put(root.relativize(path).toString()
+                               .replace(File.separatorChar, '/'),
+                               Utils.sha1((Object) Files.readAllBytes(path)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Write the blobs of FILES, from name to blob id, from STORE into
+     *  DIR one at a time through byte arrays. */
+    private static void serialCheckout(ObjectStore store, File dir,
+                                       Map<String, String> files) {
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            File target = Utils.join(dir, file.getKey());
+            target.getParentFile().mkdirs();
+            Utils.writeContents(target, (Object) store.read(file.getValue()));
+        }
+    }
+
+    @Test
+    public void matchesASerialCheckout() throws IOException {
+        ObjectStore blobs = new ObjectStore(tmp.newFolder(), Codec.DEFLATE);
+        ObjectStore trees = new ObjectStore(tmp.newFolder());
+
+        Map<String, String> current = new TreeMap<>(), target;
+        for (int i = 0; i < 40; i += 1) {
+            current.put("d" + i % 3 + "/e" + i % 2 + "/f" + i + ".txt",
+                        blobs.write(bytes("file " + i + "\n")));
+        }
+        current.put("gone.txt", blobs.write(bytes("gone\n")));
+        current.put("old/only.txt", blobs.write(bytes("only\n")));
+        target = new TreeMap<>(current);
+        target.remove("gone.txt");
+        target.remove("old/only.txt");
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i += 1) {
+            text.append("line ").append(i).append('\n');
+        }
+        String base = blobs.write(bytes(text.toString()));
+        String delta = blobs.write(bytes(text + "more\n"), base);
+        assertEquals(ObjectStore.DELTA,
+                     blobs.representation(delta).get(0) & 0xf);
+        byte[] large = new byte[(int) ObjectStore.MIN_CHUNKED_FILE * 2];
+        new Random(23).nextBytes(large);
+        File largeFile = tmp.newFile();
+        Utils.writeContents(largeFile, (Object) large);
+        String chunked = blobs.write(largeFile);
+        assertEquals(ObjectStore.CHUNKED,
+                     blobs.representation(chunked).get(0) & 0xf);
+        target.put("d0/e0/f0.txt", base);
+        target.put("text/delta.txt", delta);
+        target.put("new/deep/dir/large.bin", chunked);
+
+        String from = Tree.write(trees, current);
+        String to = Tree.write(trees, target);
+        for (boolean packed : new boolean[] { false, true }) {
+            if (packed) {
+                blobs.gc();
+                assertTrue(blobs.packs().size() > 0);
+            }
+            File expected = tmp.newFolder();
+            serialCheckout(blobs, expected, target);
+            for (int threads : new int[] { 1, 4 }) {
+                File dir = tmp.newFolder();
+                Checkout checkout = new Checkout(blobs, dir, threads);
+                checkout.update(trees, null, from);
+                assertEquals(new ArrayList<>(current.keySet()),
+                             new ArrayList<>(files(dir).keySet()));
+                checkout.update(trees, from, to);
+                assertEquals(files(expected), files(dir));
+                assertFalse(Utils.join(dir, "gone.txt").exists());
+                assertFalse(Utils.join(dir, "old/only.txt").exists());
+                assertEquals(List.of(), List.of(Utils.join(dir, "old").list()));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package gitlet;
+
+import java.util.Random;
+
+/** Content-defined chunking in the manner of FastCDC, which cuts a byte
+ *  sequence into chunks at positions chosen by the bytes themselves
+ *  rather than by offset.  An insertion or deletion therefore disturbs
+ *  only the chunks around it, and the chunks after it are the same as
+ *  before, so they can be shared between versions of a file.
+ *
+ *  A gear hash, fp = (fp << 1) + GEAR[b], is rolled over the bytes; each
+ *  bit of it depends on a window of at most 64 bytes.  A chunk ends where
+ *  the top bits of fp are all zero.  No chunk is shorter than MIN_SIZE
+ *  (except the last) or longer than MAX_SIZE.  Sizes are normalized
+ *  toward AVG_SIZE by requiring more zero bits before that point than
+ *  after it. */
+class Chunker {
+
+    /** Smallest chunk, except possibly the last. */
+    static final int MIN_SIZE = 1 << 14;
+    /** Typical chunk size. */
+    static final int AVG_SIZE = 1 << 16;
+    /** Largest chunk. */
+    static final int MAX_SIZE = 1 << 18;
+
+    /** Log2 of AVG_SIZE. */
+    private static final int AVG_BITS =
+        Integer.numberOfTrailingZeros(AVG_SIZE);
+    /** Mask of fp bits that must be zero to cut before AVG_SIZE. */
+    private static final long MASK_SMALL = -1L << (64 - AVG_BITS - 2);
+    /** Mask of fp bits that must be zero to cut after AVG_SIZE. */
+    private static final long MASK_LARGE = -1L << (64 - AVG_BITS + 2);
+
+    /** Random values for each byte value.  The seed is fixed, since
+     *  chunk boundaries, and hence sharing, depend on the table. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x67656172L);
+        for (int i = 0; i < GEAR.length; i += 1) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /** Return the length of the chunk that starts at DATA[FROM], given
+     *  that the bytes DATA[FROM .. TO-1] are available.  If fewer than
+     *  MAX_SIZE bytes are available and no cut point is found among them,
+     *  returns TO - FROM, so the caller must supply at least MAX_SIZE bytes
+     *  unless they are the last. */
+    static int cut(byte[] data, int from, int to) {
+        int n = to - from;
+        if (n <= MIN_SIZE) {
+            return n;
+        }
+        n = Math.min(n, MAX_SIZE);
+        int normal = Math.min(n, AVG_SIZE);
+        long fp = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i += 1) {
+            fp = (fp << 1) + GEAR[data[from + i] & 0xff];
+            if ((fp & MASK_SMALL) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < n; i += 1) {
+            fp = (fp << 1) + GEAR[data[from + i] & 0xff];
+            if ((fp & MASK_LARGE) == 0) {
+                return i + 1;
+            }
+        }
+        return n;
+    }
+}
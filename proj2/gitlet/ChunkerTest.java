@@ -0,0 +1,107 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/** Tests of Chunker and of chunked objects in ObjectStore. */
+public class ChunkerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return N random bytes from a generator seeded with SEED. */
+    private static byte[] random(int n, long seed) {
+        byte[] result = new byte[n];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+
+    /** Return the offsets at which DATA is cut into chunks. */
+    private static List<Integer> cuts(byte[] data) {
+        List<Integer> result = new ArrayList<>();
+        int pos = 0;
+        while (pos < data.length) {
+            pos += Chunker.cut(data, pos, data.length);
+            result.add(pos);
+        }
+        return result;
+    }
+
+    @Test
+    public void chunkSizesAreBounded() {
+        byte[] data = random(4 << 20, 11);
+        List<Integer> cuts = cuts(data);
+        assertEquals(data.length, (int) cuts.get(cuts.size() - 1));
+        int last = 0;
+        for (int k = 0; k < cuts.size(); k += 1) {
+            int size = cuts.get(k) - last;
+            assertTrue(size <= Chunker.MAX_SIZE);
+            assertTrue(size >= Chunker.MIN_SIZE || k == cuts.size() - 1);
+            last = cuts.get(k);
+        }
+        assertTrue(cuts.size() > 8);
+        assertEquals(cuts, cuts(data.clone()));
+    }
+
+    @Test
+    public void anInsertionOnlyDisturbsNearbyChunks() {
+        byte[] data = random(4 << 20, 12);
+        int at = 100_000;
+        byte[] inserted = new byte[data.length + 10];
+        System.arraycopy(data, 0, inserted, 0, at);
+        System.arraycopy(data, at, inserted, at + 10, data.length - at);
+
+        Set<Integer> before = new HashSet<>();
+        for (int cut : cuts(data)) {
+            if (cut > at + Chunker.MAX_SIZE) {
+                before.add(cut + 10);
+            }
+        }
+        Set<Integer> after = new HashSet<>(cuts(inserted));
+        assertFalse(before.isEmpty());
+        assertTrue(after.containsAll(before));
+    }
+
+    @Test
+    public void chunkedObjectsRoundTrip() throws IOException {
+        ObjectStore store = new ObjectStore(tmp.newFolder(), Codec.DEFLATE);
+        byte[] data = random(3 << 20, 13);
+        File file = tmp.newFile();
+        Utils.writeContents(file, (Object) data);
+        String id = store.write(file);
+        assertEquals(Utils.sha1((Object) data), id);
+        List<String> chunks =
+            ObjectStore.references(store.representation(id));
+        assertTrue(chunks.size() > 1);
+        assertArrayEquals(data, store.read(id));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(store.copyTo(id, out));
+        assertArrayEquals(data, out.toByteArray());
+
+        data[data.length / 2] ^= 1;
+        Utils.writeContents(file, (Object) data);
+        String edited = store.write(file);
+        List<String> editedChunks =
+            ObjectStore.references(store.representation(edited));
+        Set<String> fresh = new HashSet<>(editedChunks);
+        fresh.removeAll(chunks);
+        assertTrue(fresh.size() <= 2);
+
+        store.gc();
+        assertArrayEquals(data, store.read(edited));
+        data[data.length / 2] ^= 1;
+        assertArrayEquals(data, store.read(id));
+    }
+}
@@ -0,0 +1,102 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/** A thin client that runs a gitlet command in the Daemon serving the
+ *  repository in the current directory.  Usage:
+ *      java gitlet.Client ARGS
+ *  with the same ARGS, output, and exit status as java gitlet.Main ARGS.
+ *  If no daemon is listening, the command runs in this process through
+ *  Main instead.  java gitlet.Client --stop stops the daemon.
+ *
+ *  The client touches as few classes as it can, so that it starts
+ *  quickly: it refers to the rest of gitlet only for constants, which
+ *  the compiler inlines, and when falling back to Main. */
+public class Client {
+
+    /** Argument that asks the daemon to stop. */
+    static final String STOP_OPTION = "--stop";
+
+    /** Send ARGS to the daemon and relay its reply. */
+    public static void main(String[] args) {
+        boolean stop = args.length == 1 && args[0].equals(STOP_OPTION);
+        Path socket = Paths.get(System.getProperty("user.dir"), ".gitlet",
+                                Daemon.SOCKET_NAME);
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException excp) {
+            if (stop) {
+                System.out.println("No daemon is running.");
+            } else {
+                Main.main(args);
+            }
+            return;
+        }
+        int status;
+        try (channel) {
+            status = exchange(channel, stop ? null : args);
+        } catch (IOException excp) {
+            System.err.println("gitlet: lost connection to daemon: "
+                               + excp.getMessage());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    /** Send ARGS (a stop request if null) on CHANNEL, copy the output in
+     *  the reply to System.out and System.err, and return the exit
+     *  status. */
+    private static int exchange(SocketChannel channel, String[] args)
+        throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel)));
+        if (args == null) {
+            out.writeInt(Daemon.STOP);
+        } else {
+            out.writeInt(args.length);
+            for (String arg : args) {
+                byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        out.flush();
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Channels.newInputStream(channel)));
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int kind;
+            try {
+                kind = in.readByte();
+            } catch (EOFException excp) {
+                throw new IOException("no exit status");
+            }
+            int length = in.readInt();
+            if (kind == Daemon.EXIT) {
+                System.out.flush();
+                System.err.flush();
+                return length;
+            }
+            PrintStream dest = kind == Daemon.STDERR ? System.err : System.out;
+            while (length > 0) {
+                int n = Math.min(length, buffer.length);
+                in.readFully(buffer, 0, n);
+                dest.write(buffer, 0, n);
+                length -= n;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** A compression method for stored objects.  Each codec has a small
+ *  numeric id, recorded in the header of every object it compresses, so
+ *  that a store may hold objects compressed by different codecs. */
+interface Codec {
+
+    /** Id recorded for objects that are not compressed. */
+    int NONE = 0;
+    /** Largest codec id that fits in an object header. */
+    int MAX_ID = 15;
+
+    /** Return the id of this codec, in 1 .. MAX_ID. */
+    int id();
+
+    /** Return the name of this codec. */
+    String name();
+
+    /** Return a stream that compresses everything written to it onto OUT.
+     *  Closing the result finishes the compressed data and closes OUT. */
+    OutputStream compressor(OutputStream out) throws IOException;
+
+    /** Return a stream of the decompressed contents of IN. */
+    InputStream decompressor(InputStream in) throws IOException;
+
+    /** Return DATA compressed. */
+    default byte[] compress(byte[] data) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (OutputStream out = compressor(result)) {
+            out.write(data);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result.toByteArray();
+    }
+
+    /** Return DATA decompressed. */
+    default byte[] decompress(byte[] data) {
+        try (InputStream in =
+                 decompressor(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The Deflate codec. */
+    Codec DEFLATE = new DeflateCodec();
+    /** The LZ4-style codec. */
+    Codec LZ4 = new Lz4Codec();
+
+    /** Return the codec with id ID.  Throws IllegalArgumentException if
+     *  there is none. */
+    static Codec forId(int id) {
+        if (id == DEFLATE.id()) {
+            return DEFLATE;
+        } else if (id == LZ4.id()) {
+            return LZ4;
+        }
+        throw new IllegalArgumentException("unknown codec " + id);
+    }
+}
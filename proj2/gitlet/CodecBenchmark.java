@@ -0,0 +1,86 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Compares the compression ratio and throughput of the codecs available
+ *  to ObjectStore on a body of real files.  Usage:
+ *      java gitlet.CodecBenchmark [DIR ...]
+ *  where the DIRs (default ".") are searched recursively for plain files,
+ *  each of which is compressed and decompressed as a separate object, as
+ *  the store would.  Each measurement is repeated after a warm-up round,
+ *  so that the reported times are for JIT-compiled code. */
+public class CodecBenchmark {
+
+    /** Number of timed rounds after warm-up. */
+    private static final int ROUNDS = 5;
+
+    /** Last result computed, kept so that the JIT cannot discard the
+     *  work being timed. */
+    private static volatile Object sink;
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) {
+        List<byte[]> files = new ArrayList<>();
+        for (String dir : args.length > 0 ? args : new String[] { "." }) {
+            collect(new File(dir), files);
+        }
+        long total = 0;
+        for (byte[] data : files) {
+            total += data.length;
+        }
+        System.out.printf("%d files, %d bytes%n", files.size(), total);
+        System.out.printf("%-10s %10s %8s %14s %14s%n", "codec", "bytes",
+                          "ratio", "compress MB/s", "decompress MB/s");
+        System.out.printf("%-10s %10d %8.3f %14s %14s%n", "none", total,
+                          1.0, "-", "-");
+        for (Codec codec : new Codec[] { Codec.LZ4, Codec.DEFLATE }) {
+            List<byte[]> compressed = new ArrayList<>();
+            long size = 0;
+            for (byte[] data : files) {
+                byte[] z = codec.compress(data);
+                compressed.add(z);
+                size += z.length;
+            }
+            double compress = time(files, codec, true);
+            double decompress = time(compressed, codec, false);
+            System.out.printf("%-10s %10d %8.3f %14.1f %14.1f%n",
+                              codec.name(), size, (double) size / total,
+                              total / compress / 1e6, total / decompress / 1e6);
+        }
+    }
+
+    /** Add the contents of every plain file in or below FILE to RESULT. */
+    private static void collect(File file, List<byte[]> result) {
+        if (file.isFile()) {
+            result.add(Utils.readContents(file));
+        } else if (file.isDirectory()) {
+            File[] entries = file.listFiles();
+            if (entries != null) {
+                for (File entry : entries) {
+                    collect(entry, result);
+                }
+            }
+        }
+    }
+
+    /** Return the best time in seconds, over ROUNDS rounds following one
+     *  warm-up round, of compressing (if COMPRESS) or decompressing each of
+     *  ITEMS with CODEC. */
+    private static double time(List<byte[]> items, Codec codec,
+                               boolean compress) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round += 1) {
+            long start = System.nanoTime();
+            for (byte[] item : items) {
+                sink = compress ? codec.compress(item) : codec.decompress(item);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed / 1e9);
+            }
+        }
+        return best;
+    }
+}
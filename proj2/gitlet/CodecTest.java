@@ -0,0 +1,164 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the Deflate and LZ4 codecs and of stores mixing them. */
+public class CodecTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return N bytes of text-like data, compressible but not trivially,
+     *  from a generator seeded with SEED. */
+    private static byte[] text(int n, long seed) {
+        Random random = new Random(seed);
+        String[] words = { "gitlet ", "commit ", "tree ", "blob ", "merge ",
+                           "branch\n", "the ", "of " };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (out.size() < n) {
+            out.writeBytes(words[random.nextInt(words.length)]
+                           .getBytes(StandardCharsets.UTF_8));
+            if (random.nextInt(10) == 0) {
+                out.write('a' + random.nextInt(26));
+            }
+        }
+        return Arrays.copyOf(out.toByteArray(), n);
+    }
+
+    /** Return N random bytes from a generator seeded with SEED. */
+    private static byte[] random(int n, long seed) {
+        byte[] result = new byte[n];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+
+    @Test
+    public void roundTripsAcrossSizes() {
+        int block = Lz4Codec.BLOCK_SIZE;
+        int[] sizes = { 0, 1, 3, 4, 12, 13, 100, 4096, 4097, block - 1,
+                        block, block + 1, 3 * block + 17 };
+        for (Codec codec : List.of(Codec.DEFLATE, Codec.LZ4)) {
+            for (int size : sizes) {
+                for (byte[] data : List.of(text(size, size), random(size, size),
+                                           new byte[size])) {
+                    assertArrayEquals(codec.name() + " " + size, data,
+                                      codec.decompress(codec.compress(data)));
+                }
+            }
+        }
+        byte[] data = text(4 * block, 1);
+        assertTrue(Codec.LZ4.compress(data).length < data.length / 2);
+    }
+
+    @Test
+    public void incompressibleBlocksAreStoredRaw() {
+        int block = Lz4Codec.BLOCK_SIZE;
+        byte[] data = random(2 * block + 100, 5);
+        byte[] compressed = Codec.LZ4.compress(data);
+        assertEquals(data.length + 3 * 8, compressed.length);
+        assertArrayEquals(Arrays.copyOfRange(data, 0, block),
+                          Arrays.copyOfRange(compressed, 8, 8 + block));
+    }
+
+    /** Assert that CODEC rejects DATA with IllegalArgumentException. */
+    private static void assertRejected(Codec codec, byte[] data) {
+        try {
+            codec.decompress(data);
+            fail(codec.name() + " accepted bad data");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    /** Return an LZ4 block header for LENGTH bytes stored in STORED
+     *  bytes, followed by the bytes BODY. */
+    private static byte[] lz4Block(int length, int stored, int... body)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(length);
+        out.writeInt(stored);
+        for (int b : body) {
+            out.writeByte(b);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void badInputIsRejected() throws IOException {
+        byte[] data = text(3 * Lz4Codec.BLOCK_SIZE, 7);
+        for (Codec codec : List.of(Codec.DEFLATE, Codec.LZ4)) {
+            byte[] compressed = codec.compress(data);
+            for (int cut : new int[] { 1, 5, compressed.length / 2,
+                                       compressed.length - 1 }) {
+                assertRejected(codec, Arrays.copyOf(compressed, cut));
+            }
+        }
+
+        assertRejected(Codec.LZ4, lz4Block(Lz4Codec.BLOCK_SIZE + 1, 1, 0));
+        assertRejected(Codec.LZ4, lz4Block(-1, 0));
+        assertRejected(Codec.LZ4, lz4Block(4, 5, 1, 2, 3, 4, 5));
+        assertRejected(Codec.LZ4, lz4Block(8, 3, 0x10, 'a', 0));
+        assertRejected(Codec.LZ4, lz4Block(8, 4, 0x14, 'a', 9, 0));
+        assertRejected(Codec.LZ4, lz4Block(10, 4, 0x14, 'a', 1, 0));
+
+        byte[] compressed = Codec.LZ4.compress(data);
+        Random random = new Random(8);
+        for (int trial = 0; trial < 500; trial += 1) {
+            byte[] damaged = compressed.clone();
+            damaged[random.nextInt(damaged.length)] ^=
+                (byte) (1 + random.nextInt(255));
+            try {
+                Codec.LZ4.decompress(damaged);
+            } catch (IllegalArgumentException excp) {
+                /* Rejected, as it may be; nothing else may escape. */
+            }
+        }
+    }
+
+    @Test
+    public void storesReadObjectsOfEveryCodec() throws IOException {
+        File dir = tmp.newFolder();
+        ObjectStore deflate = new ObjectStore(dir, Codec.DEFLATE);
+        ObjectStore lz4 = new ObjectStore(dir, Codec.LZ4);
+        List<String> ids = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        for (int i = 0; i < 6; i += 1) {
+            byte[] data = i == 5 ? random(1000, i) : text(5000 + i, i);
+            ObjectStore store = i % 2 == 0 ? deflate : lz4;
+            ids.add(store.write(data));
+            contents.add(data);
+            int type = Utils.readContents(store.looseFile(ids.get(i)))[0];
+            int expected = i == 5 ? Codec.NONE : store == deflate
+                ? Codec.DEFLATE.id() : Codec.LZ4.id();
+            assertEquals(expected, (type >> 4) & 0xf);
+        }
+        String delta = lz4.write(text(5001, 1), ids.get(0));
+        ids.add(delta);
+        contents.add(text(5001, 1));
+
+        ObjectStore reader = new ObjectStore(dir, Codec.DEFLATE);
+        for (int i = 0; i < ids.size(); i += 1) {
+            assertArrayEquals(contents.get(i), reader.read(ids.get(i)));
+        }
+        reader.gc();
+        reader = new ObjectStore(dir);
+        for (int i = 0; i < ids.size(); i += 1) {
+            assertArrayEquals(contents.get(i), reader.read(ids.get(i)));
+        }
+    }
+}
@@ -1,26 +1,96 @@
 package gitlet;
 
-// TODO: any imports you need here
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
-import java.util.Date; // TODO: You'll likely use this in this class
-
-/** Represents a gitlet commit object.
- *  TODO: It's a good idea to give a description here of what else this Class
- *  does at a high level.
+/** Represents a gitlet commit object: a message and timestamp, the ids
+ *  of its parent commits, and the blob id of each file it tracks.  Stored
+ *  commits refer to their files by the id of a root Tree; a Commit built
+ *  in memory may instead list them, and Repository.writeCommit stores
+ *  their Trees.  A Commit does not know which repository it came from,
+ *  so the Tree store to read its files from is given whenever they are
+ *  needed.  Commits are stored in the compact binary format of
+ *  CommitCodec.
  *
  *  @author TODO
  */
-public class Commit {
-    /**
-     * TODO: add instance variables here.
-     *
-     * List all instance variables of the Commit class here with a useful
-     * comment above them describing what that variable represents and how that
-     * variable is used. We've provided one example for `message`.
-     */
-
+public class Commit implements Dumpable {
     /** The message of this Commit. */
     private String message;
+    /** The time at which this Commit was made. */
+    private Date timestamp;
+    /** The ids of the parents of this Commit: none for the initial
+     *  commit, two for a merge commit. */
+    private List<String> parents;
+    /** Maps each tracked file name to the id of its blob, or null if
+     *  this Commit refers to its files by tree. */
+    private TreeMap<String, String> blobs;
+    /** The id of the root Tree of this Commit's files, or null if this
+     *  Commit lists them in blobs. */
+    private String tree;
+
+    /** A Commit with MESSAGE made at TIMESTAMP, with parents PARENTS, that
+     *  tracks the files in BLOBS (file name to blob id). */
+    Commit(String message, Date timestamp, List<String> parents,
+           Map<String, String> blobs) {
+        this.message = message;
+        this.timestamp = new Date(timestamp.getTime());
+        this.parents = List.copyOf(parents);
+        this.blobs = new TreeMap<>(blobs);
+    }
+
+    /** A Commit with MESSAGE made at TIMESTAMP, with parents PARENTS, whose
+     *  files are those under the root Tree with id TREE in the Tree store
+     *  of its repository. */
+    Commit(String message, Date timestamp, List<String> parents,
+           String tree) {
+        this.message = message;
+        this.timestamp = new Date(timestamp.getTime());
+        this.parents = List.copyOf(parents);
+        this.tree = tree;
+    }
+
+    /** Return the message of this Commit. */
+    String getMessage() {
+        return message;
+    }
+
+    /** Return the time at which this Commit was made. */
+    Date getTimestamp() {
+        return new Date(timestamp.getTime());
+    }
+
+    /** Return the ids of the parents of this Commit, first parent first. */
+    List<String> getParents() {
+        return Collections.unmodifiableList(parents);
+    }
+
+    /** Return the id of the root Tree of this Commit's files, or null if
+     *  it lists them instead. */
+    String getTree() {
+        return tree;
+    }
+
+    /** Return the map from tracked file names to blob ids, in file name
+     *  order.  For a Commit that refers to its files by tree, the map is
+     *  built each time from the Trees in TREES, the Tree store of the
+     *  repository this Commit was read from; callers that can should walk
+     *  the Trees instead.  TREES is not used, and may be null, if this
+     *  Commit lists its files. */
+    Map<String, String> getBlobs(ObjectStore trees) {
+        if (blobs == null) {
+            return Collections.unmodifiableMap(Tree.files(trees, tree));
+        }
+        return Collections.unmodifiableMap(blobs);
+    }
 
-    /* TODO: fill in the rest of this class. */
+    @Override
+    public void dump() {
+        System.out.printf("message: %s%ntimestamp: %s%nparents: %s%n"
+                          + "tree: %s%nblobs: %s%n", message, timestamp,
+                          parents, tree, blobs);
+    }
 }
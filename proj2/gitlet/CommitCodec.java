@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The binary format in which commits are stored.
+ *
+ *  An encoded commit is the magic number "GCMT", a version byte, and then
+ *      the message: a varint length followed by UTF-8 bytes,
+ *      the timestamp: 8 bytes of milliseconds since the epoch,
+ *      the parents: a count byte followed by a raw 20-byte id for each,
+ *      the files: in version 2, the raw id of the commit's root Tree; in
+ *          version 1, a varint count followed, for each file in name
+ *          order, by a varint length, the UTF-8 file name, and its raw
+ *          blob id.
+ *  Varints are unsigned, 7 bits per byte, low-order group first.  A
+ *  commit that has a root Tree is encoded in version 2, and one that only
+ *  lists its files, as commits built in memory may, in version 1.
+ *  Commits have only ever been stored in this format. */
+class CommitCodec {
+
+    /** Magic number ("GCMT") at the start of every encoded commit. */
+    static final int MAGIC = 0x47434d54;
+    /** Current format version. */
+    static final int VERSION = 2;
+    /** Format version that lists every file in the commit. */
+    static final int LISTED_VERSION = 1;
+
+    /** Return the encoding of COMMIT. */
+    static byte[] encode(Commit commit) {
+        String tree = commit.getTree();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+            64 + (tree != null ? ObjectId.LENGTH
+                  : commit.getBlobs(null).size() * (ObjectId.LENGTH + 16)));
+        writeInt(out, MAGIC);
+        out.write(tree != null ? VERSION : LISTED_VERSION);
+        writeString(out, commit.getMessage());
+        writeLong(out, commit.getTimestamp().getTime());
+        List<String> parents = commit.getParents();
+        out.write(parents.size());
+        for (String parent : parents) {
+            out.writeBytes(ObjectId.fromHex(parent).toBytes());
+        }
+        if (tree != null) {
+            out.writeBytes(ObjectId.fromHex(tree).toBytes());
+            return out.toByteArray();
+        }
+        Map<String, String> blobs = commit.getBlobs(null);
+        writeVarint(out, blobs.size());
+        for (Map.Entry<String, String> entry : blobs.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeBytes(ObjectId.fromHex(entry.getValue()).toBytes());
+        }
+        return out.toByteArray();
+    }
+
+    /** Return the commit encoded in DATA.  Throws IllegalArgumentException
+     *  if DATA is not an encoded commit. */
+    static Commit decode(byte[] data) {
+        Trace.count(Trace.Counter.COMMITS_DECODED);
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("not a commit");
+            }
+            int version = in.get();
+            if (version != VERSION && version != LISTED_VERSION) {
+                throw new IllegalArgumentException(
+                    "unknown commit format version " + version);
+            }
+            String message = readString(in);
+            Date timestamp = new Date(in.getLong());
+            int numParents = in.get() & 0xff;
+            List<String> parents = new ArrayList<>(numParents);
+            for (int i = 0; i < numParents; i += 1) {
+                parents.add(readId(in));
+            }
+            if (version == VERSION) {
+                return new Commit(message, timestamp, parents, readId(in));
+            }
+            int numBlobs = readVarint(in);
+            TreeMap<String, String> blobs = new TreeMap<>();
+            for (int i = 0; i < numBlobs; i += 1) {
+                String name = readString(in);
+                blobs.put(name, readId(in));
+            }
+            return new Commit(message, timestamp, parents, blobs);
+        } catch (BufferUnderflowException excp) {
+            throw new IllegalArgumentException("truncated commit");
+        }
+    }
+
+    /** Write the 4 bytes of VAL to OUT, high-order first. */
+    static void writeInt(ByteArrayOutputStream out, int val) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write(val >>> shift);
+        }
+    }
+
+    /** Write the 8 bytes of VAL to OUT, high-order first. */
+    static void writeLong(ByteArrayOutputStream out, long val) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (val >>> shift));
+        }
+    }
+
+    /** Write the non-negative VAL to OUT as a varint. */
+    static void writeVarint(ByteArrayOutputStream out, int val) {
+        while ((val & ~0x7f) != 0) {
+            out.write((val & 0x7f) | 0x80);
+            val >>>= 7;
+        }
+        out.write(val);
+    }
+
+    /** Write STR to OUT as a varint length and UTF-8 bytes. */
+    static void writeString(ByteArrayOutputStream out, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    /** Read a varint from IN. */
+    static int readVarint(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("bad varint");
+    }
+
+    /** Read a length-prefixed UTF-8 string from IN. */
+    static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String result = new String(in.array(), in.position(), length,
+                                   StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return result;
+    }
+
+    /** Read a raw id from IN and return it in hex. */
+    static String readId(ByteBuffer in) {
+        return ObjectId.fromWords(in.getLong(), in.getLong(), in.getInt())
+            .toString();
+    }
+}
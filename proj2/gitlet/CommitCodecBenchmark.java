@@ -0,0 +1,120 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/** Compares the time and space cost of storing commits with CommitCodec
+ *  against Java serialization through Utils.serialize.  Usage:
+ *      java gitlet.CommitCodecBenchmark [FILES [COMMITS]]
+ *  where FILES is the number of files each commit tracks (default 100)
+ *  and COMMITS is the number of commits in the synthetic history
+ *  (default 20000).  Each measurement is repeated after a warm-up round,
+ *  so that the reported times are for JIT-compiled code.  The same
+ *  comparison runs under JMH as gitlet.CommitCodecJmh (mvn -P jmh
+ *  verify). */
+public class CommitCodecBenchmark {
+
+    /** Number of timed rounds after warm-up. */
+    private static final int ROUNDS = 5;
+
+    /** Last result computed, kept so that the JIT cannot discard the
+     *  work being timed. */
+    private static volatile Object sink;
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        List<Commit> history = history(files, count);
+
+        List<byte[]> serialized = new ArrayList<>();
+        List<byte[]> encoded = new ArrayList<>();
+        for (Commit commit : history) {
+            serialized.add(Utils.serialize(commit));
+            encoded.add(CommitCodec.encode(commit));
+        }
+        System.out.printf("%d commits of %d files%n", count, files);
+        System.out.printf("%-22s %12s %12s %12s%n", "format", "bytes/commit",
+                          "encode (us)", "decode (us)");
+        report("Utils.serialize", serialized,
+               timeEach(history, c -> Utils.serialize(c)),
+               timeEach(serialized, CommitCodecBenchmark::deserialize));
+        report("CommitCodec", encoded,
+               timeEach(history, CommitCodec::encode),
+               timeEach(encoded, CommitCodec::decode));
+    }
+
+    /** Return a linear history of COUNT commits, each tracking FILES
+     *  files, with a few files changing in each commit. */
+    static List<Commit> history(int files, int count) {
+        Random random = new Random(61);
+        TreeMap<String, String> blobs = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            blobs.put(String.format("src/dir%d/file%d.txt", i % 10, i),
+                      Utils.sha1("blob", Integer.toString(i)));
+        }
+        List<Commit> result = new ArrayList<>(count);
+        List<String> parents = new ArrayList<>();
+        long time = 0;
+        for (int i = 0; i < count; i += 1) {
+            for (int k = 0; k < 3 && files > 0; k += 1) {
+                String name = blobs.keySet().toArray(new String[0])
+                    [random.nextInt(files)];
+                blobs.put(name, Utils.sha1(name, Integer.toString(i)));
+            }
+            Commit commit = new Commit("Change number " + i, new Date(time),
+                                       parents, blobs);
+            result.add(commit);
+            parents = List.of(Utils.sha1(CommitCodec.encode(commit)));
+            time += 60000;
+        }
+        return result;
+    }
+
+    /** Return the Commit serialized in DATA, as Utils.readObject would. */
+    private static Commit deserialize(byte[] data) {
+        try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Commit) in.readObject();
+        } catch (IOException | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the best time, in microseconds per item, of applying OP to
+     *  each of ITEMS, over ROUNDS rounds following one warm-up round. */
+    static <T> double timeEach(List<T> items,
+                               Function<T, ?> op) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round += 1) {
+            long start = System.nanoTime();
+            for (T item : items) {
+                sink = op.apply(item);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed / 1e3 / items.size());
+            }
+        }
+        return best;
+    }
+
+    /** Print one line of the results table for format NAME, whose
+     *  encodings are DATA, with the given ENCODE and DECODE times. */
+    private static void report(String name, List<byte[]> data,
+                               double encode, double decode) {
+        long total = 0;
+        for (byte[] item : data) {
+            total += item.length;
+        }
+        System.out.printf("%-22s %12d %12.2f %12.2f%n", name,
+                          total / data.size(), encode, decode);
+    }
+}
@@ -0,0 +1,64 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/** Tests of the commit format of CommitCodec. */
+public class CommitCodecTest {
+
+    /** Some blob id. */
+    private static final String BLOB = Utils.sha1("blob");
+    /** Some commit id. */
+    private static final String PARENT = Utils.sha1("parent");
+
+    @Test
+    public void listedRoundTrip() {
+        Commit commit = new Commit("h\u00e9llo\nworld",
+                                   new Date(1234567890123L),
+                                   List.of(PARENT, BLOB),
+                                   Map.of("a.txt", BLOB, "dir/b.txt", PARENT));
+        Commit decoded = CommitCodec.decode(CommitCodec.encode(commit));
+        assertEquals(commit.getMessage(), decoded.getMessage());
+        assertEquals(commit.getTimestamp(), decoded.getTimestamp());
+        assertEquals(commit.getParents(), decoded.getParents());
+        assertNull(decoded.getTree());
+        assertEquals(Map.of("a.txt", BLOB, "dir/b.txt", PARENT),
+                     decoded.getBlobs(null));
+        assertEquals(CommitCodec.LISTED_VERSION,
+                     CommitCodec.encode(commit)[4]);
+    }
+
+    @Test
+    public void treeRoundTrip() {
+        Commit commit = new Commit("initial commit", new Date(0), List.of(),
+                                   BLOB);
+        byte[] data = CommitCodec.encode(commit);
+        assertEquals(CommitCodec.VERSION, data[4]);
+        Commit decoded = CommitCodec.decode(data);
+        assertEquals("initial commit", decoded.getMessage());
+        assertEquals(new Date(0), decoded.getTimestamp());
+        assertEquals(List.of(), decoded.getParents());
+        assertEquals(BLOB, decoded.getTree());
+        assertArrayEquals(data, CommitCodec.encode(decoded));
+    }
+
+    @Test
+    public void rejectsOtherData() {
+        byte[] serialized = Utils.serialize(
+            new Commit("m", new Date(0), List.of(), BLOB));
+        for (byte[] data : List.of(serialized, new byte[0],
+                                   new byte[] { 0x47, 0x43, 0x4d, 0x54, 2 })) {
+            try {
+                CommitCodec.decode(data);
+                fail("decoded a non-commit");
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+        }
+    }
+}
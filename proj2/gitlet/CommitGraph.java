@@ -0,0 +1,400 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/** A memory-mapped sidecar file, .gitlet/commit-graph, holding the shape
+ *  of the commit history, so that ancestry queries need not read commit
+ *  objects.
+ *
+ *  Commits are numbered by their positions in sorted id order.  The file
+ *  holds the magic number "GCGR", a version int, the commit count N, the
+ *  N sorted raw 20-byte ids, and then a fixed-width row for each commit:
+ *  the positions of its first and second parents (-1 if absent), its
+ *  generation number, and its timestamp in milliseconds.  A root commit
+ *  has generation 1, and any other commit one more than the largest
+ *  generation of its parents, so a commit's ancestors all have smaller
+ *  generations than it does.
+ *
+ *  The graph is a cache: commits made after it was written are simply not
+ *  in it, and callers fall back to reading commit objects for those. */
+class CommitGraph {
+
+    /** Magic number ("GCGR") at the start of a commit-graph file. */
+    private static final int MAGIC = 0x47434752;
+    /** Current format version. */
+    private static final int VERSION = 1;
+    /** Length of the header in bytes. */
+    private static final int HEADER = 12;
+    /** Length of one row of the commit table in bytes. */
+    private static final int ROW = 20;
+    /** Position denoting a missing parent. */
+    static final int NONE = -1;
+
+    /** The graph stored in FILE. */
+    private CommitGraph(File file) {
+        try (FileChannel ch = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            _data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (_data.getInt(0) != MAGIC || _data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("bad commit-graph file");
+        }
+        _size = _data.getInt(8);
+        _table = HEADER + _size * ObjectId.LENGTH;
+    }
+
+    /** Return the graph stored in FILE, or null if there is none or it is
+     *  unreadable. */
+    static CommitGraph read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return new CommitGraph(file);
+        } catch (IllegalArgumentException excp) {
+            return null;
+        }
+    }
+
+    /** Write to FILE, atomically, the graph of all commits in COMMITS. */
+    static void write(File file, ObjectStore commits) {
+        TreeSet<ObjectId> sorted = new TreeSet<>();
+        for (String id : commits.ids()) {
+            sorted.add(ObjectId.fromHex(id));
+        }
+        ObjectId[] ids = sorted.toArray(new ObjectId[0]);
+        int n = ids.length;
+        int[][] parents = new int[n][];
+        long[] times = new long[n];
+        for (int i = 0; i < n; i += 1) {
+            Commit commit =
+                CommitCodec.decode(commits.read(ids[i].toString()));
+            times[i] = commit.getTimestamp().getTime();
+            List<String> ps = commit.getParents();
+            parents[i] = new int[ps.size()];
+            for (int k = 0; k < ps.size(); k += 1) {
+                parents[i][k] =
+                    Arrays.binarySearch(ids, ObjectId.fromHex(ps.get(k)));
+                if (parents[i][k] < 0) {
+                    throw new IllegalArgumentException("missing parent of "
+                                                       + ids[i]);
+                }
+            }
+        }
+        int[] generations = generations(parents);
+        try {
+            Path tmp = Files.createTempFile(file.getParentFile().toPath(),
+                                            "commit-graph-", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(n);
+                for (ObjectId id : ids) {
+                    out.write(id.toBytes());
+                }
+                for (int i = 0; i < n; i += 1) {
+                    out.writeInt(parents[i].length > 0 ? parents[i][0] : NONE);
+                    out.writeInt(parents[i].length > 1 ? parents[i][1] : NONE);
+                    out.writeInt(generations[i]);
+                    out.writeLong(times[i]);
+                }
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the generation numbers of the commits whose parent
+     *  positions are PARENTS, computed without recursion. */
+    private static int[] generations(int[][] parents) {
+        int[] result = new int[parents.length];
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int start = 0; start < parents.length; start += 1) {
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                int c = stack.peek();
+                if (result[c] > 0) {
+                    stack.pop();
+                    continue;
+                }
+                int gen = 1;
+                boolean ready = true;
+                for (int p : parents[c]) {
+                    if (result[p] == 0) {
+                        stack.push(p);
+                        ready = false;
+                    } else {
+                        gen = Math.max(gen, result[p] + 1);
+                    }
+                }
+                if (ready) {
+                    result[c] = gen;
+                    stack.pop();
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the number of commits in this graph. */
+    int size() {
+        return _size;
+    }
+
+    /** Return a checksum of the ids in this graph, which identifies the
+     *  numbering of commits by position, so that files indexed by position
+     *  can tell whether they still match the graph. */
+    long checksum() {
+        CRC32 crc = new CRC32();
+        crc.update(_data.slice(HEADER, _size * ObjectId.LENGTH));
+        return crc.getValue();
+    }
+
+    /** Return the positions, in increasing order, of the commits that are
+     *  not parents of any commit in this graph: the tips of its
+     *  history. */
+    int[] heads() {
+        boolean[] isParent = new boolean[_size];
+        for (int pos = 0; pos < _size; pos += 1) {
+            for (int k = 0; k < 2; k += 1) {
+                int p = parent(pos, k);
+                if (p != NONE) {
+                    isParent[p] = true;
+                }
+            }
+        }
+        int[] result = new int[_size];
+        int n = 0;
+        for (int pos = 0; pos < _size; pos += 1) {
+            if (!isParent[pos]) {
+                result[n] = pos;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Return the position of the commit with id ID, or -1 if it is not
+     *  in this graph. */
+    int position(String id) {
+        ObjectId target = ObjectId.fromHex(id);
+        int lo = 0, hi = _size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = idAt(mid).compareTo(target);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NONE;
+    }
+
+    /** Return the id of the commit at position POS. */
+    String id(int pos) {
+        return idAt(pos).toString();
+    }
+
+    /** Return the position of parent K (0 or 1) of the commit at POS, or
+     *  NONE if it has no such parent. */
+    int parent(int pos, int k) {
+        return _data.getInt(_table + pos * ROW + 4 * k);
+    }
+
+    /** Return the generation number of the commit at POS. */
+    int generation(int pos) {
+        return _data.getInt(_table + pos * ROW + 8);
+    }
+
+    /** Return the timestamp in milliseconds of the commit at POS. */
+    long timestamp(int pos) {
+        return _data.getLong(_table + pos * ROW + 12);
+    }
+
+    /** Return true iff the commit at ANCESTOR is the commit at POS or one
+     *  of its ancestors.  Commits with generations no greater than
+     *  ANCESTOR's are not explored past. */
+    boolean isAncestor(int ancestor, int pos) {
+        int limit = generation(ancestor);
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        boolean[] seen = new boolean[_size];
+        work.push(pos);
+        while (!work.isEmpty()) {
+            int c = work.pop();
+            if (c == ancestor) {
+                return true;
+            }
+            if (seen[c] || generation(c) <= limit) {
+                continue;
+            }
+            seen[c] = true;
+            for (int k = 0; k < 2; k += 1) {
+                int p = parent(c, k);
+                if (p != NONE) {
+                    work.push(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return the position of a latest common ancestor (the split point)
+     *  of the commits at positions A and B: a common ancestor that is not
+     *  an ancestor of any other common ancestor.
+     *
+     *  Commits are visited in order of decreasing generation, each marked
+     *  with which of A and B reach it.  The first commit reached from both
+     *  has the largest generation of any common ancestor, so none of the
+     *  others can descend from it, and the walk stops there without
+     *  visiting the older history below it.  Ties are broken by later
+     *  timestamp and then by smaller id, so that mergeBase(A, B, COMMITS)
+     *  picks the same commit without a graph. */
+    int mergeBase(int a, int b) {
+        final byte fromA = 1, fromB = 2;
+        Map<Integer, Byte> marks = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>((x, y) -> {
+            int c = Integer.compare(generation(y), generation(x));
+            c = c != 0 ? c : Long.compare(timestamp(y), timestamp(x));
+            return c != 0 ? c : Integer.compare(x, y);
+        });
+        marks.put(a, fromA);
+        marks.merge(b, fromB, (x, y) -> (byte) (x | y));
+        queue.add(a);
+        if (a != b) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            int c = queue.poll();
+            byte mark = marks.get(c);
+            if (mark == (fromA | fromB)) {
+                return c;
+            }
+            for (int k = 0; k < 2; k += 1) {
+                int p = parent(c, k);
+                if (p == NONE) {
+                    continue;
+                }
+                Byte old = marks.get(p);
+                if (old == null) {
+                    marks.put(p, mark);
+                    queue.add(p);
+                } else if ((old | mark) != old) {
+                    marks.put(p, (byte) (old | mark));
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** Return the id of the split point of the commits with ids A and B,
+     *  as mergeBase(int, int) would find it in a graph of all commits, or
+     *  null if they have no common ancestor.  COMMITS returns the commit
+     *  with a given id, or null if there is none, which is an error.
+     *  Without a graph, the generations are not known in advance, so every
+     *  ancestor of A and B is read once to compute them; the walk itself
+     *  then visits commits in the same order as the graph would. */
+    static String mergeBase(String a, String b,
+                            Function<String, Commit> commits) {
+        Map<String, Commit> read = new HashMap<>();
+        Map<String, Integer> generations = new HashMap<>();
+        ArrayDeque<String> stack = new ArrayDeque<>(List.of(a, b));
+        while (!stack.isEmpty()) {
+            String id = stack.peek();
+            if (generations.containsKey(id)) {
+                stack.pop();
+                continue;
+            }
+            Commit commit = read.computeIfAbsent(id, commits);
+            if (commit == null) {
+                throw new IllegalArgumentException("missing commit " + id);
+            }
+            int gen = 1;
+            boolean ready = true;
+            for (String p : commit.getParents()) {
+                Integer pgen = generations.get(p);
+                if (pgen == null) {
+                    stack.push(p);
+                    ready = false;
+                } else {
+                    gen = Math.max(gen, pgen + 1);
+                }
+            }
+            if (ready) {
+                generations.put(id, gen);
+                stack.pop();
+            }
+        }
+
+        final byte fromA = 1, fromB = 2;
+        Map<String, Byte> marks = new HashMap<>();
+        PriorityQueue<String> queue = new PriorityQueue<>((x, y) -> {
+            int c = Integer.compare(generations.get(y), generations.get(x));
+            c = c != 0 ? c : read.get(y).getTimestamp()
+                .compareTo(read.get(x).getTimestamp());
+            return c != 0 ? c : x.compareTo(y);
+        });
+        marks.put(a, fromA);
+        marks.merge(b, fromB, (x, y) -> (byte) (x | y));
+        queue.add(a);
+        if (!a.equals(b)) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            String c = queue.poll();
+            byte mark = marks.get(c);
+            if (mark == (fromA | fromB)) {
+                return c;
+            }
+            for (String p : read.get(c).getParents()) {
+                Byte old = marks.get(p);
+                if (old == null) {
+                    marks.put(p, mark);
+                    queue.add(p);
+                } else if ((old | mark) != old) {
+                    marks.put(p, (byte) (old | mark));
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the id at position POS. */
+    private ObjectId idAt(int pos) {
+        int off = HEADER + pos * ObjectId.LENGTH;
+        return ObjectId.fromWords(_data.getLong(off), _data.getLong(off + 8),
+                                  _data.getInt(off + 16));
+    }
+
+    /** Mapping of the graph file. */
+    private final MappedByteBuffer _data;
+    /** Number of commits. */
+    private final int _size;
+    /** Offset of the commit table. */
+    private final int _table;
+}
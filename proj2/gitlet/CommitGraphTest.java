@@ -0,0 +1,137 @@
+package gitlet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the split points found by CommitGraph, with and without a
+ *  commit-graph file. */
+public class CommitGraphTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** The commit store of the history under test. */
+    private ObjectStore commits;
+
+    @Before
+    public void setUp() throws IOException {
+        commits = new ObjectStore(tmp.newFolder("commits"));
+    }
+
+    /** Store a commit with MESSAGE made at TIME with PARENTS, and return
+     *  its id. */
+    private String commit(String message, long time, String... parents) {
+        return commits.write(CommitCodec.encode(
+            new Commit(message, new Date(time), List.of(parents), Map.of())));
+    }
+
+    /** Return the split point of A and B found by walking commit
+     *  objects. */
+    private String walked(String a, String b) {
+        return CommitGraph.mergeBase(a, b, id ->
+            CommitCodec.decode(commits.read(id)));
+    }
+
+    /** Return the split point of A and B found in a commit-graph file of
+     *  the whole store. */
+    private String graphed(String a, String b) throws IOException {
+        File file = new File(tmp.getRoot(), "commit-graph");
+        CommitGraph.write(file, commits);
+        CommitGraph graph = CommitGraph.read(file);
+        int base = graph.mergeBase(graph.position(a), graph.position(b));
+        return base == CommitGraph.NONE ? null : graph.id(base);
+    }
+
+    /** Assert that both ways of finding the split point of A and B give
+     *  EXPECTED, in either order. */
+    private void assertSplit(String expected, String a, String b)
+        throws IOException {
+        assertEquals(expected, walked(a, b));
+        assertEquals(expected, walked(b, a));
+        assertEquals(expected, graphed(a, b));
+        assertEquals(expected, graphed(b, a));
+    }
+
+    @Test
+    public void unevenDepth() throws IOException {
+        String root = commit("root", 0);
+        String w = commit("W", 1000, root);
+        String z = commit("Z", 2000, w);
+        String a = commit("A", 3000, z);
+        String q = commit("Q", 4000, z);
+        String b = commit("B", 5000, w, q);
+        assertSplit(z, a, b);
+    }
+
+    @Test
+    public void longBranch() throws IOException {
+        String root = commit("root", 0);
+        String fork = commit("fork", 1000, root);
+        String a = commit("a", 2000, fork);
+        String b = fork;
+        for (int i = 0; i < 50; i += 1) {
+            b = commit("b" + i, 3000 + i, b);
+        }
+        assertSplit(fork, a, b);
+        assertSplit(fork, fork, b);
+        assertSplit(b, b, b);
+    }
+
+    @Test
+    public void crissCross() throws IOException {
+        String root = commit("root", 0);
+        String x = commit("X", 1000, root);
+        String y = commit("Y", 1000, root);
+        String m1 = commit("M1", 2000, x, y);
+        String m2 = commit("M2", 2000, y, x);
+        String expected = x.compareTo(y) < 0 ? x : y;
+        assertSplit(expected, m1, m2);
+
+        String later = commit("later", 3000, y);
+        String m3 = commit("M3", 4000, x, later);
+        String m4 = commit("M4", 4000, later, x);
+        assertSplit(later, m3, m4);
+    }
+
+    @Test
+    public void unrelated() throws IOException {
+        String a = commit("a", 0);
+        String b = commit("b", 0);
+        assertSplit(null, a, b);
+    }
+
+    @Test
+    public void randomHistories() throws IOException {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 20; trial += 1) {
+            commits = new ObjectStore(tmp.newFolder());
+            List<String> ids = new ArrayList<>();
+            ids.add(commit("root " + trial, 0));
+            for (int i = 1; i < 60; i += 1) {
+                String p1 = ids.get(random.nextInt(ids.size()));
+                String p2 = ids.get(random.nextInt(ids.size()));
+                long time = random.nextInt(5) * 1000L;
+                ids.add(random.nextInt(3) == 0 && !p1.equals(p2)
+                        ? commit("c" + i, time, p1, p2)
+                        : commit("c" + i, time, p1));
+            }
+            for (int k = 0; k < 10; k += 1) {
+                String a = ids.get(random.nextInt(ids.size()));
+                String b = ids.get(random.nextInt(ids.size()));
+                assertEquals(graphed(a, b), walked(a, b));
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** A long-running server of gitlet commands for one repository, so that
+ *  a stream of commands pays for JVM startup and class loading once, and
+ *  finds the object caches, open packs, and stat index already warm.
+ *  Usage, in the root of a repository:
+ *      java gitlet.Daemon
+ *  Commands are then sent with Client.
+ *
+ *  The daemon listens on the Unix domain socket .gitlet/daemon.sock and
+ *  runs one command at a time, in order of arrival, so commands behave
+ *  as if run one after another by Main.  A request is an argument count
+ *  followed by the arguments, each as a length and UTF-8 bytes; a count
+ *  of STOP asks the daemon to exit.  While a command runs, System.out
+ *  and System.err are redirected into the reply, which is a sequence of
+ *  frames, each a kind byte (STDOUT or STDERR), a length, and that many
+ *  bytes of output, ended by an EXIT frame holding the exit status.
+ *  An exception that would have escaped Main.main is reported on the
+ *  error stream as the JVM would report it, with status 1.  A request
+ *  with a negative count other than STOP, more than MAX_ARGS arguments,
+ *  or more than MAX_REQUEST bytes of them runs nothing and is answered
+ *  with an error message and status 1. */
+public class Daemon {
+
+    /** Name of the socket file in the .gitlet directory. */
+    static final String SOCKET_NAME = "daemon.sock";
+    /** Argument count requesting that the daemon stop. */
+    static final int STOP = -1;
+    /** Frame kind ending a reply. */
+    static final int EXIT = 0;
+    /** Frame kind carrying standard output. */
+    static final int STDOUT = 1;
+    /** Frame kind carrying standard error. */
+    static final int STDERR = 2;
+    /** Largest number of arguments in a request. */
+    static final int MAX_ARGS = 1 << 12;
+    /** Largest total length in bytes of the arguments of a request. */
+    static final int MAX_REQUEST = 1 << 20;
+
+    /** Serve commands as described in the class comment.  ARGS is
+     *  ignored. */
+    public static void main(String[] args) throws IOException {
+        try {
+            Repository.checkInitialized();
+        } catch (GitletException excp) {
+            Utils.message(excp.getMessage());
+            return;
+        }
+        Path socket = Repository.DAEMON_SOCKET.toPath();
+        if (Files.exists(socket)) {
+            try (SocketChannel probe = SocketChannel.open(
+                     UnixDomainSocketAddress.of(socket))) {
+                Utils.message("A daemon is already running.");
+                return;
+            } catch (IOException excp) {
+                Files.delete(socket);
+            }
+        }
+        try (ServerSocketChannel server =
+                 ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            boolean running = true;
+            while (running) {
+                try (SocketChannel client = server.accept()) {
+                    running = serve(client);
+                } catch (IOException | RuntimeException excp) {
+                    /* The client went away or sent nonsense; serve the
+                     * next one. */
+                }
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /** Read one request from CLIENT, run it, and send the reply.  Returns
+     *  false iff the request was to stop. */
+    private static boolean serve(SocketChannel client) throws IOException {
+        return serve(Channels.newInputStream(client),
+                     Channels.newOutputStream(client));
+    }
+
+    /** Read one request from INPUT, run it, and send the reply on OUTPUT.
+     *  Returns false iff the request was to stop. */
+    static boolean serve(InputStream input, OutputStream output)
+        throws IOException {
+        DataInputStream in =
+            new DataInputStream(new BufferedInputStream(input));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(output));
+        int argc = in.readInt();
+        if (argc == STOP) {
+            exit(out, 0);
+            return false;
+        }
+        String[] args = readArgs(in, argc);
+        if (args == null) {
+            byte[] message = "gitlet: malformed request\n"
+                .getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STDERR);
+            out.writeInt(message.length);
+            out.write(message);
+            exit(out, 1);
+            return true;
+        }
+        PrintStream stdout = System.out, stderr = System.err;
+        int status;
+        System.setOut(new PrintStream(new FrameStream(out, STDOUT), true));
+        System.setErr(new PrintStream(new FrameStream(out, STDERR), true));
+        try {
+            status = Main.run(args);
+        } catch (Throwable excp) {
+            Repository.abort();
+            System.err.print("Exception in thread \"main\" ");
+            excp.printStackTrace();
+            status = 1;
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        exit(out, status);
+        return true;
+    }
+
+    /** Return the ARGC arguments of a request read from IN, or null if
+     *  ARGC or their lengths exceed the limits in the class comment. */
+    private static String[] readArgs(DataInputStream in, int argc)
+        throws IOException {
+        if (argc < 0 || argc > MAX_ARGS) {
+            return null;
+        }
+        String[] args = new String[argc];
+        int budget = MAX_REQUEST;
+        for (int i = 0; i < argc; i += 1) {
+            int length = in.readInt();
+            if (length < 0 || length > budget) {
+                return null;
+            }
+            budget -= length;
+            byte[] arg = new byte[length];
+            in.readFully(arg);
+            args[i] = new String(arg, StandardCharsets.UTF_8);
+        }
+        return args;
+    }
+
+    /** End the reply on OUT with an EXIT frame holding STATUS. */
+    private static void exit(DataOutputStream out, int status)
+        throws IOException {
+        out.writeByte(EXIT);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /** An OutputStream that sends what is written to it as frames of one
+     *  kind. */
+    private static class FrameStream extends OutputStream {
+        /** A stream sending frames of kind KIND on OUT. */
+        FrameStream(DataOutputStream out, int kind) {
+            _out = out;
+            _kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                _out.writeByte(_kind);
+                _out.writeInt(len);
+                _out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            _out.flush();
+        }
+
+        /** Destination of the frames. */
+        private final DataOutputStream _out;
+        /** Kind of the frames. */
+        private final int _kind;
+    }
+}
@@ -0,0 +1,146 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests of the request and reply framing of Daemon. */
+public class DaemonTest {
+
+    /** The output and exit status of a command. */
+    private static class Reply {
+        /** Standard output and standard error. */
+        final StringBuilder out = new StringBuilder(),
+            err = new StringBuilder();
+        /** Exit status. */
+        int status;
+        /** True iff the daemon was asked to stop. */
+        boolean stopped;
+    }
+
+    /** Return a request whose argument count is ARGC, followed by ARGS
+     *  as the daemon expects them. */
+    private static byte[] request(int argc, String... args)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(argc);
+        for (String arg : args) {
+            byte[] utf8 = arg.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Return a request of one argument claiming to be LENGTH bytes
+     *  long, without the argument. */
+    private static byte[] argument(int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        out.writeInt(length);
+        return bytes.toByteArray();
+    }
+
+    /** Return the reply of the daemon to REQUEST, checking its
+     *  framing. */
+    private static Reply serve(byte[] request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Reply result = new Reply();
+        result.stopped =
+            !Daemon.serve(new ByteArrayInputStream(request), bytes);
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        while (true) {
+            int kind = in.readByte();
+            int length = in.readInt();
+            if (kind == Daemon.EXIT) {
+                result.status = length;
+                break;
+            }
+            assertTrue(kind == Daemon.STDOUT || kind == Daemon.STDERR);
+            assertTrue(length > 0);
+            byte[] data = new byte[length];
+            in.readFully(data);
+            (kind == Daemon.STDOUT ? result.out : result.err)
+                .append(new String(data, StandardCharsets.UTF_8));
+        }
+        assertEquals("bytes after the EXIT frame", -1, in.read());
+        return result;
+    }
+
+    /** Return the output and status of Main.run(ARGS). */
+    private static Reply run(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(),
+            err = new ByteArrayOutputStream();
+        PrintStream stdout = System.out, stderr = System.err;
+        Reply result = new Reply();
+        System.setOut(new PrintStream(out, true));
+        System.setErr(new PrintStream(err, true));
+        try {
+            result.status = Main.run(args);
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        result.out.append(out.toString(StandardCharsets.UTF_8));
+        result.err.append(err.toString(StandardCharsets.UTF_8));
+        return result;
+    }
+
+    @Test
+    public void repliesMatchMain() throws IOException {
+        String[][] commands = { {}, { "no-such" }, { "rm-remote" } };
+        for (String[] args : commands) {
+            Reply expected = run(args);
+            Reply actual = serve(request(args.length, args));
+            assertFalse(actual.stopped);
+            assertFalse(expected.out.length() == 0);
+            assertEquals(expected.out.toString(), actual.out.toString());
+            assertEquals(expected.err.toString(), actual.err.toString());
+            assertEquals(expected.status, actual.status);
+        }
+    }
+
+    @Test
+    public void stopEndsTheDaemon() throws IOException {
+        Reply reply = serve(request(Daemon.STOP));
+        assertTrue(reply.stopped);
+        assertEquals(0, reply.status);
+        assertEquals("", reply.out.toString() + reply.err);
+    }
+
+    @Test
+    public void malformedRequestsRunNothing() throws IOException {
+        for (byte[] request : List.of(request(-2), request(Integer.MIN_VALUE),
+                                      request(Integer.MAX_VALUE),
+                                      request(Daemon.MAX_ARGS + 1),
+                                      argument(-1),
+                                      argument(Daemon.MAX_REQUEST + 1),
+                                      argument(Integer.MAX_VALUE))) {
+            Reply reply = serve(request);
+            assertFalse(reply.stopped);
+            assertEquals(1, reply.status);
+            assertEquals("", reply.out.toString());
+            assertEquals("gitlet: malformed request\n", reply.err.toString());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void aTruncatedRequestIsAnIOError() throws IOException {
+        byte[] request = request(2, "log", "x");
+        serve(Arrays.copyOf(request, request.length - 1));
+    }
+}
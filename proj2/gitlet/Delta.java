@@ -0,0 +1,200 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Delta encoding of one byte sequence (the target) against another (the
+ *  base), as a stream of copy and insert instructions.
+ *
+ *  A delta is a varint giving the length of the target, followed by
+ *  instructions, each of which is either
+ *      an insert: a byte N in 1 .. 127 followed by N literal bytes, or
+ *      a copy: the byte 0x80 followed by a varint offset and a varint
+ *          length, denoting that range of the base.
+ *  Varints are unsigned, 7 bits per byte, low-order group first.
+ *
+ *  To find copies, every BLOCK-byte aligned block of the base is indexed
+ *  by a hash, and the target is scanned with a rolling hash of the same
+ *  width; each match is verified and then extended in both directions. */
+class Delta {
+
+    /** Width of the blocks that are matched between base and target. */
+    private static final int BLOCK = 16;
+    /** Largest number of literal bytes in one insert instruction. */
+    private static final int MAX_INSERT = 127;
+    /** Instruction byte introducing a copy. */
+    private static final int COPY = 0x80;
+    /** Multiplier of the rolling hash. */
+    private static final int PRIME = 31;
+    /** PRIME raised to the power BLOCK - 1, for removing a byte from the
+     *  rolling hash. */
+    private static final int PRIME_POW;
+
+    static {
+        int p = 1;
+        for (int i = 1; i < BLOCK; i += 1) {
+            p *= PRIME;
+        }
+        PRIME_POW = p;
+    }
+
+    /** Return a delta that reconstructs TARGET from BASE. */
+    static byte[] create(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, target.length);
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        int pending = 0;
+        int i = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer candidate = blocks.get(h);
+            if (candidate != null && same(base, candidate, target, i)) {
+                int start = candidate;
+                int back = 0;
+                while (back < i - pending && start - back > 0
+                       && base[start - back - 1] == target[i - back - 1]) {
+                    back += 1;
+                }
+                int length = BLOCK;
+                while (i + length < target.length
+                       && start + length < base.length
+                       && base[start + length] == target[i + length]) {
+                    length += 1;
+                }
+                writeInserts(out, target, pending, i - back);
+                out.write(COPY);
+                writeVarint(out, start - back);
+                writeVarint(out, length + back);
+                i += length;
+                pending = i;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+                continue;
+            }
+            if (i + BLOCK < target.length) {
+                h = (h - (target[i] & 0xff) * PRIME_POW) * PRIME
+                    + (target[i + BLOCK] & 0xff);
+            }
+            i += 1;
+        }
+        writeInserts(out, target, pending, target.length);
+        return out.toByteArray();
+    }
+
+    /** Write the bytes of DELTA applied to BASE to OUT as they are
+     *  produced, without assembling the whole result.  Returns the number
+     *  of bytes written.  Throws IllegalArgumentException if DELTA is
+     *  malformed. */
+    static long apply(ByteBuffer base, ByteBuffer delta, OutputStream out)
+        throws IOException {
+        try {
+            long length = readVarint(delta);
+            long written = 0;
+            byte[] buffer = new byte[Utils.STREAM_BUFFER_SIZE];
+            while (delta.hasRemaining()) {
+                int op = delta.get() & 0xff;
+                if (op == COPY) {
+                    int offset = (int) readVarint(delta);
+                    int n = (int) readVarint(delta);
+                    if (offset < 0 || n < 0 || offset + n > base.limit()) {
+                        throw new IllegalArgumentException("bad delta copy");
+                    }
+                    while (n > 0) {
+                        int k = Math.min(n, buffer.length);
+                        base.get(offset, buffer, 0, k);
+                        out.write(buffer, 0, k);
+                        offset += k;
+                        n -= k;
+                        written += k;
+                    }
+                } else if (op > 0 && op <= MAX_INSERT) {
+                    delta.get(buffer, 0, op);
+                    out.write(buffer, 0, op);
+                    written += op;
+                } else {
+                    throw new IllegalArgumentException("bad delta op");
+                }
+            }
+            if (written != length) {
+                throw new IllegalArgumentException("bad delta length");
+            }
+            return written;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException excp) {
+            throw new IllegalArgumentException("truncated delta");
+        }
+    }
+
+    /** Return the result of applying DELTA to BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        ByteBuffer in = ByteBuffer.wrap(delta);
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream((int) readVarint(in.duplicate()));
+        try {
+            apply(ByteBuffer.wrap(base), in, out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    /** Write insert instructions for TARGET[FROM .. TO-1] to OUT. */
+    private static void writeInserts(ByteArrayOutputStream out,
+                                     byte[] target, int from, int to) {
+        while (from < to) {
+            int n = Math.min(MAX_INSERT, to - from);
+            out.write(n);
+            out.write(target, from, n);
+            from += n;
+        }
+    }
+
+    /** Return the hash of the BLOCK bytes of DATA starting at POS. */
+    private static int hash(byte[] data, int pos) {
+        int h = 0;
+        for (int i = 0; i < BLOCK; i += 1) {
+            h = h * PRIME + (data[pos + i] & 0xff);
+        }
+        return h;
+    }
+
+    /** Return true iff the BLOCK bytes at A[P] and B[Q] are equal. */
+    private static boolean same(byte[] a, int p, byte[] b, int q) {
+        for (int i = 0; i < BLOCK; i += 1) {
+            if (a[p + i] != b[q + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Write the non-negative VAL to OUT as a varint. */
+    private static void writeVarint(ByteArrayOutputStream out, long val) {
+        while ((val & ~0x7fL) != 0) {
+            out.write((int) (val & 0x7f) | 0x80);
+            val >>>= 7;
+        }
+        out.write((int) val);
+    }
+
+    /** Read a varint from IN. */
+    private static long readVarint(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("bad varint in delta");
+    }
+}
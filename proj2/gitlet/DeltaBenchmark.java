@@ -0,0 +1,172 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/** Measures the space saved and read time spent by delta-compressing
+ *  blobs.  Usage:
+ *      java gitlet.DeltaBenchmark [LINES [VERSIONS [EDITS]]]
+ *  generates a synthetic history of VERSIONS (default 200) versions of a
+ *  text file of about LINES lines (default 20000), each made from the
+ *  previous one by EDITS (default 20) random line insertions, deletions,
+ *  and replacements.  Every version is stored in one object store whole
+ *  and in another as a delta against the previous version, and the
+ *  benchmark reports the disk space used by each, loose and after gc,
+ *  and the time to read back the newest version and the version at the
+ *  end of the longest delta chain. */
+public class DeltaBenchmark {
+
+    /** Number of timed reads of each version; the best is reported. */
+    private static final int ROUNDS = 5;
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int versions = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int edits = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        List<byte[]> history = history(lines, versions, edits);
+        File dir = Files.createTempDirectory("gitlet-delta").toFile();
+        try {
+            ObjectStore full = new ObjectStore(Utils.join(dir, "full"));
+            ObjectStore delta = new ObjectStore(Utils.join(dir, "delta"));
+            List<String> ids = new ArrayList<>();
+            long logical = 0;
+            String previous = null;
+            for (byte[] version : history) {
+                logical += version.length;
+                full.write(version);
+                previous = delta.write(version, previous);
+                ids.add(previous);
+            }
+            System.out.printf("%d versions of ~%d bytes, %d bytes in all%n",
+                              versions, history.get(0).length, logical);
+            System.out.printf("%-8s %14s %14s %12s %12s%n", "store",
+                              "loose bytes", "packed bytes", "newest (ms)",
+                              "deepest (ms)");
+            int deepest = 0;
+            for (int i = 0; i < ids.size(); i += 1) {
+                if (delta.depth(ids.get(i)) > delta.depth(ids.get(deepest))) {
+                    deepest = i;
+                }
+            }
+            report("full", full, dir, ids, history, deepest);
+            report("delta", delta, dir, ids, history, deepest);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Return a synthetic history of VERSIONS versions of a text file of
+     *  about LINES lines, each differing from the last by EDITS random
+     *  line edits. */
+    static List<byte[]> history(int lines, int versions, int edits) {
+        Random random = new Random(61);
+        List<String> text = new ArrayList<>();
+        for (int i = 0; i < lines; i += 1) {
+            text.add(line(random));
+        }
+        List<byte[]> result = new ArrayList<>();
+        for (int v = 0; v < versions; v += 1) {
+            result.add(String.join("\n", text).getBytes());
+            for (int e = 0; e < edits; e += 1) {
+                int k = random.nextInt(text.size());
+                switch (random.nextInt(3)) {
+                case 0:
+                    text.add(k, line(random));
+                    break;
+                case 1:
+                    text.remove(k);
+                    break;
+                default:
+                    text.set(k, line(random));
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return a random line of text generated from RANDOM. */
+    private static String line(Random random) {
+        StringBuilder result = new StringBuilder();
+        int words = 3 + random.nextInt(10);
+        for (int i = 0; i < words; i += 1) {
+            result.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return result.toString();
+    }
+
+    /** Print the space used by STORE, whose directory is in DIR, before
+     *  and after gc, and the time to read the newest and the DEEPEST of
+     *  the versions with ids IDS, checking them against HISTORY. */
+    private static void report(String name, ObjectStore store, File dir,
+                               List<String> ids, List<byte[]> history,
+                               int deepest) {
+        long loose = size(Utils.join(dir, name));
+        store.gc();
+        long packed = size(Utils.join(dir, name));
+        int last = ids.size() - 1;
+        System.out.printf("%-8s %14d %14d %12.3f %12.3f%n", name, loose,
+                          packed, timeRead(store, ids.get(last),
+                                           history.get(last)),
+                          timeRead(store, ids.get(deepest),
+                                   history.get(deepest)));
+    }
+
+    /** Return the best time in milliseconds to read the object ID from
+     *  STORE, checking that its contents are EXPECTED. */
+    private static double timeRead(ObjectStore store, String id,
+                                   byte[] expected) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round += 1) {
+            long start = System.nanoTime();
+            byte[] contents = store.read(id);
+            double elapsed = (System.nanoTime() - start) / 1e6;
+            if (!Arrays.equals(contents, expected)) {
+                throw new IllegalStateException("bad contents for " + id);
+            }
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best;
+    }
+
+    /** Return the total size of the files under FILE. */
+    private static long size(File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+        long result = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                result += size(child);
+            }
+        }
+        return result;
+    }
+
+    /** Delete FILE and everything under it. */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /** Vocabulary of the generated text. */
+    private static final String[] WORDS = {
+        "gitlet", "commit", "blob", "merge", "branch", "checkout", "log",
+        "status", "the", "a", "of", "file", "tree", "id", "hash", "stage",
+        "remove", "reset", "find", "split", "point", "head", "master",
+    };
+}
@@ -0,0 +1,116 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of Delta and of delta-compressed objects in ObjectStore. */
+public class DeltaTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Assert that a delta from BASE to TARGET reconstructs TARGET, and
+     *  return its length. */
+    private static int roundTrip(byte[] base, byte[] target) {
+        byte[] delta = Delta.create(base, target);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        return delta.length;
+    }
+
+    /** Return the numbered lines FROM .. TO - 1 as bytes. */
+    private static byte[] lines(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < to; i += 1) {
+            text.append("line number ").append(i).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void edgeCases() {
+        byte[] empty = new byte[0];
+        byte[] text = lines(0, 100);
+        roundTrip(empty, empty);
+        roundTrip(empty, text);
+        roundTrip(text, empty);
+        roundTrip(text, Arrays.copyOf(text, 5));
+        assertTrue(roundTrip(text, text) < 16);
+        byte[] noise = new byte[1000];
+        new Random(8).nextBytes(noise);
+        roundTrip(text, noise);
+    }
+
+    @Test
+    public void similarTargetsGiveSmallDeltas() {
+        byte[] base = lines(0, 1000);
+        byte[] appended = lines(0, 1001);
+        byte[] prepended = lines(-1, 1000);
+        assertTrue(roundTrip(base, appended) < 100);
+        assertTrue(roundTrip(base, prepended) < 100);
+
+        Random random = new Random(61);
+        for (int trial = 0; trial < 50; trial += 1) {
+            byte[] target = base.clone();
+            for (int k = 0; k < 5; k += 1) {
+                target[random.nextInt(target.length)] =
+                    (byte) random.nextInt(256);
+            }
+            assertTrue(roundTrip(base, target) < base.length / 4);
+        }
+    }
+
+    @Test
+    public void malformedDeltasAreRejected() {
+        byte[] base = lines(0, 10);
+        byte[] delta = Delta.create(base, lines(0, 11));
+        try {
+            Delta.apply(base, Arrays.copyOf(delta, delta.length - 1));
+            fail("a truncated delta was applied");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+        try {
+            Delta.apply(lines(0, 2), delta);
+            fail("a delta was applied to a base too short for it");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void storedDeltasReadBackAndStayShallow() throws IOException {
+        ObjectStore store = new ObjectStore(tmp.newFolder(), Codec.DEFLATE);
+        List<String> ids = new ArrayList<>();
+        String base = null;
+        int versions = ObjectStore.MAX_DELTA_DEPTH * 2 + 3;
+        for (int v = 0; v < versions; v += 1) {
+            base = store.write(lines(0, 500 + v), base);
+            ids.add(base);
+            assertTrue(store.depth(base) <= ObjectStore.MAX_DELTA_DEPTH);
+        }
+        assertEquals(0, store.depth(ids.get(0)));
+        assertEquals(1, store.depth(ids.get(1)));
+        assertEquals(List.of(ids.get(0)),
+                     ObjectStore.references(store.representation(ids.get(1))));
+
+        int[] depths = new int[versions];
+        for (int v = 0; v < versions; v += 1) {
+            depths[v] = store.depth(ids.get(v));
+        }
+        store.gc();
+        for (int v = 0; v < versions; v += 1) {
+            assertArrayEquals(lines(0, 500 + v), store.read(ids.get(v)));
+            assertEquals(depths[v], store.depth(ids.get(v)));
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Line-level differences between texts.  Texts are split into Lines,
+ *  in which each line is replaced by a small integer id, equal lines
+ *  having equal ids, so that the algorithms compare ints rather than
+ *  strings.  Two algorithms are offered:
+ *  <ul>
+ *  <li> MYERS: Myers' O(ND) algorithm, in its linear-space form, which
+ *       finds a middle snake by searching from both ends at once and
+ *       divides the problem there.  The result is a shortest edit script.
+ *  <li> HISTOGRAM: as in JGit, the line of the first text with the fewest
+ *       occurrences (at most MAX_CHAIN) that also occurs in the second is
+ *       taken as an anchor, its match is extended both ways, and the
+ *       regions before and after are diffed in turn.  It tends to align
+ *       unique lines, such as function headers, rather than blank lines
+ *       and braces, and so gives more readable diffs.  Regions with no
+ *       such line fall back to Myers.
+ *  </ul>
+ *  Both strip common leading and trailing lines first, and both work
+ *  from an explicit stack of regions rather than by recursion, so no
+ *  input can overflow the Java stack.  Myers stops searching a region
+ *  once its edit distance exceeds a limit that grows with the square
+ *  root of its size, and divides the region at the furthest point it has
+ *  reached instead, so the worst case (two long unrelated texts) costs
+ *  O(N sqrt N) time rather than O(N^2), at the price of a script that
+ *  may not be the shortest.  Memory is linear in the input. */
+class Diff {
+
+    /** A line-diff algorithm. */
+    enum Algorithm { MYERS, HISTOGRAM }
+
+    /** Smallest limit on the edit distance Myers searches in a region. */
+    static final int MIN_COST_LIMIT = 256;
+    /** Largest number of occurrences of an anchor line for histogram
+     *  diff. */
+    static final int MAX_CHAIN = 64;
+    /** Number of bytes at the start of a text checked for NUL bytes, which
+     *  mark it as binary. */
+    private static final int BINARY_CHECK = 8000;
+
+    /** A text as a sequence of lines, each ending just after a newline
+     *  or at the end of the text. */
+    static class Lines {
+        /** The lines of DATA starting at the offsets STARTS, the last
+         *  element being the length of DATA, with line ids IDS among
+         *  DISTINCT ids. */
+        private Lines(byte[] data, int[] starts, int[] ids, int distinct) {
+            _data = data;
+            _starts = starts;
+            _ids = ids;
+            _distinct = distinct;
+        }
+
+        /** Return TEXTS as Lines, numbered so that equal lines in any of
+         *  them have equal ids. */
+        static Lines[] of(byte[]... texts) {
+            Map<LineKey, Integer> numbers = new HashMap<>();
+            int[][] starts = new int[texts.length][];
+            int[][] ids = new int[texts.length][];
+            for (int t = 0; t < texts.length; t += 1) {
+                byte[] data = texts[t];
+                int count = 0;
+                for (int i = 0; i < data.length; i += 1) {
+                    if (data[i] == '\n' || i == data.length - 1) {
+                        count += 1;
+                    }
+                }
+                starts[t] = new int[count + 1];
+                ids[t] = new int[count];
+                int line = 0;
+                for (int i = 0, start = 0; i < data.length; i += 1) {
+                    if (data[i] == '\n' || i == data.length - 1) {
+                        LineKey key = new LineKey(data, start, i + 1);
+                        Integer id = numbers.putIfAbsent(key, numbers.size());
+                        starts[t][line] = start;
+                        ids[t][line] = id == null ? numbers.size() - 1 : id;
+                        line += 1;
+                        start = i + 1;
+                    }
+                }
+                starts[t][count] = data.length;
+            }
+            Lines[] result = new Lines[texts.length];
+            for (int t = 0; t < texts.length; t += 1) {
+                result[t] = new Lines(texts[t], starts[t], ids[t],
+                                      numbers.size());
+            }
+            return result;
+        }
+
+        /** Return the number of lines. */
+        int size() {
+            return _ids.length;
+        }
+
+        /** Return the id of line I. */
+        int id(int i) {
+            return _ids[i];
+        }
+
+        /** Return the number of distinct ids among this text and those
+         *  created with it. */
+        int distinct() {
+            return _distinct;
+        }
+
+        /** Return true iff line I ends with a newline. */
+        boolean hasNewline(int i) {
+            return _data[_starts[i + 1] - 1] == '\n';
+        }
+
+        /** Write lines FROM .. TO-1 to OUT as they are. */
+        void write(OutputStream out, int from, int to) throws IOException {
+            out.write(_data, _starts[from], _starts[to] - _starts[from]);
+        }
+
+        /** The text. */
+        private final byte[] _data;
+        /** Offset of each line, and the length of the text. */
+        private final int[] _starts;
+        /** Id of each line. */
+        private final int[] _ids;
+        /** Number of distinct ids. */
+        private final int _distinct;
+    }
+
+    /** A replacement of lines BEGINA .. ENDA-1 of the first text by lines
+     *  BEGINB .. ENDB-1 of the second.  Either range may be empty, for an
+     *  insertion or deletion. */
+    static class Edit {
+        /** An edit replacing lines BEGINA .. ENDA-1 by BEGINB .. ENDB-1. */
+        Edit(int beginA, int endA, int beginB, int endB) {
+            this.beginA = beginA;
+            this.endA = endA;
+            this.beginB = beginB;
+            this.endB = endB;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Edit[%d-%d,%d-%d]", beginA, endA, beginB,
+                                 endB);
+        }
+
+        /** The replaced lines of the first text. */
+        final int beginA, endA;
+        /** The replacing lines of the second text. */
+        final int beginB, endB;
+    }
+
+    /** Return true iff TEXT looks binary, having a NUL byte near its
+     *  start, as git decides. */
+    static boolean isBinary(byte[] text) {
+        for (int i = 0; i < Math.min(text.length, BINARY_CHECK); i += 1) {
+            if (text[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the edits that turn A into B, found with ALGORITHM, in
+     *  order, with adjacent edits merged.  A and B must have been created
+     *  together by Lines.of. */
+    static List<Edit> diff(Lines a, Lines b, Algorithm algorithm) {
+        List<Edit> edits = new ArrayList<>();
+        Histogram histogram =
+            algorithm == Algorithm.HISTOGRAM ? new Histogram(a, b) : null;
+        ArrayDeque<int[]> work = new ArrayDeque<>();
+        work.push(new int[] { 0, a.size(), 0, b.size() });
+        while (!work.isEmpty()) {
+            int[] region = work.pop();
+            int aLo = region[0], aHi = region[1],
+                bLo = region[2], bHi = region[3];
+            while (aLo < aHi && bLo < bHi && a.id(aLo) == b.id(bLo)) {
+                aLo += 1;
+                bLo += 1;
+            }
+            while (aLo < aHi && bLo < bHi
+                   && a.id(aHi - 1) == b.id(bHi - 1)) {
+                aHi -= 1;
+                bHi -= 1;
+            }
+            if (aLo == aHi || bLo == bHi) {
+                if (aLo < aHi || bLo < bHi) {
+                    edits.add(new Edit(aLo, aHi, bLo, bHi));
+                }
+                continue;
+            }
+            int[] split = null;
+            if (histogram != null) {
+                split = histogram.anchor(aLo, aHi, bLo, bHi);
+            }
+            if (split == null) {
+                split = bisect(a, b, aLo, aHi, bLo, bHi);
+            }
+            if (split == null) {
+                edits.add(new Edit(aLo, aHi, bLo, bHi));
+            } else {
+                work.push(new int[] { split[2], aHi, split[3], bHi });
+                work.push(new int[] { aLo, split[0], bLo, split[1] });
+            }
+        }
+        return coalesce(edits);
+    }
+
+    /** Return EDITS sorted, with edits that touch merged. */
+    private static List<Edit> coalesce(List<Edit> edits) {
+        edits.sort(Comparator.comparingInt((Edit e) -> e.beginA)
+                   .thenComparingInt(e -> e.beginB));
+        List<Edit> result = new ArrayList<>();
+        for (Edit e : edits) {
+            Edit last = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (last != null && last.endA == e.beginA
+                && last.endB == e.beginB) {
+                result.set(result.size() - 1,
+                           new Edit(last.beginA, e.endA, last.beginB, e.endB));
+            } else {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /** Return a point at which to divide the region ALO .. AHI-1 of A and
+     *  BLO .. BHI-1 of B, which has no common first or last line, as
+     *  {x, y, x, y}: the regions before and after (x, y) are then diffed
+     *  separately.  The point is on a shortest edit path, found as in
+     *  Myers' linear-space algorithm by searching forward from the start
+     *  and backward from the end until the searches overlap, unless the
+     *  edit distance exceeds the cost limit, when it is the furthest point
+     *  the forward search reached.  Returns null if the region is best
+     *  treated as one replacement. */
+    private static int[] bisect(Lines a, Lines b, int aLo, int aHi,
+                                int bLo, int bHi) {
+        int n = aHi - aLo, m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int limit = Math.max(MIN_COST_LIMIT, (int) Math.sqrt(n + m));
+        int offset = maxD;
+        int[] v1 = new int[2 * maxD + 2], v2 = new int[2 * maxD + 2];
+        Arrays.fill(v1, -1);
+        Arrays.fill(v2, -1);
+        v1[offset + 1] = 0;
+        v2[offset + 1] = 0;
+        int delta = n - m;
+        boolean front = (delta & 1) != 0;
+        int k1start = 0, k1end = 0, k2start = 0, k2end = 0;
+        for (int d = 0; d < maxD; d += 1) {
+            if (d > limit) {
+                return furthest(v1, offset, d, n, m, aLo, bLo);
+            }
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int i = offset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[i - 1] < v1[i + 1])) {
+                    x1 = v1[i + 1];
+                } else {
+                    x1 = v1[i - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m
+                       && a.id(aLo + x1) == b.id(bLo + y1)) {
+                    x1 += 1;
+                    y1 += 1;
+                }
+                v1[i] = x1;
+                if (x1 > n) {
+                    k1end += 2;
+                } else if (y1 > m) {
+                    k1start += 2;
+                } else if (front) {
+                    int j = offset + delta - k1;
+                    if (j >= 0 && j < v2.length && v2[j] != -1
+                        && x1 >= n - v2[j]) {
+                        return split(aLo + x1, bLo + y1, aLo, aHi, bLo, bHi);
+                    }
+                }
+            }
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int i = offset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[i - 1] < v2[i + 1])) {
+                    x2 = v2[i + 1];
+                } else {
+                    x2 = v2[i - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m
+                       && a.id(aHi - 1 - x2) == b.id(bHi - 1 - y2)) {
+                    x2 += 1;
+                    y2 += 1;
+                }
+                v2[i] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int j = offset + delta - k2;
+                    if (j >= 0 && j < v1.length && v1[j] != -1) {
+                        int x1 = v1[j];
+                        int y1 = offset + x1 - j;
+                        if (x1 >= n - x2) {
+                            return split(aLo + x1, bLo + y1,
+                                         aLo, aHi, bLo, bHi);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the furthest point, as for bisect, that the forward search
+     *  recorded in V1 (with diagonal 0 at OFFSET) reached after D steps in
+     *  a region of N by M lines starting at (ALO, BLO). */
+    private static int[] furthest(int[] v1, int offset, int d, int n, int m,
+                                  int aLo, int bLo) {
+        int bestX = 0, bestY = 0;
+        for (int k = -d; k <= d; k += 1) {
+            int x = v1[offset + k];
+            int y = x - k;
+            if (x >= 0 && x <= n && y >= 0 && y <= m
+                && x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+            }
+        }
+        return split(aLo + bestX, bLo + bestY, aLo, aLo + n, bLo, bLo + m);
+    }
+
+    /** Return the division of the region ALO .. AHI-1 by BLO .. BHI-1 at
+     *  (X, Y), or null if that would leave the region whole. */
+    private static int[] split(int x, int y, int aLo, int aHi,
+                               int bLo, int bHi) {
+        if ((x == aLo && y == bLo) || (x == aHi && y == bHi)) {
+            return null;
+        }
+        return new int[] { x, y, x, y };
+    }
+
+    /** The occurrences of lines in a region of the first text, for
+     *  choosing anchors in histogram diff.  The tables are indexed by
+     *  line id and shared by all regions, being cleared after each. */
+    private static class Histogram {
+        /** Tables for diffing A against B. */
+        Histogram(Lines a, Lines b) {
+            _a = a;
+            _b = b;
+            _count = new int[a.distinct()];
+            _head = new int[a.distinct()];
+            Arrays.fill(_head, -1);
+            _next = new int[a.size()];
+        }
+
+        /** Return the lines to match in the region ALO .. AHI-1 of A by
+         *  BLO .. BHI-1 of B, as {as, bs, ae, be}, where lines as .. ae-1
+         *  of A equal lines bs .. be-1 of B, or null if no line occurring
+         *  at most MAX_CHAIN times in the region of A occurs in that of
+         *  B.  The match chosen contains the fewest-occurring line, the
+         *  longest such match winning ties. */
+        int[] anchor(int aLo, int aHi, int bLo, int bHi) {
+            for (int i = aHi - 1; i >= aLo; i -= 1) {
+                int id = _a.id(i);
+                _next[i] = _head[id];
+                _head[id] = i;
+                _count[id] += 1;
+            }
+            int[] best = null;
+            int bestCount = MAX_CHAIN + 1, bestLength = 0;
+            for (int bi = bLo; bi < bHi; ) {
+                int id = _b.id(bi);
+                int nextB = bi + 1;
+                if (_count[id] > 0 && _count[id] <= bestCount) {
+                    for (int ai = _head[id]; ai != -1; ai = _next[ai]) {
+                        int as = ai, bs = bi, ae = ai + 1, be = bi + 1;
+                        int low = _count[id];
+                        while (as > aLo && bs > bLo
+                               && _a.id(as - 1) == _b.id(bs - 1)) {
+                            as -= 1;
+                            bs -= 1;
+                            low = Math.min(low, _count[_a.id(as)]);
+                        }
+                        while (ae < aHi && be < bHi
+                               && _a.id(ae) == _b.id(be)) {
+                            low = Math.min(low, _count[_a.id(ae)]);
+                            ae += 1;
+                            be += 1;
+                        }
+                        if (low < bestCount
+                            || (low == bestCount && ae - as > bestLength)) {
+                            best = new int[] { as, bs, ae, be };
+                            bestCount = low;
+                            bestLength = ae - as;
+                        }
+                        nextB = Math.max(nextB, be);
+                    }
+                }
+                bi = nextB;
+            }
+            for (int i = aLo; i < aHi; i += 1) {
+                _count[_a.id(i)] = 0;
+                _head[_a.id(i)] = -1;
+            }
+            return best;
+        }
+
+        /** The texts being compared. */
+        private final Lines _a, _b;
+        /** Occurrences of each line id in the current region of A. */
+        private final int[] _count;
+        /** First line of A in the region with each id, or -1. */
+        private final int[] _head;
+        /** Next line of A in the region with the same id, or -1. */
+        private final int[] _next;
+    }
+
+    /** Write to OUT the differences EDITS between A and B as the hunks of
+     *  a unified diff, each with up to CONTEXT unchanged lines around its
+     *  changes. */
+    static void writeUnified(Lines a, Lines b, List<Edit> edits,
+                             int context, OutputStream out)
+        throws IOException {
+        for (int first = 0; first < edits.size(); ) {
+            int last = first;
+            while (last + 1 < edits.size()
+                   && edits.get(last + 1).beginA - edits.get(last).endA
+                      <= 2 * context) {
+                last += 1;
+            }
+            Edit e0 = edits.get(first), e1 = edits.get(last);
+            int aStart = Math.max(0, e0.beginA - context);
+            int aEnd = Math.min(a.size(), e1.endA + context);
+            int bStart = e0.beginB - (e0.beginA - aStart);
+            int bEnd = e1.endB + (aEnd - e1.endA);
+            out.write(String.format("@@ -%s +%s @@\n",
+                                    range(aStart, aEnd - aStart),
+                                    range(bStart, bEnd - bStart))
+                      .getBytes(StandardCharsets.UTF_8));
+            int at = aStart;
+            for (Edit e : edits.subList(first, last + 1)) {
+                writeLines(out, ' ', a, at, e.beginA);
+                writeLines(out, '-', a, e.beginA, e.endA);
+                writeLines(out, '+', b, e.beginB, e.endB);
+                at = e.endA;
+            }
+            writeLines(out, ' ', a, at, aEnd);
+            first = last + 1;
+        }
+    }
+
+    /** Return the unified-diff form of a range of COUNT lines starting at
+     *  index START. */
+    private static String range(int start, int count) {
+        if (count == 1) {
+            return Integer.toString(start + 1);
+        } else if (count == 0) {
+            return start + ",0";
+        } else {
+            return (start + 1) + "," + count;
+        }
+    }
+
+    /** Write lines FROM .. TO-1 of LINES to OUT, each preceded by PREFIX,
+     *  noting a missing final newline as diff does. */
+    private static void writeLines(OutputStream out, char prefix,
+                                   Lines lines, int from, int to)
+        throws IOException {
+        for (int i = from; i < to; i += 1) {
+            out.write(prefix);
+            lines.write(out, i, i + 1);
+            if (!lines.hasNewline(i)) {
+                out.write("\n\\ No newline at end of file\n"
+                          .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /** A line of a text, as a key for numbering lines. */
+    private static class LineKey {
+        /** The line of DATA from START to END-1. */
+        LineKey(byte[] data, int start, int end) {
+            _data = data;
+            _start = start;
+            _end = end;
+            int h = 1;
+            for (int i = start; i < end; i += 1) {
+                h = 31 * h + data[i];
+            }
+            _hash = h;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LineKey)) {
+                return false;
+            }
+            LineKey other = (LineKey) obj;
+            return _hash == other._hash
+                && Arrays.equals(_data, _start, _end,
+                                 other._data, other._start, other._end);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        /** The text containing the line. */
+        private final byte[] _data;
+        /** Bounds of the line in _data. */
+        private final int _start, _end;
+        /** Hash of the line's bytes. */
+        private final int _hash;
+    }
+}
@@ -0,0 +1,80 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/** Times Diff's Myers and histogram algorithms on large texts.  Usage:
+ *      java gitlet.DiffBenchmark [LINES [RUNS]]
+ *  Each case is a pair of texts of about LINES lines (default 100000),
+ *  diffed RUNS times (default 5) by each algorithm after a warm-up run:
+ *  <ul>
+ *  <li> scattered: a file and a copy with a thousand lines changed;
+ *  <li> unrelated: two texts with no line in common, Myers's worst case,
+ *       in which its cost limit must stop the search;
+ *  <li> repetitive: texts drawn from a few distinct lines, in which the
+ *       histogram algorithm finds no rare line to anchor on.
+ *  </ul>
+ *  The number of lines each script changes is printed too, as a measure
+ *  of the quality of the result. */
+public class DiffBenchmark {
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Random random = new Random(61);
+        System.out.printf("%-11s %-9s %10s %10s%n", "case", "algorithm",
+                          "ms", "changed");
+
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        for (int i = 0; i < lines; i += 1) {
+            String line = "    line " + i + " of the original file\n";
+            a.append(line);
+            b.append(random.nextInt(lines) < 1000 ? "changed " + line : line);
+        }
+        run("scattered", a, b, runs);
+
+        a.setLength(0);
+        b.setLength(0);
+        for (int i = 0; i < lines; i += 1) {
+            a.append("a").append(random.nextLong()).append('\n');
+            b.append("b").append(random.nextLong()).append('\n');
+        }
+        run("unrelated", a, b, runs);
+
+        a.setLength(0);
+        b.setLength(0);
+        for (int i = 0; i < lines; i += 1) {
+            a.append(random.nextInt(4) == 0 ? "}\n" : "\n");
+            b.append(random.nextInt(4) == 0 ? "}\n" : "\n");
+        }
+        run("repetitive", a, b, runs);
+    }
+
+    /** Diff the texts A and B RUNS times with each algorithm, and print
+     *  the average time and the size of the result as case NAME. */
+    private static void run(String name, CharSequence a, CharSequence b,
+                            int runs) {
+        Diff.Lines[] lines =
+            Diff.Lines.of(a.toString().getBytes(StandardCharsets.UTF_8),
+                          b.toString().getBytes(StandardCharsets.UTF_8));
+        for (Diff.Algorithm algorithm : Diff.Algorithm.values()) {
+            List<Diff.Edit> edits =
+                Diff.diff(lines[0], lines[1], algorithm);
+            long start = System.nanoTime();
+            for (int k = 0; k < runs; k += 1) {
+                edits = Diff.diff(lines[0], lines[1], algorithm);
+            }
+            long changed = 0;
+            for (Diff.Edit edit : edits) {
+                changed += (edit.endA - edit.beginA)
+                    + (edit.endB - edit.beginB);
+            }
+            System.out.printf("%-11s %-9s %10.1f %10d%n", name,
+                              algorithm.name().toLowerCase(),
+                              (System.nanoTime() - start) / 1e6 / runs,
+                              changed);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of Diff's line diffs and unified output, and of Merge's
+ *  line-level merge. */
+public class DiffTest {
+
+    /** Return the UTF-8 bytes of TEXT. */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Return the unified diff from A to B found with ALGORITHM, with
+     *  CONTEXT lines of context. */
+    private static String unified(String a, String b, int context,
+                                  Diff.Algorithm algorithm)
+        throws IOException {
+        Diff.Lines[] lines = Diff.Lines.of(bytes(a), bytes(b));
+        List<Diff.Edit> edits = Diff.diff(lines[0], lines[1], algorithm);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Diff.writeUnified(lines[0], lines[1], edits, context, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Return the line-level merge of HEAD and OTHER against BASE, and
+     *  assert that it has CONFLICTS conflicts. */
+    private static String merge(String base, String head, String other,
+                                int conflicts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(conflicts, Merge.mergeLines(bytes(base), bytes(head),
+                                                 bytes(other), out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Return the length of a longest common subsequence of the lines of
+     *  A and B. */
+    private static int lcs(Diff.Lines a, Diff.Lines b) {
+        int[][] best = new int[a.size() + 1][b.size() + 1];
+        for (int i = a.size() - 1; i >= 0; i -= 1) {
+            for (int j = b.size() - 1; j >= 0; j -= 1) {
+                best[i][j] = a.id(i) == b.id(j) ? best[i + 1][j + 1] + 1
+                    : Math.max(best[i + 1][j], best[i][j + 1]);
+            }
+        }
+        return best[0][0];
+    }
+
+    @Test
+    public void unifiedHunks() throws IOException {
+        String a = "a\nb\nc\nd\ne\n";
+        String b = "a\nB\nc\nd\ne\nf\n";
+        for (Diff.Algorithm algorithm : Diff.Algorithm.values()) {
+            assertEquals("@@ -1,3 +1,3 @@\n a\n-b\n+B\n c\n"
+                         + "@@ -5 +5,2 @@\n e\n+f\n",
+                         unified(a, b, 1, algorithm));
+            assertEquals("@@ -1,5 +1,6 @@\n a\n-b\n+B\n c\n d\n e\n+f\n",
+                         unified(a, b, 3, algorithm));
+            assertEquals("", unified(a, a, 3, algorithm));
+            assertEquals("@@ -0,0 +1 @@\n+x\n",
+                         unified("", "x\n", 3, algorithm));
+        }
+    }
+
+    @Test
+    public void missingFinalNewline() throws IOException {
+        assertEquals("@@ -1 +1 @@\n-x\n+x\n\\ No newline at end of file\n",
+                     unified("x\n", "x", 3, Diff.Algorithm.MYERS));
+    }
+
+    @Test
+    public void editsTurnOneTextIntoTheOther() throws IOException {
+        Random random = new Random(18);
+        for (int trial = 0; trial < 200; trial += 1) {
+            StringBuilder a = new StringBuilder(), b = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i -= 1) {
+                a.append(random.nextInt(6)).append('\n');
+            }
+            for (int i = random.nextInt(40); i > 0; i -= 1) {
+                b.append(random.nextInt(6)).append('\n');
+            }
+            Diff.Lines[] lines = Diff.Lines.of(bytes(a.toString()),
+                                               bytes(b.toString()));
+            for (Diff.Algorithm algorithm : Diff.Algorithm.values()) {
+                List<Diff.Edit> edits =
+                    Diff.diff(lines[0], lines[1], algorithm);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int at = 0, changed = 0;
+                for (Diff.Edit e : edits) {
+                    assertTrue(e.beginA >= at);
+                    lines[0].write(out, at, e.beginA);
+                    lines[1].write(out, e.beginB, e.endB);
+                    at = e.endA;
+                    changed += e.endA - e.beginA + e.endB - e.beginB;
+                }
+                lines[0].write(out, at, lines[0].size());
+                assertEquals(b.toString(),
+                             out.toString(StandardCharsets.UTF_8));
+                if (algorithm == Diff.Algorithm.MYERS) {
+                    assertEquals(lines[0].size() + lines[1].size()
+                                 - 2 * lcs(lines[0], lines[1]), changed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void binaryTexts() {
+        assertTrue(Diff.isBinary(new byte[] { 'a', 0, 'b' }));
+        assertFalse(Diff.isBinary(bytes("text\n")));
+    }
+
+    @Test
+    public void separateChangesMerge() throws IOException {
+        String base = "1\n2\n3\n4\n5\n";
+        assertEquals("one\n2\n3\n4\nfive\n",
+                     merge(base, "one\n2\n3\n4\n5\n", "1\n2\n3\n4\nfive\n",
+                           0));
+        assertEquals("1\n2\nthree\n4\n5\n",
+                     merge(base, "1\n2\nthree\n4\n5\n", "1\n2\nthree\n4\n5\n",
+                           0));
+        assertEquals("1\n3\n4\n5\nsix\n",
+                     merge(base, "1\n3\n4\n5\n", base + "six\n", 0));
+    }
+
+    @Test
+    public void overlappingChangesConflict() throws IOException {
+        String base = "1\n2\n3\n4\n5\n";
+        assertEquals("one\n2\n<<<<<<< HEAD\nours\n=======\ntheirs\n"
+                     + ">>>>>>>\n4\n5\n",
+                     merge(base, "one\n2\nours\n4\n5\n",
+                           "1\n2\ntheirs\n4\n5\n", 1));
+        assertEquals("<<<<<<< HEAD\nours\n=======\n>>>>>>>\n",
+                     merge("x\n", "ours", "", 1));
+    }
+}
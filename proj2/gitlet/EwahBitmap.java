@@ -0,0 +1,403 @@
+package gitlet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** An immutable set of small non-negative integers, compressed in the
+ *  manner of EWAH (Enhanced Word-Aligned Hybrid), so that long runs of
+ *  absent or present members take almost no space and set operations
+ *  skip over them a run at a time.
+ *
+ *  The bits are grouped into 64-bit words.  A word all of whose bits are
+ *  the same is "clean"; others are "literal".  The compressed form is a
+ *  sequence of markers, each followed by literal words: a marker holds,
+ *  in bit 0, the value of a run of clean words, in bits 1-32 the length
+ *  of that run, and in bits 33-63 the number of literal words that come
+ *  after it.  Bits beyond the last word are absent. */
+class EwahBitmap {
+
+    /** The empty set. */
+    static final EwahBitmap EMPTY = new EwahBitmap(new long[0]);
+
+    /** Largest run length a marker can hold. */
+    private static final long MAX_RUN = (1L << 32) - 1;
+    /** Largest literal count a marker can hold. */
+    private static final int MAX_LITERALS = (1 << 31) - 1;
+
+    /** A bitmap whose compressed words are WORDS. */
+    private EwahBitmap(long[] words) {
+        _words = words;
+    }
+
+    /** Return the bitmap with the members of BITS. */
+    static EwahBitmap of(BitSet bits) {
+        Builder result = new Builder();
+        for (long word : bits.toLongArray()) {
+            result.add(word);
+        }
+        return result.build();
+    }
+
+    /** Return the bitmap whose members are FROM .. TO-1. */
+    static EwahBitmap range(int from, int to) {
+        BitSet bits = new BitSet(to);
+        bits.set(from, to);
+        return of(bits);
+    }
+
+    /** Return the bitmap written by write() at the current position of
+     *  BUF, advancing past it. */
+    static EwahBitmap read(ByteBuffer buf) {
+        long[] words = new long[buf.getInt()];
+        buf.asLongBuffer().get(words);
+        buf.position(buf.position() + words.length * Long.BYTES);
+        return new EwahBitmap(words);
+    }
+
+    /** Write this bitmap to OUT as its word count and compressed words. */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(_words.length);
+        for (long word : _words) {
+            out.writeLong(word);
+        }
+    }
+
+    /** Return true iff BIT is a member. */
+    boolean get(int bit) {
+        long target = bit >>> 6;
+        long word = 0;
+        for (int i = 0; i < _words.length; ) {
+            long marker = _words[i];
+            long run = runLength(marker);
+            int literals = literals(marker);
+            if (target < word + run) {
+                return runBit(marker);
+            }
+            word += run;
+            if (target < word + literals) {
+                long literal = _words[i + 1 + (int) (target - word)];
+                return (literal & (1L << bit)) != 0;
+            }
+            word += literals;
+            i += 1 + literals;
+        }
+        return false;
+    }
+
+    /** Return the number of members. */
+    int cardinality() {
+        int result = 0;
+        for (int i = 0; i < _words.length; ) {
+            long marker = _words[i];
+            if (runBit(marker)) {
+                result += (int) runLength(marker) * Long.SIZE;
+            }
+            int literals = literals(marker);
+            for (int k = 1; k <= literals; k += 1) {
+                result += Long.bitCount(_words[i + k]);
+            }
+            i += 1 + literals;
+        }
+        return result;
+    }
+
+    /** Return true iff there are no members. */
+    boolean isEmpty() {
+        return cardinality() == 0;
+    }
+
+    /** Return the members in increasing order. */
+    int[] toArray() {
+        int[] result = new int[cardinality()];
+        int n = 0;
+        int bit = 0;
+        for (int i = 0; i < _words.length; ) {
+            long marker = _words[i];
+            int run = (int) runLength(marker);
+            if (runBit(marker)) {
+                for (int k = 0; k < run * Long.SIZE; k += 1) {
+                    result[n] = bit + k;
+                    n += 1;
+                }
+            }
+            bit += run * Long.SIZE;
+            int literals = literals(marker);
+            for (int k = 1; k <= literals; k += 1) {
+                for (long w = _words[i + k]; w != 0; w &= w - 1) {
+                    result[n] = bit + Long.numberOfTrailingZeros(w);
+                    n += 1;
+                }
+                bit += Long.SIZE;
+            }
+            i += 1 + literals;
+        }
+        return result;
+    }
+
+    /** Return the size in bytes of the compressed form. */
+    int sizeInBytes() {
+        return _words.length * Long.BYTES;
+    }
+
+    /** Return the intersection of this bitmap and OTHER. */
+    EwahBitmap and(EwahBitmap other) {
+        return combine(other, AND);
+    }
+
+    /** Return the union of this bitmap and OTHER. */
+    EwahBitmap or(EwahBitmap other) {
+        return combine(other, OR);
+    }
+
+    /** Return the members of this bitmap that are not in OTHER. */
+    EwahBitmap andNot(EwahBitmap other) {
+        return combine(other, AND_NOT);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof EwahBitmap
+            && Arrays.equals(_words, ((EwahBitmap) obj)._words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(_words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /** Operation codes for combine. */
+    private static final int AND = 0, OR = 1, AND_NOT = 2;
+
+    /** Return OP applied to the words X and Y. */
+    private static long apply(int op, long x, long y) {
+        switch (op) {
+        case AND:
+            return x & y;
+        case OR:
+            return x | y;
+        default:
+            return x & ~y;
+        }
+    }
+
+    /** Return the result of OP on this bitmap and OTHER.  Where both are
+     *  in runs, the whole overlap of the runs is done in one step, so the
+     *  time taken is proportional to the compressed sizes. */
+    private EwahBitmap combine(EwahBitmap other, int op) {
+        Cursor x = new Cursor(_words), y = new Cursor(other._words);
+        Builder result = new Builder();
+        while (!x.done() || !y.done()) {
+            if (x.inRun() && y.inRun()) {
+                long n = Math.min(x.available(), y.available());
+                result.addRun(apply(op, x.fill(), y.fill()) != 0, n);
+                x.skip(n);
+                y.skip(n);
+            } else {
+                long n = Math.min(x.available(), y.available());
+                for (long k = 0; k < n; k += 1) {
+                    result.add(apply(op, x.next(), y.next()));
+                }
+            }
+        }
+        return result.build();
+    }
+
+    /** Return the run bit of MARKER. */
+    private static boolean runBit(long marker) {
+        return (marker & 1) != 0;
+    }
+
+    /** Return the run length of MARKER. */
+    private static long runLength(long marker) {
+        return (marker >>> 1) & MAX_RUN;
+    }
+
+    /** Return the literal count of MARKER. */
+    private static int literals(long marker) {
+        return (int) (marker >>> 33);
+    }
+
+    /** Return a marker with the given RUNBIT, RUN length and number of
+     *  LITERALS. */
+    private static long marker(boolean runBit, long run, int literals) {
+        return (runBit ? 1 : 0) | run << 1 | (long) literals << 33;
+    }
+
+    /** A position in the uncompressed words of a bitmap, read from its
+     *  compressed form.  Past the end, the words read as a run of zeros
+     *  without end. */
+    private static class Cursor {
+        /** A cursor at the start of the compressed WORDS. */
+        Cursor(long[] words) {
+            _words = words;
+            load();
+        }
+
+        /** Return true iff the cursor is past the last word. */
+        boolean done() {
+            return _next >= _words.length && _run == 0 && _literals == 0;
+        }
+
+        /** Return true iff the cursor is in a run of clean words. */
+        boolean inRun() {
+            return _run > 0 || done();
+        }
+
+        /** Return the clean word of the current run. */
+        long fill() {
+            return _bit && !done() ? -1L : 0L;
+        }
+
+        /** Return how many words can be read before the cursor moves
+         *  between a run and literals. */
+        long available() {
+            return done() ? Long.MAX_VALUE : _run > 0 ? _run : _literals;
+        }
+
+        /** Return the word at the cursor and advance past it. */
+        long next() {
+            long result;
+            if (done()) {
+                return 0;
+            } else if (_run > 0) {
+                result = fill();
+                _run -= 1;
+            } else {
+                result = _words[_literal];
+                _literal += 1;
+                _literals -= 1;
+            }
+            if (_run == 0 && _literals == 0) {
+                load();
+            }
+            return result;
+        }
+
+        /** Advance past N words of the current run. */
+        void skip(long n) {
+            if (done()) {
+                return;
+            }
+            _run -= n;
+            if (_run == 0 && _literals == 0) {
+                load();
+            }
+        }
+
+        /** Read markers until one with a run or literals. */
+        private void load() {
+            while (_run == 0 && _literals == 0 && _next < _words.length) {
+                long marker = _words[_next];
+                _bit = runBit(marker);
+                _run = runLength(marker);
+                _literals = literals(marker);
+                _literal = _next + 1;
+                _next = _literal + _literals;
+            }
+        }
+
+        /** Words left in the current run. */
+        private long _run;
+        /** The compressed words. */
+        private final long[] _words;
+        /** Value of the current run. */
+        private boolean _bit;
+        /** Literal words left after the current run. */
+        private int _literals;
+        /** Index of the next literal word. */
+        private int _literal;
+        /** Index of the next marker. */
+        private int _next;
+    }
+
+    /** Accumulates uncompressed words, in order, into an EwahBitmap. */
+    private static class Builder {
+        /** Append WORD. */
+        void add(long word) {
+            if (word == 0 || word == -1L) {
+                addRun(word != 0, 1);
+            } else {
+                if (_marker < 0 || literals(_words[_marker]) == MAX_LITERALS) {
+                    newMarker(false, 0);
+                }
+                _words[_marker] += 1L << 33;
+                append(word);
+                _pending = 0;
+            }
+        }
+
+        /** Append N clean words, all of whose bits are BIT. */
+        void addRun(boolean bit, long n) {
+            while (n > 0) {
+                long marker = _marker < 0 ? 0 : _words[_marker];
+                if (_marker < 0 || literals(marker) > 0
+                    || (runLength(marker) > 0 && runBit(marker) != bit)
+                    || runLength(marker) == MAX_RUN) {
+                    newMarker(bit, 0);
+                    marker = _words[_marker];
+                }
+                long k = Math.min(n, MAX_RUN - runLength(marker));
+                _words[_marker] = marker(bit, runLength(marker) + k, 0);
+                n -= k;
+                if (!bit) {
+                    _pending += k;
+                } else {
+                    _pending = 0;
+                }
+            }
+        }
+
+        /** Return the bitmap of the words added, dropping any trailing
+         *  zero words, so that equal sets have equal forms. */
+        EwahBitmap build() {
+            if (_pending > 0) {
+                long marker = _words[_marker];
+                long run = runLength(marker)
+                    - Math.min(_pending, runLength(marker));
+                if (run == 0) {
+                    _size = _marker;
+                } else {
+                    _words[_marker] = marker(false, run, 0);
+                }
+            }
+            return _size == 0 ? EMPTY
+                : new EwahBitmap(Arrays.copyOf(_words, _size));
+        }
+
+        /** Start a new marker with the given BIT and RUN length. */
+        private void newMarker(boolean bit, long run) {
+            _marker = _size;
+            append(marker(bit, run, 0));
+        }
+
+        /** Append WORD to the compressed words. */
+        private void append(long word) {
+            if (_size == _words.length) {
+                _words = Arrays.copyOf(_words, 2 * _words.length);
+            }
+            _words[_size] = word;
+            _size += 1;
+        }
+
+        /** The compressed words so far. */
+        private long[] _words = new long[16];
+        /** Number of compressed words. */
+        private int _size;
+        /** Index of the last marker, or -1. */
+        private int _marker = -1;
+        /** Number of zero words at the end of the last marker's run, which
+         *  build() drops if nothing follows them. */
+        private long _pending;
+    }
+
+    /** The compressed words. */
+    private final long[] _words;
+}
@@ -0,0 +1,508 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/** A write-ahead journal that makes the file writes of one command
+ *  atomic and durable.
+ *
+ *  Writes, appends and deletions of files under the journal's directory
+ *  are held in memory, where reads through the journal see them, until
+ *  commit().  That appends them all to the journal file as one batch and
+ *  forces it: the group commit, and the only sync a commit costs.  Only
+ *  then are they applied to the files themselves, a write by an atomic
+ *  rename and an append in place, neither synced.  The batch stays in
+ *  the journal file, so a crash may lose applied writes but never a
+ *  committed batch.
+ *
+ *  Opening the journal replays, idempotently, every change in it that
+ *  the files do not reflect, so after a crash the next command
+ *  sees every committed batch.  To bound that work, the journal is
+ *  checkpointed once it exceeds CHECKPOINT_SIZE bytes, and before gc
+ *  deletes loose objects: the files it names are synced, and it is
+ *  emptied back to its header.
+ *
+ *  The journal file holds the magic number "GJNL" and a version int,
+ *  followed by batches.  A batch is a payload length int and a CRC-32 of
+ *  the payload (as a long), then the payload: a record count and the
+ *  records, each an operation byte (WRITE, DELETE or APPEND), the path of
+ *  the file relative to the journal's directory (as by writeUTF), for an
+ *  append, the offset (as a long) at which the file ends with the given
+ *  bytes, and for a write or append, the length and the bytes.  Several
+ *  appends to a file are journaled as one, and the journal replays the
+ *  net effect on each file of all its records.  A batch that is
+ *  incomplete or fails its check is the residue of a crash during
+ *  commit, and it and anything after it are discarded. */
+class Journal {
+
+    /** Magic number ("GJNL") at the start of a journal file. */
+    private static final int MAGIC = 0x474a4e4c;
+    /** Current format version. */
+    private static final int VERSION = 1;
+    /** Length of the file header in bytes. */
+    private static final int HEADER = 8;
+    /** Length of a batch header in bytes. */
+    private static final int BATCH_HEADER = 12;
+    /** Record operation replacing a file's contents. */
+    private static final int WRITE = 0;
+    /** Record operation deleting a file. */
+    private static final int DELETE = 1;
+    /** Record operation replacing a file's contents from an offset on. */
+    private static final int APPEND = 2;
+    /** Size of the journal file in bytes past which a commit checkpoints
+     *  it. */
+    static final int CHECKPOINT_SIZE = 1 << 20;
+
+    /** A change to a file: BYTES at OFFSET and nothing after them, or, if
+     *  OFFSET is WHOLE, BYTES as the whole file, or, if BYTES is null, its
+     *  deletion. */
+    private static class Change {
+        /** A change leaving BYTES at OFFSET. */
+        Change(long offset, byte[] bytes) {
+            this.offset = offset;
+            this.bytes = bytes;
+        }
+
+        /** Return the length of the file this change leaves, given that it
+         *  starts with OFFSET bytes if it is an append. */
+        long end() {
+            if (bytes == null) {
+                return 0;
+            }
+            return (offset == WHOLE ? 0 : offset) + bytes.length;
+        }
+
+        /** Return the change making this one and then NEXT.  Throws
+         *  IllegalArgumentException if NEXT is an append at an offset
+         *  this change does not leave in place. */
+        Change then(Change next) {
+            if (next.offset == WHOLE) {
+                return next;
+            }
+            if (next.offset > end() || next.offset < end() - bytes().length) {
+                throw new IllegalArgumentException("misplaced append");
+            }
+            byte[] head = bytes();
+            int keep = head.length - (int) (end() - next.offset);
+            byte[] joined = Arrays.copyOf(head, keep + next.bytes.length);
+            System.arraycopy(next.bytes, 0, joined, keep, next.bytes.length);
+            return new Change(bytes == null ? WHOLE : offset, joined);
+        }
+
+        /** Return the bytes this change writes (none for a deletion). */
+        private byte[] bytes() {
+            return bytes == null ? new byte[0] : bytes;
+        }
+
+        /** Offset of the bytes written, or WHOLE. */
+        final long offset;
+        /** The bytes written, or null for a deletion. */
+        final byte[] bytes;
+    }
+
+    /** Change offset denoting a write of a whole file. */
+    private static final long WHOLE = -1;
+    /** The change deleting a file. */
+    private static final Change DELETED = new Change(WHOLE, null);
+
+    /** A journal kept in FILE, covering the files under FILE's directory.
+     *  Use open() to obtain a journal with any unapplied writes replayed. */
+    private Journal(File file) {
+        _file = file.toPath();
+        _root = _file.toAbsolutePath().getParent();
+    }
+
+    /** Return the journal kept in FILE, first completing the writes of
+     *  any commit that a crash may have interrupted. */
+    static Journal open(File file) {
+        Journal result = new Journal(file);
+        result.recover();
+        return result;
+    }
+
+    /** Return true iff opening the journal kept in FILE would change any
+     *  file: it ends in a torn batch, is not empty and not a journal, or
+     *  holds a write or deletion that the files do not reflect.  Changes
+     *  nothing itself. */
+    static boolean needsRecovery(File file) {
+        Journal journal = new Journal(file);
+        Map<Path, Change> records = new LinkedHashMap<>();
+        long end = journal.read(records);
+        try {
+            if (Files.exists(journal._file)
+                && Files.size(journal._file) != end) {
+                return true;
+            }
+            for (Map.Entry<Path, Change> record : records.entrySet()) {
+                if (!reflects(journal._root.resolve(record.getKey()),
+                              record.getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Arrange for TARGET to hold CONTENTS when this journal commits. */
+    void write(File target, byte[] contents) {
+        _pending.put(key(target), new Change(WHOLE, contents.clone()));
+    }
+
+    /** Arrange for BYTES to be appended to TARGET, as of the pending
+     *  writes, when this journal commits.  Only the appended bytes are
+     *  journaled. */
+    void append(File target, byte[] bytes) {
+        Path key = key(target);
+        Change old = _pending.get(key);
+        if (old == null) {
+            long length = target.isFile() ? target.length() : 0;
+            _pending.put(key, new Change(length, bytes.clone()));
+        } else {
+            _pending.put(key, old.then(new Change(old.end(), bytes)));
+        }
+    }
+
+    /** Arrange for TARGET to be deleted when this journal commits. */
+    void delete(File target) {
+        _pending.put(key(target), DELETED);
+    }
+
+    /** Return true iff TARGET exists as of the pending writes. */
+    boolean exists(File target) {
+        Change pending = _pending.get(key(target));
+        if (pending != null) {
+            return pending != DELETED;
+        }
+        return target.isFile();
+    }
+
+    /** Return true iff a change to TARGET is pending. */
+    boolean isPending(File target) {
+        return _pending.containsKey(key(target));
+    }
+
+    /** Return the contents of TARGET as of the pending writes, or null if
+     *  it does not exist. */
+    byte[] readContents(File target) {
+        Change pending = _pending.get(key(target));
+        if (pending == null) {
+            return target.isFile() ? Utils.readContents(target) : null;
+        } else if (pending == DELETED) {
+            return null;
+        } else if (pending.offset == WHOLE) {
+            return pending.bytes.clone();
+        }
+        byte[] old = target.isFile() ? Utils.readContents(target)
+            : new byte[0];
+        return new Change(WHOLE, old).then(pending).bytes;
+    }
+
+    /** Make the pending writes durable with one forced append to the
+     *  journal file, then apply them without syncing, checkpointing if the
+     *  journal file has grown past CHECKPOINT_SIZE.  Does nothing if none
+     *  are pending.  Throws IllegalArgumentException in case of
+     *  problems. */
+    void commit() {
+        if (_pending.isEmpty()) {
+            return;
+        }
+        byte[] payload = encode(_pending);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer batch = ByteBuffer.allocate(BATCH_HEADER + payload.length);
+        batch.putInt(payload.length).putLong(crc.getValue()).put(payload);
+        batch.flip();
+        boolean created = !Files.exists(_file);
+        long end;
+        try (FileChannel out = FileChannel.open(_file,
+                                                StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE)) {
+            long size = out.size();
+            if (size < HEADER) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                out.truncate(0);
+                writeFully(out, header, 0);
+                size = HEADER;
+            }
+            writeFully(out, batch, size);
+            end = size + BATCH_HEADER + payload.length;
+            out.force(true);
+            Trace.count(Trace.Counter.FSYNCS);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (created) {
+            Utils.sync(_root.toFile());
+        }
+        apply(_pending, false);
+        _pending.clear();
+        if (end > CHECKPOINT_SIZE) {
+            checkpoint();
+        }
+    }
+
+    /** Discard the pending writes. */
+    void abort() {
+        _pending.clear();
+    }
+
+    /** Force every file named in the journal file to storage and then
+     *  empty it.  Pending writes are unaffected. */
+    void checkpoint() {
+        Map<Path, Change> records = new LinkedHashMap<>();
+        long end = read(records);
+        if (end <= HEADER) {
+            return;
+        }
+        sync(records);
+        truncate(HEADER);
+    }
+
+    /** Force the files written by RECORDS, and the directories of all
+     *  files in RECORDS, to storage. */
+    private void sync(Map<Path, Change> records) {
+        TreeSet<Path> dirs = new TreeSet<>();
+        for (Map.Entry<Path, Change> record : records.entrySet()) {
+            Path path = _root.resolve(record.getKey());
+            if (record.getValue() != DELETED
+                && Files.isRegularFile(path)) {
+                Utils.sync(path.toFile());
+            }
+            dirs.add(path.getParent());
+        }
+        for (Path dir : dirs) {
+            if (Files.isDirectory(dir)) {
+                Utils.sync(dir.toFile());
+            }
+        }
+    }
+
+    /** Apply every write or deletion in the journal file that the files
+     *  do not already reflect, and discard any torn batch at its end.  The
+     *  batches themselves stay until the next checkpoint. */
+    private void recover() {
+        if (!Files.exists(_file)) {
+            return;
+        }
+        Map<Path, Change> records = new LinkedHashMap<>();
+        long end = read(records);
+        apply(records, true);
+        try {
+            if (Files.size(_file) != end) {
+                truncate(end);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Read the complete batches of the journal file into RECORDS, later
+     *  records for a file combined with earlier ones, and return the
+     *  offset
+     *  just past the last complete batch (0 if the file is not a
+     *  journal). */
+    private long read(Map<Path, Change> records) {
+        ByteBuffer in;
+        try {
+            if (!Files.exists(_file)) {
+                return 0;
+            }
+            in = ByteBuffer.wrap(Files.readAllBytes(_file));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (in.remaining() < HEADER || in.getInt() != MAGIC
+            || in.getInt() != VERSION) {
+            return 0;
+        }
+        long end = HEADER;
+        while (in.remaining() >= BATCH_HEADER) {
+            int length = in.getInt();
+            long check = in.getLong();
+            if (length < 0 || length > in.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != check || !decode(payload, records)) {
+                break;
+            }
+            end = in.position();
+        }
+        return end;
+    }
+
+    /** Apply the changes in RECORDS.  If CHECK, skip those that the files
+     *  already reflect. */
+    private void apply(Map<Path, Change> records, boolean check) {
+        try {
+            for (Map.Entry<Path, Change> record : records.entrySet()) {
+                Path path = _root.resolve(record.getKey());
+                Change change = record.getValue();
+                if (check && reflects(path, change)) {
+                    continue;
+                }
+                if (change == DELETED) {
+                    Files.deleteIfExists(path);
+                } else if (change.offset == WHOLE) {
+                    Utils.writeAtomic(path.toFile(), false, change.bytes);
+                } else {
+                    Files.createDirectories(path.getParent());
+                    try (FileChannel out =
+                             FileChannel.open(path, StandardOpenOption.CREATE,
+                                              StandardOpenOption.WRITE)) {
+                        writeFully(out, ByteBuffer.wrap(change.bytes),
+                                   change.offset);
+                        out.truncate(change.end());
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return true iff PATH is as CHANGE would leave it. */
+    private static boolean reflects(Path path, Change change)
+        throws IOException {
+        if (change == DELETED) {
+            return !Files.exists(path);
+        }
+        if (!Files.isRegularFile(path) || Files.size(path) != change.end()) {
+            return false;
+        }
+        if (change.offset == WHOLE) {
+            return Arrays.equals(Files.readAllBytes(path), change.bytes);
+        }
+        ByteBuffer found = ByteBuffer.allocate(change.bytes.length);
+        try (FileChannel in = FileChannel.open(path)) {
+            while (found.hasRemaining()) {
+                if (in.read(found, change.offset + found.position()) < 0) {
+                    return false;
+                }
+            }
+        }
+        return Arrays.equals(found.array(), change.bytes);
+    }
+
+    /** Return the payload of a batch holding RECORDS. */
+    private static byte[] encode(Map<Path, Change> records) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(records.size());
+            for (Map.Entry<Path, Change> record : records.entrySet()) {
+                Change change = record.getValue();
+                out.writeByte(change == DELETED ? DELETE
+                              : change.offset == WHOLE ? WRITE : APPEND);
+                out.writeUTF(record.getKey().toString());
+                if (change != DELETED) {
+                    if (change.offset != WHOLE) {
+                        out.writeLong(change.offset);
+                    }
+                    out.writeInt(change.bytes.length);
+                    out.write(change.bytes);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Add the records in batch payload PAYLOAD to RECORDS.  Returns
+     *  false, leaving RECORDS unchanged, if PAYLOAD is malformed. */
+    private boolean decode(byte[] payload, Map<Path, Change> records) {
+        Map<Path, Change> batch = new LinkedHashMap<>();
+        try (DataInputStream in =
+                 new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i += 1) {
+                int op = in.readByte();
+                Path path = key(_root.resolve(in.readUTF()).toFile());
+                Change change;
+                if (op == DELETE) {
+                    change = DELETED;
+                } else if (op == WRITE || op == APPEND) {
+                    long offset = op == WRITE ? WHOLE : in.readLong();
+                    int length = in.readInt();
+                    if (offset < WHOLE || length < 0
+                        || length > in.available()) {
+                        return false;
+                    }
+                    byte[] contents = new byte[length];
+                    in.readFully(contents);
+                    change = new Change(offset, contents);
+                } else {
+                    return false;
+                }
+                Change old = batch.containsKey(path) ? batch.get(path)
+                    : records.get(path);
+                batch.put(path, old == null ? change : old.then(change));
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            return false;
+        }
+        for (Map.Entry<Path, Change> record : batch.entrySet()) {
+            records.remove(record.getKey());
+            records.put(record.getKey(), record.getValue());
+        }
+        return true;
+    }
+
+    /** Return the path of TARGET relative to the journal's directory.
+     *  Throws IllegalArgumentException if TARGET is not under it. */
+    private Path key(File target) {
+        Path path = target.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(_root) || path.equals(_root)) {
+            throw new IllegalArgumentException("not under journal: " + target);
+        }
+        return _root.relativize(path);
+    }
+
+    /** Truncate the journal file to LENGTH bytes and force it. */
+    private void truncate(long length) {
+        try (FileChannel out = FileChannel.open(_file,
+                                                StandardOpenOption.WRITE)) {
+            out.truncate(length);
+            out.force(true);
+            Trace.count(Trace.Counter.FSYNCS);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write all of BUF to OUT starting at POSITION. */
+    private static void writeFully(FileChannel out, ByteBuffer buf,
+                                   long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += out.write(buf, position);
+        }
+    }
+
+    /** The journal file. */
+    private final Path _file;
+    /** The directory under which journaled files lie. */
+    private final Path _root;
+    /** Pending changes by path relative to _root, in order of first
+     *  change. */
+    private final Map<Path, Change> _pending = new LinkedHashMap<>();
+}
@@ -0,0 +1,240 @@
+package gitlet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/** Tests of Journal: group commit, appends, checkpoints, and replay
+ *  after a crash. */
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** The directory the journal under test covers. */
+    private File root;
+    /** The journal file under test. */
+    private File journalFile;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tmp.newFolder("repo");
+        journalFile = new File(root, "journal");
+    }
+
+    /** Commit a batch writing "A" to a.txt and "B" to b.txt that crashes
+     *  after the batch is forced but before b.txt is written, then undo
+     *  the write of a.txt as a crash of the machine might. */
+    private void crashDuringApply() {
+        File b = new File(root, "b.txt");
+        assertTrue(b.mkdir());
+        Journal journal = Journal.open(journalFile);
+        journal.write(new File(root, "a.txt"), "A".getBytes());
+        journal.write(b, "B".getBytes());
+        try {
+            journal.commit();
+            fail("b.txt, a directory, was overwritten");
+        } catch (IllegalArgumentException excp) {
+            /* The simulated crash. */
+        }
+        assertTrue(b.delete());
+        Utils.writeContents(new File(root, "a.txt"), "old");
+        assertTrue(Journal.needsRecovery(journalFile));
+    }
+
+    /** Commit the pending writes of JOURNAL and return the number of
+     *  syncs that took. */
+    private static long commitCountingSyncs(Journal journal) {
+        Trace.start("commit");
+        try {
+            journal.commit();
+            return Trace.get(Trace.Counter.FSYNCS);
+        } finally {
+            Trace.stop();
+        }
+    }
+
+    @Test
+    public void aCommitAppliesTheBatchWithOneSync() {
+        Journal journal = Journal.open(journalFile);
+        File a = new File(root, "a.txt");
+        File sub = new File(root, "sub/b.txt");
+        journal.write(a, "A".getBytes());
+        journal.write(sub, "B".getBytes());
+        assertFalse(a.exists());
+        assertTrue(journal.exists(sub));
+        assertTrue(journal.isPending(sub));
+        assertArrayEquals("B".getBytes(), journal.readContents(sub));
+        journal.commit();
+        assertEquals("A", Utils.readContentsAsString(a));
+        assertEquals("B", Utils.readContentsAsString(sub));
+        long length = journalFile.length();
+        assertTrue(length > 8);
+        assertFalse(Journal.needsRecovery(journalFile));
+
+        journal.delete(a);
+        journal.write(sub, "C".getBytes());
+        assertFalse(journal.exists(a));
+        assertNull(journal.readContents(a));
+        assertEquals(1, commitCountingSyncs(journal));
+        assertFalse(a.exists());
+        assertEquals("C", Utils.readContentsAsString(sub));
+        assertTrue(journalFile.length() > length);
+        assertFalse(Journal.needsRecovery(journalFile));
+        assertEquals(0, commitCountingSyncs(journal));
+    }
+
+    @Test
+    public void aLargeJournalIsCheckpointed() {
+        Journal journal = Journal.open(journalFile);
+        File a = new File(root, "a.txt");
+        byte[] big = new byte[Journal.CHECKPOINT_SIZE / 3];
+        long syncs = 0;
+        for (int i = 0; i < 4; i += 1) {
+            big[0] = (byte) i;
+            journal.write(a, big);
+            syncs += commitCountingSyncs(journal);
+            assertTrue(journalFile.length() <= Journal.CHECKPOINT_SIZE);
+        }
+        assertTrue(syncs > 4);
+        assertArrayEquals(big, Utils.readContents(a));
+
+        journal.write(a, "A".getBytes());
+        journal.commit();
+        journal.checkpoint();
+        assertEquals(8, journalFile.length());
+        assertEquals("A", Utils.readContentsAsString(a));
+    }
+
+    @Test
+    public void openOnlyRewritesWhatTheFilesLost() {
+        Journal journal = Journal.open(journalFile);
+        File a = new File(root, "a.txt"), b = new File(root, "b.txt");
+        journal.write(a, "A".getBytes());
+        journal.commit();
+        journal.write(a, "A2".getBytes());
+        journal.write(b, "B".getBytes());
+        journal.commit();
+        assertFalse(Journal.needsRecovery(journalFile));
+
+        assertTrue(b.delete());
+        assertTrue(Journal.needsRecovery(journalFile));
+        long modified = a.lastModified();
+        Journal.open(journalFile);
+        assertEquals("A2", Utils.readContentsAsString(a));
+        assertEquals("B", Utils.readContentsAsString(b));
+        assertEquals(modified, a.lastModified());
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+
+    @Test
+    public void appendsJournalOnlyTheirBytes() throws IOException {
+        Journal journal = Journal.open(journalFile);
+        File a = new File(root, "a.txt"), b = new File(root, "sub/b.txt");
+        journal.write(a, "head".getBytes());
+        journal.append(a, "-1".getBytes());
+        journal.append(b, "b1".getBytes());
+        assertEquals("head-1", new String(journal.readContents(a)));
+        journal.commit();
+        assertEquals("head-1", Utils.readContentsAsString(a));
+        assertEquals("b1", Utils.readContentsAsString(b));
+
+        byte[] big = new byte[10_000];
+        journal.write(a, big);
+        journal.commit();
+        long length = journalFile.length();
+        journal.append(a, "-2".getBytes());
+        journal.append(a, "-3".getBytes());
+        journal.append(b, "b2".getBytes());
+        assertTrue(journal.exists(a));
+        assertEquals(big.length + 4, journal.readContents(a).length);
+        journal.commit();
+        assertTrue(journalFile.length() - length < 100);
+        assertEquals("b1b2", Utils.readContentsAsString(b));
+        assertFalse(Journal.needsRecovery(journalFile));
+
+        journal.delete(b);
+        journal.append(b, "b3".getBytes());
+        journal.commit();
+        assertEquals("b3", Utils.readContentsAsString(b));
+
+        try (RandomAccessFile file = new RandomAccessFile(a, "rw")) {
+            file.setLength(big.length + 2);
+        }
+        assertTrue(b.delete());
+        assertTrue(Journal.needsRecovery(journalFile));
+        Journal.open(journalFile);
+        byte[] contents = Utils.readContents(a);
+        assertEquals(big.length + 4, contents.length);
+        assertEquals("-2-3", new String(contents, big.length, 4));
+        assertEquals("b3", Utils.readContentsAsString(b));
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+
+    @Test
+    public void abortChangesNothing() {
+        Journal journal = Journal.open(journalFile);
+        File a = new File(root, "a.txt");
+        journal.write(a, "A".getBytes());
+        journal.abort();
+        journal.commit();
+        assertFalse(a.exists());
+        assertFalse(journal.isPending(a));
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+
+    @Test
+    public void openReplaysACommittedBatch() {
+        crashDuringApply();
+        Journal.open(journalFile);
+        assertEquals("A", Utils.readContentsAsString(new File(root, "a.txt")));
+        assertEquals("B", Utils.readContentsAsString(new File(root, "b.txt")));
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+
+    @Test
+    public void openDropsATornBatch() throws IOException {
+        crashDuringApply();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        Journal.open(journalFile);
+        assertEquals("old",
+                     Utils.readContentsAsString(new File(root, "a.txt")));
+        assertFalse(new File(root, "b.txt").exists());
+        assertEquals(8, journalFile.length());
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+
+    @Test
+    public void openKeepsBatchesBeforeATornOne() throws IOException {
+        crashDuringApply();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.seek(file.length());
+            file.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 });
+        }
+        long length = journalFile.length();
+        Journal.open(journalFile);
+        assertEquals("A", Utils.readContentsAsString(new File(root, "a.txt")));
+        assertEquals("B", Utils.readContentsAsString(new File(root, "b.txt")));
+        assertEquals(length - 7, journalFile.length());
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+
+    @Test
+    public void aDamagedJournalNeedsRecovery() throws IOException {
+        assertFalse(Journal.needsRecovery(journalFile));
+        Utils.writeContents(journalFile, "not a journal");
+        assertTrue(Journal.needsRecovery(journalFile));
+        Journal.open(journalFile);
+        assertEquals(0, journalFile.length());
+        assertFalse(Journal.needsRecovery(journalFile));
+    }
+}
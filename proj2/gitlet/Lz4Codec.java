@@ -0,0 +1,340 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/** A fast pure-Java codec in the style of LZ4.
+ *
+ *  Data are cut into blocks of at most BLOCK_SIZE bytes, and each block
+ *  is written as its uncompressed length and stored length (4-byte ints)
+ *  followed by the stored bytes.  A block whose stored length equals its
+ *  uncompressed length is stored raw; otherwise it is in the LZ4 block
+ *  format: a sequence of tokens, each giving a run of literal bytes and
+ *  then a back-reference (a 2-byte offset and a length of at least 4)
+ *  into the data already produced.  Matches are found through a hash
+ *  table of 4-byte sequences, with no search beyond the one candidate
+ *  that the table holds, which is what makes the codec fast. */
+class Lz4Codec implements Codec {
+
+    /** Largest block size. */
+    static final int BLOCK_SIZE = 1 << 16;
+    /** Initial size of the compression buffer. */
+    private static final int INITIAL_BUFFER = 1 << 12;
+    /** Shortest match. */
+    private static final int MIN_MATCH = 4;
+    /** Matches may not start within this many bytes of the block end. */
+    private static final int END_LITERALS = 12;
+    /** Log2 of the size of the match-finding hash table. */
+    private static final int HASH_BITS = 14;
+
+    @Override
+    public int id() {
+        return 2;
+    }
+
+    @Override
+    public String name() {
+        return "lz4";
+    }
+
+    @Override
+    public OutputStream compressor(OutputStream out) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                reserve();
+                _block[_count++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    reserve();
+                    int n = Math.min(len, _block.length - _count);
+                    System.arraycopy(b, off, _block, _count, n);
+                    _count += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (_count > 0) {
+                    flushBlock();
+                }
+                _out.close();
+            }
+
+            /** Make room in _block for at least one more byte, growing it
+             *  up to BLOCK_SIZE and then writing it out when full. */
+            private void reserve() throws IOException {
+                if (_count < _block.length) {
+                    return;
+                } else if (_block.length < BLOCK_SIZE) {
+                    _block = Arrays.copyOf(_block, 2 * _block.length);
+                } else {
+                    flushBlock();
+                }
+            }
+
+            /** Write the buffered block. */
+            private void flushBlock() throws IOException {
+                if (_compressed.length < _count) {
+                    _compressed = new byte[_block.length];
+                }
+                int slots = Math.min(1 << HASH_BITS,
+                                     Integer.highestOneBit(_count | 0xf) << 1);
+                if (_table.length < slots) {
+                    _table = new int[slots];
+                }
+                int n = compressBlock(_block, _count, _compressed, _table);
+                _out.writeInt(_count);
+                if (n < 0 || n >= _count) {
+                    _out.writeInt(_count);
+                    _out.write(_block, 0, _count);
+                } else {
+                    _out.writeInt(n);
+                    _out.write(_compressed, 0, n);
+                }
+                _count = 0;
+            }
+
+            /** Destination of the compressed data. */
+            private final DataOutputStream _out = new DataOutputStream(out);
+            /** The block being accumulated, which starts small so that
+             *  small objects are cheap to compress. */
+            private byte[] _block = new byte[INITIAL_BUFFER];
+            /** Number of bytes in _block. */
+            private int _count;
+            /** Receives the compressed form of _block. */
+            private byte[] _compressed = new byte[0];
+            /** Match-finding hash table, sized to the largest block. */
+            private int[] _table = new int[0];
+        };
+    }
+
+    @Override
+    public InputStream decompressor(InputStream in) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (!fill()) {
+                    return -1;
+                }
+                return _block[_pos++] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!fill()) {
+                    return -1;
+                }
+                int n = Math.min(len, _limit - _pos);
+                System.arraycopy(_block, _pos, b, off, n);
+                _pos += n;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                _in.close();
+            }
+
+            /** Ensure that _block has unread bytes, decoding the next
+             *  block if necessary.  Returns false at end of input. */
+            private boolean fill() throws IOException {
+                while (_pos == _limit) {
+                    int first = _in.read();
+                    if (first < 0) {
+                        return false;
+                    }
+                    int length = first << 24 | _in.readUnsignedByte() << 16
+                        | _in.readUnsignedShort();
+                    int stored = _in.readInt();
+                    if (length < 0 || length > BLOCK_SIZE || stored < 0
+                        || stored > length) {
+                        throw new IOException("corrupt lz4 block");
+                    }
+                    if (_block.length < length) {
+                        _block = new byte[length];
+                    }
+                    if (stored == length) {
+                        _in.readFully(_block, 0, length);
+                    } else {
+                        if (_compressed.length < stored) {
+                            _compressed = new byte[stored];
+                        }
+                        _in.readFully(_compressed, 0, stored);
+                        decompressBlock(_compressed, stored, _block, length);
+                    }
+                    _pos = 0;
+                    _limit = length;
+                }
+                return true;
+            }
+
+            /** Source of the compressed data. */
+            private final DataInputStream _in = new DataInputStream(in);
+            /** The current decoded block, sized to the largest so far. */
+            private byte[] _block = new byte[0];
+            /** Holds the compressed form of the next block. */
+            private byte[] _compressed = new byte[0];
+            /** Position of the next unread byte of _block. */
+            private int _pos;
+            /** Number of valid bytes in _block. */
+            private int _limit;
+        };
+    }
+
+    /** Compress SRC[0 .. LEN-1] into DST, using TABLE, whose length is a
+     *  power of two, for match finding.  Returns the compressed length,
+     *  or -1 if the result would not fit in DST. */
+    static int compressBlock(byte[] src, int len, byte[] dst, int[] table) {
+        Arrays.fill(table, -1);
+        int shift = 32 - Integer.numberOfTrailingZeros(table.length);
+        int out = 0;
+        int anchor = 0;
+        int i = 0;
+        int limit = len - END_LITERALS;
+        while (i < limit) {
+            int h = hash(src, i, shift);
+            int candidate = table[h];
+            table[h] = i;
+            if (candidate < 0 || i - candidate > 0xffff
+                || !sameInt(src, candidate, i)) {
+                i += 1;
+                continue;
+            }
+            int matchEnd = i + MIN_MATCH;
+            while (matchEnd < len - 5 && src[matchEnd]
+                   == src[candidate + matchEnd - i]) {
+                matchEnd += 1;
+            }
+            out = writeSequence(src, anchor, i - anchor, i - candidate,
+                                matchEnd - i, dst, out);
+            if (out < 0) {
+                return -1;
+            }
+            i = matchEnd;
+            anchor = i;
+        }
+        return writeSequence(src, anchor, len - anchor, 0, 0, dst, out);
+    }
+
+    /** Write to DST at OUT a token for NLIT literals from SRC[ANCHOR..]
+     *  followed, if MATCHLEN > 0, by a match of MATCHLEN bytes at
+     *  distance OFFSET.  Returns the new output position, or -1 if DST is
+     *  too small. */
+    private static int writeSequence(byte[] src, int anchor, int nlit,
+                                     int offset, int matchLen, byte[] dst,
+                                     int out) {
+        int extra = matchLen - MIN_MATCH;
+        if (out + 1 + nlit / 255 + 1 + nlit + 2 + extra / 255 + 1
+            > dst.length) {
+            return -1;
+        }
+        int tokenPos = out++;
+        int token = Math.min(nlit, 15) << 4;
+        out = writeLength(dst, out, nlit);
+        System.arraycopy(src, anchor, dst, out, nlit);
+        out += nlit;
+        if (matchLen > 0) {
+            token |= Math.min(extra, 15);
+            dst[out++] = (byte) offset;
+            dst[out++] = (byte) (offset >>> 8);
+            out = writeLength(dst, out, extra);
+        }
+        dst[tokenPos] = (byte) token;
+        return out;
+    }
+
+    /** Write the extension bytes for a length field of value N to DST at
+     *  OUT, returning the new position.  Lengths of 15 or more continue
+     *  in bytes of 255 ending with a byte less than 255. */
+    private static int writeLength(byte[] dst, int out, int n) {
+        if (n >= 15) {
+            n -= 15;
+            while (n >= 255) {
+                dst[out++] = (byte) 255;
+                n -= 255;
+            }
+            dst[out++] = (byte) n;
+        }
+        return out;
+    }
+
+    /** Decompress SRC[0 .. LEN-1] into DST, which must receive exactly
+     *  EXPECTED bytes.  Throws IOException if SRC is malformed. */
+    static void decompressBlock(byte[] src, int len, byte[] dst,
+                                int expected) throws IOException {
+        try {
+            int in = 0;
+            int out = 0;
+            while (in < len) {
+                int token = src[in++] & 0xff;
+                int nlit = token >>> 4;
+                if (nlit == 15) {
+                    int b;
+                    do {
+                        b = src[in++] & 0xff;
+                        nlit += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, in, dst, out, nlit);
+                in += nlit;
+                out += nlit;
+                if (in >= len) {
+                    break;
+                }
+                int offset = (src[in] & 0xff) | (src[in + 1] & 0xff) << 8;
+                in += 2;
+                int matchLen = token & 0xf;
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[in++] & 0xff;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+                int from = out - offset;
+                if (offset == 0 || from < 0) {
+                    throw new IOException("corrupt lz4 block");
+                }
+                for (int k = 0; k < matchLen; k += 1) {
+                    dst[out++] = dst[from + k];
+                }
+            }
+            if (out != expected) {
+                throw new IOException("corrupt lz4 block");
+            }
+        } catch (IndexOutOfBoundsException excp) {
+            throw new IOException("corrupt lz4 block");
+        }
+    }
+
+    /** Return the hash-table slot of the 4 bytes at SRC[I] in a table of
+     *  2**(32 - SHIFT) slots. */
+    private static int hash(byte[] src, int i, int shift) {
+        return (readInt(src, i) * -1640531535) >>> shift;
+    }
+
+    /** Return true iff the 4 bytes at SRC[A] and SRC[B] are equal. */
+    private static boolean sameInt(byte[] src, int a, int b) {
+        return readInt(src, a) == readInt(src, b);
+    }
+
+    /** Return the 4 bytes at SRC[I] as a little-endian int. */
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xff) | (src[i + 1] & 0xff) << 8
+            | (src[i + 2] & 0xff) << 16 | (src[i + 3] & 0xff) << 24;
+    }
+}
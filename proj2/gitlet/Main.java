@@ -1,16 +1,82 @@
 package gitlet;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
 /** Driver class for Gitlet, a subset of the Git version-control system.
  *  @author TODO
  */
 public class Main {
 
+    /** The commands that only read the repository, which run under a
+     *  shared lock; all others lock it exclusively.  Push only reads this
+     *  repository; the remote it writes is locked as REMOTE says. */
+    static final Set<String> READ_ONLY =
+        Set.of("log", "global-log", "find", "status", "diff", "push");
+
+    /** The commands that also lock the remote named by their first
+     *  operand, each mapped to true iff it only reads the remote. */
+    static final Map<String, Boolean> REMOTE =
+        Map.of("push", false, "fetch", true);
+
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND1> <OPERAND2> ... 
+     *  <COMMAND> <OPERAND1> <OPERAND2> ...
      */
     public static void main(String[] args) {
-        // TODO: what if args is empty?
-        String firstArg = args[0];
+        System.exit(run(args));
+    }
+
+    /** Run the command in ARGS as main would, printing on System.out and
+     *  returning the exit status instead of exiting, so that a Daemon can
+     *  run many commands in one process.  Gitlet errors are reported by
+     *  printing their messages, as the specification requires, and have
+     *  status 0; any other exception propagates.  The command runs under
+     *  the repository's lock (see RepositoryLock), shared or exclusive as
+     *  READ_ONLY says, and under its remote's lock as REMOTE says, and its
+     *  writes are committed before the lock is released.  If ARGS begins
+     *  with --trace, the rest of ARGS is run under Trace, and its JSON
+     *  summary is printed on System.err afterwards. */
+    static int run(String[] args) {
+        if (args.length > 0 && args[0].equals("--trace")) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+            Trace.start(args.length > 0 ? args[0] : "");
+            try {
+                return run(args);
+            } finally {
+                System.err.println(Trace.stop());
+            }
+        }
+        try {
+            if (args.length == 0) {
+                throw Utils.error("Please enter a command.");
+            }
+            String firstArg = args[0];
+            RepositoryLock lock;
+            try (Trace.Phase phase = Trace.phase("lock")) {
+                String remote = REMOTE.containsKey(firstArg)
+                    && args.length == 3 ? args[1] : null;
+                lock = Repository.lock(READ_ONLY.contains(firstArg), remote,
+                                       REMOTE.getOrDefault(firstArg, true));
+            }
+            try (lock) {
+                try (Trace.Phase phase = Trace.phase("execute")) {
+                    execute(firstArg, args);
+                }
+                try (Trace.Phase phase = Trace.phase("finish")) {
+                    Repository.finish();
+                }
+            }
+        } catch (GitletException excp) {
+            Repository.abort();
+            Utils.message(excp.getMessage());
+        }
+        return 0;
+    }
+
+    /** Run the command FIRSTARG, whose arguments are ARGS, leaving its
+     *  writes pending in the journal. */
+    private static void execute(String firstArg, String[] args) {
         switch(firstArg) {
             case "init":
                 // TODO: handle the `init` command
@@ -18,7 +84,39 @@ public class Main {
             case "add":
                 // TODO: handle the `add [filename]` command
                 break;
+            case "diff":
+                Repository.diff(Arrays.copyOfRange(args, 1, args.length));
+                break;
+            case "add-remote":
+                checkOperands(args, 3);
+                Repository.addRemote(args[1], args[2]);
+                break;
+            case "rm-remote":
+                checkOperands(args, 2);
+                Repository.rmRemote(args[1]);
+                break;
+            case "push":
+                checkOperands(args, 3);
+                Repository.push(args[1], args[2]);
+                break;
+            case "fetch":
+                checkOperands(args, 3);
+                Repository.fetch(args[1], args[2]);
+                break;
+            case "gc":
+                Repository.gc();
+                break;
             // TODO: FILL THE REST IN
+            default:
+                throw Utils.error("No command with that name exists.");
+        }
+    }
+
+    /** Report an error unless ARGS holds a command and COUNT - 1
+     *  operands. */
+    private static void checkOperands(String[] args, int count) {
+        if (args.length != count) {
+            throw Utils.error("Incorrect operands.");
         }
     }
 }
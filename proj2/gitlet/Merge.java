@@ -0,0 +1,317 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/** The three-way merge of the files tracked by two commits, HEAD (the
+ *  current branch) and OTHER (the given branch), against their split
+ *  point.  Each file is classified by comparing its blob ids in the three
+ *  commits, a missing file counting as an id of its own:
+ *  <ul>
+ *  <li> the same in HEAD and OTHER (including absent from both): keep;
+ *  <li> changed only in OTHER: take OTHER's version, or remove the file
+ *       if OTHER removed it;
+ *  <li> changed only in HEAD: keep;
+ *  <li> changed in both, differently: a conflict.
+ *  </ul>
+ *  Since every Commit lists its files in name order, the three lists are
+ *  merged in one pass, like the merge step of merge sort, without building
+ *  any map, and only the ids are compared: no blob is read.  Files to be
+ *  kept, usually nearly all of them, produce no work at all.  Given the
+ *  commits' Trees, whole directories are classified at once by comparing
+ *  their Tree ids. */
+class Merge {
+
+    /** Marker opening a conflict, before the current branch's version. */
+    private static final byte[] CONFLICT_HEAD =
+        "<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8);
+    /** Marker between the two versions in a conflict. */
+    private static final byte[] CONFLICT_SEPARATOR =
+        "=======\n".getBytes(StandardCharsets.UTF_8);
+    /** Marker closing a conflict. */
+    private static final byte[] CONFLICT_END =
+        ">>>>>>>\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Receives the files that a merge changes. */
+    interface Visitor {
+        /** The file NAME should become OTHER's version, with blob id
+         *  BLOB. */
+        void take(String name, String blob);
+
+        /** The file NAME should be removed. */
+        void remove(String name);
+
+        /** The file NAME was changed differently in both branches: its
+         *  blob id is SPLIT at the split point, HEAD in the current branch,
+         *  and OTHER in the given branch, any being null if the file is
+         *  absent there.  Returns true iff the file remains in conflict,
+         *  false if the visitor could reconcile the changes. */
+        boolean conflict(String name, String split, String head,
+                         String other);
+    }
+
+    /** Merge the files SPLIT, HEAD, and OTHER, each mapping file names to
+     *  blob ids in name order, reporting the changes to VISITOR in name
+     *  order.  Returns the number of files left in conflict. */
+    static int run(Map<String, String> split, Map<String, String> head,
+                   Map<String, String> other, Visitor visitor) {
+        return run(null, "", split, head, other, visitor);
+    }
+
+    /** Merge the files under the root Trees SPLIT, HEAD, and OTHER in
+     *  TREES, any of which may be null for no files, reporting the changes
+     *  to VISITOR in name order.  Returns the number of files left in
+     *  conflict.  Directories are classified by their Tree ids like
+     *  files, so one that is the same in HEAD and OTHER, or unchanged in
+     *  OTHER, is skipped without reading its Trees; only the directories
+     *  that both branches changed, or that OTHER alone changed, are
+     *  descended into. */
+    static int run(ObjectStore trees, String split, String head,
+                   String other, Visitor visitor) {
+        return run(trees, "", Tree.read(trees, split).entries(),
+                   Tree.read(trees, head).entries(),
+                   Tree.read(trees, other).entries(), visitor);
+    }
+
+    /** Merge SPLIT, HEAD, and OTHER, the entries of the directory PREFIX,
+     *  reporting the changes to VISITOR as for run.  Keys that name
+     *  subdirectories (Tree.isTree) are descended into, reading their
+     *  Trees from TREES. */
+    private static int run(ObjectStore trees, String prefix,
+                           Map<String, String> split,
+                           Map<String, String> head,
+                           Map<String, String> other, Visitor visitor) {
+        Cursor s = new Cursor(split), h = new Cursor(head),
+            o = new Cursor(other);
+        int conflicts = 0;
+        while (true) {
+            String key = min(min(s.name(), h.name()), o.name());
+            if (key == null) {
+                return conflicts;
+            }
+            String inSplit = s.take(key), inHead = h.take(key),
+                inOther = o.take(key);
+            String name = prefix + key;
+            if (Objects.equals(inHead, inOther)
+                || Objects.equals(inSplit, inOther)) {
+                continue;
+            } else if (trees != null && Tree.isTree(key)) {
+                conflicts += run(trees, name,
+                                 Tree.read(trees, inSplit).entries(),
+                                 Tree.read(trees, inHead).entries(),
+                                 Tree.read(trees, inOther).entries(),
+                                 visitor);
+            } else if (Objects.equals(inSplit, inHead)) {
+                if (inOther == null) {
+                    visitor.remove(name);
+                } else {
+                    visitor.take(name, inOther);
+                }
+            } else if (visitor.conflict(name, inSplit, inHead, inOther)) {
+                conflicts += 1;
+            }
+        }
+    }
+
+    /** Write to OUT the conflict between the blobs in STORE with ids HEAD,
+     *  in the current branch, and OTHER, in the given branch: the two
+     *  versions between conflict markers, an absent version (a null id)
+     *  being empty.  The blobs are streamed from STORE rather than read
+     *  into memory.  Throws IllegalArgumentException if a blob is
+     *  missing. */
+    static void writeConflict(ObjectStore store, String head, String other,
+                              WritableByteChannel out) throws IOException {
+        writeFully(out, CONFLICT_HEAD);
+        if (head != null && !store.copyTo(head, out)) {
+            throw new IllegalArgumentException("no blob " + head);
+        }
+        writeFully(out, CONFLICT_SEPARATOR);
+        if (other != null && !store.copyTo(other, out)) {
+            throw new IllegalArgumentException("no blob " + other);
+        }
+        writeFully(out, CONFLICT_END);
+    }
+
+    /** Write to OUT the line-level three-way merge of the texts HEAD, in
+     *  the current branch, and OTHER, in the given branch, against BASE,
+     *  at the split point, and return the number of conflicting hunks.
+     *  The changes each branch made to BASE are found with Diff.  Runs of
+     *  lines that only one branch changed take that branch's version; runs
+     *  that both changed the same way take it once; and runs that they
+     *  changed differently, or where their changes overlap or touch,
+     *  become hunks of both versions between conflict markers, so that
+     *  the rest of the file is merged. */
+    static int mergeLines(byte[] base, byte[] head, byte[] other,
+                          OutputStream out) throws IOException {
+        Diff.Lines[] lines = Diff.Lines.of(base, head, other);
+        Diff.Lines o = lines[0], a = lines[1], b = lines[2];
+        List<Diff.Edit> editsA = Diff.diff(o, a, Diff.Algorithm.HISTOGRAM),
+            editsB = Diff.diff(o, b, Diff.Algorithm.HISTOGRAM);
+        int conflicts = 0;
+        int at = 0, i = 0, j = 0;
+        while (i < editsA.size() || j < editsB.size()) {
+            int lo = Math.min(begin(editsA, i), begin(editsB, j));
+            int hi = lo;
+            int i0 = i, j0 = j;
+            while (true) {
+                if (i < editsA.size() && editsA.get(i).beginA <= hi
+                    && (i > i0 || j > j0 || editsA.get(i).beginA == lo)) {
+                    hi = Math.max(hi, editsA.get(i).endA);
+                    i += 1;
+                } else if (j < editsB.size() && editsB.get(j).beginA <= hi
+                           && (i > i0 || j > j0
+                               || editsB.get(j).beginA == lo)) {
+                    hi = Math.max(hi, editsB.get(j).endA);
+                    j += 1;
+                } else {
+                    break;
+                }
+            }
+            o.write(out, at, lo);
+            at = hi;
+            if (j == j0) {
+                write(out, a, side(editsA, i0, i, lo, hi));
+            } else if (i == i0) {
+                write(out, b, side(editsB, j0, j, lo, hi));
+            } else {
+                int[] rangeA = side(editsA, i0, i, lo, hi),
+                    rangeB = side(editsB, j0, j, lo, hi);
+                if (sameLines(a, rangeA, b, rangeB)) {
+                    write(out, a, rangeA);
+                } else {
+                    out.write(CONFLICT_HEAD);
+                    writeTerminated(out, a, rangeA);
+                    out.write(CONFLICT_SEPARATOR);
+                    writeTerminated(out, b, rangeB);
+                    out.write(CONFLICT_END);
+                    conflicts += 1;
+                }
+            }
+        }
+        o.write(out, at, o.size());
+        return conflicts;
+    }
+
+    /** Return the first base line of edit K of EDITS, or MAX_VALUE if
+     *  there is none. */
+    private static int begin(List<Diff.Edit> edits, int k) {
+        return k < edits.size() ? edits.get(k).beginA : Integer.MAX_VALUE;
+    }
+
+    /** Return, as {from, to}, the lines of a branch that replace base lines
+     *  LO .. HI-1, given that edits FROM .. TO-1 of EDITS, the branch's
+     *  edits of the base, are those within that range. */
+    private static int[] side(List<Diff.Edit> edits, int from, int to,
+                              int lo, int hi) {
+        if (from == to) {
+            return new int[] { lo, hi };
+        }
+        Diff.Edit first = edits.get(from), last = edits.get(to - 1);
+        return new int[] { first.beginB - (first.beginA - lo),
+                           last.endB + (hi - last.endA) };
+    }
+
+    /** Return true iff the lines RANGEA of A equal the lines RANGEB of
+     *  B. */
+    private static boolean sameLines(Diff.Lines a, int[] rangeA,
+                                     Diff.Lines b, int[] rangeB) {
+        if (rangeA[1] - rangeA[0] != rangeB[1] - rangeB[0]) {
+            return false;
+        }
+        for (int k = 0; k < rangeA[1] - rangeA[0]; k += 1) {
+            if (a.id(rangeA[0] + k) != b.id(rangeB[0] + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Write the lines RANGE of LINES to OUT. */
+    private static void write(OutputStream out, Diff.Lines lines,
+                              int[] range) throws IOException {
+        lines.write(out, range[0], range[1]);
+    }
+
+    /** Write the lines RANGE of LINES to OUT, adding a newline if the last
+     *  of them lacks one, so that a conflict marker can follow. */
+    private static void writeTerminated(OutputStream out, Diff.Lines lines,
+                                        int[] range) throws IOException {
+        write(out, lines, range);
+        if (range[1] > range[0] && !lines.hasNewline(range[1] - 1)) {
+            out.write('\n');
+        }
+    }
+
+    /** Write all of BYTES to OUT. */
+    private static void writeFully(WritableByteChannel out, byte[] bytes)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    /** Return the lesser of A and B, where null is greater than any
+     *  name. */
+    private static String min(String a, String b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        } else {
+            return a.compareTo(b) <= 0 ? a : b;
+        }
+    }
+
+    /** A position in a list of files in name order. */
+    private static class Cursor {
+        /** A cursor at the first of the files in FILES. */
+        Cursor(Map<String, String> files) {
+            _files = files.entrySet().iterator();
+            advance();
+        }
+
+        /** Return the name of the current file, or null after the
+         *  last. */
+        String name() {
+            return _name;
+        }
+
+        /** Return the blob id of the file NAME if it is the current file,
+         *  moving past it, and otherwise null. */
+        String take(String name) {
+            if (!name.equals(_name)) {
+                return null;
+            }
+            String result = _blob;
+            advance();
+            return result;
+        }
+
+        /** Move to the next file. */
+        private void advance() {
+            if (_files.hasNext()) {
+                Map.Entry<String, String> entry = _files.next();
+                _name = entry.getKey();
+                _blob = entry.getValue();
+            } else {
+                _name = null;
+                _blob = null;
+            }
+        }
+
+        /** Name of the current file, or null after the last. */
+        private String _name;
+        /** Blob id of the current file. */
+        private String _blob;
+        /** The files after the current one. */
+        private final Iterator<Map.Entry<String, String>> _files;
+    }
+}
@@ -0,0 +1,199 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** Compares Merge with a naive three-way merge on large trees.  Usage:
+ *      java gitlet.MergeBenchmark [FILES [CHANGES]]
+ *  A split point tracking FILES files (default 100000) is created, with
+ *  two branches that each change, add, or remove CHANGES files (default
+ *  1000) at random, some of which collide.  The blobs are packed into a
+ *  temporary store.  The naive merge, as often first written, loads each
+ *  commit's files into a HashMap, visits the union of their names, reads
+ *  every version of every file to compare contents, and builds each
+ *  conflict as a String.  Merge compares ids in one pass over the sorted
+ *  lists and streams only the conflicting blobs.  Merge over the
+ *  commits' Trees, the last row, skips the directories that neither
+ *  branch changed.  All write conflicts to files in a temporary
+ *  directory. */
+public class MergeBenchmark {
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        File dir = Files.createTempDirectory("gitlet-merge").toFile();
+        ObjectStore store = new ObjectStore(new File(dir, "objects"));
+        Random random = new Random(61);
+        TreeMap<String, String> split = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            split.put(String.format("dir%02d/file%06d.txt", i % 100, i),
+                      store.write(contents("base", i)));
+        }
+        TreeMap<String, String> head = branch(split, "head", changes,
+                                              random, store);
+        TreeMap<String, String> other = branch(split, "other", changes,
+                                               random, store);
+        store.gc();
+        File out = new File(dir, "work");
+        out.mkdir();
+        System.out.printf("%d files, %d changes per branch%n", files,
+                          changes);
+        System.out.printf("%-8s %10s %10s %10s%n", "merge", "ms", "changed",
+                          "conflicts");
+
+        long start = System.nanoTime();
+        int[] counts = naive(split, head, other,
+                             new ObjectStore(new File(dir, "objects")), out);
+        System.out.printf("%-8s %10.1f %10d %10d%n", "naive",
+                          (System.nanoTime() - start) / 1e6, counts[0],
+                          counts[1]);
+
+        start = System.nanoTime();
+        int[] changed = new int[1];
+        int conflicts = Merge.run(split, head, other, counter(
+            new ObjectStore(new File(dir, "objects")), out, changed));
+        report("Merge", start, changed[0], conflicts, counts);
+
+        ObjectStore trees = new ObjectStore(new File(dir, "trees"));
+        String splitTree = Tree.write(trees, split),
+            headTree = Tree.write(trees, head),
+            otherTree = Tree.write(trees, other);
+        trees.gc();
+        start = System.nanoTime();
+        changed[0] = 0;
+        conflicts = Merge.run(new ObjectStore(new File(dir, "trees")),
+                              splitTree, headTree, otherTree, counter(
+            new ObjectStore(new File(dir, "objects")), out, changed));
+        report("trees", start, changed[0], conflicts, counts);
+    }
+
+    /** Print the row for the merge NAME, begun at START, which changed
+     *  CHANGED files and found CONFLICTS conflicts, checking them against
+     *  the naive merge's COUNTS. */
+    private static void report(String name, long start, int changed,
+                               int conflicts, int[] counts) {
+        System.out.printf("%-8s %10.1f %10d %10d%n", name,
+                          (System.nanoTime() - start) / 1e6, changed,
+                          conflicts);
+        if (changed != counts[0] || conflicts != counts[1]) {
+            throw new IllegalStateException("merges disagree");
+        }
+    }
+
+    /** Return a Merge.Visitor that counts changed files in CHANGED[0] and
+     *  writes conflicts, streamed from STORE, to files in OUT. */
+    private static Merge.Visitor counter(ObjectStore store, File out,
+                                         int[] changed) {
+        return new Merge.Visitor() {
+            @Override
+            public void take(String name, String blob) {
+                changed[0] += 1;
+            }
+
+            @Override
+            public void remove(String name) {
+                changed[0] += 1;
+            }
+
+            @Override
+            public boolean conflict(String name, String s, String h,
+                                    String o) {
+                File file = new File(out, name.replace('/', '_'));
+                try (FileChannel ch = FileChannel.open(
+                         file.toPath(), StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                    Merge.writeConflict(store, h, o, ch);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp);
+                }
+                return true;
+            }
+        };
+    }
+
+    /** Return the contents of version I of a file on BRANCH. */
+    private static byte[] contents(String branch, int i) {
+        return String.format("%s version of file %d%n", branch, i)
+            .repeat(8).getBytes();
+    }
+
+    /** Return a copy of the files in SPLIT in which CHANGES files chosen
+     *  at random from RANDOM are changed, added, or removed on BRANCH,
+     *  writing new blobs to STORE. */
+    private static TreeMap<String, String> branch(
+        TreeMap<String, String> split, String branch, int changes,
+        Random random, ObjectStore store) {
+        TreeMap<String, String> result = new TreeMap<>(split);
+        String[] names = split.keySet().toArray(new String[0]);
+        for (int k = 0; k < changes; k += 1) {
+            int i = random.nextInt(names.length);
+            switch (random.nextInt(4)) {
+            case 0:
+                result.remove(names[i]);
+                break;
+            case 1:
+                result.put(String.format("new/%s-%d.txt", branch, k),
+                           store.write(contents(branch, k)));
+                break;
+            default:
+                result.put(names[i], store.write(contents(branch, i)));
+                break;
+            }
+        }
+        return result;
+    }
+
+    /** Merge the files HEAD and OTHER against SPLIT naively, as described
+     *  in the class comment, reading blobs from STORE and writing
+     *  conflicts to files in OUT.  Returns the number of files taken from
+     *  OTHER or removed, and the number of conflicts. */
+    private static int[] naive(Map<String, String> split,
+                               Map<String, String> head,
+                               Map<String, String> other,
+                               ObjectStore store, File out) {
+        Map<String, String> s = new HashMap<>(split),
+            h = new HashMap<>(head), o = new HashMap<>(other);
+        TreeSet<String> names = new TreeSet<>(s.keySet());
+        names.addAll(h.keySet());
+        names.addAll(o.keySet());
+        int changed = 0, conflicts = 0;
+        for (String name : names) {
+            byte[] inSplit = read(store, s.get(name)),
+                inHead = read(store, h.get(name)),
+                inOther = read(store, o.get(name));
+            if (Arrays.equals(inHead, inOther)
+                || Arrays.equals(inSplit, inOther)) {
+                continue;
+            } else if (Arrays.equals(inSplit, inHead)) {
+                changed += 1;
+            } else {
+                String conflict = "<<<<<<< HEAD\n"
+                    + (inHead == null ? "" : new String(inHead))
+                    + "=======\n"
+                    + (inOther == null ? "" : new String(inOther))
+                    + ">>>>>>>\n";
+                Utils.writeContents(new File(out, name.replace('/', '_')),
+                                    conflict);
+                conflicts += 1;
+            }
+        }
+        return new int[] { changed, conflicts };
+    }
+
+    /** Return the contents of the blob ID in STORE, or null if ID is
+     *  null. */
+    private static byte[] read(ObjectStore store, String id) {
+        return id == null ? null : store.read(id);
+    }
+}
@@ -0,0 +1,137 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/** Tests of the three-way file merge of Merge. */
+public class MergeTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return the blob id standing for version VERSION of a file. */
+    private static String id(String version) {
+        return Utils.sha1(version);
+    }
+
+    /** Return the version for which ID stands, or null if ID is null. */
+    private static String version(String id) {
+        for (int v = 1; v <= 3; v += 1) {
+            if (id(Integer.toString(v)).equals(id)) {
+                return Integer.toString(v);
+            }
+        }
+        assertNull(id);
+        return null;
+    }
+
+    /** A Visitor that records what it is told, one line per call, with
+     *  versions in place of blob ids, and leaves every conflict in
+     *  place. */
+    private static class Recorder implements Merge.Visitor {
+        @Override
+        public void take(String name, String blob) {
+            calls.add("take " + name + " " + version(blob));
+        }
+
+        @Override
+        public void remove(String name) {
+            calls.add("remove " + name);
+        }
+
+        @Override
+        public boolean conflict(String name, String split, String head,
+                                String other) {
+            calls.add("conflict " + name + " " + version(split) + " "
+                      + version(head) + " " + version(other));
+            return true;
+        }
+
+        /** The calls so far. */
+        final List<String> calls = new ArrayList<>();
+    }
+
+    /** Return a map from the file names in NAMESANDVERSIONS to the ids of
+     *  the versions that follow them. */
+    private static Map<String, String> files(String... namesAndVersions) {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (int i = 0; i < namesAndVersions.length; i += 2) {
+            result.put(namesAndVersions[i], id(namesAndVersions[i + 1]));
+        }
+        return result;
+    }
+
+    /** The files at the split point, in the current branch and in the
+     *  given branch of the history under test. */
+    private static final Map<String, String>
+        SPLIT = files("kept", "1", "theirs", "1", "ours", "1",
+                      "removed", "1", "both", "1", "same", "1",
+                      "d/conflict", "1", "d/gone", "1"),
+        HEAD = files("kept", "1", "theirs", "1", "ours", "2",
+                     "removed", "1", "both", "2", "same", "2",
+                     "d/conflict", "2", "d/gone", "2", "new", "2"),
+        OTHER = files("kept", "1", "theirs", "3", "ours", "1",
+                      "both", "3", "same", "2", "d/conflict", "3",
+                      "added", "3");
+
+    /** The calls expected of a merge of SPLIT, HEAD and OTHER. */
+    private static final List<String> EXPECTED =
+        List.of("take added 3",
+                "conflict both 1 2 3",
+                "conflict d/conflict 1 2 3",
+                "conflict d/gone 1 2 null",
+                "remove removed",
+                "take theirs 3");
+
+    @Test
+    public void classifiesListedFiles() {
+        Recorder recorder = new Recorder();
+        assertEquals(3, Merge.run(SPLIT, HEAD, OTHER, recorder));
+        assertEquals(EXPECTED, recorder.calls);
+    }
+
+    @Test
+    public void treesGiveTheSameResult() throws IOException {
+        ObjectStore trees = new ObjectStore(tmp.newFolder());
+        Recorder recorder = new Recorder();
+        assertEquals(3, Merge.run(trees, Tree.write(trees, SPLIT),
+                                  Tree.write(trees, HEAD),
+                                  Tree.write(trees, OTHER), recorder));
+        assertEquals(EXPECTED, recorder.calls);
+
+        recorder = new Recorder();
+        String root = Tree.write(trees, HEAD);
+        assertEquals(0, Merge.run(trees, Tree.write(trees, SPLIT), root,
+                                  root, recorder));
+        assertEquals(List.of(), recorder.calls);
+    }
+
+    @Test
+    public void conflictsAreWrittenBetweenMarkers() throws IOException {
+        ObjectStore store = new ObjectStore(tmp.newFolder());
+        String head = store.write("ours\n".getBytes(StandardCharsets.UTF_8));
+        String other =
+            store.write("theirs\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Merge.writeConflict(store, head, other, Channels.newChannel(out));
+        assertEquals("<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>>\n",
+                     out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        Merge.writeConflict(store, head, null, Channels.newChannel(out));
+        assertEquals("<<<<<<< HEAD\nours\n=======\n>>>>>>>\n",
+                     out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,225 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/** A persistent index from commit messages to commit ids, kept in the
+ *  directory .gitlet/messages, so that find need not read every commit.
+ *
+ *  The index maps 64-bit keys to commit ids.  Each commit is entered
+ *  under the key of its whole message, for exact lookups, and under the
+ *  key of each distinct token of its message, for substring searches.
+ *  A token is a maximal run of letters and digits, lower-cased.  A key is
+ *  the first 8 bytes of the SHA-1 of "message:" or "token:" followed by
+ *  the text.  Keys are spread over 256 bucket files, XX, by their top
+ *  byte, each a sequence of records of a key and a raw 20-byte commit
+ *  id, in the order the commits were indexed.  Adding a commit appends
+ *  one record to the bucket of each of its keys, journaling only the
+ *  records, and a lookup reads one bucket.  gc compacts the index by
+ *  rebuilding it from the commits, which drops any duplicate records.
+ *
+ *  All writes go through the repository's journal, so a commit and its
+ *  index entries become durable together.  The file "header", holding the
+ *  magic number "GMSG" and a version, marks an index that covers every
+ *  commit; without it, callers must scan the commits instead. */
+class MessageIndex {
+
+    /** Magic number ("GMSG") in the header file. */
+    private static final int MAGIC = 0x474d5347;
+    /** Current format version. */
+    private static final int VERSION = 1;
+    /** Length of a bucket record in bytes. */
+    private static final int RECORD = 8 + ObjectId.LENGTH;
+    /** Number of bucket files. */
+    private static final int BUCKETS = 256;
+
+    /** The index in directory DIR, written through JOURNAL. */
+    MessageIndex(File dir, Journal journal) {
+        _dir = dir;
+        _journal = journal;
+    }
+
+    /** Return true iff the index exists and covers every commit. */
+    boolean exists() {
+        byte[] header = _journal.readContents(headerFile());
+        if (header == null || header.length != 8) {
+            return false;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(header);
+        return buf.getInt() == MAGIC && buf.getInt() == VERSION;
+    }
+
+    /** Replace the index with one covering exactly the commits in
+     *  COMMITS. */
+    void rebuild(ObjectStore commits) {
+        ByteArrayOutputStream[] buckets = new ByteArrayOutputStream[BUCKETS];
+        for (String id : commits.ids()) {
+            Commit commit = CommitCodec.decode(commits.read(id));
+            byte[] raw = ObjectId.fromHex(id).toBytes();
+            for (long key : keys(commit.getMessage())) {
+                int b = bucket(key);
+                if (buckets[b] == null) {
+                    buckets[b] = new ByteArrayOutputStream();
+                }
+                appendRecord(buckets[b], key, raw);
+            }
+        }
+        for (int b = 0; b < BUCKETS; b += 1) {
+            if (buckets[b] == null) {
+                _journal.delete(bucketFile(b));
+            } else {
+                _journal.write(bucketFile(b), buckets[b].toByteArray());
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(VERSION);
+        _journal.write(headerFile(), header.array());
+    }
+
+    /** Enter the commit with id ID and message MESSAGE.  Does nothing if
+     *  the index does not exist, since it could not then be complete. */
+    void add(String id, String message) {
+        if (!exists()) {
+            return;
+        }
+        byte[] raw = ObjectId.fromHex(id).toBytes();
+        for (long key : keys(message)) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            appendRecord(record, key, raw);
+            _journal.append(bucketFile(bucket(key)), record.toByteArray());
+        }
+    }
+
+    /** Return the ids of the commits whose message is exactly MESSAGE, in
+     *  the order they were indexed, or null if the index does not
+     *  exist. */
+    List<String> exact(String message) {
+        if (!exists()) {
+            return null;
+        }
+        return lookup(key("message:", message));
+    }
+
+    /** Return the ids of the commits whose messages might contain TEXT, or
+     *  null if the index cannot narrow the search: if it does not exist,
+     *  or if TEXT contains no token that must appear whole in a message
+     *  containing it.  A token of TEXT is whole if it is not at either end
+     *  of TEXT, or is at an end that is not a letter or digit.  Every
+     *  commit containing TEXT is in the result, but the caller must check
+     *  the messages of those returned. */
+    List<String> candidates(String text) {
+        if (!exists()) {
+            return null;
+        }
+        Set<String> result = null;
+        for (String token : wholeTokens(text)) {
+            Set<String> ids =
+                new LinkedHashSet<>(lookup(key("token:", token)));
+            if (result == null) {
+                result = ids;
+            } else {
+                result.retainAll(ids);
+            }
+        }
+        return result == null ? null : new ArrayList<>(result);
+    }
+
+    /** Return the tokens of TEXT, lower-cased, without duplicates. */
+    static Set<String> tokens(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token.toLowerCase(Locale.ROOT));
+            }
+        }
+        return result;
+    }
+
+    /** Return the tokens of TEXT that any string containing TEXT must
+     *  contain whole, as described at candidates(). */
+    private static Set<String> wholeTokens(String text) {
+        String[] words = text.split("[^\\p{L}\\p{N}]+", -1);
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < words.length; i += 1) {
+            if (i > 0 && i < words.length - 1 && !words[i].isEmpty()) {
+                result.add(words[i].toLowerCase(Locale.ROOT));
+            }
+        }
+        return result;
+    }
+
+    /** Return the keys under which a commit with MESSAGE is entered. */
+    private static long[] keys(String message) {
+        Set<String> tokens = tokens(message);
+        long[] result = new long[1 + tokens.size()];
+        result[0] = key("message:", message);
+        int n = 1;
+        for (String token : tokens) {
+            result[n] = key("token:", token);
+            n += 1;
+        }
+        return result;
+    }
+
+    /** Return the key of TEXT with the given PREFIX. */
+    private static long key(String prefix, String text) {
+        byte[] digest = Utils.sha1Digest().digest(
+            (prefix + text).getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest).getLong();
+    }
+
+    /** Return the ids entered under KEY, in the order they were
+     *  entered. */
+    private List<String> lookup(long key) {
+        List<String> result = new ArrayList<>();
+        byte[] bucket = _journal.readContents(bucketFile(bucket(key)));
+        if (bucket == null) {
+            return result;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bucket);
+        while (buf.remaining() >= RECORD) {
+            long k = buf.getLong();
+            if (k == key) {
+                result.add(ObjectId.fromWords(buf.getLong(), buf.getLong(),
+                                              buf.getInt()).toString());
+            } else {
+                buf.position(buf.position() + ObjectId.LENGTH);
+            }
+        }
+        return result;
+    }
+
+    /** Append a record of KEY and the raw id RAW to OUT. */
+    private static void appendRecord(ByteArrayOutputStream out, long key,
+                                     byte[] raw) {
+        out.writeBytes(ByteBuffer.allocate(8).putLong(key).array());
+        out.writeBytes(raw);
+    }
+
+    /** Return the bucket number of KEY. */
+    private static int bucket(long key) {
+        return (int) (key >>> 56);
+    }
+
+    /** Return the file of bucket B. */
+    private File bucketFile(int b) {
+        return Utils.join(_dir, String.format("%02x", b));
+    }
+
+    /** Return the header file. */
+    private File headerFile() {
+        return Utils.join(_dir, "header");
+    }
+
+    /** Directory holding the index. */
+    private final File _dir;
+    /** Journal through which the index is read and written. */
+    private final Journal _journal;
+}
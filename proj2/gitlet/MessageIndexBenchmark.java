@@ -0,0 +1,104 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Compares finding commits by message with a MessageIndex against
+ *  reading every commit, as find otherwise must.  Usage:
+ *      java gitlet.MessageIndexBenchmark [COMMITS [QUERIES]]
+ *  A synthetic history of COMMITS commits (default 5000) is packed into
+ *  a temporary store and indexed, and then QUERIES (default 100) exact
+ *  and substring searches are made both ways, each in a fresh store, as
+ *  separate find commands would be. */
+public class MessageIndexBenchmark {
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        File dir = Files.createTempDirectory("gitlet-messages").toFile();
+        File commitsDir = new File(dir, "commits");
+        Journal journal = Journal.open(new File(dir, "journal"));
+        ObjectStore store = new ObjectStore(commitsDir, Codec.DEFLATE);
+        for (Commit commit : CommitCodecBenchmark.history(20, count)) {
+            store.write(CommitCodec.encode(commit));
+        }
+        store.gc();
+        long start = System.nanoTime();
+        new MessageIndex(new File(dir, "messages"), journal).rebuild(store);
+        journal.commit();
+        System.out.printf("%d commits, %d queries; index built in %.1f ms%n",
+                          count, queries, (System.nanoTime() - start) / 1e6);
+
+        System.out.printf("%-12s %10s %10s%n", "query", "scan ms",
+                          "index ms");
+        String[] exact = new String[queries], partial = new String[queries];
+        for (int i = 0; i < queries; i += 1) {
+            int n = (int) ((long) i * count / queries);
+            exact[i] = "Change number " + n;
+            partial[i] = "ge number " + n;
+        }
+        long found = 0;
+        start = System.nanoTime();
+        for (String query : exact) {
+            found += scan(new ObjectStore(commitsDir), query, true).size();
+        }
+        double scanTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        for (String query : exact) {
+            found -= new MessageIndex(new File(dir, "messages"), journal)
+                .exact(query).size();
+        }
+        report("exact", scanTime, start, found);
+
+        start = System.nanoTime();
+        for (String query : partial) {
+            found += scan(new ObjectStore(commitsDir), query, false).size();
+        }
+        scanTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        for (String query : partial) {
+            ObjectStore fresh = new ObjectStore(commitsDir);
+            List<String> ids =
+                new MessageIndex(new File(dir, "messages"), journal)
+                .candidates(query);
+            for (String id : ids) {
+                Commit commit = CommitCodec.decode(fresh.read(id));
+                if (commit.getMessage().contains(query)) {
+                    found -= 1;
+                }
+            }
+        }
+        report("substring", scanTime, start, found);
+    }
+
+    /** Print a row for QUERY, which took SCANTIME ms by scanning and the
+     *  time from START using the index.  FOUND is the difference in the
+     *  number of results, which must be zero. */
+    private static void report(String query, double scanTime, long start,
+                               long found) {
+        double indexTime = (System.nanoTime() - start) / 1e6;
+        if (found != 0) {
+            throw new IllegalStateException(query + ": results differ");
+        }
+        System.out.printf("%-12s %10.1f %10.1f%n", query, scanTime,
+                          indexTime);
+    }
+
+    /** Return the ids of the commits in STORE whose messages equal QUERY,
+     *  if EXACT, or else contain it. */
+    private static List<String> scan(ObjectStore store, String query,
+                                     boolean exact) {
+        List<String> result = new ArrayList<>();
+        for (String id : store.ids()) {
+            String message = CommitCodec.decode(store.read(id)).getMessage();
+            if (exact ? message.equals(query) : message.contains(query)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+}
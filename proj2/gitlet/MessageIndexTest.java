@@ -0,0 +1,149 @@
+package gitlet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/** Tests of MessageIndex: lookups, incremental additions, and the
+ *  rebuild that gc uses to compact it. */
+public class MessageIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** The journal file of the repository under test. */
+    private File journalFile;
+    /** The directory of the index under test. */
+    private File dir;
+    /** The journal of the repository under test. */
+    private Journal journal;
+    /** The commits of the repository under test. */
+    private ObjectStore commits;
+    /** The index under test. */
+    private MessageIndex index;
+    /** The number of commits made so far, which dates the next one. */
+    private int made;
+
+    @Before
+    public void setUp() throws IOException {
+        File root = tmp.newFolder("repo");
+        journalFile = new File(root, "journal");
+        dir = new File(root, "messages");
+        journal = Journal.open(journalFile);
+        commits = new ObjectStore(new File(root, "commits"));
+        index = new MessageIndex(dir, journal);
+    }
+
+    /** Store a commit with MESSAGE and return its id, without indexing
+     *  it. */
+    private String commit(String message) {
+        made += 1;
+        return commits.write(CommitCodec.encode(
+            new Commit(message, new Date(made), List.of(),
+                       Utils.sha1("tree"))));
+    }
+
+    /** Return the ids in IDS as a set. */
+    private static Set<String> set(List<String> ids) {
+        return new TreeSet<>(ids);
+    }
+
+    @Test
+    public void exactLookupsAndCandidates() {
+        assertFalse(index.exists());
+        String a = commit("fix the parser bug");
+        String b = commit("Fix the Parser bug");
+        String c = commit("add parser-tests");
+        String d = commit("fix the parser bug");
+        assertNull(index.exact("fix the parser bug"));
+        assertNull(index.candidates(" parser "));
+        index.rebuild(commits);
+        journal.commit();
+        assertTrue(index.exists());
+
+        assertEquals(set(List.of(a, d)),
+                     set(index.exact("fix the parser bug")));
+        assertEquals(List.of(b), index.exact("Fix the Parser bug"));
+        assertEquals(List.of(), index.exact("fix the parser"));
+
+        assertNull("a word that may be part of a longer one",
+                   index.candidates("parser"));
+        assertNull(index.candidates("fix bug"));
+        assertEquals(set(List.of(a, b, c, d)),
+                     set(index.candidates(" parser ")));
+        assertEquals(set(List.of(a, b, d)),
+                     set(index.candidates("x the parser b")));
+        assertEquals(List.of(c), index.candidates("parser-tests!"));
+        assertEquals(List.of(), index.candidates(" the tests "));
+    }
+
+    @Test
+    public void addAppendsOnlyItsRecords() throws IOException {
+        for (int i = 0; i < 2000; i += 1) {
+            commit("common message " + i);
+        }
+        index.rebuild(commits);
+        journal.commit();
+        long before = journalFile.length();
+
+        String message = "fix the parser bug";
+        String id = commit(message);
+        index.add(id, message);
+        assertEquals(List.of(id), index.exact(message));
+        journal.commit();
+        assertTrue(journalFile.length() - before < 512);
+
+        MessageIndex reopened =
+            new MessageIndex(dir, Journal.open(journalFile));
+        assertEquals(List.of(id), reopened.exact(message));
+        assertEquals(List.of(id), reopened.candidates("x parser y"));
+        assertEquals(2000, reopened.candidates(" common ").size());
+
+        for (File bucket : dir.listFiles()) {
+            if (!bucket.getName().equals("header")) {
+                try (RandomAccessFile file =
+                         new RandomAccessFile(bucket, "rw")) {
+                    file.setLength(file.length() - 28);
+                }
+            }
+        }
+        assertTrue(Journal.needsRecovery(journalFile));
+        reopened = new MessageIndex(dir, Journal.open(journalFile));
+        assertEquals(List.of(id), reopened.exact(message));
+        assertEquals(2000, reopened.candidates(" common ").size());
+    }
+
+    @Test
+    public void rebuildingCompactsTheIndex() {
+        String message = "fix the parser bug";
+        String id = commit(message);
+        index.rebuild(commits);
+        index.add(id, message);
+        journal.commit();
+        assertEquals(List.of(id, id), index.exact(message));
+
+        String other = commit("another change");
+        index.rebuild(commits);
+        journal.commit();
+        assertEquals(List.of(id), index.exact(message));
+        assertEquals(List.of(other), index.exact("another change"));
+        long size = 0;
+        for (File bucket : dir.listFiles()) {
+            if (!bucket.getName().equals("header")) {
+                size += bucket.length();
+            }
+        }
+        assertEquals((5 + 3) * 28, size);
+    }
+}
@@ -0,0 +1,130 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A cache of objects read from an ObjectStore, keyed by object id and
+ *  bounded by the total size of its entries in bytes rather than by
+ *  their number.  When adding an entry takes the total over the
+ *  capacity, the least recently used entries are evicted until it is
+ *  back under.  Since objects are immutable, entries never go stale.
+ *
+ *  An entry's size is supplied by the caller, normally the length of the
+ *  object's stored contents, which stands in for the memory its value
+ *  occupies.  Entries larger than a quarter of the capacity are not
+ *  cached at all, so one large object cannot flush everything else.
+ *
+ *  The cache counts hits, misses, and evictions, and all its methods
+ *  are synchronized, so that it may be shared between threads. */
+class ObjectCache<V> {
+
+    /** Largest fraction (as a divisor) of the capacity that one entry may
+     *  occupy. */
+    private static final int MAX_ENTRY_FRACTION = 4;
+
+    /** An empty cache holding at most CAPACITY bytes of entries. */
+    ObjectCache(long capacity) {
+        _capacity = capacity;
+    }
+
+    /** Return the value cached for ID, or null if there is none. */
+    synchronized V get(ObjectId id) {
+        Entry<V> entry = _entries.get(id);
+        if (entry == null) {
+            _misses += 1;
+            Trace.count(Trace.Counter.CACHE_MISSES);
+            return null;
+        }
+        _hits += 1;
+        Trace.count(Trace.Counter.CACHE_HITS);
+        return entry.value;
+    }
+
+    /** Cache VALUE, of SIZE bytes, for ID, evicting the least recently
+     *  used entries as necessary.  Does nothing if SIZE is more than a
+     *  quarter of the capacity. */
+    synchronized void put(ObjectId id, V value, long size) {
+        if (size > _capacity / MAX_ENTRY_FRACTION) {
+            return;
+        }
+        Entry<V> old = _entries.put(id, new Entry<>(value, size));
+        if (old != null) {
+            _bytes -= old.size;
+        }
+        _bytes += size;
+        Iterator<Entry<V>> eldest = _entries.values().iterator();
+        while (_bytes > _capacity) {
+            _bytes -= eldest.next().size;
+            eldest.remove();
+            _evictions += 1;
+        }
+    }
+
+    /** Remove all entries.  The counters are unaffected. */
+    synchronized void clear() {
+        _entries.clear();
+        _bytes = 0;
+    }
+
+    /** Return the number of entries. */
+    synchronized int count() {
+        return _entries.size();
+    }
+
+    /** Return the total size of the entries in bytes. */
+    synchronized long bytes() {
+        return _bytes;
+    }
+
+    /** Return the capacity in bytes. */
+    long capacity() {
+        return _capacity;
+    }
+
+    /** Return the number of lookups that found an entry. */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Return the number of lookups that found none. */
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /** Return the number of entries evicted to make room. */
+    synchronized long evictions() {
+        return _evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d/%d bytes, %d hits, %d misses, "
+                             + "%d evictions", _entries.size(), _bytes,
+                             _capacity, _hits, _misses, _evictions);
+    }
+
+    /** One cached value and its size. */
+    private static class Entry<V> {
+        /** An entry for VALUE of SIZE bytes. */
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+
+        /** The cached value. */
+        final V value;
+        /** Its size in bytes. */
+        final long size;
+    }
+
+    /** Entries in order of access, least recent first. */
+    private final Map<ObjectId, Entry<V>> _entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    /** Maximum total size of the entries. */
+    private final long _capacity;
+    /** Total size of the entries. */
+    private long _bytes;
+    /** Counters of lookups and evictions. */
+    private long _hits, _misses, _evictions;
+}
@@ -0,0 +1,77 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/** Measures the effect of an ObjectCache on repeated walks of a commit
+ *  history, as log, find, and merge make.  Usage:
+ *      java gitlet.ObjectCacheBenchmark [COMMITS [WALKS]]
+ *  A synthetic linear history of COMMITS commits (default 5000) is
+ *  written to a temporary store, and then the whole history is walked
+ *  WALKS times (default 10), reading every commit each time, first
+ *  straight from the store and then through caches of several
+ *  capacities. */
+public class ObjectCacheBenchmark {
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int walks = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        File dir = Files.createTempDirectory("gitlet-cache").toFile();
+        ObjectStore store = new ObjectStore(dir, Codec.DEFLATE);
+        String head = null;
+        for (Commit commit : CommitCodecBenchmark.history(20, count)) {
+            head = store.write(CommitCodec.encode(commit));
+        }
+        store.gc();
+
+        System.out.printf("%d commits, %d walks%n", count, walks);
+        System.out.printf("%-14s %10s %10s %10s %10s%n", "cache", "ms",
+                          "hits", "misses", "evictions");
+        long start = System.nanoTime();
+        walk(head, walks, id -> CommitCodec.decode(store.read(id)));
+        System.out.printf("%-14s %10.1f%n", "none",
+                          (System.nanoTime() - start) / 1e6);
+        for (long capacity : new long[] { 1 << 20, 4 << 20, 16 << 20 }) {
+            ObjectCache<Commit> cache = new ObjectCache<>(capacity);
+            start = System.nanoTime();
+            walk(head, walks, id -> {
+                ObjectId oid = ObjectId.fromHex(id);
+                Commit result = cache.get(oid);
+                if (result == null) {
+                    byte[] data = store.read(id);
+                    result = CommitCodec.decode(data);
+                    cache.put(oid, result, data.length);
+                }
+                return result;
+            });
+            System.out.printf("%-14s %10.1f %10d %10d %10d%n",
+                              (capacity >> 10) + " KiB",
+                              (System.nanoTime() - start) / 1e6,
+                              cache.hits(), cache.misses(),
+                              cache.evictions());
+        }
+    }
+
+    /** Walk the history from HEAD WALKS times, reading each commit with
+     *  READ. */
+    private static void walk(String head, int walks,
+                             Function<String, Commit> read) {
+        for (int i = 0; i < walks; i += 1) {
+            Set<String> seen = new HashSet<>();
+            ArrayDeque<String> queue = new ArrayDeque<>(List.of(head));
+            while (!queue.isEmpty()) {
+                String id = queue.poll();
+                if (seen.add(id)) {
+                    queue.addAll(read.apply(id).getParents());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package gitlet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of ObjectCache's byte bound, LRU eviction and counters. */
+public class ObjectCacheTest {
+
+    /** Return the id of the object named NAME. */
+    private static ObjectId id(String name) {
+        return ObjectId.fromHex(Utils.sha1(name));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBytes() {
+        ObjectCache<String> cache = new ObjectCache<>(1000);
+        for (String name : new String[] { "a", "b", "c", "d", "e" }) {
+            cache.put(id(name), name, 200);
+        }
+        assertEquals(5, cache.count());
+        assertEquals(1000, cache.bytes());
+        assertEquals(0, cache.evictions());
+
+        assertEquals("a", cache.get(id("a")));
+        cache.put(id("f"), "f", 200);
+        assertNull(cache.get(id("b")));
+        assertEquals("a", cache.get(id("a")));
+        assertEquals(5, cache.count());
+        assertEquals(1000, cache.bytes());
+        assertEquals(1, cache.evictions());
+
+        cache.put(id("g"), "g", 250);
+        assertNull(cache.get(id("c")));
+        assertNull(cache.get(id("d")));
+        assertEquals("e", cache.get(id("e")));
+        assertEquals(850, cache.bytes());
+        assertEquals(3, cache.evictions());
+
+        cache.put(id("e"), "E", 100);
+        assertEquals("E", cache.get(id("e")));
+        assertEquals(750, cache.bytes());
+        assertEquals(4, cache.count());
+    }
+
+    @Test
+    public void oversizeEntriesAreNotCached() {
+        ObjectCache<String> cache = new ObjectCache<>(1000);
+        cache.put(id("small"), "small", 10);
+        cache.put(id("big"), "big", 251);
+        assertNull(cache.get(id("big")));
+        assertEquals("small", cache.get(id("small")));
+        assertEquals(10, cache.bytes());
+        assertEquals(0, cache.evictions());
+
+        cache.put(id("quarter"), "quarter", 250);
+        assertEquals("quarter", cache.get(id("quarter")));
+        assertEquals(260, cache.bytes());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        ObjectCache<String> cache = new ObjectCache<>(1000);
+        Trace.start("cache");
+        try {
+            assertNull(cache.get(id("a")));
+            cache.put(id("a"), "a", 1);
+            assertEquals("a", cache.get(id("a")));
+            assertEquals("a", cache.get(id("a")));
+            assertNull(cache.get(id("b")));
+            assertEquals(2, Trace.get(Trace.Counter.CACHE_HITS));
+            assertEquals(2, Trace.get(Trace.Counter.CACHE_MISSES));
+        } finally {
+            Trace.stop();
+        }
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+
+        cache.clear();
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.bytes());
+        assertNull(cache.get(id("a")));
+        assertEquals(2, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+}
@@ -0,0 +1,261 @@
+package gitlet;
+
+import java.util.Arrays;
+
+/** An immutable SHA-1 object id, held as its 20 raw bytes packed into two
+ *  longs and an int.  Comparison and hashing work on those words directly,
+ *  and conversion to and from hexadecimal goes through lookup tables, so
+ *  that ids may be handled in bulk without formatting or allocating
+ *  Strings.  The String form of an id is its 40-digit lower-case
+ *  hexadecimal numeral, as returned by Utils.sha1.
+ */
+final class ObjectId implements Comparable<ObjectId> {
+
+    /** Length in bytes of a raw id. */
+    static final int LENGTH = Utils.UID_LENGTH / 2;
+
+    /** The id with 20 raw bytes B[OFFSET .. OFFSET+19]. */
+    private ObjectId(byte[] b, int offset) {
+        _w0 = getLong(b, offset);
+        _w1 = getLong(b, offset + 8);
+        _w2 = (int) (getLong(b, offset + 12) & 0xffffffffL);
+    }
+
+    /** The id whose words are W0, W1, and W2. */
+    private ObjectId(long w0, long w1, int w2) {
+        _w0 = w0;
+        _w1 = w1;
+        _w2 = w2;
+    }
+
+    /** Return the id with the raw bytes B. */
+    static ObjectId fromBytes(byte[] b) {
+        return fromBytes(b, 0);
+    }
+
+    /** Return the id with the 20 raw bytes starting at B[OFFSET]. */
+    static ObjectId fromBytes(byte[] b, int offset) {
+        if (offset < 0 || offset + LENGTH > b.length) {
+            throw new IllegalArgumentException("short object id");
+        }
+        return new ObjectId(b, offset);
+    }
+
+    /** Return the id whose words, as stored in raw form, are W0, W1, and
+     *  W2. */
+    static ObjectId fromWords(long w0, long w1, int w2) {
+        return new ObjectId(w0, w1, w2);
+    }
+
+    /** Return the id denoted by the 40-digit hex numeral HEX.  Throws
+     *  IllegalArgumentException if HEX is not such a numeral. */
+    static ObjectId fromHex(CharSequence hex) {
+        if (hex.length() != Utils.UID_LENGTH) {
+            throw new IllegalArgumentException("bad object id: " + hex);
+        }
+        return new ObjectId(hexWord(hex, 0, 16), hexWord(hex, 16, 16),
+                            (int) hexWord(hex, 32, 8));
+    }
+
+    /** Return true iff HEX is a well-formed 40-digit hex id. */
+    static boolean isId(CharSequence hex) {
+        if (hex.length() != Utils.UID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < hex.length(); i += 1) {
+            if (digit(hex.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the lower-case hex numeral for the bytes in DIGEST. */
+    static String toHex(byte[] digest) {
+        char[] result = new char[2 * digest.length];
+        for (int i = 0; i < digest.length; i += 1) {
+            result[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /** Return the 20 raw bytes of this id in a new array. */
+    byte[] toBytes() {
+        byte[] result = new byte[LENGTH];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /** Copy the 20 raw bytes of this id into B[OFFSET .. OFFSET+19]. */
+    void copyTo(byte[] b, int offset) {
+        putLong(b, offset, _w0);
+        putLong(b, offset + 8, _w1);
+        for (int i = 0; i < 4; i += 1) {
+            b[offset + 16 + i] = (byte) (_w2 >>> (24 - 8 * i));
+        }
+    }
+
+    /** Return the first eight raw bytes of this id as a long. */
+    long word0() {
+        return _w0;
+    }
+
+    /** Return the second eight raw bytes of this id as a long. */
+    long word1() {
+        return _w1;
+    }
+
+    /** Return the last four raw bytes of this id as an int. */
+    int word2() {
+        return _w2;
+    }
+
+    /** Return the first raw byte of this id, as an unsigned value. */
+    int firstByte() {
+        return (int) (_w0 >>> 56);
+    }
+
+    /** Return true iff PREFIX, a hex numeral of at most 40 digits, is a
+     *  prefix of the hex form of this id (an abbreviated id). */
+    boolean startsWith(CharSequence prefix) {
+        if (prefix.length() > Utils.UID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i += 1) {
+            int d = digit(prefix.charAt(i));
+            if (d < 0 || d != nibble(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the smallest id whose hex form starts with PREFIX.  Throws
+     *  IllegalArgumentException if PREFIX is not a hex numeral of at most
+     *  40 digits. */
+    static ObjectId lowestWithPrefix(CharSequence prefix) {
+        if (prefix.length() > Utils.UID_LENGTH) {
+            throw new IllegalArgumentException("bad object id: " + prefix);
+        }
+        StringBuilder padded = new StringBuilder(Utils.UID_LENGTH);
+        padded.append(prefix);
+        while (padded.length() < Utils.UID_LENGTH) {
+            padded.append('0');
+        }
+        return fromHex(padded);
+    }
+
+    /** Return hex digit K (0 = most significant) of this id. */
+    private int nibble(int k) {
+        if (k < 16) {
+            return (int) (_w0 >>> (60 - 4 * k)) & 0xf;
+        } else if (k < 32) {
+            return (int) (_w1 >>> (60 - 4 * (k - 16))) & 0xf;
+        } else {
+            return (_w2 >>> (28 - 4 * (k - 32))) & 0xf;
+        }
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        int c = Long.compareUnsigned(_w0, other._w0);
+        if (c == 0) {
+            c = Long.compareUnsigned(_w1, other._w1);
+        }
+        if (c == 0) {
+            c = Integer.compareUnsigned(_w2, other._w2);
+        }
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId other = (ObjectId) obj;
+        return _w0 == other._w0 && _w1 == other._w1 && _w2 == other._w2;
+    }
+
+    @Override
+    public int hashCode() {
+        /* The bits of a SHA-1 hash are already uniformly distributed. */
+        return (int) (_w0 >>> 32);
+    }
+
+    /** Returns the 40-digit hex form of this id. */
+    @Override
+    public String toString() {
+        char[] result = new char[Utils.UID_LENGTH];
+        putHex(result, 0, _w0, 16);
+        putHex(result, 16, _w1, 16);
+        putHex(result, 32, _w2 & 0xffffffffL, 8);
+        return new String(result);
+    }
+
+    /** Store the low-order N hex digits of VAL in OUT[POS .. POS+N-1]. */
+    private static void putHex(char[] out, int pos, long val, int n) {
+        for (int i = n - 1; i >= 0; i -= 1) {
+            out[pos + i] = HEX_DIGITS[(int) val & 0xf];
+            val >>>= 4;
+        }
+    }
+
+    /** Return the value of the N hex digits at HEX[POS .. POS+N-1]. */
+    private static long hexWord(CharSequence hex, int pos, int n) {
+        long result = 0;
+        for (int i = 0; i < n; i += 1) {
+            int d = digit(hex.charAt(pos + i));
+            if (d < 0) {
+                throw new IllegalArgumentException("bad object id: " + hex);
+            }
+            result = (result << 4) | d;
+        }
+        return result;
+    }
+
+    /** Return the value of hex digit C, or -1 if C is not one.  Both
+     *  cases are accepted. */
+    private static int digit(char c) {
+        return c < DIGIT_VALUES.length ? DIGIT_VALUES[c] : -1;
+    }
+
+    /** Return the 8 bytes at B[OFFSET..] as a big-endian long. */
+    private static long getLong(byte[] b, int offset) {
+        long result = 0;
+        for (int i = 0; i < 8; i += 1) {
+            result = (result << 8) | (b[offset + i] & 0xff);
+        }
+        return result;
+    }
+
+    /** Store VAL as 8 big-endian bytes at B[OFFSET..]. */
+    private static void putLong(byte[] b, int offset, long val) {
+        for (int i = 7; i >= 0; i -= 1) {
+            b[offset + i] = (byte) val;
+            val >>>= 8;
+        }
+    }
+
+    /** Hex digits by value. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Values of hex digits by character code, -1 for non-digits. */
+    private static final byte[] DIGIT_VALUES = new byte['f' + 1];
+
+    static {
+        Arrays.fill(DIGIT_VALUES, (byte) -1);
+        for (int i = 0; i < 16; i += 1) {
+            DIGIT_VALUES[HEX_DIGITS[i]] = (byte) i;
+            DIGIT_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
+    /** Raw bytes 0-7 of this id, big-endian. */
+    private final long _w0;
+    /** Raw bytes 8-15 of this id, big-endian. */
+    private final long _w1;
+    /** Raw bytes 16-19 of this id, big-endian. */
+    private final int _w2;
+}
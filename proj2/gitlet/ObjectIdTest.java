@@ -0,0 +1,148 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of ObjectId's conversions, ordering and prefix matching. */
+public class ObjectIdTest {
+
+    /** An id with distinct bytes in every word. */
+    private static final String HEX =
+        "0123456789abcdeffedcba9876543210a5c3e1f0";
+
+    /** Return N random ids from a generator seeded with SEED. */
+    private static List<byte[]> randomIds(int n, long seed) {
+        Random random = new Random(seed);
+        List<byte[]> result = new ArrayList<>();
+        for (int i = 0; i < n; i += 1) {
+            byte[] raw = new byte[ObjectId.LENGTH];
+            random.nextBytes(raw);
+            result.add(raw);
+        }
+        return result;
+    }
+
+    @Test
+    public void hexAndBytesRoundTrip() {
+        ObjectId id = ObjectId.fromHex(HEX);
+        assertEquals(HEX, id.toString());
+        byte[] raw = id.toBytes();
+        assertEquals(HEX, ObjectId.toHex(raw));
+        assertEquals(id, ObjectId.fromBytes(raw));
+        assertEquals(0x01, id.firstByte());
+        assertEquals(id, ObjectId.fromWords(id.word0(), id.word1(),
+                                            id.word2()));
+
+        byte[] padded = new byte[ObjectId.LENGTH + 7];
+        id.copyTo(padded, 3);
+        assertEquals(id, ObjectId.fromBytes(padded, 3));
+
+        for (byte[] bytes : randomIds(200, 4)) {
+            String hex = ObjectId.toHex(bytes);
+            ObjectId other = ObjectId.fromHex(hex);
+            assertEquals(hex, other.toString());
+            assertArrayEquals(bytes, other.toBytes());
+            assertEquals(bytes[0] & 0xff, other.firstByte());
+        }
+        assertEquals(Utils.sha1("x"),
+                     ObjectId.fromHex(Utils.sha1("x")).toString());
+    }
+
+    @Test
+    public void upperCaseIsAccepted() {
+        String upper = HEX.toUpperCase(Locale.ROOT);
+        assertTrue(ObjectId.isId(upper));
+        assertEquals(ObjectId.fromHex(HEX), ObjectId.fromHex(upper));
+        assertEquals(HEX, ObjectId.fromHex(upper).toString());
+        assertTrue(ObjectId.fromHex(HEX).startsWith("0123456789ABCDEF"));
+    }
+
+    @Test
+    public void badIdsAreRejected() {
+        for (String bad : new String[] { "", HEX.substring(1), HEX + "0",
+                                         HEX.replace('a', 'g'),
+                                         HEX.replace('0', ' '),
+                                         HEX.replace('f', '\u0666') }) {
+            assertFalse(bad, ObjectId.isId(bad));
+            try {
+                ObjectId.fromHex(bad);
+                fail("accepted " + bad);
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+        }
+        try {
+            ObjectId.fromBytes(new byte[ObjectId.LENGTH - 1]);
+            fail("accepted a short id");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+        try {
+            ObjectId.fromBytes(new byte[ObjectId.LENGTH], 1);
+            fail("accepted an id past the end");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void equalityAndOrderFollowTheHex() {
+        List<ObjectId> ids = new ArrayList<>();
+        List<String> hexes = new ArrayList<>();
+        for (byte[] bytes : randomIds(300, 5)) {
+            ids.add(ObjectId.fromBytes(bytes));
+            hexes.add(ObjectId.toHex(bytes));
+        }
+        ids.add(ObjectId.fromHex("ff" + HEX.substring(2)));
+        hexes.add("ff" + HEX.substring(2));
+        ids.add(ObjectId.fromHex(HEX.substring(0, 39) + "f"));
+        hexes.add(HEX.substring(0, 39) + "f");
+        ids.add(ObjectId.fromHex(HEX));
+        hexes.add(HEX);
+        Collections.sort(ids);
+        Collections.sort(hexes);
+        for (int i = 0; i < ids.size(); i += 1) {
+            assertEquals(hexes.get(i), ids.get(i).toString());
+        }
+
+        ObjectId a = ObjectId.fromHex(HEX);
+        ObjectId b = ObjectId.fromBytes(a.toBytes());
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(0, a.compareTo(b));
+        ObjectId c = ObjectId.fromHex(HEX.substring(0, 39) + "1");
+        assertNotEquals(a, c);
+        assertTrue(c.compareTo(a) > 0 && a.compareTo(c) < 0);
+        assertNotEquals(a, HEX);
+    }
+
+    @Test
+    public void prefixes() {
+        ObjectId id = ObjectId.fromHex(HEX);
+        for (int n = 0; n <= HEX.length(); n += 1) {
+            assertTrue(id.startsWith(HEX.substring(0, n)));
+            assertTrue(ObjectId.lowestWithPrefix(HEX.substring(0, n))
+                       .compareTo(id) <= 0);
+        }
+        assertFalse(id.startsWith("1"));
+        assertFalse(id.startsWith(HEX.substring(0, 39) + "1"));
+        assertFalse(id.startsWith(HEX + "0"));
+        assertFalse(id.startsWith("01x"));
+        assertEquals("abc0000000000000000000000000000000000000",
+                     ObjectId.lowestWithPrefix("abc").toString());
+        assertEquals(id, ObjectId.lowestWithPrefix(HEX));
+        try {
+            ObjectId.lowestWithPrefix("abz");
+            fail("accepted a bad prefix");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+}
@@ -0,0 +1,850 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static gitlet.Utils.*;
+
+/** The content-addressed store of gitlet objects (blobs and commits).
+ *
+ *  New objects are written loose, one file per object, under
+ *  DIR/XX/YYYY..., where XXYYYY... is the object's SHA-1 id.  The gc()
+ *  operation moves all loose objects into a single append-only packfile
+ *  (see PackFile), so that reading an object costs a binary search over
+ *  a memory-mapped index rather than a directory lookup and file open.
+ *
+ *  Loose files and pack entries both hold an object's stored
+ *  representation: a type byte followed by a body.  A FULL body is the
+ *  object's contents.  A DELTA body is the raw id of a base object
+ *  followed by a Delta against the base's contents.  Deltas may have
+ *  deltas as bases, but chains are limited to MAX_DELTA_DEPTH links, so
+ *  that reading an object never touches more than that many others.
+ *  A CHUNKED body is a manifest: the total length of the contents, the
+ *  number of chunks, and for each chunk its raw id and length.  Each
+ *  chunk is an ordinary object in the same store, so chunks that recur
+ *  within or across files are stored once.  Files of at least
+ *  MIN_CHUNKED_FILE bytes written by write(File) are cut into chunks
+ *  by a Chunker.
+ *
+ *  The high four bits of the type byte hold the id of the Codec that
+ *  compressed the body (Codec.NONE if it is not compressed).  Only the
+ *  contents of a FULL body and the Delta of a DELTA body are compressed;
+ *  a delta's base id stays raw so that chains can be followed without
+ *  decompressing anything.  A store compresses the objects it writes
+ *  with its own codec, but reads objects written with any codec.
+ *
+ *  A store given a Journal writes loose objects through it, so that they
+ *  become durable together with the rest of a command's writes; until
+ *  the journal commits, they can be read but are not listed by ids(). */
+class ObjectStore {
+
+    /** Representation type of an object stored whole. */
+    static final int FULL = 0;
+    /** Representation type of an object stored as a delta. */
+    static final int DELTA = 1;
+    /** Representation type of an object stored as a list of chunks. */
+    static final int CHUNKED = 2;
+    /** Longest chain of deltas allowed before an object is stored whole. */
+    static final int MAX_DELTA_DEPTH = 10;
+    /** Largest file that write(File) passes through the journal; larger
+     *  ones are streamed to their loose files and synced directly. */
+    static final int MAX_JOURNALED_FILE = 1 << 18;
+    /** Smallest file that write(File) stores in chunks. */
+    static final long MIN_CHUNKED_FILE = 1 << 20;
+    /** Length of the fixed part of a manifest. */
+    private static final int MANIFEST_HEADER = 12;
+    /** Length of one chunk entry in a manifest. */
+    private static final int MANIFEST_ENTRY = ObjectId.LENGTH + 4;
+
+    /** An object store rooted at directory DIR that compresses new
+     *  objects with CODEC, or not at all if CODEC is null, and writes loose
+     *  objects through JOURNAL, if not null.  Packs live in DIR/pack. */
+    ObjectStore(File dir, Codec codec, Journal journal) {
+        _dir = dir;
+        _packDir = join(dir, "pack");
+        _codec = codec;
+        _journal = journal;
+    }
+
+    /** An object store rooted at directory DIR that compresses new
+     *  objects with CODEC, or not at all if CODEC is null. */
+    ObjectStore(File dir, Codec codec) {
+        this(dir, codec, null);
+    }
+
+    /** An object store rooted at directory DIR that does not compress. */
+    ObjectStore(File dir) {
+        this(dir, null, null);
+    }
+
+    /** Return true iff the object with id ID is present. */
+    boolean contains(String id) {
+        ObjectId oid = ObjectId.fromHex(id);
+        for (PackFile pack : packs()) {
+            if (pack.contains(oid)) {
+                return true;
+            }
+        }
+        return looseExists(looseFile(id));
+    }
+
+    /** Return the contents of the object with id ID, or null if there is
+     *  no such object. */
+    byte[] read(String id) {
+        Trace.count(Trace.Counter.OBJECT_READS);
+        ByteBuffer stored = stored(id);
+        if (stored == null) {
+            return null;
+        }
+        ByteBuffer body = stored.slice(1, stored.limit() - 1);
+        if (stored.get(0) == FULL) {
+            byte[] result = new byte[body.remaining()];
+            body.get(result);
+            return result;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream(id, out);
+        return out.toByteArray();
+    }
+
+    /** Write the contents of the object with id ID to OUT, streaming them
+     *  rather than assembling them in memory where the representation
+     *  allows.  Returns false if there is no such object.  Throws
+     *  IllegalArgumentException in case of problems. */
+    boolean copyTo(String id, OutputStream out) {
+        Trace.count(Trace.Counter.OBJECT_READS);
+        return stream(id, out);
+    }
+
+    /** Write the contents of the object with id ID to OUT, as for
+     *  copyTo(ID, OutputStream), without counting it as a read. */
+    private boolean stream(String id, OutputStream out) {
+        try {
+            if (!isPacked(id)) {
+                File loose = looseFile(id);
+                if (!looseExists(loose)) {
+                    return false;
+                }
+                int header = looseHeader(loose).get(0);
+                if (type(header) == FULL && !isJournaled(loose)) {
+                    try (InputStream in =
+                             Files.newInputStream(loose.toPath())) {
+                        in.skipNBytes(1);
+                        try (InputStream contents = decompressor(header, in)) {
+                            contents.transferTo(out);
+                        }
+                    }
+                    return true;
+                }
+            }
+            ByteBuffer stored = stored(id);
+            int header = stored.get(0);
+            ByteBuffer body = stored.slice(1, stored.limit() - 1);
+            if (header == FULL) {
+                byte[] chunk = new byte[STREAM_BUFFER_SIZE];
+                while (body.hasRemaining()) {
+                    int n = Math.min(chunk.length, body.remaining());
+                    body.get(chunk, 0, n);
+                    out.write(chunk, 0, n);
+                }
+            } else if (type(header) == FULL) {
+                try (InputStream contents =
+                         decompressor(header, new BufferInputStream(body))) {
+                    contents.transferTo(out);
+                }
+            } else if (header == CHUNKED) {
+                for (String chunk : chunks(body)) {
+                    if (!stream(chunk, out)) {
+                        throw new IllegalArgumentException("missing chunk "
+                                                           + chunk);
+                    }
+                }
+            } else {
+                ObjectId base = ObjectId.fromWords(body.getLong(),
+                                                   body.getLong(),
+                                                   body.getInt());
+                byte[] baseContents = read(base.toString());
+                if (baseContents == null) {
+                    throw new IllegalArgumentException("missing delta base "
+                                                       + base);
+                }
+                if (codecId(header) != Codec.NONE) {
+                    byte[] delta = new byte[body.remaining()];
+                    body.get(delta);
+                    body = ByteBuffer.wrap(
+                        Codec.forId(codecId(header)).decompress(delta));
+                }
+                Delta.apply(ByteBuffer.wrap(baseContents), body, out);
+            }
+            return true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write the contents of the object with id ID to OUT, as for
+     *  copyTo(ID, OutputStream), but without copying through the Java
+     *  heap where the representation allows: uncompressed loose contents
+     *  go by FileChannel.transferTo, which the system may perform without
+     *  copying at all when OUT is also a file, and uncompressed packed
+     *  contents are written straight from the mapped pack.  Compressed
+     *  contents are streamed through the decompressor, from the loose
+     *  file or the mapped pack, without reading them whole first.  A
+     *  chunked object is written chunk by chunk in the same way. */
+    boolean copyTo(String id, WritableByteChannel out) {
+        Trace.count(Trace.Counter.OBJECT_READS);
+        return transfer(id, out);
+    }
+
+    /** Write the contents of the object with id ID to OUT, as for
+     *  copyTo(ID, WritableByteChannel), without counting it as a read. */
+    private boolean transfer(String id, WritableByteChannel out) {
+        try {
+            if (!isPacked(id)) {
+                File loose = looseFile(id);
+                if (!looseExists(loose)) {
+                    return false;
+                }
+                int header = looseHeader(loose).get(0);
+                if (header == FULL && !isJournaled(loose)) {
+                    try (FileChannel in = FileChannel.open(
+                             loose.toPath(), StandardOpenOption.READ)) {
+                        long pos = 1, size = in.size();
+                        while (pos < size) {
+                            pos += in.transferTo(pos, size - pos, out);
+                        }
+                    }
+                    return true;
+                } else if (type(header) == FULL && !isJournaled(loose)) {
+                    return stream(id, Channels.newOutputStream(out));
+                }
+            }
+            ByteBuffer stored = stored(id);
+            int header = stored.get(0);
+            ByteBuffer body = stored.slice(1, stored.limit() - 1);
+            if (header == FULL) {
+                while (body.hasRemaining()) {
+                    out.write(body);
+                }
+            } else if (header == CHUNKED) {
+                for (String chunk : chunks(body)) {
+                    if (!transfer(chunk, out)) {
+                        throw new IllegalArgumentException("missing chunk "
+                                                           + chunk);
+                    }
+                }
+            } else {
+                stream(id, Channels.newOutputStream(out));
+            }
+            return true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Store CONTENTS, if not already present, and return its id. */
+    String write(byte[] contents) {
+        String id = sha1(contents);
+        if (!contains(id)) {
+            writeLoose(looseFile(id), represent(FULL, null, contents));
+        }
+        return id;
+    }
+
+    /** Store CONTENTS, if not already present, and return its id.  If
+     *  BASE, the id of a similar object such as an earlier version of the
+     *  same file, is present and a delta against it is less than half the
+     *  size of CONTENTS, store CONTENTS as that delta.  BASE may be null. */
+    String write(byte[] contents, String base) {
+        String id = sha1(contents);
+        if (base == null || base.equals(id) || contains(id)
+            || !contains(base) || depth(base) >= MAX_DELTA_DEPTH) {
+            return write(contents);
+        }
+        byte[] delta = Delta.create(read(base), contents);
+        if (delta.length + ObjectId.LENGTH >= contents.length / 2) {
+            return write(contents);
+        }
+        byte[] baseId = ObjectId.fromHex(base).toBytes();
+        writeLoose(looseFile(id), represent(DELTA, baseId, delta));
+        return id;
+    }
+
+    /** Store the contents of FILE, if not already present, and return its
+     *  id.  The file is hashed and copied in a single pass through a
+     *  fixed-size buffer, so memory use does not depend on its size.
+     *  Since the file is compressed as it is copied, it is stored
+     *  compressed even when that does not make it smaller.  With a
+     *  journal, a file of at most MAX_JOURNALED_FILE bytes is instead
+     *  read and written as for write(byte[]); a larger one is streamed as
+     *  usual, then synced.  A file of at least MIN_CHUNKED_FILE bytes is
+     *  stored in chunks instead, as for writeChunked.  Throws
+     *  IllegalArgumentException in case of problems. */
+    String write(File file) {
+        if (file.length() >= MIN_CHUNKED_FILE) {
+            return writeChunked(file);
+        }
+        if (_journal != null && file.length() <= MAX_JOURNALED_FILE) {
+            return write(readContents(file));
+        }
+        File tmp = null;
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            Files.createDirectories(_dir.toPath());
+            tmp = File.createTempFile("tmp-", ".obj", _dir);
+            String id;
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                                                    StandardOpenOption.WRITE)) {
+                if (_codec == null) {
+                    out.write(ByteBuffer.wrap(new byte[] { FULL }));
+                    id = sha1(in, out);
+                } else {
+                    out.write(ByteBuffer.wrap(
+                        new byte[] { (byte) header(FULL, _codec.id()) }));
+                    OutputStream sink = Channels.newOutputStream(out);
+                    try (WritableByteChannel compressed =
+                             Channels.newChannel(_codec.compressor(sink))) {
+                        id = sha1(in, compressed);
+                    }
+                }
+            }
+            if (_journal != null) {
+                sync(tmp);
+            }
+            File loose = looseFile(id);
+            if (contains(id)) {
+                tmp.delete();
+            } else {
+                Files.createDirectories(loose.getParentFile().toPath());
+                Files.move(tmp.toPath(), loose.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+                Trace.count(Trace.Counter.OBJECT_WRITES);
+                if (_journal != null) {
+                    sync(loose.getParentFile());
+                }
+            }
+            return id;
+        } catch (IOException excp) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Store the contents of FILE, if not already present, as a CHUNKED
+     *  object, and return its id.  The file is read once, through a
+     *  buffer of twice the largest chunk size, and cut into chunks by a
+     *  Chunker as it goes.  Chunks not already present are appended to a
+     *  new pack, which is synced when complete, rather than written loose:
+     *  a large file would otherwise make many loose files, all held in
+     *  the journal.  The manifest itself is written as a loose object.
+     *  Throws IllegalArgumentException in case of problems. */
+    String writeChunked(File file) {
+        MessageDigest whole = sha1Digest();
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        List<PackFile> added = new ArrayList<>();
+        PackFile.Writer writer = new PackFile.Writer(_packDir);
+        long total = 0;
+        int count = 0;
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            byte[] buffer = new byte[2 * Chunker.MAX_SIZE];
+            int pos = 0, limit = 0;
+            boolean eof = false;
+            while (true) {
+                if (!eof && limit - pos < Chunker.MAX_SIZE) {
+                    System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                    limit -= pos;
+                    pos = 0;
+                    ByteBuffer room = ByteBuffer.wrap(buffer, limit,
+                                                      buffer.length - limit);
+                    while (room.hasRemaining() && !eof) {
+                        eof = in.read(room) < 0;
+                    }
+                    limit = room.position();
+                }
+                if (pos == limit) {
+                    break;
+                }
+                int n = Chunker.cut(buffer, pos, limit);
+                byte[] chunk = Arrays.copyOfRange(buffer, pos, pos + n);
+                whole.update(chunk);
+                Trace.count(Trace.Counter.BYTES_HASHED, n);
+                ObjectId chunkId = ObjectId.fromHex(sha1(chunk));
+                if (!contains(chunkId.toString())) {
+                    ByteBuffer stored =
+                        ByteBuffer.wrap(represent(FULL, null, chunk));
+                    if (!writer.fits(stored.remaining())) {
+                        added.add(writer.finish());
+                        writer = new PackFile.Writer(_packDir);
+                    }
+                    writer.add(chunkId, stored.get(0),
+                               stored.slice(1, stored.limit() - 1));
+                    Trace.count(Trace.Counter.OBJECT_WRITES);
+                }
+                manifest.write(chunkId.toBytes());
+                manifest.write(ByteBuffer.allocate(4).putInt(n).array());
+                total += n;
+                count += 1;
+                pos += n;
+            }
+        } catch (IOException excp) {
+            writer.abandon();
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (RuntimeException excp) {
+            writer.abandon();
+            throw excp;
+        }
+        String id = ObjectId.toHex(whole.digest());
+        if (contains(id) || writer.size() == 0) {
+            writer.abandon();
+        } else {
+            added.add(writer.finish());
+        }
+        packs().addAll(added);
+        if (contains(id)) {
+            return id;
+        }
+        byte[] body = ByteBuffer.allocate(MANIFEST_HEADER)
+            .putLong(total).putInt(count).array();
+        byte[] stored = new byte[1 + body.length + manifest.size()];
+        stored[0] = CHUNKED;
+        System.arraycopy(body, 0, stored, 1, body.length);
+        System.arraycopy(manifest.toByteArray(), 0, stored, 1 + body.length,
+                         manifest.size());
+        writeLoose(looseFile(id), stored);
+        return id;
+    }
+
+    /** Return the number of deltas that must be applied to reconstruct the
+     *  object with id ID: 0 for an object stored whole. */
+    int depth(String id) {
+        int result = 0;
+        while (true) {
+            ByteBuffer stored = packedEntry(id);
+            int type;
+            if (stored != null) {
+                type = type(stored.get(0));
+            } else {
+                File loose = looseFile(id);
+                if (!looseExists(loose)) {
+                    throw new IllegalArgumentException("missing object " + id);
+                }
+                type = looseType(loose);
+                if (type == DELTA) {
+                    stored = looseHeader(loose);
+                }
+            }
+            if (type != DELTA) {
+                return result;
+            }
+            result += 1;
+            id = ObjectId.fromWords(stored.getLong(1), stored.getLong(9),
+                                    stored.getInt(17)).toString();
+        }
+    }
+
+    /** Return the stored representation of the object with id ID, its
+     *  type byte followed by its body, or null if there is no such object.
+     *  Objects are copied between stores in this form, without being
+     *  decoded. */
+    ByteBuffer representation(String id) {
+        ByteBuffer stored = stored(id);
+        return stored == null ? null : stored.duplicate();
+    }
+
+    /** Return the ids of the objects that the stored representation
+     *  STORED needs in the same store: the base of a DELTA or the chunks
+     *  of a CHUNKED manifest, and none for a FULL object. */
+    static List<String> references(ByteBuffer stored) {
+        switch (type(stored.get(0))) {
+        case DELTA:
+            return List.of(ObjectId.fromWords(stored.getLong(1),
+                                              stored.getLong(9),
+                                              stored.getInt(17)).toString());
+        case CHUNKED:
+            return chunks(stored.slice(1, stored.limit() - 1));
+        default:
+            return List.of();
+        }
+    }
+
+    /** Return the directory holding this store's packs. */
+    File packDir() {
+        return _packDir;
+    }
+
+    /** Move every loose object and every existing pack into new packs,
+     *  removing the originals.  Representations are copied unchanged, so
+     *  deltas stay deltas.  Returns the number of objects packed. */
+    int gc() {
+        List<PackFile> oldPacks = packs();
+        if (looseIds().isEmpty() && oldPacks.size() <= 1) {
+            return oldPacks.isEmpty() ? 0 : oldPacks.get(0).size();
+        }
+        List<String> loose = looseIds();
+        List<PackFile> newPacks = new ArrayList<>();
+        PackFile.Writer writer = new PackFile.Writer(_packDir);
+        try {
+            for (String id : ids()) {
+                ByteBuffer stored = stored(id);
+                int type = stored.get(0);
+                ByteBuffer body = stored.slice(1, stored.limit() - 1);
+                if (!writer.fits(1 + body.remaining())) {
+                    newPacks.add(writer.finish());
+                    writer = new PackFile.Writer(_packDir);
+                }
+                writer.add(ObjectId.fromHex(id), type, body);
+            }
+            newPacks.add(writer.finish());
+        } catch (RuntimeException excp) {
+            writer.abandon();
+            throw excp;
+        }
+        for (PackFile pack : oldPacks) {
+            if (!newPacks.stream().anyMatch(p ->
+                    p.indexFile().equals(pack.indexFile()))) {
+                pack.indexFile().delete();
+                pack.packFile().delete();
+            }
+        }
+        if (_journal != null) {
+            _journal.checkpoint();
+        }
+        for (String id : loose) {
+            File file = looseFile(id);
+            file.delete();
+            file.getParentFile().delete();
+        }
+        _packs = newPacks;
+        int count = 0;
+        for (PackFile pack : newPacks) {
+            count += pack.size();
+        }
+        return count;
+    }
+
+    /** Return the stored representation of the object with id ID, or null
+     *  if there is no such object. */
+    private ByteBuffer stored(String id) {
+        ByteBuffer result = packedEntry(id);
+        if (result != null) {
+            return result;
+        }
+        File loose = looseFile(id);
+        if (_journal != null) {
+            byte[] contents = _journal.readContents(loose);
+            return contents == null ? null : ByteBuffer.wrap(contents);
+        }
+        return loose.isFile() ? ByteBuffer.wrap(readContents(loose)) : null;
+    }
+
+    /** Return the ids of the chunks listed in the manifest BODY, in
+     *  order. */
+    private static List<String> chunks(ByteBuffer body) {
+        int count = body.getInt(8);
+        if (count < 0
+            || MANIFEST_HEADER + (long) count * MANIFEST_ENTRY
+               != body.limit()) {
+            throw new IllegalArgumentException("bad chunk manifest");
+        }
+        List<String> result = new ArrayList<>(count);
+        for (int k = 0; k < count; k += 1) {
+            int off = MANIFEST_HEADER + k * MANIFEST_ENTRY;
+            result.add(ObjectId.fromWords(body.getLong(off),
+                                          body.getLong(off + 8),
+                                          body.getInt(off + 16)).toString());
+        }
+        return result;
+    }
+
+    /** Store the representation STORED of a new object in the loose file
+     *  LOOSE, through the journal if there is one. */
+    private void writeLoose(File loose, byte[] stored) {
+        Trace.count(Trace.Counter.OBJECT_WRITES);
+        if (_journal != null) {
+            _journal.write(loose, stored);
+        } else {
+            loose.getParentFile().mkdirs();
+            writeContents(loose, stored);
+        }
+    }
+
+    /** Return true iff the loose file LOOSE exists, counting writes
+     *  pending in the journal. */
+    private boolean looseExists(File loose) {
+        return _journal != null ? _journal.exists(loose) : loose.isFile();
+    }
+
+    /** Return true iff a write of the loose file LOOSE is pending in the
+     *  journal. */
+    private boolean isJournaled(File loose) {
+        return _journal != null && _journal.isPending(loose);
+    }
+
+    /** Return the stored representation of the object with id ID if it is
+     *  packed, and otherwise null. */
+    private ByteBuffer packedEntry(String id) {
+        ObjectId oid = ObjectId.fromHex(id);
+        for (PackFile pack : packs()) {
+            ByteBuffer result = pack.entry(oid);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /** Return true iff the object with id ID is packed. */
+    private boolean isPacked(String id) {
+        ObjectId oid = ObjectId.fromHex(id);
+        for (PackFile pack : packs()) {
+            if (pack.contains(oid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the stored representation of an object of representation
+     *  type TYPE whose body is PREFIX (which may be null) followed by DATA,
+     *  compressing DATA with this store's codec if that makes it smaller. */
+    private byte[] represent(int type, byte[] prefix, byte[] data) {
+        int codec = Codec.NONE;
+        if (_codec != null) {
+            byte[] compressed = _codec.compress(data);
+            if (compressed.length < data.length) {
+                codec = _codec.id();
+                data = compressed;
+            }
+        }
+        int prefixLength = prefix == null ? 0 : prefix.length;
+        byte[] result = new byte[1 + prefixLength + data.length];
+        result[0] = (byte) header(type, codec);
+        if (prefix != null) {
+            System.arraycopy(prefix, 0, result, 1, prefixLength);
+        }
+        System.arraycopy(data, 0, result, 1 + prefixLength, data.length);
+        return result;
+    }
+
+    /** Return the type byte for representation type TYPE compressed by the
+     *  codec with id CODEC. */
+    private static int header(int type, int codec) {
+        return type | codec << 4;
+    }
+
+    /** Return the representation type in type byte HEADER. */
+    private static int type(int header) {
+        return header & 0xf;
+    }
+
+    /** Return the codec id in type byte HEADER. */
+    private static int codecId(int header) {
+        return (header & 0xf0) >>> 4;
+    }
+
+    /** Return a stream of the decompressed contents of IN, which were
+     *  compressed as recorded in type byte HEADER. */
+    private static InputStream decompressor(int header, InputStream in)
+        throws IOException {
+        int codec = codecId(header);
+        return codec == Codec.NONE ? in : Codec.forId(codec).decompressor(in);
+    }
+
+    /** Return the representation type of the loose object in LOOSE. */
+    private int looseType(File loose) {
+        return type(looseHeader(loose).get(0));
+    }
+
+    /** Return up to the first 1 + ObjectId.LENGTH bytes of the loose
+     *  object in LOOSE: its type and, for a delta, its base id. */
+    private ByteBuffer looseHeader(File loose) {
+        if (isJournaled(loose)) {
+            byte[] contents = _journal.readContents(loose);
+            return ByteBuffer.wrap(contents, 0,
+                                   Math.min(contents.length,
+                                            1 + ObjectId.LENGTH)).slice();
+        }
+        try (FileChannel in = FileChannel.open(loose.toPath(),
+                                               StandardOpenOption.READ)) {
+            ByteBuffer result = ByteBuffer.allocate(1 + ObjectId.LENGTH);
+            while (result.hasRemaining() && in.read(result) >= 0) {
+                continue;
+            }
+            return result.flip();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the file that holds the loose object with id ID. */
+    File looseFile(String id) {
+        return join(_dir, id.substring(0, 2), id.substring(2));
+    }
+
+    /** Return the ids of all objects, loose and packed. */
+    List<String> ids() {
+        List<String> result = looseIds();
+        for (PackFile pack : packs()) {
+            for (ObjectId id : pack.ids()) {
+                result.add(id.toString());
+            }
+        }
+        return result;
+    }
+
+    /** Return the full ids of all objects whose ids start with PREFIX, an
+     *  abbreviated id, in sorted order and without duplicates. */
+    List<String> idsWithPrefix(String prefix) {
+        TreeSet<String> result = new TreeSet<>();
+        for (PackFile pack : packs()) {
+            for (ObjectId id : pack.idsWithPrefix(prefix)) {
+                result.add(id.toString());
+            }
+        }
+        if (prefix.length() >= 2) {
+            List<String> names =
+                plainFilenamesIn(join(_dir, prefix.substring(0, 2)));
+            if (names != null) {
+                for (String rest : names) {
+                    String id = prefix.substring(0, 2) + rest;
+                    if (id.startsWith(prefix)) {
+                        result.add(id);
+                    }
+                }
+            }
+        } else {
+            for (String id : looseIds()) {
+                if (id.startsWith(prefix)) {
+                    result.add(id);
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Return the ids of all loose objects. */
+    List<String> looseIds() {
+        List<String> result = new ArrayList<>();
+        String[] subdirs = _dir.list();
+        if (subdirs == null) {
+            return result;
+        }
+        for (String prefix : subdirs) {
+            if (prefix.length() != 2) {
+                continue;
+            }
+            List<String> names = plainFilenamesIn(join(_dir, prefix));
+            if (names != null) {
+                for (String rest : names) {
+                    result.add(prefix + rest);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the packs of this store, opening them on first use. */
+    List<PackFile> packs() {
+        if (_packs == null) {
+            _packs = new ArrayList<>();
+            for (File index : packIndexFiles()) {
+                _packs.add(new PackFile(index));
+            }
+        }
+        return _packs;
+    }
+
+    /** Bring the packs of this store up to date with the pack directory,
+     *  which other processes may have changed, keeping open those packs
+     *  that are still present. */
+    void refresh() {
+        if (_packs == null) {
+            return;
+        }
+        Map<File, PackFile> open = new HashMap<>();
+        for (PackFile pack : _packs) {
+            open.put(pack.indexFile(), pack);
+        }
+        List<PackFile> result = new ArrayList<>();
+        for (File index : packIndexFiles()) {
+            PackFile pack = open.get(index);
+            result.add(pack != null ? pack : new PackFile(index));
+        }
+        _packs = result;
+    }
+
+    /** Return the index files of the packs in the pack directory. */
+    private List<File> packIndexFiles() {
+        List<File> result = new ArrayList<>();
+        List<String> names = plainFilenamesIn(_packDir);
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith("pack-")
+                    && name.endsWith(PackFile.INDEX_SUFFIX)) {
+                    result.add(join(_packDir, name));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** An InputStream reading the remaining bytes of a ByteBuffer. */
+    private static class BufferInputStream extends InputStream {
+        /** A stream of the remaining bytes of BUF. */
+        BufferInputStream(ByteBuffer buf) {
+            _buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return _buf.hasRemaining() ? _buf.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!_buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, _buf.remaining());
+            _buf.get(b, off, n);
+            return n;
+        }
+
+        /** The bytes read. */
+        private final ByteBuffer _buf;
+    }
+
+    /** Directory holding loose objects. */
+    private final File _dir;
+    /** Directory holding packs. */
+    private final File _packDir;
+    /** Open packs, or null if not yet loaded. */
+    private List<PackFile> _packs;
+    /** Codec compressing new objects, or null. */
+    private final Codec _codec;
+    /** Journal through which loose objects are written, or null. */
+    private final Journal _journal;
+}
@@ -0,0 +1,93 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests of ObjectStore's loose objects and packs. */
+public class ObjectStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return the UTF-8 bytes of TEXT. */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void looseRoundTrip() throws IOException {
+        ObjectStore store = new ObjectStore(tmp.newFolder(), Codec.DEFLATE);
+        byte[] contents = bytes("wug\n");
+        String id = store.write(contents);
+        assertEquals(Utils.sha1((Object) contents), id);
+        assertTrue(store.looseFile(id).isFile());
+        assertTrue(store.contains(id));
+        assertArrayEquals(contents, store.read(id));
+        assertEquals(id, store.write(contents));
+        assertEquals(List.of(id), store.ids());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(store.copyTo(id, out));
+        assertArrayEquals(contents, out.toByteArray());
+
+        String absent = Utils.sha1("not stored");
+        assertFalse(store.contains(absent));
+        assertNull(store.read(absent));
+        assertFalse(store.copyTo(absent, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void gcPacksEverything() throws IOException {
+        File dir = tmp.newFolder();
+        ObjectStore store = new ObjectStore(dir, Codec.DEFLATE);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i += 1) {
+            ids.add(store.write(bytes("object " + i)));
+        }
+        assertEquals(100, store.gc());
+        assertEquals(List.of(), store.looseIds());
+        assertEquals(1, store.packs().size());
+        for (int i = 0; i < 100; i += 1) {
+            assertFalse(store.looseFile(ids.get(i)).exists());
+            assertArrayEquals(bytes("object " + i), store.read(ids.get(i)));
+        }
+
+        String later = store.write(bytes("after gc"));
+        assertEquals(101, store.gc());
+
+        ObjectStore reopened = new ObjectStore(dir);
+        assertEquals(1, reopened.packs().size());
+        assertEquals(101, reopened.ids().size());
+        assertArrayEquals(bytes("after gc"), reopened.read(later));
+        assertArrayEquals(bytes("object 7"), reopened.read(ids.get(7)));
+    }
+
+    @Test
+    public void idsWithPrefixFindsLooseAndPacked() throws IOException {
+        ObjectStore store = new ObjectStore(tmp.newFolder());
+        String packed = store.write(bytes("packed"));
+        store.gc();
+        String loose = store.write(bytes("loose"));
+
+        assertEquals(List.of(packed),
+                     store.idsWithPrefix(packed.substring(0, 8)));
+        assertEquals(List.of(loose),
+                     store.idsWithPrefix(loose.substring(0, 8)));
+        assertEquals(List.of(packed), store.idsWithPrefix(packed));
+        List<String> all = store.idsWithPrefix("");
+        assertEquals(2, all.size());
+        assertTrue(all.contains(packed) && all.contains(loose));
+        assertEquals(List.of(), store.idsWithPrefix(
+            Utils.sha1("neither").substring(0, 12)));
+    }
+}
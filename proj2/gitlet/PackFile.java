@@ -0,0 +1,341 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/** A read-only view of one packfile and its sorted offset index.
+ *
+ *  A pack named pack-ID.pack holds a header followed by the stored
+ *  representations of many objects (see ObjectStore), each preceded by
+ *  its length.  The companion index pack-ID.idx holds a 256-entry
+ *  fan-out table on the first id byte, the sorted 20-byte ids of every
+ *  object in the pack, and the offset of each object within the pack.
+ *  Both files are memory-mapped, so a lookup is a binary search over
+ *  the index with no further I/O.  Packs are never modified once
+ *  written; new objects go into new packs. */
+class PackFile {
+
+    /** Suffix of pack data files. */
+    static final String PACK_SUFFIX = ".pack";
+    /** Suffix of pack index files. */
+    static final String INDEX_SUFFIX = ".idx";
+    /** Largest pack we will write; a single mapping is limited to this. */
+    static final long MAX_PACK_SIZE = Integer.MAX_VALUE;
+
+    /** Magic number ("GPAK") at the start of a pack. */
+    private static final int PACK_MAGIC = 0x4750414b;
+    /** Magic number ("GIDX") at the start of an index. */
+    private static final int INDEX_MAGIC = 0x47494458;
+    /** Current format version of packs. */
+    private static final int PACK_VERSION = 2;
+    /** Current format version of indices. */
+    private static final int INDEX_VERSION = 1;
+    /** Length in bytes of a raw SHA-1 id. */
+    private static final int ID_BYTES = ObjectId.LENGTH;
+    /** Length in bytes of the pack header. */
+    private static final int PACK_HEADER = 8;
+    /** Length in bytes of the index header, including the fan-out. */
+    private static final int INDEX_HEADER = 8 + 256 * 4;
+
+    /** Open the pack whose index is the file INDEX. */
+    PackFile(File index) {
+        String name = index.getName();
+        _index = index;
+        _pack = new File(index.getParentFile(),
+                         name.substring(0, name.length()
+                                        - INDEX_SUFFIX.length())
+                         + PACK_SUFFIX);
+        _idx = map(_index);
+        _data = map(_pack);
+        if (_idx.getInt(0) != INDEX_MAGIC || _idx.getInt(4) != INDEX_VERSION
+            || _data.getInt(0) != PACK_MAGIC
+            || _data.getInt(4) != PACK_VERSION) {
+            throw new IllegalArgumentException("bad pack: " + name);
+        }
+        _size = _idx.getInt(INDEX_HEADER - 4);
+    }
+
+    /** Return the number of objects in this pack. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the index file of this pack. */
+    File indexFile() {
+        return _index;
+    }
+
+    /** Return the data file of this pack. */
+    File packFile() {
+        return _pack;
+    }
+
+    /** Return true iff this pack holds the object with id ID. */
+    boolean contains(ObjectId id) {
+        return find(id) >= 0;
+    }
+
+    /** Return the stored representation of the object with id ID, a
+     *  type byte followed by the body, or null if this pack does not hold
+     *  it.  The result is a view of the mapped pack, not a copy. */
+    ByteBuffer entry(ObjectId id) {
+        int k = find(id);
+        if (k < 0) {
+            return null;
+        }
+        int offset = (int) _idx.getLong(offsetPosition(k));
+        int length = _data.getInt(offset);
+        return _data.slice(offset + 4, length);
+    }
+
+    /** Return the ids of all objects in this pack, in sorted order. */
+    List<ObjectId> ids() {
+        List<ObjectId> result = new ArrayList<>(_size);
+        for (int k = 0; k < _size; k += 1) {
+            result.add(idAt(k));
+        }
+        return result;
+    }
+
+    /** Return the ids of all objects in this pack whose hex forms start
+     *  with PREFIX, in sorted order. */
+    List<ObjectId> idsWithPrefix(String prefix) {
+        List<ObjectId> result = new ArrayList<>();
+        int k = find(ObjectId.lowestWithPrefix(prefix));
+        if (k < 0) {
+            k = -k - 1;
+        }
+        for (; k < _size; k += 1) {
+            ObjectId id = idAt(k);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    /** Return the Kth id in sorted order. */
+    private ObjectId idAt(int k) {
+        int pos = INDEX_HEADER + k * ID_BYTES;
+        return ObjectId.fromWords(_idx.getLong(pos), _idx.getLong(pos + 8),
+                                  _idx.getInt(pos + 16));
+    }
+
+    /** Return the position of ID among the sorted ids of this pack, or
+     *  -(P + 1) if it is absent, where P is the position at which it
+     *  would be inserted. */
+    private int find(ObjectId id) {
+        int first = id.firstByte();
+        int lo = first == 0 ? 0 : _idx.getInt(8 + (first - 1) * 4);
+        int hi = _idx.getInt(8 + first * 4) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareAt(INDEX_HEADER + mid * ID_BYTES, id);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /** Compare the raw id stored at index position POS with ID as
+     *  unsigned byte strings. */
+    private int compareAt(int pos, ObjectId id) {
+        int c = Long.compareUnsigned(_idx.getLong(pos), id.word0());
+        if (c == 0) {
+            c = Long.compareUnsigned(_idx.getLong(pos + 8), id.word1());
+        }
+        if (c == 0) {
+            c = Integer.compareUnsigned(_idx.getInt(pos + 16), id.word2());
+        }
+        return c;
+    }
+
+    /** Return the index position of the offset of the Kth object. */
+    private int offsetPosition(int k) {
+        return INDEX_HEADER + _size * ID_BYTES + k * 8;
+    }
+
+    /** Return a read-only mapping of all of FILE. */
+    private static MappedByteBuffer map(File file) {
+        try (FileChannel ch = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Accumulates objects into a new pack in directory DIR.  Objects are
+     *  appended to a temporary file as they are added; finish() writes the
+     *  index and renames both files into place, the index last, so that
+     *  readers never see a partial pack.  Both are synced first, since
+     *  the loose objects they replace are then deleted. */
+    static class Writer {
+
+        /** A Writer for a new pack in DIR. */
+        Writer(File dir) {
+            _dir = dir;
+            try {
+                Files.createDirectories(dir.toPath());
+                _tmp = File.createTempFile("tmp-", PACK_SUFFIX, dir);
+                _out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(_tmp.toPath())));
+                _out.writeInt(PACK_MAGIC);
+                _out.writeInt(PACK_VERSION);
+                _digest = MessageDigest.getInstance("SHA-1");
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            } catch (NoSuchAlgorithmException excp) {
+                throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+            }
+            _length = PACK_HEADER;
+        }
+
+        /** Return true iff an object of LENGTH bytes still fits. */
+        boolean fits(int length) {
+            return _length + 4 + length <= MAX_PACK_SIZE;
+        }
+
+        /** Return the number of objects added so far. */
+        int size() {
+            return _offsets.size();
+        }
+
+        /** Append the object with id ID whose stored representation has
+         *  type TYPE and the remaining bytes of BODY, unless an object with
+         *  that id was already added. */
+        void add(ObjectId id, int type, ByteBuffer body) {
+            if (_offsets.containsKey(id)) {
+                return;
+            }
+            int length = 1 + body.remaining();
+            if (!fits(length)) {
+                throw new IllegalArgumentException("pack too large");
+            }
+            try {
+                _out.writeInt(length);
+                _out.write(type);
+                _digest.update(id.toBytes());
+                _digest.update((byte) type);
+                byte[] chunk = new byte[Math.min(body.remaining(),
+                                                 STREAM_BUFFER_SIZE)];
+                while (body.hasRemaining()) {
+                    int n = Math.min(chunk.length, body.remaining());
+                    body.get(chunk, 0, n);
+                    _out.write(chunk, 0, n);
+                    _digest.update(chunk, 0, n);
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            _offsets.put(id, _length);
+            _length += 4 + length;
+        }
+
+        /** Complete the pack and return it, opened for reading. */
+        PackFile finish() {
+            try {
+                _out.close();
+                String name = "pack-" + ObjectId.toHex(_digest.digest());
+                File pack = join(_dir, name + PACK_SUFFIX);
+                File index = join(_dir, name + INDEX_SUFFIX);
+                File tmpIndex =
+                    File.createTempFile("tmp-", INDEX_SUFFIX, _dir);
+                writeIndex(tmpIndex);
+                sync(_tmp);
+                sync(tmpIndex);
+                Files.move(_tmp.toPath(), pack.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmpIndex.toPath(), index.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+                sync(_dir);
+                return new PackFile(index);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Discard the partially written pack. */
+        void abandon() {
+            try {
+                _out.close();
+            } catch (IOException excp) {
+                /* Ignore: the file is being discarded. */
+            }
+            _tmp.delete();
+        }
+
+        /** Write the index of the objects added so far to FILE. */
+        private void writeIndex(File file) throws IOException {
+            int[] fanout = new int[256];
+            for (ObjectId id : _offsets.keySet()) {
+                fanout[id.firstByte()] += 1;
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(
+                         Files.newOutputStream(file.toPath())))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                int total = 0;
+                for (int count : fanout) {
+                    total += count;
+                    out.writeInt(total);
+                }
+                for (ObjectId id : _offsets.keySet()) {
+                    out.write(id.toBytes());
+                }
+                for (long offset : _offsets.values()) {
+                    out.writeLong(offset);
+                }
+            }
+        }
+
+        /** Directory receiving the pack. */
+        private final File _dir;
+        /** Temporary file receiving the pack data. */
+        private File _tmp;
+        /** Stream onto _tmp. */
+        private DataOutputStream _out;
+        /** Digest of the ids and contents added so far, which names the
+         *  pack. */
+        private MessageDigest _digest;
+        /** Number of bytes written to _tmp so far. */
+        private long _length;
+        /** Offsets of the objects added so far, by id. */
+        private final Map<ObjectId, Long> _offsets = new TreeMap<>();
+    }
+
+    /** The index file. */
+    private final File _index;
+    /** The pack data file. */
+    private final File _pack;
+    /** Mapping of _index. */
+    private final MappedByteBuffer _idx;
+    /** Mapping of _pack. */
+    private final MappedByteBuffer _data;
+    /** Number of objects in this pack. */
+    private final int _size;
+}
@@ -0,0 +1,157 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** Compares reachability queries answered by walking commit objects with
+ *  the same queries answered by the bitmaps of a ReachabilityIndex.
+ *  Usage:
+ *      java gitlet.ReachabilityBenchmark [COMMITS [BRANCHES]]
+ *  A synthetic history is written to temporary stores: a trunk of
+ *  COMMITS commits (default 5000) and BRANCHES branches (default 20), each
+ *  forking from a random trunk commit and adding up to 100 commits of its
+ *  own, every commit tracking 20 files.  Each query is timed both ways:
+ *  the commits on each branch but not on the trunk, and the blobs that no
+ *  tip references. */
+public class ReachabilityBenchmark {
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int branches = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        File dir = Files.createTempDirectory("gitlet-bitmaps").toFile();
+        ObjectStore store = new ObjectStore(new File(dir, "commits"),
+                                            Codec.DEFLATE);
+        ObjectStore blobs = new ObjectStore(new File(dir, "objects"),
+                                            Codec.DEFLATE);
+        Transfer.Stores stores = new Transfer.Stores(
+            blobs, new ObjectStore(new File(dir, "trees")), store, null);
+        Random random = new Random(61);
+        Set<String> blobIds = new HashSet<>();
+        List<String> trunk = new ArrayList<>();
+        TreeMap<String, String> files = new TreeMap<>();
+        String head = commit(stores, null, files, random, blobIds, 0);
+        trunk.add(head);
+        for (int i = 1; i < count; i += 1) {
+            head = commit(stores, head, files, random, blobIds, i);
+            trunk.add(head);
+        }
+        List<String> tips = new ArrayList<>(List.of(head));
+        for (int b = 0; b < branches; b += 1) {
+            String tip = trunk.get(random.nextInt(count));
+            TreeMap<String, String> branchFiles = new TreeMap<>(files);
+            for (int i = random.nextInt(100); i >= 0; i -= 1) {
+                tip = commit(stores, tip, branchFiles, random, blobIds,
+                             count + b * 100 + i);
+            }
+            tips.add(tip);
+        }
+        for (int i = 0; i < count; i += 1) {
+            String text = "unreferenced " + i;
+            blobIds.add(blobs.write(text.getBytes(StandardCharsets.UTF_8)));
+        }
+        store.gc();
+        blobs.gc();
+        File graphFile = new File(dir, "commit-graph");
+        CommitGraph.write(graphFile, store);
+        CommitGraph graph = CommitGraph.read(graphFile);
+        File bitmapFile = new File(dir, "bitmaps");
+        long start = System.nanoTime();
+        ReachabilityIndex.write(bitmapFile, graph, stores, tips);
+        System.out.printf("%d commits, %d blobs, %d tips; bitmaps %d bytes, "
+                          + "built in %.1f ms%n", graph.size(),
+                          blobIds.size(), tips.size(), bitmapFile.length(),
+                          (System.nanoTime() - start) / 1e6);
+
+        System.out.printf("%-24s %10s %10s %10s%n", "query", "walk ms",
+                          "bitmap ms", "results");
+        start = System.nanoTime();
+        int walked = 0;
+        Set<String> onTrunk = commitsFrom(store, List.of(tips.get(0)));
+        for (String tip : tips.subList(1, tips.size())) {
+            Set<String> onBranch = commitsFrom(store, List.of(tip));
+            onBranch.removeAll(onTrunk);
+            walked += onBranch.size();
+        }
+        double walkTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        ReachabilityIndex index = ReachabilityIndex.read(bitmapFile, graph);
+        int mapped = 0;
+        for (String tip : tips.subList(1, tips.size())) {
+            mapped += index.commitsOnlyIn(tip, tips.get(0)).size();
+        }
+        report("branch but not trunk", walkTime, start, walked, mapped);
+
+        start = System.nanoTime();
+        Set<String> unreferenced = new HashSet<>(blobIds);
+        ObjectStore trees = stores.get(Transfer.TREE);
+        for (String id : commitsFrom(store, tips)) {
+            Commit commit = CommitCodec.decode(store.read(id));
+            unreferenced.removeAll(commit.getBlobs(trees).values());
+        }
+        walkTime = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        index = ReachabilityIndex.read(bitmapFile, graph);
+        report("unreferenced blobs", walkTime, start, unreferenced.size(),
+               index.unreferencedBlobs().size());
+    }
+
+    /** Print a row for QUERY, which took WALKTIME ms by walking and found
+     *  WALKED results, and found MAPPED with bitmaps from START. */
+    private static void report(String query, double walkTime, long start,
+                               int walked, int mapped) {
+        double mapTime = (System.nanoTime() - start) / 1e6;
+        if (walked != mapped) {
+            throw new IllegalStateException(query + ": walk found " + walked
+                                            + ", bitmaps " + mapped);
+        }
+        System.out.printf("%-24s %10.1f %10.1f %10d%n", query, walkTime,
+                          mapTime, mapped);
+    }
+
+    /** Write to STORES a commit with parent PARENT (if not null), changing
+     *  a few of FILES, which is updated, at random from RANDOM.  Adds the
+     *  new blob ids to BLOBIDS, and uses SEQ to make them unique.  Returns
+     *  the id of the commit. */
+    private static String commit(Transfer.Stores stores, String parent,
+                                 TreeMap<String, String> files,
+                                 Random random, Set<String> blobIds,
+                                 int seq) {
+        for (int k = 0; k < 3; k += 1) {
+            String name = "file" + random.nextInt(20) + ".txt";
+            String blob = stores.get(Transfer.BLOB).write(
+                (name + " " + seq).getBytes(StandardCharsets.UTF_8));
+            files.put(name, blob);
+            blobIds.add(blob);
+        }
+        List<String> parents = parent == null ? List.of() : List.of(parent);
+        return stores.get(Transfer.COMMIT).write(CommitCodec.encode(
+            new Commit("Change number " + seq, new Date(seq * 60000L),
+                       parents, files)));
+    }
+
+    /** Return the ids of the commits in STORE reachable from TIPS, found
+     *  by reading commit objects. */
+    private static Set<String> commitsFrom(ObjectStore store,
+                                           List<String> tips) {
+        Set<String> result = new HashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>(tips);
+        while (!queue.isEmpty()) {
+            String id = queue.poll();
+            if (result.add(id)) {
+                queue.addAll(CommitCodec.decode(store.read(id)).getParents());
+            }
+        }
+        return result;
+    }
+}
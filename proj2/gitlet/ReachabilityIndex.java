@@ -0,0 +1,408 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/** Reachability bitmaps, kept in the sidecar file .gitlet/bitmaps, which
+ *  record for each of a set of tip commits every commit, blob, and Tree
+ *  reachable from it.  Questions that would otherwise walk the history,
+ *  reading commit objects, become operations on compressed bitmaps
+ *  (EwahBitmap): what a tip reaches, what one tip reaches that another
+ *  does not, and which objects no tip reaches.
+ *
+ *  Objects are numbered from 0: first the commits, by their positions in
+ *  the commit graph, then the blobs, in sorted id order, and then the
+ *  Trees, in sorted id order.  A commit reaches its parents and its root
+ *  Tree (or, for a commit that lists its files, their blobs), a Tree
+ *  reaches its entries, and any object reaches the objects its stored
+ *  representation needs (ObjectStore.references): the base of a delta
+ *  and the chunks of a chunked blob.  The file holds the magic number
+ *  "GBMP", a version int, the checksum of the commit graph it was built
+ *  against, the commit count, the blob count M, the M sorted raw 20-byte
+ *  blob ids, the Tree count T, the T sorted raw Tree ids, the tip count,
+ *  and then for each tip its raw id and its bitmap.
+ *
+ *  Like the commit graph, the file is a cache.  It is ignored when the
+ *  graph has been rewritten since, and objects written after it was built
+ *  are in none of its bitmaps, so callers must treat those as unknown
+ *  rather than as unreachable. */
+class ReachabilityIndex {
+
+    /** Magic number ("GBMP") at the start of a bitmap file. */
+    private static final int MAGIC = 0x47424d50;
+    /** Current format version. */
+    private static final int VERSION = 2;
+
+    /** An index numbering commits by GRAPH, blobs by BLOBS, sorted, and
+     *  Trees by TREES, sorted, with the bitmaps in TIPS. */
+    private ReachabilityIndex(CommitGraph graph, ObjectId[] blobs,
+                              ObjectId[] trees,
+                              Map<String, EwahBitmap> tips) {
+        _graph = graph;
+        _blobs = blobs;
+        _trees = trees;
+        _tips = tips;
+    }
+
+    /** Return the index stored in FILE if it was built against GRAPH, and
+     *  otherwise (or if there is none, or it is unreadable) null. */
+    static ReachabilityIndex read(File file, CommitGraph graph) {
+        if (graph == null || !file.isFile()) {
+            return null;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Utils.readContents(file));
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION
+                || buf.getLong() != graph.checksum()
+                || buf.getInt() != graph.size()) {
+                return null;
+            }
+            ObjectId[] blobs = readIds(buf);
+            ObjectId[] trees = readIds(buf);
+            int count = buf.getInt();
+            Map<String, EwahBitmap> tips = new LinkedHashMap<>();
+            for (int i = 0; i < count; i += 1) {
+                String tip = readId(buf).toString();
+                tips.put(tip, EwahBitmap.read(buf));
+            }
+            return new ReachabilityIndex(graph, blobs, trees, tips);
+        } catch (IllegalArgumentException | BufferUnderflowException excp) {
+            return null;
+        }
+    }
+
+    /** Write to FILE, atomically, bitmaps for the commits whose ids are in
+     *  TIPS, numbering commits by GRAPH and the blobs and Trees of STORES
+     *  in id order, and reading commits from STORES.  Each object is read
+     *  at most once, however many tips reach it. */
+    static void write(File file, CommitGraph graph, Transfer.Stores stores,
+                      Collection<String> tips) {
+        ObjectId[] blobs = sortedIds(stores.get(Transfer.BLOB));
+        ObjectId[] trees = sortedIds(stores.get(Transfer.TREE));
+        Numbering numbering = new Numbering(graph, blobs, trees, stores);
+        int total = numbering.total();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(graph.checksum());
+            out.writeInt(graph.size());
+            writeIds(out, blobs);
+            writeIds(out, trees);
+            List<String> present = new ArrayList<>();
+            for (String tip : tips) {
+                if (graph.position(tip) != CommitGraph.NONE) {
+                    present.add(tip);
+                }
+            }
+            out.writeInt(present.size());
+            for (String tip : present) {
+                BitSet bits = new BitSet(total);
+                ArrayDeque<Integer> work = new ArrayDeque<>();
+                work.push(graph.position(tip));
+                while (!work.isEmpty()) {
+                    int pos = work.pop();
+                    if (bits.get(pos)) {
+                        continue;
+                    }
+                    bits.set(pos);
+                    for (int next : numbering.edges(pos)) {
+                        if (!bits.get(next)) {
+                            work.push(next);
+                        }
+                    }
+                }
+                out.write(ObjectId.fromHex(tip).toBytes());
+                EwahBitmap.of(bits).write(out);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Utils.writeAtomic(file, false, (Object) bytes.toByteArray());
+    }
+
+    /** The numbering of the objects of a repository while its bitmaps are
+     *  built, with the positions each object reaches directly, found on
+     *  first use. */
+    private static class Numbering {
+        /** Number the commits of GRAPH and then BLOBS and TREES, sorted,
+         *  reading them from STORES. */
+        Numbering(CommitGraph graph, ObjectId[] blobs, ObjectId[] trees,
+                  Transfer.Stores stores) {
+            _graph = graph;
+            _blobs = blobs;
+            _trees = trees;
+            _stores = stores;
+            _edges = new int[total()][];
+        }
+
+        /** Return the number of objects numbered. */
+        int total() {
+            return _graph.size() + _blobs.length + _trees.length;
+        }
+
+        /** Return the positions of the objects that the object at POS
+         *  reaches directly.  Objects that are not numbered are left
+         *  out. */
+        int[] edges(int pos) {
+            if (_edges[pos] == null) {
+                List<Integer> result = new ArrayList<>();
+                int commits = _graph.size(), trees = commits + _blobs.length;
+                if (pos < commits) {
+                    commitEdges(pos, result);
+                } else if (pos < trees) {
+                    references(Transfer.BLOB, _blobs[pos - commits], result);
+                } else {
+                    treeEdges(_trees[pos - trees], result);
+                }
+                _edges[pos] = result.stream().mapToInt(x -> x).toArray();
+            }
+            return _edges[pos];
+        }
+
+        /** Add to RESULT the positions of the parents and the root Tree
+         *  or blobs of the commit at POS. */
+        private void commitEdges(int pos, List<Integer> result) {
+            for (int k = 0; k < 2; k += 1) {
+                int p = _graph.parent(pos, k);
+                if (p != CommitGraph.NONE) {
+                    result.add(p);
+                }
+            }
+            byte[] data = _stores.get(Transfer.COMMIT).read(_graph.id(pos));
+            if (data == null) {
+                throw new IllegalArgumentException("missing commit "
+                                                   + _graph.id(pos));
+            }
+            Commit commit = CommitCodec.decode(data);
+            if (commit.getTree() != null) {
+                add(Transfer.TREE, commit.getTree(), result);
+            } else {
+                for (String blob : commit.getBlobs(null).values()) {
+                    add(Transfer.BLOB, blob, result);
+                }
+            }
+        }
+
+        /** Add to RESULT the positions of the entries of the Tree ID and
+         *  of the objects its representation needs. */
+        private void treeEdges(ObjectId id, List<Integer> result) {
+            references(Transfer.TREE, id, result);
+            Tree tree = Tree.read(_stores.get(Transfer.TREE), id.toString());
+            for (Map.Entry<String, String> entry
+                     : tree.entries().entrySet()) {
+                add(Tree.isTree(entry.getKey()) ? Transfer.TREE
+                    : Transfer.BLOB, entry.getValue(), result);
+            }
+        }
+
+        /** Add to RESULT the positions of the objects that the stored
+         *  representation of ID, of kind KIND, needs. */
+        private void references(int kind, ObjectId id, List<Integer> result) {
+            ByteBuffer stored =
+                _stores.get(kind).representation(id.toString());
+            if (stored != null) {
+                for (String ref : ObjectStore.references(stored)) {
+                    add(kind, ref, result);
+                }
+            }
+        }
+
+        /** Add to RESULT the position of the object ID of kind KIND, if it
+         *  is numbered. */
+        private void add(int kind, String id, List<Integer> result) {
+            ObjectId oid = ObjectId.fromHex(id);
+            if (kind == Transfer.BLOB) {
+                int pos = Arrays.binarySearch(_blobs, oid);
+                if (pos >= 0) {
+                    result.add(_graph.size() + pos);
+                }
+            } else {
+                int pos = Arrays.binarySearch(_trees, oid);
+                if (pos >= 0) {
+                    result.add(_graph.size() + _blobs.length + pos);
+                }
+            }
+        }
+
+        /** The commit graph numbering the commits. */
+        private final CommitGraph _graph;
+        /** Sorted ids of the numbered blobs. */
+        private final ObjectId[] _blobs;
+        /** Sorted ids of the numbered Trees. */
+        private final ObjectId[] _trees;
+        /** The stores holding the objects. */
+        private final Transfer.Stores _stores;
+        /** The positions each object reaches directly, by position, or
+         *  null where not yet found. */
+        private final int[][] _edges;
+    }
+
+    /** Return the ids of the objects in STORE, sorted. */
+    private static ObjectId[] sortedIds(ObjectStore store) {
+        TreeSet<ObjectId> result = new TreeSet<>();
+        for (String id : store.ids()) {
+            result.add(ObjectId.fromHex(id));
+        }
+        return result.toArray(new ObjectId[0]);
+    }
+
+    /** Write the count of IDS and then each as a raw id to OUT. */
+    private static void writeIds(DataOutputStream out, ObjectId[] ids)
+        throws IOException {
+        out.writeInt(ids.length);
+        for (ObjectId id : ids) {
+            out.write(id.toBytes());
+        }
+    }
+
+    /** Return the ids written by writeIds at the current position of BUF,
+     *  advancing past them. */
+    private static ObjectId[] readIds(ByteBuffer buf) {
+        ObjectId[] result = new ObjectId[buf.getInt()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = readId(buf);
+        }
+        return result;
+    }
+
+    /** Return the raw id at the current position of BUF, advancing past
+     *  it. */
+    private static ObjectId readId(ByteBuffer buf) {
+        return ObjectId.fromWords(buf.getLong(), buf.getLong(), buf.getInt());
+    }
+
+    /** Return the ids of the tips that have bitmaps, in the order they
+     *  were given to write(). */
+    List<String> tips() {
+        return new ArrayList<>(_tips.keySet());
+    }
+
+    /** Return the bitmap of the objects reachable from the tip with id
+     *  TIP, including TIP itself, or null if TIP has none. */
+    EwahBitmap reachable(String tip) {
+        return _tips.get(tip);
+    }
+
+    /** Return the bitmap of the objects reachable from any tip. */
+    EwahBitmap reachableFromAny() {
+        EwahBitmap result = EwahBitmap.EMPTY;
+        for (EwahBitmap bits : _tips.values()) {
+            result = result.or(bits);
+        }
+        return result;
+    }
+
+    /** Return the bitmap of every commit this index numbers. */
+    EwahBitmap allCommits() {
+        return EwahBitmap.range(0, _graph.size());
+    }
+
+    /** Return the bitmap of every blob this index numbers. */
+    EwahBitmap allBlobs() {
+        return EwahBitmap.range(_graph.size(),
+                                _graph.size() + _blobs.length);
+    }
+
+    /** Return true iff the commit with id COMMIT is reachable from the
+     *  tip TIP.  Returns false if TIP has no bitmap or COMMIT is not
+     *  numbered. */
+    boolean reaches(String tip, String commit) {
+        EwahBitmap bits = _tips.get(tip);
+        int pos = _graph.position(commit);
+        return bits != null && pos != CommitGraph.NONE && bits.get(pos);
+    }
+
+    /** Return the ids of the commits reachable from the tip A but not from
+     *  the tip B (as in git log B..A), or null if either has no
+     *  bitmap. */
+    List<String> commitsOnlyIn(String a, String b) {
+        EwahBitmap bitsA = _tips.get(a), bitsB = _tips.get(b);
+        if (bitsA == null || bitsB == null) {
+            return null;
+        }
+        return commits(bitsA.andNot(bitsB));
+    }
+
+    /** Return the ids of the commits numbered by this index that no tip
+     *  reaches. */
+    List<String> unreachableCommits() {
+        return commits(allCommits().andNot(reachableFromAny()));
+    }
+
+    /** Return the bitmap of every Tree this index numbers. */
+    EwahBitmap allTrees() {
+        int start = _graph.size() + _blobs.length;
+        return EwahBitmap.range(start, start + _trees.length);
+    }
+
+    /** Return the ids of the blobs numbered by this index that no tip
+     *  reaches, and so that are candidates for deletion.  Chunks and
+     *  delta bases of reachable blobs are reachable. */
+    List<String> unreferencedBlobs() {
+        return blobs(allBlobs().andNot(reachableFromAny()));
+    }
+
+    /** Return the ids of the Trees numbered by this index that no tip
+     *  reaches. */
+    List<String> unreferencedTrees() {
+        return trees(allTrees().andNot(reachableFromAny()));
+    }
+
+    /** Return the ids of the commits in BITS. */
+    List<String> commits(EwahBitmap bits) {
+        List<String> result = new ArrayList<>();
+        for (int pos : bits.toArray()) {
+            if (pos < _graph.size()) {
+                result.add(_graph.id(pos));
+            }
+        }
+        return result;
+    }
+
+    /** Return the ids of the blobs in BITS. */
+    List<String> blobs(EwahBitmap bits) {
+        List<String> result = new ArrayList<>();
+        int start = _graph.size();
+        for (int pos : bits.toArray()) {
+            if (pos >= start && pos < start + _blobs.length) {
+                result.add(_blobs[pos - start].toString());
+            }
+        }
+        return result;
+    }
+
+    /** Return the ids of the Trees in BITS. */
+    List<String> trees(EwahBitmap bits) {
+        List<String> result = new ArrayList<>();
+        int start = _graph.size() + _blobs.length;
+        for (int pos : bits.toArray()) {
+            if (pos >= start) {
+                result.add(_trees[pos - start].toString());
+            }
+        }
+        return result;
+    }
+
+    /** The commit graph numbering the commits. */
+    private final CommitGraph _graph;
+    /** Sorted ids of the numbered blobs. */
+    private final ObjectId[] _blobs;
+    /** Sorted ids of the numbered Trees. */
+    private final ObjectId[] _trees;
+    /** Bitmap of each tip, by id. */
+    private final Map<String, EwahBitmap> _tips;
+}
@@ -0,0 +1,120 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the reachability bitmaps of ReachabilityIndex. */
+public class ReachabilityIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return new, empty stores under the temporary folder. */
+    private Transfer.Stores stores() throws IOException {
+        File dir = tmp.newFolder();
+        return new Transfer.Stores(new ObjectStore(new File(dir, "objects"),
+                                                   Codec.DEFLATE),
+                                   new ObjectStore(new File(dir, "trees")),
+                                   new ObjectStore(new File(dir, "commits")),
+                                   null);
+    }
+
+    /** Store in STORES a commit with PARENTS tracking FILES, and return
+     *  its id. */
+    private static String commit(Transfer.Stores stores, long time,
+                                 Map<String, String> files,
+                                 String... parents) {
+        String tree = Tree.write(stores.get(Transfer.TREE), files);
+        return stores.get(Transfer.COMMIT).write(CommitCodec.encode(
+            new Commit("at " + time, new Date(time), List.of(parents),
+                       tree)));
+    }
+
+    /** Pack STORES, write its commit graph and its bitmaps for the heads,
+     *  and return the index read back. */
+    private ReachabilityIndex index(Transfer.Stores stores)
+        throws IOException {
+        for (int kind = Transfer.BLOB; kind <= Transfer.COMMIT; kind += 1) {
+            stores.get(kind).gc();
+        }
+        File dir = tmp.newFolder();
+        File graphFile = new File(dir, "commit-graph");
+        CommitGraph.write(graphFile, stores.get(Transfer.COMMIT));
+        CommitGraph graph = CommitGraph.read(graphFile);
+        List<String> tips = new ArrayList<>();
+        for (int pos : graph.heads()) {
+            tips.add(graph.id(pos));
+        }
+        File bitmaps = new File(dir, "bitmaps");
+        ReachabilityIndex.write(bitmaps, graph, stores, tips);
+        return ReachabilityIndex.read(bitmaps, graph);
+    }
+
+    @Test
+    public void chunksAndDeltaBasesAreReferenced() throws IOException {
+        Transfer.Stores stores = stores();
+        ObjectStore objects = stores.get(Transfer.BLOB);
+
+        byte[] large = new byte[3 << 20];
+        new Random(61).nextBytes(large);
+        File file = tmp.newFile("large.bin");
+        Utils.writeContents(file, (Object) large);
+        String chunked = objects.write(file);
+        List<String> chunks =
+            ObjectStore.references(objects.representation(chunked));
+        assertTrue("a 3 MiB file should be chunked", chunks.size() > 1);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i += 1) {
+            text.append("line ").append(i).append('\n');
+        }
+        byte[] v1 = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] v2 = (text + "one more line\n")
+            .getBytes(StandardCharsets.UTF_8);
+        String base = objects.write(v1);
+        String delta = objects.write(v2, base);
+        assertEquals(List.of(base),
+                     ObjectStore.references(objects.representation(delta)));
+
+        String garbage =
+            objects.write("nobody".getBytes(StandardCharsets.UTF_8));
+        String root = commit(stores, 1000, Map.of());
+        commit(stores, 2000, Map.of("dir/large.bin", chunked,
+                                    "text.txt", delta), root);
+
+        ReachabilityIndex index = index(stores);
+        assertEquals(List.of(garbage), index.unreferencedBlobs());
+        assertEquals(List.of(), index.unreferencedTrees());
+        assertEquals(List.of(), index.unreachableCommits());
+    }
+
+    @Test
+    public void treesNoTipReachesAreUnreferenced()
+        throws IOException {
+        Transfer.Stores stores = stores();
+        ObjectStore objects = stores.get(Transfer.BLOB);
+        String wug = objects.write("wug".getBytes(StandardCharsets.UTF_8));
+        String root = commit(stores, 1000, Map.of("a/wug.txt", wug));
+        String orphanTree = Tree.write(stores.get(Transfer.TREE),
+                                       Map.of("b/c/wug.txt", wug));
+
+        ReachabilityIndex index = index(stores);
+        assertEquals(List.of(), index.unreferencedBlobs());
+        assertEquals(4, index.trees(index.allTrees()).size());
+        assertEquals(2, index.unreferencedTrees().size());
+        assertTrue(index.unreferencedTrees().contains(orphanTree));
+        assertTrue(index.reaches(root, root));
+    }
+}
@@ -1,6 +1,23 @@
 package gitlet;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import static gitlet.Utils.*;
 
 // TODO: any imports you need here
@@ -24,6 +41,854 @@ public class Repository {
     public static final File CWD = new File(System.getProperty("user.dir"));
     /** The .gitlet directory. */
     public static final File GITLET_DIR = join(CWD, ".gitlet");
+    /** The directory holding loose and packed blobs. */
+    public static final File OBJECTS_DIR = join(GITLET_DIR, "objects");
+    /** The directory holding loose and packed commits. */
+    public static final File COMMITS_DIR = join(GITLET_DIR, "commits");
+    /** The directory holding loose and packed Trees. */
+    public static final File TREES_DIR = join(GITLET_DIR, "trees");
+    /** The stat index, caching the blob ids of working files. */
+    public static final File INDEX_FILE = join(GITLET_DIR, "index");
+    /** The commit-graph file, caching the shape of the history. */
+    public static final File COMMIT_GRAPH_FILE =
+        join(GITLET_DIR, "commit-graph");
+    /** The reachability bitmaps of the tips of the history. */
+    public static final File BITMAPS_FILE = join(GITLET_DIR, "bitmaps");
+    /** The index of commit messages. */
+    public static final File MESSAGES_DIR = join(GITLET_DIR, "messages");
+    /** The names and directories of remote repositories. */
+    public static final File REMOTES_FILE = join(GITLET_DIR, "remotes");
+    /** The journal through which a command's writes are committed. */
+    public static final File JOURNAL_FILE = join(GITLET_DIR, "journal");
+    /** The socket on which a Daemon for this repository listens. */
+    public static final File DAEMON_SOCKET =
+        join(GITLET_DIR, Daemon.SOCKET_NAME);
+
+    /** Capacity of the cache of decoded commits, in bytes of encoded
+     *  commits. */
+    static final long COMMIT_CACHE_BYTES = 8 << 20;
+    /** Capacity in bytes of the cache of blob contents. */
+    static final long BLOB_CACHE_BYTES = 32 << 20;
+
+    /** The caches of objects.  They are in a class of their own, which
+     *  the JVM initializes when it is first used, so that commands that
+     *  read no objects do not pay to load and create them. */
+    static class Caches {
+        /** Commits read or written so far, by id.  Sizes are those of the
+         *  encoded commits, a proxy for the memory of the decoded ones:
+         *  these take a small multiple of it (object headers, ids held
+         *  as hex strings), so the cache's true footprint is that
+         *  multiple of COMMIT_CACHE_BYTES. */
+        static final ObjectCache<Commit> COMMITS =
+            new ObjectCache<>(COMMIT_CACHE_BYTES);
+        /** Contents of blobs read so far, by id. */
+        static final ObjectCache<byte[]> BLOBS =
+            new ObjectCache<>(BLOB_CACHE_BYTES);
+    }
+
+    /** The stat index as last read or written, or null. */
+    private static StatIndex statIndex;
+    /** Modification time of INDEX_FILE when statIndex was last read or
+     *  written. */
+    private static long statIndexStamp;
+
+    /** The journal of this repository, opened on first use. */
+    private static Journal journal;
+    /** The blob store of this repository, created on first use. */
+    private static ObjectStore objects;
+    /** The commit store of this repository, created on first use.  Kept
+     *  apart from the blobs so that every commit can be enumerated. */
+    private static ObjectStore commits;
+    /** The Tree store of this repository, created on first use. */
+    private static ObjectStore trees;
+
+    /** Return the journal of this repository.  Writes of refs, the
+     *  staging area, and objects made through it during a command take
+     *  effect together when the command finishes. */
+    static Journal journal() {
+        if (journal == null) {
+            journal = Journal.open(JOURNAL_FILE);
+        }
+        return journal;
+    }
+
+    /** Commit the writes made through the journal by this command, with a
+     *  single sync.  A command that exits early without calling this,
+     *  because of an error, leaves the repository unchanged. */
+    static void finish() {
+        if (journal != null) {
+            journal.commit();
+        }
+    }
+
+    /** Discard the writes made through the journal by this command, which
+     *  failed.  Only a process that goes on to run further commands, such
+     *  as a Daemon, need call this. */
+    static void abort() {
+        if (journal != null) {
+            journal.abort();
+        }
+    }
+
+    /** Lock this repository for a command, SHARED if the command only
+     *  reads it, and pick up any packs that other processes have changed
+     *  since this process last looked.  If REMOTE is not null, also lock
+     *  the remote of that name, REMOTESHARED if the command only reads
+     *  it, provided it names a repository.  Both are locked together in
+     *  RepositoryLock's order, so the remote is looked up under this
+     *  repository's lock and then both are locked afresh, until the
+     *  lookup agrees with what is locked.  Returns the lock, to be closed
+     *  when the command's writes are committed, or null if there is no
+     *  repository to lock. */
+    static RepositoryLock lock(boolean shared, String remote,
+                               boolean remoteShared) {
+        if (!GITLET_DIR.isDirectory()) {
+            return null;
+        }
+        File locked = null;
+        while (true) {
+            Map<File, Boolean> dirs = new HashMap<>();
+            dirs.put(GITLET_DIR, shared);
+            if (locked != null) {
+                dirs.put(locked, remoteShared);
+            }
+            RepositoryLock result = RepositoryLock.acquire(dirs);
+            File current = remote == null ? null : lockableRemote(remote);
+            if (Objects.equals(current, locked)) {
+                refresh();
+                return result;
+            }
+            result.close();
+            locked = current;
+        }
+    }
+
+    /** Prepare for a new command in a process that has run others: pick
+     *  up any packs that other processes have added or removed.  Caches
+     *  of objects stay valid, since objects never change. */
+    static void refresh() {
+        if (objects != null) {
+            objects.refresh();
+        }
+        if (commits != null) {
+            commits.refresh();
+        }
+        if (trees != null) {
+            trees.refresh();
+        }
+    }
+
+    /** Forget the journal, stores, stat index, and cached objects of
+     *  earlier commands, as if this process were new.  For a process
+     *  that runs commands in a repository that may have been deleted and
+     *  recreated in between, such as CdsTraining. */
+    static void reset() {
+        journal = null;
+        objects = null;
+        commits = null;
+        trees = null;
+        statIndex = null;
+        statIndexStamp = 0;
+        Caches.COMMITS.clear();
+        Caches.BLOBS.clear();
+    }
+
+    /** Return the object store of this repository. */
+    static ObjectStore objects() {
+        if (objects == null) {
+            objects = new ObjectStore(OBJECTS_DIR, Codec.DEFLATE, journal());
+        }
+        return objects;
+    }
+
+    /** Return the commit store of this repository. */
+    static ObjectStore commits() {
+        if (commits == null) {
+            commits = new ObjectStore(COMMITS_DIR, Codec.DEFLATE, journal());
+        }
+        return commits;
+    }
+
+    /** Return the Tree store of this repository. */
+    static ObjectStore trees() {
+        if (trees == null) {
+            trees = new ObjectStore(TREES_DIR, Codec.DEFLATE, journal());
+        }
+        return trees;
+    }
+
+    /** Return the id of the root Tree of COMMIT's files, storing the
+     *  Trees first if COMMIT only lists its files, as commits written
+     *  before there were Trees do. */
+    static String treeOf(Commit commit) {
+        if (commit.getTree() != null) {
+            return commit.getTree();
+        }
+        return Tree.write(trees(), commit.getBlobs(null));
+    }
+
+    /** Store the Trees of the files of the root Tree BASE (none if null)
+     *  with CHANGES applied, and return the new root's id.  CHANGES maps
+     *  file names to their new blob ids, or to null for removed files.
+     *  This is how a new commit's files should be made from its parent's
+     *  and the staging area: only the Trees of changed directories are
+     *  rewritten (see Tree.update). */
+    static String updateTree(String base, SortedMap<String, String> changes) {
+        return Tree.update(trees(), base, changes);
+    }
+
+    /** Return the commit with id ID, or null if there is none. */
+    static Commit readCommit(String id) {
+        ObjectId oid = ObjectId.fromHex(id);
+        Commit result = Caches.COMMITS.get(oid);
+        if (result == null) {
+            byte[] data = commits().read(id);
+            if (data == null) {
+                return null;
+            }
+            result = CommitCodec.decode(data);
+            /* The encoded length stands in for the decoded size. */
+            Caches.COMMITS.put(oid, result, data.length);
+        }
+        return result;
+    }
+
+    /** Return the contents of the blob with id ID, or null if there is
+     *  none.  The result may be shared with other callers through the
+     *  cache, and so must not be modified. */
+    static byte[] readBlob(String id) {
+        ObjectId oid = ObjectId.fromHex(id);
+        byte[] result = Caches.BLOBS.get(oid);
+        if (result == null) {
+            result = objects().read(id);
+            if (result != null) {
+                Caches.BLOBS.put(oid, result, result.length);
+            }
+        }
+        return result;
+    }
+
+    /** Return the full id of the one commit whose id starts with PREFIX,
+     *  which may be abbreviated, or null if there is no such commit or
+     *  more than one. */
+    static String resolveCommitId(String prefix) {
+        if (!isIdPrefix(prefix)) {
+            return null;
+        }
+        List<String> ids = commits().idsWithPrefix(prefix);
+        return ids.size() == 1 ? ids.get(0) : null;
+    }
+
+    /** Return true iff PREFIX could begin an object id: one to 40
+     *  lower-case hexadecimal digits. */
+    static boolean isIdPrefix(String prefix) {
+        return prefix.matches("[0-9a-f]{1,40}");
+    }
+
+    /** Return the index of commit messages of this repository. */
+    static MessageIndex messages() {
+        return new MessageIndex(MESSAGES_DIR, journal());
+    }
+
+    /** Store COMMIT, enter it in the message index, and return its id.
+     *  If COMMIT lists its files, their Trees are stored and the commit
+     *  refers to its root Tree instead.  The first commit of a repository
+     *  creates the index. */
+    static String writeCommit(Commit commit) {
+        if (commit.getTree() == null) {
+            commit = new Commit(commit.getMessage(), commit.getTimestamp(),
+                                commit.getParents(), treeOf(commit));
+        }
+        byte[] data = CommitCodec.encode(commit);
+        String id = sha1(data);
+        if (commits().contains(id)) {
+            return id;
+        }
+        MessageIndex messages = messages();
+        if (!messages.exists() && commits().ids().isEmpty()) {
+            messages.rebuild(commits());
+        }
+        commits().write(data);
+        messages.add(id, commit.getMessage());
+        Caches.COMMITS.put(ObjectId.fromHex(id), commit, data.length);
+        return id;
+    }
+
+    /** Return the ids of the commits whose message is exactly MESSAGE
+     *  (the find command).  Uses the message index if there is one, and
+     *  otherwise reads every commit. */
+    static List<String> findCommits(String message) {
+        List<String> result = messages().exact(message);
+        if (result == null) {
+            result = new ArrayList<>();
+            for (String id : commits().ids()) {
+                if (readCommit(id).getMessage().equals(message)) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the ids of the commits whose messages contain TEXT.  Only
+     *  the commits that the message index gives as candidates are read,
+     *  or every commit if it gives none. */
+    static List<String> searchCommits(String text) {
+        List<String> ids = messages().candidates(text);
+        if (ids == null) {
+            ids = commits().ids();
+        }
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            if (readCommit(id).getMessage().contains(text)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /** Return the id of the latest common ancestor (split point) of the
+     *  commits with ids A and B.  Uses the commit-graph file when it
+     *  covers both commits, and otherwise walks the commit objects; both
+     *  ways give the same commit (see CommitGraph.mergeBase). */
+    static String splitPoint(String a, String b) {
+        CommitGraph graph = CommitGraph.read(COMMIT_GRAPH_FILE);
+        if (graph != null) {
+            int posA = graph.position(a), posB = graph.position(b);
+            if (posA != CommitGraph.NONE && posB != CommitGraph.NONE) {
+                int base = graph.mergeBase(posA, posB);
+                return base == CommitGraph.NONE ? null : graph.id(base);
+            }
+        }
+        return CommitGraph.mergeBase(a, b, Repository::readCommit);
+    }
+
+    /** Return the status of the working directory, given the blob ids of
+     *  the files tracked by the head commit, HEAD, the blob ids of the
+     *  files staged for addition, STAGED, and the names of the files
+     *  staged for removal, REMOVED.  Only files whose stat data changed
+     *  since the last scan are rehashed.  The stat index is kept in
+     *  memory between scans by the same process, and reread only if
+     *  another process has rewritten it; since its entries are facts
+     *  about file contents, a stale copy costs at most some rehashing. */
+    static TreeScanner.Status scanWorkingTree(Map<String, String> head,
+                                              Map<String, String> staged,
+                                              Set<String> removed) {
+        if (statIndex == null || INDEX_FILE.lastModified() != statIndexStamp) {
+            statIndex = StatIndex.read(INDEX_FILE);
+        }
+        TreeScanner.Status result =
+            new TreeScanner(CWD, statIndex).scan(head, staged, removed);
+        statIndex.write(INDEX_FILE);
+        statIndexStamp = INDEX_FILE.lastModified();
+        return result;
+    }
+
+    /** Replace the working file FILE with the contents of the blob with
+     *  id ID, streamed from the object store without passing through the
+     *  heap where it is stored uncompressed (see Checkout).  Throws
+     *  IllegalArgumentException if there is no such blob or in case of
+     *  problems. */
+    static void checkoutBlob(String id, File file) {
+        new Checkout(objects(), CWD).write(id, file);
+    }
+
+    /** Update the working files from those of the commit CURRENT to
+     *  those of TARGET, as checking out a branch or reset does once it has
+     *  checked that no untracked file is in the way: files that TARGET
+     *  tracks and CURRENT tracks differently or not at all are written,
+     *  and files only CURRENT tracks are deleted.  Directories whose Trees
+     *  are the same in both commits are skipped without being read, so
+     *  the cost is proportional to the difference between the commits.
+     *  Files are written several at a time (see Checkout). */
+    static void checkoutFiles(Commit current, Commit target) {
+        new Checkout(objects(), CWD).update(trees(), treeOf(current),
+                                            treeOf(target));
+    }
+
+    /** Replace the working file FILE with the conflict between the blobs
+     *  with ids HEAD, in the current branch, and OTHER, in the given
+     *  branch, as written by Merge.writeConflict.  The blobs are streamed
+     *  from the
+     *  object store into a temporary file, which is then renamed over
+     *  FILE, so neither is held in memory.  Throws
+     *  IllegalArgumentException in case of problems. */
+    static void writeConflict(File file, String head, String other) {
+        File tmp = null;
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(dir.toPath());
+            tmp = File.createTempFile(".gitlet-", ".tmp", dir);
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                                                    StandardOpenOption.WRITE)) {
+                Merge.writeConflict(objects(), head, other, out);
+            }
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /** Largest blob, in bytes, that a line-level merge reads into
+     *  memory. */
+    static final int MAX_LINE_MERGE = 8 << 20;
+
+    /** Merge the files of the commit OTHER into those of HEAD, whose split
+     *  point is SPLIT, into the working directory and TRACKED, conflicting
+     *  whole files as the merge command's specification requires.  Returns
+     *  the number of files in conflict.  See the five-argument
+     *  mergeInto. */
+    static int mergeInto(Commit split, Commit head, Commit other,
+                         Map<String, String> tracked) {
+        return mergeInto(split, head, other, tracked, false);
+    }
+
+    /** Merge the files of the commit OTHER into those of HEAD, whose split
+     *  point is SPLIT, in the working directory, as the merge command
+     *  does: files changed only in OTHER are checked out or deleted, and
+     *  files changed differently in both are replaced by their conflicts
+     *  (see Merge).  TRACKED, initially the files of HEAD by blob id, is
+     *  updated to the files the merge commit should track, conflicted
+     *  files being stored as written.  Returns the number of files left
+     *  in conflict.  Only the Trees of directories that OTHER changed and
+     *  the blobs of files that change are read, and those of conflicts
+     *  only as they are streamed.
+     *
+     *  If BYLINES, a file changed in both branches is first merged line
+     *  by line (Merge.mergeLines): if the branches changed different
+     *  lines, the result is not a conflict, and otherwise only the
+     *  conflicting hunks are marked.  Files that one branch deleted, that
+     *  look binary, or that are larger than MAX_LINE_MERGE are still
+     *  conflicted whole, as every file is if not BYLINES. */
+    static int mergeInto(Commit split, Commit head, Commit other,
+                         Map<String, String> tracked, boolean byLines) {
+        try (Trace.Phase phase = Trace.phase("merge")) {
+            return mergeInto(treeOf(split), treeOf(head), treeOf(other),
+                             tracked, byLines);
+        }
+    }
+
+    /** As for mergeInto(SPLIT, HEAD, OTHER, TRACKED, BYLINES), given the
+     *  ids of the commits' root Trees. */
+    private static int mergeInto(String split, String head, String other,
+                                 Map<String, String> tracked,
+                                 boolean byLines) {
+        return Merge.run(trees(), split, head, other, new Merge.Visitor() {
+                @Override
+                public void take(String name, String blob) {
+                    File file = join(CWD, name);
+                    file.getParentFile().mkdirs();
+                    checkoutBlob(blob, file);
+                    tracked.put(name, blob);
+                }
+
+                @Override
+                public void remove(String name) {
+                    join(CWD, name).delete();
+                    tracked.remove(name);
+                }
+
+                @Override
+                public boolean conflict(String name, String splitBlob,
+                                        String headBlob, String otherBlob) {
+                    try (Trace.Phase phase = Trace.phase("conflict")) {
+                        return resolve(name, splitBlob, headBlob, otherBlob);
+                    }
+                }
+
+                /** Write the conflict or merge of NAME, given the blob
+                 *  ids SPLITBLOB, HEADBLOB, and OTHERBLOB, and return
+                 *  true iff it remains in conflict. */
+                private boolean resolve(String name, String splitBlob,
+                                        String headBlob, String otherBlob) {
+                    File file = join(CWD, name);
+                    int conflicts = -1;
+                    if (byLines) {
+                        conflicts = mergeLines(file, splitBlob, headBlob,
+                                               otherBlob);
+                    }
+                    if (conflicts < 0) {
+                        writeConflict(file, headBlob, otherBlob);
+                    }
+                    tracked.put(name, objects().write(file));
+                    return conflicts != 0;
+                }
+            });
+    }
+
+    /** Replace the working file FILE with the line-level merge of the
+     *  blobs with ids HEAD and OTHER against SPLIT (an empty file if
+     *  null), and return the number of conflicting hunks.  Returns -1,
+     *  leaving FILE alone, if HEAD or OTHER is null or any of the blobs is
+     *  binary or too large to merge in memory. */
+    private static int mergeLines(File file, String split, String head,
+                                  String other) {
+        if (head == null || other == null) {
+            return -1;
+        }
+        byte[] base = split == null ? new byte[0] : readBlobAtMost(split);
+        byte[] ours = readBlobAtMost(head), theirs = readBlobAtMost(other);
+        if (base == null || ours == null || theirs == null
+            || Diff.isBinary(base) || Diff.isBinary(ours)
+            || Diff.isBinary(theirs)) {
+            return -1;
+        }
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        int conflicts;
+        try {
+            conflicts = Merge.mergeLines(base, ours, theirs, merged);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        writeAtomic(file, false, (Object) merged.toByteArray());
+        return conflicts;
+    }
+
+    /** Return the contents of the blob with id ID, or null if it is larger
+     *  than MAX_LINE_MERGE bytes.  Throws IllegalArgumentException if there
+     *  is no such blob. */
+    private static byte[] readBlobAtMost(String id) {
+        boolean[] tooLarge = new boolean[1];
+        ByteArrayOutputStream result = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                if (count + len > MAX_LINE_MERGE) {
+                    tooLarge[0] = true;
+                } else if (!tooLarge[0]) {
+                    super.write(b, off, len);
+                }
+            }
+        };
+        if (!objects().copyTo(id, result)) {
+            throw new IllegalArgumentException("no blob " + id);
+        }
+        return tooLarge[0] ? null : result.toByteArray();
+    }
+
+    /** Print the differences between two versions of the tracked files
+     *  (the diff command).  OPERANDS are an optional --myers (the default)
+     *  or --histogram, choosing the Diff algorithm, and then one or two
+     *  commit ids, which may be abbreviated.  Given two commits, their
+     *  files are compared, skipping directories whose Trees agree; given
+     *  one, its files are compared with those in the working directory.
+     *  Each file that differs is printed as a unified diff with three
+     *  lines of context, except that files that look binary, or are
+     *  larger than MAX_LINE_MERGE, are only reported as differing. */
+    static void diff(String... operands) {
+        checkInitialized();
+        Diff.Algorithm algorithm = Diff.Algorithm.MYERS;
+        int first = 0;
+        if (operands.length > 0 && operands[0].startsWith("--")) {
+            switch (operands[0]) {
+            case "--myers":
+                break;
+            case "--histogram":
+                algorithm = Diff.Algorithm.HISTOGRAM;
+                break;
+            default:
+                throw error("Incorrect operands.");
+            }
+            first = 1;
+        }
+        if (operands.length - first != 1 && operands.length - first != 2) {
+            throw error("Incorrect operands.");
+        }
+        Commit[] commits = new Commit[operands.length - first];
+        for (int k = 0; k < commits.length; k += 1) {
+            String id = resolveCommitId(operands[first + k]);
+            if (id == null) {
+                throw error("No commit with that id exists.");
+            }
+            commits[k] = readCommit(id);
+        }
+        BufferedOutputStream out = new BufferedOutputStream(System.out);
+        Diff.Algorithm chosen = algorithm;
+        if (commits.length == 2) {
+            Tree.compare(trees(), treeOf(commits[0]), treeOf(commits[1]),
+                         (name, inA, inB) -> diffFile(
+                             name, inA == null ? null : readBlobAtMost(inA),
+                             inA != null,
+                             inB == null ? null : readBlobAtMost(inB),
+                             inB != null, chosen, out));
+        } else {
+            for (Map.Entry<String, String> entry
+                     : commits[0].getBlobs(trees()).entrySet()) {
+                String name = entry.getKey();
+                File file = join(CWD, name);
+                if (!file.isFile()) {
+                    diffFile(name, readBlobAtMost(entry.getValue()), true,
+                             null, false, algorithm, out);
+                } else if (!entry.getValue().equals(sha1(file))) {
+                    byte[] working = file.length() > MAX_LINE_MERGE
+                        ? null : readContents(file);
+                    diffFile(name, readBlobAtMost(entry.getValue()), true,
+                             working, true, algorithm, out);
+                }
+            }
+        }
+        try {
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write to OUT the differences between the versions A and B of the
+     *  file NAME, using ALGORITHM.  INA and INB tell whether the file
+     *  exists in each version; a null version of an existing file is one
+     *  too large to compare.  Throws IllegalArgumentException in case of
+     *  problems. */
+    private static void diffFile(String name, byte[] a, boolean inA,
+                                 byte[] b, boolean inB,
+                                 Diff.Algorithm algorithm,
+                                 OutputStream out) {
+        try {
+            writeDiff(name, a, inA, b, inB, algorithm, out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** As for diffFile, but throwing any IOException from OUT. */
+    private static void writeDiff(String name, byte[] a, boolean inA,
+                                  byte[] b, boolean inB,
+                                  Diff.Algorithm algorithm, OutputStream out)
+        throws IOException {
+        String header = String.format("diff --git a/%s b/%s\n", name, name);
+        out.write(header.getBytes(StandardCharsets.UTF_8));
+        if ((inA && a == null) || (inB && b == null)) {
+            out.write(String.format("Files a/%s and b/%s differ\n", name,
+                                    name).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        a = inA ? a : new byte[0];
+        b = inB ? b : new byte[0];
+        if (Diff.isBinary(a) || Diff.isBinary(b)) {
+            out.write(String.format("Binary files a/%s and b/%s differ\n",
+                                    name, name)
+                      .getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String files = String.format("--- %s\n+++ %s\n",
+                                     inA ? "a/" + name : "/dev/null",
+                                     inB ? "b/" + name : "/dev/null");
+        out.write(files.getBytes(StandardCharsets.UTF_8));
+        Diff.Lines[] lines = Diff.Lines.of(a, b);
+        List<Diff.Edit> edits;
+        try (Trace.Phase phase = Trace.phase("diff")) {
+            edits = Diff.diff(lines[0], lines[1], algorithm);
+        }
+        Diff.writeUnified(lines[0], lines[1], edits, 3, out);
+    }
+
+    /** Record the repository whose .gitlet directory is DIR, with '/' as
+     *  the separator, as the remote NAME (the add-remote command). */
+    static void addRemote(String name, String dir) {
+        checkInitialized();
+        Map<String, String> remotes = remotes();
+        if (remotes.containsKey(name)) {
+            throw error("A remote with that name already exists.");
+        }
+        remotes.put(name, dir.replace('/', File.separatorChar));
+        writeRemotes(remotes);
+    }
+
+    /** Forget the remote NAME (the rm-remote command). */
+    static void rmRemote(String name) {
+        checkInitialized();
+        Map<String, String> remotes = remotes();
+        if (remotes.remove(name) == null) {
+            throw error("A remote with that name does not exist.");
+        }
+        writeRemotes(remotes);
+    }
+
+    /** Copy the commit whose id starts with PREFIX, and everything it
+     *  reaches, to the remote NAME, sending only the objects the remote
+     *  lacks (the push command).  Until there are branches, the commit is
+     *  named by its id rather than by a branch.  The remote must be locked
+     *  exclusively (see lock). */
+    static void push(String name, String prefix) {
+        checkInitialized();
+        File dir = remoteDir(name);
+        String id = resolveCommitId(prefix);
+        if (id == null) {
+            throw error("No commit with that id exists.");
+        }
+        Transfer.Stores remote = Transfer.Stores.open(dir);
+        List<List<String>> sent = Transfer.send(localStores(), remote,
+                                                List.of(id));
+        indexMessages(sent.get(Transfer.COMMIT), remote,
+                      new MessageIndex(join(dir, "messages"),
+                                       remote.journal()));
+        remote.journal().commit();
+    }
+
+    /** Copy the commit of the remote NAME whose id starts with PREFIX, and
+     *  everything it reaches, into this repository, receiving only the
+     *  objects it lacks, and print the commit's full id (the fetch
+     *  command).  The remote must be locked, at least shared (see
+     *  lock). */
+    static void fetch(String name, String prefix) {
+        checkInitialized();
+        File dir = remoteDir(name);
+        Transfer.Stores remote = Transfer.Stores.open(dir);
+        List<String> ids = isIdPrefix(prefix)
+            ? remote.get(Transfer.COMMIT).idsWithPrefix(prefix)
+            : List.of();
+        if (ids.size() != 1) {
+            throw error("That remote does not have that commit.");
+        }
+        List<List<String>> received =
+            Transfer.send(remote, localStores(), ids);
+        indexMessages(received.get(Transfer.COMMIT), localStores(),
+                      messages());
+        message("%s", ids.get(0));
+    }
+
+    /** Return the stores of this repository, as a Transfer sees them. */
+    private static Transfer.Stores localStores() {
+        return new Transfer.Stores(objects(), trees(), commits(), journal());
+    }
+
+    /** Enter the commits IDS, from STORES, in the message index INDEX,
+     *  if it exists. */
+    private static void indexMessages(List<String> ids,
+                                      Transfer.Stores stores,
+                                      MessageIndex index) {
+        if (!index.exists()) {
+            return;
+        }
+        for (String id : ids) {
+            byte[] data = stores.get(Transfer.COMMIT).read(id);
+            index.add(id, CommitCodec.decode(data).getMessage());
+        }
+    }
+
+    /** Return the .gitlet directory of the remote NAME.  Reports an error
+     *  if there is no such remote, if its directory is not a Gitlet
+     *  repository's, or if it is this repository's own. */
+    private static File remoteDir(String name) {
+        String dir = remotes().get(name);
+        if (dir == null) {
+            throw error("A remote with that name does not exist.");
+        }
+        File result = new File(dir);
+        if (!result.isAbsolute()) {
+            result = join(CWD, dir);
+        }
+        if (!join(result, "objects").isDirectory()
+            || !join(result, "commits").isDirectory()) {
+            throw error("Remote directory not found.");
+        }
+        try {
+            if (result.getCanonicalFile()
+                .equals(GITLET_DIR.getCanonicalFile())) {
+                throw error("A remote cannot be this repository.");
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result.toPath().normalize().toFile();
+    }
+
+    /** Return the .gitlet directory of the remote NAME, as remoteDir
+     *  would, or null if remoteDir would report an error. */
+    private static File lockableRemote(String name) {
+        try {
+            return remoteDir(name);
+        } catch (GitletException excp) {
+            return null;
+        }
+    }
+
+    /** Return the remotes of this repository, from name to directory, in
+     *  name order.  REMOTES_FILE holds a line of each name, a tab, and the
+     *  directory. */
+    private static Map<String, String> remotes() {
+        TreeMap<String, String> result = new TreeMap<>();
+        byte[] data = journal().readContents(REMOTES_FILE);
+        if (data != null) {
+            for (String line
+                     : new String(data, StandardCharsets.UTF_8).split("\n")) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    result.put(line.substring(0, tab),
+                               line.substring(tab + 1));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Replace the recorded remotes with REMOTES. */
+    private static void writeRemotes(Map<String, String> remotes) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> entry : remotes.entrySet()) {
+            text.append(entry.getKey()).append('\t')
+                .append(entry.getValue()).append('\n');
+        }
+        journal().write(REMOTES_FILE,
+                        text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Report the standard message as an error unless the current
+     *  directory is an initialized Gitlet working directory. */
+    static void checkInitialized() {
+        if (!GITLET_DIR.isDirectory()) {
+            throw error("Not in an initialized Gitlet directory.");
+        }
+    }
+
+    /** Pack all loose objects (the gc command).  Objects are packed as
+     *  they are, so that each id stays the SHA-1 of its object's contents;
+     *  commits that list their files rather than referring to a Tree keep
+     *  doing so.  Then rebuild the commit graph and the reachability
+     *  bitmaps, and build the message index if there is none.  Until there
+     *  are branches to name them, the tips given bitmaps are the heads of
+     *  the history: the commits that are no commit's parent. */
+    static void gc() {
+        checkInitialized();
+        try (Trace.Phase phase = Trace.phase("pack objects")) {
+            objects().gc();
+        }
+        try (Trace.Phase phase = Trace.phase("pack commits")) {
+            commits().gc();
+        }
+        try (Trace.Phase phase = Trace.phase("pack trees")) {
+            trees().gc();
+        }
+        CommitGraph graph;
+        try (Trace.Phase phase = Trace.phase("commit graph")) {
+            CommitGraph.write(COMMIT_GRAPH_FILE, commits());
+            graph = CommitGraph.read(COMMIT_GRAPH_FILE);
+        }
+        try (Trace.Phase phase = Trace.phase("bitmaps")) {
+            List<String> tips = new ArrayList<>();
+            for (int pos : graph.heads()) {
+                tips.add(graph.id(pos));
+            }
+            ReachabilityIndex.write(BITMAPS_FILE, graph, localStores(),
+                                    tips);
+        }
+        try (Trace.Phase phase = Trace.phase("message index")) {
+            messages().rebuild(commits());
+        }
+    }
+
+    /** Return the reachability bitmaps written by the last gc, or null if
+     *  there are none or commits have been packed since.  They cover only
+     *  the commits, blobs, and Trees that existed at the time. */
+    static ReachabilityIndex reachability() {
+        return ReachabilityIndex.read(BITMAPS_FILE,
+                                      CommitGraph.read(COMMIT_GRAPH_FILE));
+    }
 
     /* TODO: fill in the rest of this class. */
 }
@@ -0,0 +1,159 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** A lock on a whole repository, held for the length of a command, so
+ *  that gitlet processes sharing a .gitlet directory do not interleave
+ *  their changes.  It is a FileChannel lock on the file .gitlet/lock:
+ *  commands that only read take it shared, so any number of them run at
+ *  once, and commands that change the repository take it exclusive.  The
+ *  operating system releases it if the process dies.
+ *
+ *  Objects need no lock to be read.  They never change once written,
+ *  loose ones appear by atomic rename and packs are complete before their
+ *  indices are, so a reader sees an object whole or not at all.  What the
+ *  lock guards is everything else: refs, the staging area, the journal,
+ *  and the removal of objects by gc, which must not pull a pack from
+ *  under a reader.
+ *
+ *  Recovering a journal writes, so a shared lock is never handed out
+ *  over a journal that a crash left unfinished: the repository is first
+ *  locked exclusively and its journal recovered.  A command that locks
+ *  two repositories, such as push, takes both locks at once, in order of
+ *  canonical path, so that two such commands cannot deadlock. */
+class RepositoryLock implements AutoCloseable {
+
+    /** Name of the lock file within a .gitlet directory. */
+    static final String LOCK_NAME = "lock";
+    /** Name of the journal file within a .gitlet directory. */
+    static final String JOURNAL_NAME = "journal";
+
+    /** A lock held through CHANNELS as LOCKS. */
+    private RepositoryLock(List<FileChannel> channels, List<FileLock> locks) {
+        _channels = channels;
+        _locks = locks;
+    }
+
+    /** Return a lock on the repository whose .gitlet directory is DIR,
+     *  shared if SHARED and otherwise exclusive, waiting until it can be
+     *  had.  Reports an error if this process already holds the lock, and
+     *  throws IllegalArgumentException in case of other problems. */
+    static RepositoryLock acquire(File dir, boolean shared) {
+        return acquire(Map.of(dir, shared));
+    }
+
+    /** Return a lock on each repository whose .gitlet directory is a key
+     *  of DIRS, shared if its value is true and otherwise exclusive,
+     *  waiting until all can be had.  The locks are taken in order of
+     *  canonical path.  Keys naming the same directory are locked once,
+     *  exclusively if any of them asks for that.  Reports an error if this
+     *  process already holds one of the locks, and throws
+     *  IllegalArgumentException in case of other problems. */
+    static RepositoryLock acquire(Map<File, Boolean> dirs) {
+        TreeMap<File, Boolean> ordered = new TreeMap<>();
+        try {
+            for (Map.Entry<File, Boolean> entry : dirs.entrySet()) {
+                ordered.merge(entry.getKey().getCanonicalFile(),
+                              entry.getValue(), Boolean::logicalAnd);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        RepositoryLock result =
+            new RepositoryLock(new ArrayList<>(), new ArrayList<>());
+        try {
+            for (Map.Entry<File, Boolean> entry : ordered.entrySet()) {
+                result.lock(entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException excp) {
+            result.close();
+            throw excp;
+        }
+        return result;
+    }
+
+    /** Add to this lock one on DIR, shared if SHARED.  A shared lock is
+     *  only kept once DIR's journal needs no recovery. */
+    private void lock(File dir, boolean shared) {
+        File journal = new File(dir, JOURNAL_NAME);
+        while (true) {
+            FileChannel channel = open(dir);
+            FileLock lock;
+            try {
+                lock = channel.lock(0, Long.MAX_VALUE, shared);
+            } catch (OverlappingFileLockException excp) {
+                close(channel);
+                throw Utils.error("The repository %s is already in use.",
+                                  dir.getParentFile());
+            } catch (IOException excp) {
+                close(channel);
+                throw new IllegalArgumentException(
+                    "cannot lock " + dir + ": " + excp.getMessage());
+            }
+            if (!shared || !Journal.needsRecovery(journal)) {
+                _channels.add(channel);
+                _locks.add(lock);
+                return;
+            }
+            close(channel);
+            try (RepositoryLock exclusive = acquire(dir, false)) {
+                Journal.open(journal);
+            }
+        }
+    }
+
+    /** Return the open lock file of DIR.  Throws IllegalArgumentException
+     *  in case of problems. */
+    private static FileChannel open(File dir) {
+        try {
+            return FileChannel.open(new File(dir, LOCK_NAME).toPath(),
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(
+                "cannot lock " + dir + ": " + excp.getMessage());
+        }
+    }
+
+    /** Release this lock. */
+    @Override
+    public void close() {
+        for (int i = _locks.size() - 1; i >= 0; i -= 1) {
+            try {
+                _locks.get(i).release();
+            } catch (IOException excp) {
+                /* Ignore: closing the channel releases it as well. */
+            }
+            close(_channels.get(i));
+        }
+        _locks.clear();
+        _channels.clear();
+    }
+
+    /** Close CHANNEL, if not null, ignoring errors. */
+    private static void close(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException excp) {
+            /* Ignore: nothing more can be done. */
+        }
+    }
+
+    /** The open lock files, in the order they were locked. */
+    private final List<FileChannel> _channels;
+    /** The locks on them. */
+    private final List<FileLock> _locks;
+}
@@ -0,0 +1,78 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/** Tests of RepositoryLock. */
+public class RepositoryLockTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void aLockHeldByThisProcessIsAGitletError() throws IOException {
+        File dir = tmp.newFolder(".gitlet");
+        try (RepositoryLock lock = RepositoryLock.acquire(dir, true)) {
+            RepositoryLock.acquire(dir, true).close();
+            fail("a lock was taken twice");
+        } catch (GitletException excp) {
+            assertTrue(excp.getMessage().contains("already in use"));
+        }
+        RepositoryLock.acquire(dir, false).close();
+    }
+
+    @Test
+    public void twoRepositoriesAreLockedTogether() throws IOException {
+        File a = tmp.newFolder("a"), b = tmp.newFolder("b");
+        RepositoryLock both =
+            RepositoryLock.acquire(Map.of(b, false, a, true));
+        try {
+            RepositoryLock.acquire(a, false).close();
+            fail("a was not locked");
+        } catch (GitletException excp) {
+            /* Expected. */
+        }
+        both.close();
+        RepositoryLock.acquire(a, false).close();
+        RepositoryLock.acquire(b, false).close();
+    }
+
+    @Test
+    public void oneDirectoryUnderTwoNamesIsLockedOnce() throws IOException {
+        File dir = tmp.newFolder("repo");
+        File alias = new File(new File(dir, ".."), "repo");
+        RepositoryLock.acquire(Map.of(dir, true, alias, false)).close();
+    }
+
+    @Test
+    public void aSharedLockRecoversTheJournalFirst() throws IOException {
+        File dir = tmp.newFolder(".gitlet");
+        File journalFile = new File(dir, RepositoryLock.JOURNAL_NAME);
+        File a = new File(dir, "a.txt"), b = new File(dir, "b");
+        assertTrue(b.mkdir());
+        Journal journal = Journal.open(journalFile);
+        journal.write(a, "A".getBytes());
+        journal.write(b, "B".getBytes());
+        try {
+            journal.commit();
+            fail("b, a directory, was overwritten");
+        } catch (IllegalArgumentException excp) {
+            /* A crash after the batch was forced. */
+        }
+        assertTrue(b.delete());
+        assertTrue(Journal.needsRecovery(journalFile));
+
+        try (RepositoryLock lock = RepositoryLock.acquire(dir, true)) {
+            assertFalse(Journal.needsRecovery(journalFile));
+            assertEquals("A", Utils.readContentsAsString(a));
+            assertEquals("B", Utils.readContentsAsString(b));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Measures the wall-clock time of short gitlet commands, each run as
+ *  its own JVM as the tests and users run them, where startup and class
+ *  loading dominate.  Usage:
+ *      java gitlet.StartupBenchmark CLASSPATH [ARCHIVE [RUNS]]
+ *  Each of init, add, commit, and status is run RUNS times (default 10)
+ *  in a fresh temporary repository, with CLASSPATH, first without an
+ *  AppCDS archive and then, if ARCHIVE is given, with
+ *  -XX:SharedArchiveFile=ARCHIVE.  An archive only applies when
+ *  CLASSPATH is the jar it was made from (see CdsTraining). */
+public class StartupBenchmark {
+
+    /** The commands timed, in the order they are run. */
+    private static final String[][] COMMANDS = {
+        { "init" },
+        { "add", "wug.txt" },
+        { "commit", "added wug" },
+        { "status" },
+    };
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args)
+        throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: java gitlet.StartupBenchmark "
+                               + "CLASSPATH [ARCHIVE [RUNS]]");
+            System.exit(1);
+        }
+        String classpath = args[0];
+        String archive = args.length > 1 ? args[1] : null;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        System.out.printf("%d runs, mean ms per command%n", runs);
+        System.out.printf("%-10s %10s", "command", "plain");
+        if (archive != null) {
+            System.out.printf(" %10s", "appcds");
+        }
+        System.out.println();
+        double[] plain = time(classpath, null, runs);
+        double[] shared = archive == null ? null
+            : time(classpath, archive, runs);
+        for (int i = 0; i < COMMANDS.length; i += 1) {
+            System.out.printf("%-10s %10.1f", COMMANDS[i][0], plain[i]);
+            if (shared != null) {
+                System.out.printf(" %10.1f", shared[i]);
+            }
+            System.out.println();
+        }
+    }
+
+    /** Return the mean time in milliseconds of each of COMMANDS, run RUNS
+     *  times in turn, each time in a fresh repository, with CLASSPATH and,
+     *  if not null, the CDS archive ARCHIVE. */
+    private static double[] time(String classpath, String archive,
+                                 int runs)
+        throws IOException, InterruptedException {
+        double[] result = new double[COMMANDS.length];
+        for (int r = 0; r < runs; r += 1) {
+            File dir = Files.createTempDirectory("gitlet-startup").toFile();
+            try {
+                Utils.writeContents(Utils.join(dir, "wug.txt"), "wug\n");
+                for (int i = 0; i < COMMANDS.length; i += 1) {
+                    List<String> command = new ArrayList<>();
+                    command.add(System.getProperty("java.home")
+                                + File.separator + "bin" + File.separator
+                                + "java");
+                    if (archive != null) {
+                        command.add("-XX:SharedArchiveFile=" + archive);
+                    }
+                    command.add("-cp");
+                    command.add(classpath);
+                    command.add("gitlet.Main");
+                    command.addAll(List.of(COMMANDS[i]));
+                    ProcessBuilder builder = new ProcessBuilder(command)
+                        .directory(dir)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT);
+                    long start = System.nanoTime();
+                    builder.start().waitFor();
+                    result[i] += (System.nanoTime() - start) / 1e6 / runs;
+                }
+            } finally {
+                delete(dir);
+            }
+        }
+        return result;
+    }
+
+    /** Delete FILE and, if it is a directory, everything in it. */
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,232 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/** A cache of the blob ids of working files, keyed by their stat data,
+ *  kept in .gitlet/index in the manner of git's index.
+ *
+ *  For each file name the index records the size, modification time,
+ *  and (where the file system reports one) inode number that the file
+ *  had when it was last hashed, together with the resulting blob id.
+ *  A file whose stat data still match needs no rehashing.
+ *
+ *  A file modified within the same second in which the index was last
+ *  written might be modified again without its stat data changing, so
+ *  such "racy" entries are never trusted and their files are always
+ *  rehashed.
+ *
+ *  The file format is the magic number "GSTI", a version int, the time
+ *  at which the index was written in milliseconds, an entry count, and
+ *  then, for each entry in name order, a 2-byte name length, the UTF-8
+ *  name, the size, the modification time in nanoseconds, and the inode
+ *  number as longs, and the raw 20-byte blob id. */
+class StatIndex {
+
+    /** Magic number ("GSTI") at the start of an index file. */
+    private static final int MAGIC = 0x47535449;
+    /** Current format version. */
+    private static final int VERSION = 1;
+
+    /** The stat data of a file that matter to the index. */
+    static class Stat {
+        /** Stat data SIZE, MTIME (nanoseconds), and INODE. */
+        Stat(long size, long mtime, long inode) {
+            this.size = size;
+            this.mtime = mtime;
+            this.inode = inode;
+        }
+
+        /** Return true iff OTHER has the same stat data as this. */
+        boolean sameAs(Stat other) {
+            return size == other.size && mtime == other.mtime
+                && inode == other.inode;
+        }
+
+        /** Size of the file in bytes. */
+        final long size;
+        /** Modification time in nanoseconds since the epoch. */
+        final long mtime;
+        /** Inode number, or 0 if unavailable. */
+        final long inode;
+    }
+
+    /** An empty index, as if last written at time 0. */
+    StatIndex() {
+        _writeTime = 0;
+    }
+
+    /** Return the index stored in FILE, or an empty index if FILE does not
+     *  exist or cannot be read.  A damaged index costs only rehashing. */
+    static StatIndex read(File file) {
+        StatIndex result = new StatIndex();
+        if (!file.isFile()) {
+            return result;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Utils.readContents(file));
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return result;
+            }
+            result._writeTime = in.getLong();
+            int count = in.getInt();
+            for (int i = 0; i < count; i += 1) {
+                byte[] name = new byte[in.getShort() & 0xffff];
+                in.get(name);
+                Stat stat = new Stat(in.getLong(), in.getLong(), in.getLong());
+                ObjectId id = ObjectId.fromWords(in.getLong(), in.getLong(),
+                                                 in.getInt());
+                result._entries.put(new String(name, StandardCharsets.UTF_8),
+                                    new Entry(stat, id));
+            }
+            return result;
+        } catch (BufferUnderflowException | IllegalArgumentException excp) {
+            return new StatIndex();
+        }
+    }
+
+    /** Write this index to FILE atomically: it is written to a temporary
+     *  file that then replaces FILE.  Does nothing if this index has not
+     *  changed since it was read. */
+    void write(File file) {
+        if (!_changed) {
+            return;
+        }
+        try {
+            Path tmp = Files.createTempFile(file.getParentFile().toPath(),
+                                            "index-", ".tmp");
+            long now = System.currentTimeMillis();
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(now);
+                out.writeInt(_entries.size());
+                for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+                    byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(name.length);
+                    out.write(name);
+                    Entry entry = e.getValue();
+                    out.writeLong(entry.stat.size);
+                    out.writeLong(entry.stat.mtime);
+                    out.writeLong(entry.stat.inode);
+                    out.write(entry.id.toBytes());
+                }
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            _writeTime = now;
+            _changed = false;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the current stat data of FILE, or null if it is not a
+     *  normal file. */
+    static Stat stat(File file) {
+        Path path = file.toPath();
+        try {
+            if (_unixAttributes) {
+                try {
+                    Map<String, Object> attrs = Files.readAttributes(
+                        path, "unix:size,lastModifiedTime,ino,isRegularFile",
+                        LinkOption.NOFOLLOW_LINKS);
+                    if (!(Boolean) attrs.get("isRegularFile")) {
+                        return null;
+                    }
+                    return new Stat((Long) attrs.get("size"),
+                                    nanos(attrs.get("lastModifiedTime")),
+                                    (Long) attrs.get("ino"));
+                } catch (UnsupportedOperationException excp) {
+                    _unixAttributes = false;
+                }
+            }
+            BasicFileAttributes attrs =
+                Files.readAttributes(path, BasicFileAttributes.class,
+                                     LinkOption.NOFOLLOW_LINKS);
+            if (!attrs.isRegularFile()) {
+                return null;
+            }
+            return new Stat(attrs.size(), nanos(attrs.lastModifiedTime()), 0);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Return the blob id recorded for file NAME if its current stat data
+     *  are STAT and the entry is not racy, and otherwise null. */
+    String lookup(String name, Stat stat) {
+        Entry entry = _entries.get(name);
+        if (entry == null || stat == null || !entry.stat.sameAs(stat)
+            || isRacy(entry.stat)) {
+            return null;
+        }
+        return entry.id.toString();
+    }
+
+    /** Record that file NAME, whose stat data were STAT when it was hashed,
+     *  has blob id ID. */
+    void update(String name, Stat stat, String id) {
+        _entries.put(name, new Entry(stat, ObjectId.fromHex(id)));
+        _changed = true;
+    }
+
+    /** Forget all entries except those for the files in NAMES. */
+    void retain(Collection<String> names) {
+        _changed |= _entries.keySet().retainAll(names);
+    }
+
+    /** Return true iff a file whose stat data are STAT might have been
+     *  modified since the index was written without STAT changing: that
+     *  is, if it was modified no earlier than the start of the second in
+     *  which the index was written. */
+    private boolean isRacy(Stat stat) {
+        return stat.mtime / 1_000_000_000L >= _writeTime / 1000;
+    }
+
+    /** Return the time ATTR, a FileTime, in nanoseconds. */
+    private static long nanos(Object attr) {
+        return ((FileTime) attr).to(TimeUnit.NANOSECONDS);
+    }
+
+    /** One index entry. */
+    private static class Entry {
+        /** An entry for a file with stat data STAT and blob id ID. */
+        Entry(Stat stat, ObjectId id) {
+            this.stat = stat;
+            this.id = id;
+        }
+
+        /** Stat data of the file when hashed. */
+        final Stat stat;
+        /** Blob id of the file's contents when hashed. */
+        final ObjectId id;
+    }
+
+    /** True until we find that the file system lacks the "unix" attribute
+     *  view. */
+    private static volatile boolean _unixAttributes = true;
+
+    /** Entries by file name. */
+    private final TreeMap<String, Entry> _entries = new TreeMap<>();
+    /** Time at which this index was last written, in milliseconds. */
+    private long _writeTime;
+    /** True iff this index has changed since it was read. */
+    private boolean _changed;
+}
@@ -0,0 +1,94 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests of StatIndex, and of its rule that racy entries are never
+ *  trusted. */
+public class StatIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return a new file holding TEXT, last modified AGE milliseconds
+     *  ago. */
+    private File file(String text, long age) throws IOException {
+        File result = tmp.newFile();
+        Utils.writeContents(result, text);
+        assertTrue(result.setLastModified(System.currentTimeMillis() - age));
+        return result;
+    }
+
+    /** Return INDEX as written to and read back from a new file. */
+    private StatIndex reread(StatIndex index) throws IOException {
+        File file = new File(tmp.newFolder(), "index");
+        index.write(file);
+        return StatIndex.read(file);
+    }
+
+    @Test
+    public void oldEntriesAreTrusted() throws IOException {
+        File wug = file("wug", 10_000);
+        StatIndex.Stat stat = StatIndex.stat(wug);
+        StatIndex index = new StatIndex();
+        index.update("wug.txt", stat, Utils.sha1("wug"));
+        index = reread(index);
+        assertEquals(Utils.sha1("wug"),
+                     index.lookup("wug.txt", StatIndex.stat(wug)));
+        assertNull(index.lookup("other.txt", StatIndex.stat(wug)));
+        assertNull(index.lookup("wug.txt", null));
+    }
+
+    @Test
+    public void racyEntriesAreNotTrusted() throws IOException {
+        File wug = file("wug", 0);
+        StatIndex index = new StatIndex();
+        index.update("wug.txt", StatIndex.stat(wug), Utils.sha1("wug"));
+        assertNull("an unwritten index trusts nothing",
+                   index.lookup("wug.txt", StatIndex.stat(wug)));
+        index = reread(index);
+        assertNull("a file modified in the second the index was written",
+                   index.lookup("wug.txt", StatIndex.stat(wug)));
+    }
+
+    @Test
+    public void changedFilesMiss() throws IOException {
+        File wug = file("wug", 10_000);
+        StatIndex index = new StatIndex();
+        index.update("wug.txt", StatIndex.stat(wug), Utils.sha1("wug"));
+        index = reread(index);
+        Utils.writeContents(wug, "not a wug");
+        assertTrue(wug.setLastModified(System.currentTimeMillis() - 5_000));
+        assertNull(index.lookup("wug.txt", StatIndex.stat(wug)));
+    }
+
+    @Test
+    public void retainDropsOtherEntries() throws IOException {
+        File wug = file("wug", 10_000);
+        StatIndex index = new StatIndex();
+        index.update("a.txt", StatIndex.stat(wug), Utils.sha1("wug"));
+        index.update("b.txt", StatIndex.stat(wug), Utils.sha1("wug"));
+        index.retain(List.of("b.txt"));
+        index = reread(index);
+        assertNull(index.lookup("a.txt", StatIndex.stat(wug)));
+        assertEquals(Utils.sha1("wug"),
+                     index.lookup("b.txt", StatIndex.stat(wug)));
+    }
+
+    @Test
+    public void damagedIndexIsEmpty() throws IOException {
+        File file = tmp.newFile("index");
+        Utils.writeContents(file, "GSTI but not an index");
+        File wug = file("wug", 10_000);
+        assertNull(StatIndex.read(file).lookup("wug.txt",
+                                               StatIndex.stat(wug)));
+        assertNull(StatIndex.stat(tmp.getRoot()));
+    }
+}
@@ -0,0 +1,97 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests that the streaming hashes of Utils and ObjectStore.write(File)
+ *  agree with hashing whole byte arrays. */
+public class StreamingHashTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Sizes around the streaming buffer and the journaling limit. */
+    private static final int[] SIZES = {
+        0, 1, Utils.STREAM_BUFFER_SIZE - 1, Utils.STREAM_BUFFER_SIZE,
+        Utils.STREAM_BUFFER_SIZE + 1, 3 * Utils.STREAM_BUFFER_SIZE,
+        ObjectStore.MAX_JOURNALED_FILE, ObjectStore.MAX_JOURNALED_FILE + 1,
+        ObjectStore.MAX_JOURNALED_FILE + Utils.STREAM_BUFFER_SIZE + 7,
+        (int) ObjectStore.MIN_CHUNKED_FILE - 1
+    };
+
+    /** Return a new file holding N random bytes from a generator seeded
+     *  with N. */
+    private File file(int n) throws IOException {
+        byte[] data = new byte[n];
+        new Random(n).nextBytes(data);
+        File result = tmp.newFile();
+        Utils.writeContents(result, (Object) data);
+        return result;
+    }
+
+    /** An InputStream that returns at most 1000 bytes per read. */
+    private static class Trickle extends FilterInputStream {
+        /** A stream of the contents of IN, a little at a time. */
+        Trickle(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1000));
+        }
+    }
+
+    @Test
+    public void streamsHashLikeArrays() throws IOException {
+        for (int size : SIZES) {
+            File file = file(size);
+            byte[] data = Utils.readContents(file);
+            String expected = Utils.sha1((Object) data);
+            assertEquals("file of " + size, expected, Utils.sha1(file));
+            assertEquals("stream of " + size, expected,
+                         Utils.sha1(new ByteArrayInputStream(data)));
+            assertEquals("trickle of " + size, expected, Utils.sha1(
+                new Trickle(new ByteArrayInputStream(data))));
+        }
+    }
+
+    @Test
+    public void storedFilesHaveTheirContentsIds() throws IOException {
+        File root = tmp.newFolder();
+        Journal journal = Journal.open(new File(root, "journal"));
+        ObjectStore[] stores = {
+            new ObjectStore(new File(root, "plain")),
+            new ObjectStore(new File(root, "deflate"), Codec.DEFLATE),
+            new ObjectStore(new File(root, "journaled"), Codec.LZ4, journal)
+        };
+        for (int size : SIZES) {
+            File file = file(size);
+            byte[] data = Utils.readContents(file);
+            String expected = Utils.sha1((Object) data);
+            for (ObjectStore store : stores) {
+                assertEquals(expected, store.write(file));
+                assertArrayEquals(data, store.read(expected));
+            }
+            File loose = stores[2].looseFile(expected);
+            assertEquals(size > ObjectStore.MAX_JOURNALED_FILE,
+                         loose.isFile());
+        }
+        journal.commit();
+        for (int size : SIZES) {
+            byte[] data = Utils.readContents(file(size));
+            assertArrayEquals(data,
+                              stores[2].read(Utils.sha1((Object) data)));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/** Generates a synthetic repository of a given Shape, for benchmarks.
+ *  Usage, in an empty directory, which becomes the repository:
+ *      java gitlet.SyntheticRepository [FILES [COMMITS [BRANCHES
+ *          [MERGE_EVERY [SIZE [SEED]]]]]]
+ *  The initial commit tracks FILES files (default 1000) of about SIZE
+ *  bytes (default 1024) each, 100 to a directory.  Then COMMITS commits
+ *  (default 200) are made round-robin on BRANCHES lines of history
+ *  (default 3), each changing 1% of the files (at least one).  After
+ *  every MERGE_EVERY commits (default 10; 0 for never), one of the other
+ *  branches is merged into the first, keeping the first's version of any
+ *  conflicting file, and then continues from the merge.  Finally the
+ *  first branch's files are checked out, and 1% of them are modified.
+ *  Random choices come from SEED (default 61), so a Shape always gives
+ *  the same repository.
+ *
+ *  There are no branch refs yet, so the commits of interest are printed
+ *  instead, one per line as a name and an id: "first" (the initial
+ *  commit), "head" (the tip of the first branch), and "branch" (the tip
+ *  of the last branch that differs from head, if any does). */
+public class SyntheticRepository {
+
+    /** The configurable shape of a synthetic repository. */
+    static class Shape {
+        /** The Shape given by ARGS[FROM ..] as in the class comment, with
+         *  the defaults for those not given. */
+        Shape(String[] args, int from) {
+            files = arg(args, from, 1000);
+            commits = arg(args, from + 1, 200);
+            branches = Math.max(1, arg(args, from + 2, 3));
+            mergeEvery = arg(args, from + 3, 10);
+            size = arg(args, from + 4, 1024);
+            seed = arg(args, from + 5, 61);
+        }
+
+        /** Return this Shape as arguments for the Shape constructor. */
+        List<String> toArgs() {
+            return List.of(Integer.toString(files), Integer.toString(commits),
+                           Integer.toString(branches),
+                           Integer.toString(mergeEvery),
+                           Integer.toString(size), Integer.toString(seed));
+        }
+
+        /** Return this Shape as a JSON object. */
+        String toJson() {
+            return String.format("{\"files\": %d, \"commits\": %d, "
+                                 + "\"branches\": %d, \"mergeEvery\": %d, "
+                                 + "\"size\": %d, \"seed\": %d}",
+                                 files, commits, branches, mergeEvery, size,
+                                 seed);
+        }
+
+        /** Return ARGS[K] as an int, or DEFAULTVALUE if there is none. */
+        private static int arg(String[] args, int k, int defaultValue) {
+            return k < args.length ? Integer.parseInt(args[k])
+                : defaultValue;
+        }
+
+        /** Number of files in the initial commit. */
+        final int files;
+        /** Number of commits after the first, not counting merges. */
+        final int commits;
+        /** Number of lines of history. */
+        final int branches;
+        /** Number of commits between merges, or 0 for none. */
+        final int mergeEvery;
+        /** Approximate size of each file in bytes. */
+        final int size;
+        /** Seed of the random choices. */
+        final int seed;
+    }
+
+    /** Generate the repository described in the class comment in the
+     *  current directory, using ARGS. */
+    public static void main(String[] args) {
+        if (Repository.GITLET_DIR.exists()) {
+            System.err.println("Already a gitlet repository.");
+            System.exit(1);
+        }
+        Map<String, String> commits = generate(new Shape(args, 0));
+        for (Map.Entry<String, String> entry : commits.entrySet()) {
+            System.out.println(entry.getKey() + " " + entry.getValue());
+        }
+    }
+
+    /** Generate a repository of SHAPE in Repository.CWD, and return the
+     *  commits of interest by name, as described in the class comment. */
+    static Map<String, String> generate(Shape shape) {
+        Repository.GITLET_DIR.mkdirs();
+        Random random = new Random(shape.seed);
+        TreeMap<String, String> initial = new TreeMap<>();
+        for (int i = 0; i < shape.files; i += 1) {
+            initial.put(name(i), blob(random, shape.size));
+        }
+        String first = Repository.writeCommit(
+            new Commit("initial commit", new Date(0), List.of(), initial));
+        Repository.finish();
+
+        String[] tips = new String[shape.branches];
+        List<TreeMap<String, String>> files = new ArrayList<>();
+        List<TreeMap<String, String>> splits = new ArrayList<>();
+        for (int b = 0; b < shape.branches; b += 1) {
+            tips[b] = first;
+            files.add(new TreeMap<>(initial));
+            splits.add(initial);
+        }
+        int changes = Math.max(1, shape.files / 100);
+        for (int i = 1; i <= shape.commits; i += 1) {
+            int b = i % shape.branches;
+            TreeMap<String, String> mine = files.get(b);
+            for (int k = 0; k < changes; k += 1) {
+                mine.put(name(random.nextInt(shape.files)),
+                         blob(random, shape.size));
+            }
+            tips[b] = Repository.writeCommit(
+                new Commit("Change number " + i, new Date(i * 60000L),
+                           List.of(tips[b]), mine));
+            if (shape.branches > 1 && shape.mergeEvery > 0
+                && i % shape.mergeEvery == 0) {
+                int m = 1 + (i / shape.mergeEvery) % (shape.branches - 1);
+                TreeMap<String, String> merged = merge(
+                    splits.get(m), files.get(0), files.get(m));
+                tips[0] = Repository.writeCommit(
+                    new Commit("Merged branch " + m, new Date(i * 60000L),
+                               List.of(tips[0], tips[m]), merged));
+                tips[m] = tips[0];
+                files.set(0, merged);
+                files.set(m, new TreeMap<>(merged));
+                splits.set(m, merged);
+            }
+            Repository.finish();
+        }
+
+        Commit none = new Commit("", new Date(0), List.of(), Map.of());
+        Repository.checkoutFiles(none, Repository.readCommit(tips[0]));
+        for (int k = 0; k < changes; k += 1) {
+            String name = name(random.nextInt(shape.files));
+            Utils.writeContents(Utils.join(Repository.CWD, name),
+                                Utils.readContentsAsString(
+                                    Utils.join(Repository.CWD, name))
+                                + "a working change\n");
+        }
+        Repository.finish();
+
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("first", first);
+        result.put("head", tips[0]);
+        String branch = tips[0];
+        for (int b = shape.branches - 1; b > 0 && branch.equals(tips[0]);
+             b -= 1) {
+            branch = tips[b];
+        }
+        result.put("branch", branch);
+        return result;
+    }
+
+    /** Return the files of the merge of OTHER into HEAD, whose split point
+     *  is SPLIT, resolving conflicts in favor of HEAD. */
+    private static TreeMap<String, String> merge(Map<String, String> split,
+                                                 Map<String, String> head,
+                                                 Map<String, String> other) {
+        TreeMap<String, String> result = new TreeMap<>(head);
+        Merge.run(split, head, other, new Merge.Visitor() {
+                @Override
+                public void take(String name, String blob) {
+                    result.put(name, blob);
+                }
+
+                @Override
+                public void remove(String name) {
+                    result.remove(name);
+                }
+
+                @Override
+                public boolean conflict(String name, String s, String h,
+                                        String o) {
+                    return false;
+                }
+            });
+        return result;
+    }
+
+    /** Return the name of file I. */
+    private static String name(int i) {
+        return String.format("dir%03d/file%06d.txt", i / 100, i);
+    }
+
+    /** Store a new blob of about SIZE bytes of lines of text chosen with
+     *  RANDOM, and return its id. */
+    private static String blob(Random random, int size) {
+        StringBuilder text = new StringBuilder(size + 32);
+        while (text.length() < size) {
+            text.append("line ").append(random.nextInt(1000)).append(": ")
+                .append(Long.toHexString(random.nextLong())).append('\n');
+        }
+        return Repository.objects()
+            .write(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,277 @@
+package gitlet;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Counters and phase timings for one gitlet command, turned on by
+ *  running it as "java gitlet.Main --trace COMMAND ...".  The code that
+ *  does the work calls count at each event of interest and wraps each
+ *  phase in try (Trace.Phase phase = Trace.phase(NAME)) { ... }.  While
+ *  no command is traced, count only tests a static flag and phase
+ *  returns a shared Phase that does nothing, so the hooks cost next to
+ *  nothing and allocate nothing.
+ *
+ *  When the traced command finishes, stop returns a JSON summary: the
+ *  command, its total time in milliseconds, each counter, and, for each
+ *  phase in the order first entered, how many times it ran and its total
+ *  time.  The same results are committed as the JFR events
+ *  gitlet.Command and gitlet.Phase, which a flight recording started with
+ *  -XX:StartFlightRecording collects; without one they are dropped.
+ *  Counters may be bumped from several threads at once; phases nest, and
+ *  a phase's time includes that of the phases within it. */
+class Trace {
+
+    /** The events counted. */
+    enum Counter {
+        /** Objects (blobs, trees, or commits) read from a store. */
+        OBJECT_READS("objectReads"),
+        /** New objects written to a store. */
+        OBJECT_WRITES("objectWrites"),
+        /** Bytes passed through SHA-1. */
+        BYTES_HASHED("bytesHashed"),
+        /** Lookups that an ObjectCache answered. */
+        CACHE_HITS("cacheHits"),
+        /** Lookups that an ObjectCache could not answer. */
+        CACHE_MISSES("cacheMisses"),
+        /** Commits decoded from their stored form. */
+        COMMITS_DECODED("commitsDecoded"),
+        /** Trees decoded from their stored form. */
+        TREES_DECODED("treesDecoded"),
+        /** Files or directories forced to storage. */
+        FSYNCS("fsyncs");
+
+        /** A Counter named NAME in the JSON summary. */
+        Counter(String name) {
+            _name = name;
+        }
+
+        /** Return the name of this Counter in the JSON summary. */
+        String jsonName() {
+            return _name;
+        }
+
+        /** The name of this Counter in the JSON summary. */
+        private final String _name;
+    }
+
+    /** A phase of a command, timed from its creation until it is
+     *  closed. */
+    static class Phase implements AutoCloseable {
+
+        /** A Phase named NAME, begun now, or the Phase that does nothing
+         *  if NAME is null. */
+        private Phase(String name) {
+            _name = name;
+            if (name != null) {
+                synchronized (PHASES) {
+                    PHASES.putIfAbsent(name, new long[2]);
+                }
+                _event = new PhaseEvent();
+                _event.name = name;
+                _event.begin();
+                _start = System.nanoTime();
+            }
+        }
+
+        /** End this Phase, adding its time to its name's total. */
+        @Override
+        public void close() {
+            if (_name == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - _start;
+            _event.commit();
+            synchronized (PHASES) {
+                long[] total = PHASES.get(_name);
+                total[0] += 1;
+                total[1] += nanos;
+            }
+        }
+
+        /** Name of this Phase, or null if it does nothing. */
+        private final String _name;
+        /** The JFR event recording this Phase. */
+        private PhaseEvent _event;
+        /** Value of System.nanoTime when this Phase began. */
+        private long _start;
+    }
+
+    /** JFR event for one phase of a command. */
+    @Name("gitlet.Phase")
+    @Label("Gitlet Phase")
+    @Category("Gitlet")
+    @Description("A timed phase of a gitlet command")
+    static class PhaseEvent extends Event {
+        /** Name of the phase. */
+        @Label("Phase")
+        String name;
+    }
+
+    /** JFR event for a whole command, with its counters. */
+    @Name("gitlet.Command")
+    @Label("Gitlet Command")
+    @Category("Gitlet")
+    @Description("A traced gitlet command and what it counted")
+    static class CommandEvent extends Event {
+        /** Name of the command. */
+        @Label("Command")
+        String command;
+        /** See Counter.OBJECT_READS. */
+        @Label("Object Reads")
+        long objectReads;
+        /** See Counter.OBJECT_WRITES. */
+        @Label("Object Writes")
+        long objectWrites;
+        /** See Counter.BYTES_HASHED. */
+        @Label("Bytes Hashed")
+        long bytesHashed;
+        /** See Counter.CACHE_HITS. */
+        @Label("Cache Hits")
+        long cacheHits;
+        /** See Counter.CACHE_MISSES. */
+        @Label("Cache Misses")
+        long cacheMisses;
+        /** See Counter.COMMITS_DECODED. */
+        @Label("Commits Decoded")
+        long commitsDecoded;
+        /** See Counter.TREES_DECODED. */
+        @Label("Trees Decoded")
+        long treesDecoded;
+        /** See Counter.FSYNCS. */
+        @Label("Fsyncs")
+        long fsyncs;
+    }
+
+    /** Add 1 to COUNTER, if a command is being traced. */
+    static void count(Counter counter) {
+        if (_enabled) {
+            COUNTS.incrementAndGet(counter.ordinal());
+        }
+    }
+
+    /** Add N to COUNTER, if a command is being traced. */
+    static void count(Counter counter, long n) {
+        if (_enabled) {
+            COUNTS.addAndGet(counter.ordinal(), n);
+        }
+    }
+
+    /** Return a new Phase named NAME, begun now, to be closed when it
+     *  ends, or, if no command is being traced, a Phase that does
+     *  nothing. */
+    static Phase phase(String name) {
+        return _enabled ? new Phase(name) : NONE;
+    }
+
+    /** Begin tracing the command COMMAND, clearing the results of any
+     *  earlier one. */
+    static void start(String command) {
+        for (int i = 0; i < COUNTS.length(); i += 1) {
+            COUNTS.set(i, 0);
+        }
+        synchronized (PHASES) {
+            PHASES.clear();
+        }
+        _command = new CommandEvent();
+        _command.command = command;
+        _command.begin();
+        _start = System.nanoTime();
+        _enabled = true;
+    }
+
+    /** Stop tracing the current command, commit its JFR events, and
+     *  return its JSON summary, as described in the class comment. */
+    static String stop() {
+        _enabled = false;
+        long nanos = System.nanoTime() - _start;
+        CommandEvent event = _command;
+        event.objectReads = get(Counter.OBJECT_READS);
+        event.objectWrites = get(Counter.OBJECT_WRITES);
+        event.bytesHashed = get(Counter.BYTES_HASHED);
+        event.cacheHits = get(Counter.CACHE_HITS);
+        event.cacheMisses = get(Counter.CACHE_MISSES);
+        event.commitsDecoded = get(Counter.COMMITS_DECODED);
+        event.treesDecoded = get(Counter.TREES_DECODED);
+        event.fsyncs = get(Counter.FSYNCS);
+        event.commit();
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"command\": ").append(jsonString(event.command))
+            .append(", \"ms\": ").append(millis(nanos))
+            .append(", \"counters\": {");
+        for (Counter counter : Counter.values()) {
+            json.append(counter.ordinal() == 0 ? "\"" : ", \"")
+                .append(counter.jsonName()).append("\": ")
+                .append(get(counter));
+        }
+        json.append("}, \"phases\": [");
+        synchronized (PHASES) {
+            String sep = "";
+            for (Map.Entry<String, long[]> entry : PHASES.entrySet()) {
+                json.append(sep).append("{\"name\": ")
+                    .append(jsonString(entry.getKey()))
+                    .append(", \"count\": ")
+                    .append(entry.getValue()[0]).append(", \"ms\": ")
+                    .append(millis(entry.getValue()[1])).append('}');
+                sep = ", ";
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    /** Return the current value of COUNTER. */
+    static long get(Counter counter) {
+        return COUNTS.get(counter.ordinal());
+    }
+
+    /** Return TEXT as a JSON string literal. */
+    static String jsonString(String text) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i += 1) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c == '\n') {
+                result.append("\\n");
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /** Return NANOS nanoseconds as milliseconds for the JSON summary. */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /** The Phase that does nothing. */
+    private static final Phase NONE = new Phase(null);
+
+    /** The value of each Counter, by ordinal. */
+    private static final AtomicLongArray COUNTS =
+        new AtomicLongArray(Counter.values().length);
+
+    /** Maps the name of each phase entered to the number of times it ran
+     *  and their total time in nanoseconds. */
+    private static final Map<String, long[]> PHASES = new LinkedHashMap<>();
+
+    /** True while a command is being traced.  Not volatile, so that
+     *  testing it costs no more than any field read; threads that a
+     *  traced command starts see it set. */
+    private static boolean _enabled;
+    /** The JFR event of the command being traced. */
+    private static CommandEvent _command;
+    /** Value of System.nanoTime when the command began. */
+    private static long _start;
+}
@@ -0,0 +1,90 @@
+package gitlet;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/** Tests of Trace's counters, phase timings and JSON summary. */
+public class TraceTest {
+
+    /** A JSON number as the summary writes times. */
+    private static final String MS = "\\d+\\.\\d{3}";
+
+    @Test
+    public void countsOnlyWhileTracing() {
+        Trace.start("first");
+        Trace.stop();
+        Trace.count(Trace.Counter.OBJECT_READS);
+        assertEquals(0, Trace.get(Trace.Counter.OBJECT_READS));
+
+        Trace.start("count");
+        Trace.count(Trace.Counter.OBJECT_READS);
+        Trace.count(Trace.Counter.OBJECT_READS);
+        Trace.count(Trace.Counter.BYTES_HASHED, 1000);
+        assertEquals(2, Trace.get(Trace.Counter.OBJECT_READS));
+        assertEquals(1000, Trace.get(Trace.Counter.BYTES_HASHED));
+        assertEquals(0, Trace.get(Trace.Counter.FSYNCS));
+        String json = Trace.stop();
+        assertTrue(json.contains("\"objectReads\": 2, "));
+        assertTrue(json.contains("\"bytesHashed\": 1000, "));
+
+        Trace.start("again");
+        assertEquals(0, Trace.get(Trace.Counter.OBJECT_READS));
+        Trace.stop();
+    }
+
+    @Test
+    public void summaryShape() {
+        Trace.start("log");
+        for (int i = 0; i < 2; i += 1) {
+            try (Trace.Phase outer = Trace.phase("outer")) {
+                try (Trace.Phase inner = Trace.phase("inner")) {
+                    Trace.count(Trace.Counter.FSYNCS);
+                }
+            }
+        }
+        String json = Trace.stop();
+        StringBuilder counters = new StringBuilder();
+        for (Trace.Counter counter : Trace.Counter.values()) {
+            counters.append(counters.length() == 0 ? "" : ", ")
+                .append('"').append(counter.jsonName()).append("\": ")
+                .append(counter == Trace.Counter.FSYNCS ? "2" : "0");
+        }
+        Matcher m = Pattern.compile(
+            "\\{\"command\": \"log\", \"ms\": (" + MS + "), \"counters\": \\{"
+            + Pattern.quote(counters.toString()) + "\\}, \"phases\": \\["
+            + "\\{\"name\": \"outer\", \"count\": 2, \"ms\": (" + MS
+            + ")\\}, \\{\"name\": \"inner\", \"count\": 2, \"ms\": (" + MS
+            + ")\\}\\]\\}").matcher(json);
+        assertTrue(json, m.matches());
+        double total = Double.parseDouble(m.group(1));
+        double outer = Double.parseDouble(m.group(2));
+        double inner = Double.parseDouble(m.group(3));
+        assertTrue(inner <= outer && outer <= total);
+
+        Trace.count(Trace.Counter.FSYNCS);
+        try (Trace.Phase phase = Trace.phase("untraced")) {
+            assertEquals(2, Trace.get(Trace.Counter.FSYNCS));
+        }
+        Trace.start("next");
+        assertTrue(Trace.stop().endsWith("\"phases\": []}"));
+    }
+
+    @Test
+    public void stringsAreEscaped() {
+        assertEquals("\"plain\"", Trace.jsonString("plain"));
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"",
+                     Trace.jsonString("a\"b\\c\nd\u0001"));
+        Trace.start("find \"x\"\n");
+        try (Trace.Phase phase = Trace.phase("a\\b")) {
+            assertNotNull(phase);
+        }
+        String json = Trace.stop();
+        assertTrue(json, json.startsWith(
+            "{\"command\": \"find \\\"x\\\"\\n\", \"ms\": "));
+        assertTrue(json, json.contains("{\"name\": \"a\\\\b\", \"count\": 1"));
+    }
+}
@@ -0,0 +1,434 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static gitlet.Utils.*;
+
+/** The transfer of objects from one repository to another, as push and
+ *  fetch do.
+ *
+ *  The sender is given the commits the receiver wants.  It walks back
+ *  from them through their parents, asking the receiver whether it has
+ *  each commit; the walk stops at commits the receiver has, since it then
+ *  has everything they reach.  In the same way, the Trees and blobs of
+ *  the commits to send are visited only as far as the receiver lacks
+ *  them, a Tree it has standing for all the files under it.  For a
+ *  repository in a local directory, each "have" question is a lookup in
+ *  the receiver's stores.
+ *
+ *  The missing objects are then sent as one pack stream: the magic number
+ *  "GXFR", a version int, and an object count, followed for each object
+ *  by its kind (BLOB, TREE, or COMMIT), raw id, the int length of its
+ *  stored representation (see ObjectStore), the representation, and a
+ *  CRC-32 of the id and representation, and finally the SHA-1 of all
+ *  that precedes it.  Representations are copied unchanged, with the
+ *  delta bases and chunks they need.  The receiver writes the objects
+ *  straight into new packs as they arrive, checking each CRC and then the
+ *  trailing SHA-1.  It then installs the packs, blobs first and commits
+ *  last, and checks that the contents of each new object hash to its id.
+ *  It keeps the packs only if all of these match, so a commit never
+ *  arrives without the objects it reaches, and no object arrives under
+ *  an id that is not its own.  The sender runs in a thread of its own, so that
+ *  the stream passes through a pipe rather than being held whole in
+ *  memory or on disk. */
+class Transfer {
+
+    /** Kind of a blob. */
+    static final int BLOB = 0;
+    /** Kind of a Tree. */
+    static final int TREE = 1;
+    /** Kind of a commit. */
+    static final int COMMIT = 2;
+
+    /** Magic number ("GXFR") at the start of a pack stream. */
+    private static final int MAGIC = 0x47584652;
+    /** Current format version of pack streams. */
+    private static final int VERSION = 1;
+
+    /** The object stores of one repository, by kind. */
+    static class Stores {
+        /** The stores OBJECTS, TREES, and COMMITS of a repository whose
+         *  writes go through JOURNAL. */
+        Stores(ObjectStore objects, ObjectStore trees, ObjectStore commits,
+               Journal journal) {
+            _stores = new ObjectStore[] { objects, trees, commits };
+            _journal = journal;
+        }
+
+        /** Return the stores of the repository whose .gitlet directory is
+         *  DIR, first completing any writes its journal holds. */
+        static Stores open(File dir) {
+            Journal journal =
+                Journal.open(join(dir, RepositoryLock.JOURNAL_NAME));
+            return new Stores(store(dir, "objects", journal),
+                              store(dir, "trees", journal),
+                              store(dir, "commits", journal), journal);
+        }
+
+        /** Return the store in subdirectory NAME of DIR, writing through
+         *  JOURNAL. */
+        private static ObjectStore store(File dir, String name,
+                                         Journal journal) {
+            return new ObjectStore(join(dir, name), Codec.DEFLATE, journal);
+        }
+
+        /** Return the store of objects of kind KIND. */
+        ObjectStore get(int kind) {
+            return _stores[kind];
+        }
+
+        /** Return the journal of this repository. */
+        Journal journal() {
+            return _journal;
+        }
+
+        /** The stores by kind. */
+        private final ObjectStore[] _stores;
+        /** The journal of the repository. */
+        private final Journal _journal;
+    }
+
+    /** Copy to TO every object reachable from the commits WANTS in FROM
+     *  that TO lacks, and return the ids of the objects copied, by kind.
+     *  Throws IllegalArgumentException if FROM lacks an object it should
+     *  have, or if the transfer fails, in which case TO is unchanged. */
+    static List<List<String>> send(Stores from, Stores to,
+                                   Collection<String> wants) {
+        List<List<String>> missing;
+        try (Trace.Phase phase = Trace.phase("negotiate")) {
+            missing = missing(from, to, wants);
+        }
+        if (missing.get(COMMIT).isEmpty()) {
+            return missing;
+        }
+        try (Trace.Phase phase = Trace.phase("transfer")) {
+            transfer(from, to, missing);
+        }
+        return missing;
+    }
+
+    /** Send the objects MISSING, by kind, from FROM to TO through a pipe,
+     *  written by a separate thread. */
+    private static void transfer(Stores from, Stores to,
+                                 List<List<String>> missing) {
+        Pipe pipe;
+        try {
+            pipe = Pipe.open();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        RuntimeException[] failure = new RuntimeException[1];
+        Thread sender = new Thread(() -> {
+            try (OutputStream out = Channels.newOutputStream(pipe.sink())) {
+                write(from, missing, out);
+            } catch (IOException excp) {
+                failure[0] = new IllegalArgumentException(excp.getMessage());
+            } catch (RuntimeException excp) {
+                failure[0] = excp;
+            }
+        }, "gitlet-send");
+        sender.start();
+        try (InputStream in = Channels.newInputStream(pipe.source())) {
+            read(in, to);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (IllegalArgumentException excp) {
+            await(sender);
+            throw failure[0] != null ? failure[0] : excp;
+        }
+        await(sender);
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /** Return the ids of the objects reachable from the commits WANTS in
+     *  FROM that TO lacks, by kind, each object following those it
+     *  refers to. */
+    static List<List<String>> missing(Stores from, Stores to,
+                                      Collection<String> wants) {
+        List<List<String>> result = new ArrayList<>();
+        for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+            result.add(new ArrayList<>());
+        }
+        Set<String> seen = new HashSet<>();
+        ArrayDeque<String> commits = new ArrayDeque<>(wants);
+        while (!commits.isEmpty()) {
+            String id = commits.pop();
+            if (!seen.add(COMMIT + id) || to.get(COMMIT).contains(id)) {
+                continue;
+            }
+            Commit commit = CommitCodec.decode(contents(from, COMMIT, id));
+            result.get(COMMIT).add(id);
+            commits.addAll(commit.getParents());
+            if (commit.getTree() != null) {
+                addTree(from, to, commit.getTree(), seen, result);
+            } else {
+                for (String blob : commit.getBlobs(null).values()) {
+                    addObject(from, to, BLOB, blob, seen, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Add to RESULT the Tree ID of FROM and the Trees and blobs under it
+     *  that TO lacks and that are not in SEEN, adding them to SEEN. */
+    private static void addTree(Stores from, Stores to, String id,
+                                Set<String> seen, List<List<String>> result) {
+        ArrayDeque<String> trees = new ArrayDeque<>();
+        trees.push(id);
+        while (!trees.isEmpty()) {
+            String tree = trees.pop();
+            if (!addObject(from, to, TREE, tree, seen, result)) {
+                continue;
+            }
+            for (Map.Entry<String, String> entry
+                     : Tree.decode(contents(from, TREE, tree)).entries()
+                     .entrySet()) {
+                if (Tree.isTree(entry.getKey())) {
+                    trees.push(entry.getValue());
+                } else {
+                    addObject(from, to, BLOB, entry.getValue(), seen, result);
+                }
+            }
+        }
+    }
+
+    /** Add to RESULT the object ID of kind KIND in FROM, if TO lacks it
+     *  and it is not in SEEN, after the objects its representation refers
+     *  to, adding them all to SEEN.  Returns true iff ID was added. */
+    private static boolean addObject(Stores from, Stores to, int kind,
+                                     String id, Set<String> seen,
+                                     List<List<String>> result) {
+        if (!seen.add(kind + id) || to.get(kind).contains(id)) {
+            return false;
+        }
+        ByteBuffer stored = from.get(kind).representation(id);
+        if (stored == null) {
+            throw new IllegalArgumentException("missing object " + id);
+        }
+        for (String ref : ObjectStore.references(stored)) {
+            addObject(from, to, kind, ref, seen, result);
+        }
+        result.get(kind).add(id);
+        return true;
+    }
+
+    /** Return the contents of the object ID of kind KIND in FROM.  Throws
+     *  IllegalArgumentException if there is none. */
+    private static byte[] contents(Stores from, int kind, String id) {
+        byte[] result = from.get(kind).read(id);
+        if (result == null) {
+            throw new IllegalArgumentException("missing object " + id);
+        }
+        return result;
+    }
+
+    /** Write to OUT the pack stream of the objects OBJECTS, by kind, in
+     *  FROM. */
+    static void write(Stores from, List<List<String>> objects,
+                      OutputStream out) throws IOException {
+        MessageDigest digest = sha1Digest();
+        DataOutputStream data = new DataOutputStream(new DigestOutputStream(
+            new BufferedOutputStream(out), digest));
+        int count = 0;
+        for (List<String> ids : objects) {
+            count += ids.size();
+        }
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(count);
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[STREAM_BUFFER_SIZE];
+        for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+            for (String id : objects.get(kind)) {
+                ByteBuffer stored = from.get(kind).representation(id);
+                if (stored == null) {
+                    throw new IllegalArgumentException("missing object " + id);
+                }
+                byte[] raw = ObjectId.fromHex(id).toBytes();
+                data.write(kind);
+                data.write(raw);
+                data.writeInt(stored.remaining());
+                crc.reset();
+                crc.update(raw);
+                while (stored.hasRemaining()) {
+                    int n = Math.min(chunk.length, stored.remaining());
+                    stored.get(chunk, 0, n);
+                    data.write(chunk, 0, n);
+                    crc.update(chunk, 0, n);
+                }
+                data.writeInt((int) crc.getValue());
+            }
+        }
+        data.flush();
+        out.write(digest.digest());
+        out.flush();
+    }
+
+    /** Read the pack stream IN into new packs in TO, and return the number
+     *  of objects it held.  Objects TO already has are skipped.  Throws
+     *  IllegalArgumentException, leaving TO unchanged, if the stream is
+     *  malformed, a checksum does not match, or an object's contents do
+     *  not hash to its id. */
+    static int read(InputStream in, Stores to) throws IOException {
+        MessageDigest digest = sha1Digest();
+        InputStream buffered = new BufferedInputStream(in);
+        DataInputStream data = new DataInputStream(
+            new DigestInputStream(buffered, digest));
+        PackFile.Writer[] writers = new PackFile.Writer[COMMIT + 1];
+        int written = 0;
+        List<List<PackFile>> packs = new ArrayList<>();
+        List<List<String>> received = new ArrayList<>();
+        for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+            packs.add(new ArrayList<>());
+            received.add(new ArrayList<>());
+        }
+        try {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+                throw new IllegalArgumentException("not a pack stream");
+            }
+            int count = data.readInt();
+            CRC32 crc = new CRC32();
+            byte[] raw = new byte[ObjectId.LENGTH];
+            for (int k = 0; k < count; k += 1) {
+                int kind = data.readUnsignedByte();
+                data.readFully(raw);
+                int length = data.readInt();
+                if (kind > COMMIT || length < 1
+                    || length > PackFile.MAX_PACK_SIZE / 2) {
+                    throw new IllegalArgumentException("bad pack stream");
+                }
+                byte[] stored = new byte[length];
+                data.readFully(stored);
+                crc.reset();
+                crc.update(raw);
+                crc.update(stored);
+                if (data.readInt() != (int) crc.getValue()) {
+                    throw new IllegalArgumentException(
+                        "pack stream checksum mismatch");
+                }
+                ObjectId id = ObjectId.fromBytes(raw);
+                if (to.get(kind).contains(id.toString())) {
+                    continue;
+                }
+                if (writers[kind] != null && !writers[kind].fits(length)) {
+                    packs.get(kind).add(writers[kind].finish());
+                    writers[kind] = null;
+                }
+                if (writers[kind] == null) {
+                    writers[kind] =
+                        new PackFile.Writer(to.get(kind).packDir());
+                }
+                writers[kind].add(id, stored[0],
+                                  ByteBuffer.wrap(stored, 1, length - 1));
+                received.get(kind).add(id.toString());
+                written += 1;
+            }
+            byte[] expected = digest.digest();
+            byte[] trailer = new byte[expected.length];
+            new DataInputStream(buffered).readFully(trailer);
+            if (!Arrays.equals(expected, trailer)) {
+                throw new IllegalArgumentException(
+                    "pack stream checksum mismatch");
+            }
+            for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+                if (writers[kind] != null) {
+                    packs.get(kind).add(writers[kind].finish());
+                    writers[kind] = null;
+                }
+            }
+        } catch (EOFException excp) {
+            abandon(writers, packs);
+            throw new IllegalArgumentException("truncated pack stream");
+        } catch (RuntimeException | IOException excp) {
+            abandon(writers, packs);
+            throw excp;
+        }
+        for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+            to.get(kind).packs().addAll(packs.get(kind));
+        }
+        try {
+            for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+                for (String id : received.get(kind)) {
+                    verify(to.get(kind), id);
+                }
+            }
+        } catch (RuntimeException excp) {
+            for (int kind = BLOB; kind <= COMMIT; kind += 1) {
+                to.get(kind).packs().removeAll(packs.get(kind));
+            }
+            abandon(writers, packs);
+            throw excp;
+        }
+        return written;
+    }
+
+    /** Check that the contents of the object ID in STORE hash to ID.
+     *  Throws IllegalArgumentException if they do not. */
+    private static void verify(ObjectStore store, String id)
+        throws IOException {
+        MessageDigest digest = sha1Digest();
+        try (OutputStream out = new DigestOutputStream(
+                 OutputStream.nullOutputStream(), digest)) {
+            store.copyTo(id, out);
+        }
+        if (!ObjectId.fromBytes(digest.digest()).toString().equals(id)) {
+            throw new IllegalArgumentException(
+                "received object " + id + " does not match its id");
+        }
+    }
+
+    /** Discard the partial packs of WRITERS and the finished packs in
+     *  PACKS, after a failed transfer. */
+    private static void abandon(PackFile.Writer[] writers,
+                                List<List<PackFile>> packs) {
+        for (PackFile.Writer writer : writers) {
+            if (writer != null) {
+                writer.abandon();
+            }
+        }
+        for (List<PackFile> finished : packs) {
+            for (PackFile pack : finished) {
+                pack.indexFile().delete();
+                pack.packFile().delete();
+            }
+        }
+    }
+
+    /** Wait for THREAD to finish. */
+    private static void await(Thread thread) {
+        while (true) {
+            try {
+                thread.join();
+                return;
+            } catch (InterruptedException excp) {
+                /* Keep waiting: the thread uses the stores. */
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/** Tests of the exchange of objects between repositories by Transfer. */
+public class TransferTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return new, empty stores under the temporary folder. */
+    private Transfer.Stores stores() throws IOException {
+        File dir = tmp.newFolder();
+        return new Transfer.Stores(new ObjectStore(new File(dir, "objects"),
+                                                   Codec.DEFLATE),
+                                   new ObjectStore(new File(dir, "trees")),
+                                   new ObjectStore(new File(dir, "commits")),
+                                   null);
+    }
+
+    /** Store in STORES a commit with PARENTS whose files NAMES each hold
+     *  their own name followed by TEXT, and return its id. */
+    private static String commit(Transfer.Stores stores, String text,
+                                 List<String> names, String... parents) {
+        Map<String, String> files = new TreeMap<>();
+        for (String name : names) {
+            files.put(name, stores.get(Transfer.BLOB).write(
+                (name + text).getBytes(StandardCharsets.UTF_8)));
+        }
+        String tree = Tree.write(stores.get(Transfer.TREE), files);
+        return stores.get(Transfer.COMMIT).write(CommitCodec.encode(
+            new Commit(text, new Date(0), List.of(parents), tree)));
+    }
+
+    /** Return the number of objects of every kind in STORES. */
+    private static int count(Transfer.Stores stores) {
+        int result = 0;
+        for (int kind = Transfer.BLOB; kind <= Transfer.COMMIT; kind += 1) {
+            result += stores.get(kind).ids().size();
+        }
+        return result;
+    }
+
+    /** Return the number of objects in LISTS, by kind. */
+    private static int total(List<List<String>> lists) {
+        int result = 0;
+        for (List<String> ids : lists) {
+            result += ids.size();
+        }
+        return result;
+    }
+
+    @Test
+    public void sendsOnlyWhatTheReceiverLacks() throws IOException {
+        Transfer.Stores local = stores(), remote = stores();
+        String first = commit(local, "v1", List.of("a", "d/b", "d/e/c"));
+        String second = commit(local, "v2", List.of("a", "d/b"), first);
+
+        List<List<String>> sent =
+            Transfer.send(local, remote, List.of(first));
+        assertEquals(List.of(first), sent.get(Transfer.COMMIT));
+        assertEquals(3, sent.get(Transfer.BLOB).size());
+        assertEquals(3, sent.get(Transfer.TREE).size());
+        assertEquals(7, count(remote));
+
+        sent = Transfer.send(local, remote, List.of(second));
+        assertEquals(List.of(second), sent.get(Transfer.COMMIT));
+        assertEquals(2, sent.get(Transfer.BLOB).size());
+        assertEquals(2, sent.get(Transfer.TREE).size());
+        assertEquals(0, total(Transfer.send(local, remote,
+                                            List.of(second))));
+
+        for (int kind = Transfer.BLOB; kind <= Transfer.COMMIT; kind += 1) {
+            for (String id : local.get(kind).ids()) {
+                assertArrayEquals(local.get(kind).read(id),
+                                  remote.get(kind).read(id));
+            }
+        }
+
+        Transfer.Stores back = stores();
+        Transfer.send(remote, back, List.of(second));
+        assertEquals(count(local), count(back));
+    }
+
+    @Test
+    public void corruptStreamsChangeNothing() throws IOException {
+        Transfer.Stores local = stores(), remote = stores();
+        String id = commit(local, "v1", List.of("a", "d/b"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transfer.write(local, Transfer.missing(local, remote, List.of(id)),
+                       out);
+        byte[] stream = out.toByteArray();
+
+        for (int at : new int[] { 0, 20, stream.length / 2,
+                                  stream.length - 1 }) {
+            byte[] damaged = stream.clone();
+            damaged[at] ^= 0x40;
+            assertRejected(damaged, remote);
+        }
+        assertRejected(Arrays.copyOf(stream, stream.length - 5),
+                       remote);
+        assertEquals(5, Transfer.read(new ByteArrayInputStream(stream),
+                                      remote));
+        assertEquals(5, count(remote));
+    }
+
+    @Test
+    public void objectsMustMatchTheirIds() throws IOException {
+        Transfer.Stores local = stores(), remote = stores();
+        ObjectStore objects = local.get(Transfer.BLOB);
+        String real = objects.write("real".getBytes(StandardCharsets.UTF_8));
+        String forged = Utils.sha1("forged");
+        File loose = objects.looseFile(forged);
+        assertTrue(loose.getParentFile().mkdirs());
+        Files.copy(objects.looseFile(real).toPath(), loose.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transfer.write(local, List.of(List.of(forged), List.of(), List.of()),
+                       out);
+        assertRejected(out.toByteArray(), remote);
+    }
+
+    /** Assert that reading the pack stream STREAM into TO fails and leaves
+     *  TO empty. */
+    private static void assertRejected(byte[] stream, Transfer.Stores to)
+        throws IOException {
+        try {
+            Transfer.read(new ByteArrayInputStream(stream), to);
+            fail("a bad pack stream was accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+        assertEquals(0, count(to));
+        for (int kind = Transfer.BLOB; kind <= Transfer.COMMIT; kind += 1) {
+            assertEquals(List.of(), to.get(kind).packs());
+            String[] packs = to.get(kind).packDir().list();
+            assertTrue(packs == null || packs.length == 0);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/** A directory of a commit's files: a list of entries in name order, each
+ *  the id of a blob, for a file, or of another Tree, for a subdirectory.
+ *  A commit refers to its files by the id of its root Tree.  A Tree's id
+ *  depends only on its contents, so a subdirectory that did not change
+ *  between two commits is stored once and shared by both, and comparing
+ *  two versions of a directory can stop as soon as their ids agree.
+ *
+ *  An entry's key is the file or directory name, followed by a '/' for a
+ *  directory.  Keys are sorted as Strings, which lists the files under a
+ *  Tree in the same order as their full path names, as in the maps of
+ *  Commit.getBlobs.
+ *
+ *  An encoded Tree is the magic number "GTRE", a version byte, and a
+ *  varint entry count followed, for each entry in key order, by the
+ *  varint length of its key, the key in UTF-8, and its raw id, in the
+ *  encodings of CommitCodec.  Trees are kept in a store of their own,
+ *  Repository.trees(). */
+class Tree {
+
+    /** Magic number ("GTRE") at the start of every encoded Tree. */
+    static final int MAGIC = 0x47545245;
+    /** Current format version. */
+    static final int VERSION = 1;
+
+    /** The Tree with no entries. */
+    static final Tree EMPTY = new Tree(new TreeMap<>());
+
+    /** Receives the files that differ between two Trees. */
+    interface Visitor {
+        /** The file NAME, a full path name, has blob id A in the first
+         *  Tree and B in the second, either being null if the file is
+         *  absent there. */
+        void changed(String name, String a, String b);
+    }
+
+    /** A Tree with the entries in ENTRIES, from key to id, which it
+     *  takes over. */
+    private Tree(TreeMap<String, String> entries) {
+        _entries = entries;
+    }
+
+    /** Return true iff KEY is the key of a subdirectory. */
+    static boolean isTree(String key) {
+        return key.endsWith("/");
+    }
+
+    /** Return this Tree's entries, from key to id, in key order. */
+    Map<String, String> entries() {
+        return Collections.unmodifiableMap(_entries);
+    }
+
+    /** Return the number of entries in this Tree. */
+    int size() {
+        return _entries.size();
+    }
+
+    /** Return the encoding of this Tree. */
+    byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+            16 + _entries.size() * (ObjectId.LENGTH + 16));
+        CommitCodec.writeInt(out, MAGIC);
+        out.write(VERSION);
+        CommitCodec.writeVarint(out, _entries.size());
+        for (Map.Entry<String, String> entry : _entries.entrySet()) {
+            CommitCodec.writeString(out, entry.getKey());
+            out.writeBytes(ObjectId.fromHex(entry.getValue()).toBytes());
+        }
+        return out.toByteArray();
+    }
+
+    /** Return the Tree encoded in DATA.  Throws IllegalArgumentException
+     *  if DATA is not an encoded Tree. */
+    static Tree decode(byte[] data) {
+        Trace.count(Trace.Counter.TREES_DECODED);
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("not a tree");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(
+                    "unknown tree format version " + version);
+            }
+            int count = CommitCodec.readVarint(in);
+            TreeMap<String, String> entries = new TreeMap<>();
+            for (int i = 0; i < count; i += 1) {
+                String key = CommitCodec.readString(in);
+                entries.put(key, CommitCodec.readId(in));
+            }
+            return new Tree(entries);
+        } catch (BufferUnderflowException excp) {
+            throw new IllegalArgumentException("truncated tree");
+        }
+    }
+
+    /** Return the Tree with id ID in STORE, or EMPTY if ID is null.
+     *  Throws IllegalArgumentException if there is no such Tree. */
+    static Tree read(ObjectStore store, String id) {
+        if (id == null) {
+            return EMPTY;
+        }
+        byte[] data = store.read(id);
+        if (data == null) {
+            throw new IllegalArgumentException("no tree " + id);
+        }
+        return decode(data);
+    }
+
+    /** Store this Tree in STORE, if not already there, and return its
+     *  id. */
+    String write(ObjectStore store) {
+        return store.write(encode());
+    }
+
+    /** Store in STORE the Trees of the files in FILES, which maps full
+     *  path names to blob ids, and return the id of the root.  Trees that
+     *  STORE already holds are not stored again, but every Tree is
+     *  encoded; update() costs only as much as the change. */
+    static String write(ObjectStore store, Map<String, String> files) {
+        return update(store, null, new TreeMap<>(files));
+    }
+
+    /** Store in STORE the Trees of the files under the root Tree BASE
+     *  (none if null) with the changes in CHANGES applied, and return the
+     *  id of the new root.  CHANGES maps full path names to their new
+     *  blob ids, or to null for files to remove.  Only the Trees of
+     *  directories that contain a change are read and rewritten; every
+     *  other subdirectory keeps its id.  Directories left empty are
+     *  removed. */
+    static String update(ObjectStore store, String base,
+                         SortedMap<String, String> changes) {
+        String[] paths = changes.keySet().toArray(new String[0]);
+        String[] ids = changes.values().toArray(new String[0]);
+        return update(store, read(store, base), paths, ids, 0,
+                      paths.length, 0).write(store);
+    }
+
+    /** Return BASE with the changes FROM .. TO-1 of PATHS and IDS, which
+     *  are sorted and all begin with the directory name of length START,
+     *  applied, storing the Trees of changed subdirectories in STORE. */
+    private static Tree update(ObjectStore store, Tree base, String[] paths,
+                               String[] ids, int from, int to, int start) {
+        TreeMap<String, String> entries = new TreeMap<>(base._entries);
+        int k = from;
+        while (k < to) {
+            int slash = paths[k].indexOf('/', start);
+            if (slash < 0) {
+                String name = paths[k].substring(start);
+                if (ids[k] == null) {
+                    entries.remove(name);
+                } else {
+                    entries.put(name, ids[k]);
+                }
+                k += 1;
+                continue;
+            }
+            String dir = paths[k].substring(start, slash + 1);
+            int end = k + 1;
+            while (end < to && paths[end].startsWith(dir, start)) {
+                end += 1;
+            }
+            Tree sub = update(store, read(store, entries.get(dir)), paths,
+                              ids, k, end, slash + 1);
+            if (sub.size() == 0) {
+                entries.remove(dir);
+            } else {
+                entries.put(dir, sub.write(store));
+            }
+            k = end;
+        }
+        return new Tree(entries);
+    }
+
+    /** Return the files under the root Tree ROOT in STORE, as a map from
+     *  full path names to blob ids. */
+    static TreeMap<String, String> files(ObjectStore store, String root) {
+        TreeMap<String, String> result = new TreeMap<>();
+        files(store, "", read(store, root), result);
+        return result;
+    }
+
+    /** Add the files under TREE in STORE, whose path is PREFIX, to
+     *  RESULT. */
+    private static void files(ObjectStore store, String prefix, Tree tree,
+                              Map<String, String> result) {
+        for (Map.Entry<String, String> entry : tree._entries.entrySet()) {
+            String name = prefix + entry.getKey();
+            if (isTree(name)) {
+                files(store, name, read(store, entry.getValue()), result);
+            } else {
+                result.put(name, entry.getValue());
+            }
+        }
+    }
+
+    /** Report to VISITOR, in name order, each file that differs between
+     *  the root Trees A and B in STORE (either null for no files).
+     *  Subdirectories with the same id in both are skipped unread. */
+    static void compare(ObjectStore store, String a, String b,
+                        Visitor visitor) {
+        if (!Objects.equals(a, b)) {
+            compare(store, "", read(store, a), read(store, b), visitor);
+        }
+    }
+
+    /** Report to VISITOR each file that differs between A and B, Trees in
+     *  STORE of the directory PREFIX. */
+    private static void compare(ObjectStore store, String prefix, Tree a,
+                                Tree b, Visitor visitor) {
+        TreeMap<String, String> keys = new TreeMap<>(a._entries);
+        keys.putAll(b._entries);
+        for (String key : keys.keySet()) {
+            String inA = a._entries.get(key), inB = b._entries.get(key);
+            if (Objects.equals(inA, inB)) {
+                continue;
+            } else if (isTree(key)) {
+                compare(store, prefix + key, read(store, inA),
+                        read(store, inB), visitor);
+            } else {
+                visitor.changed(prefix + key, inA, inB);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Tree && ((Tree) obj)._entries.equals(_entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return _entries.hashCode();
+    }
+
+    /** Maps the key of each entry to its id. */
+    private final TreeMap<String, String> _entries;
+}
@@ -0,0 +1,218 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import static gitlet.Utils.*;
+
+/** Compares the plain files of a working directory against the staging
+ *  area and the head commit, hashing files in parallel on a ForkJoinPool.
+ *  The result holds the four file categories reported by status.
+ *  Only files whose contents matter to the comparison (those tracked by
+ *  the head commit or staged for addition) are hashed at all, and given
+ *  a StatIndex, only those whose stat data have changed. */
+class TreeScanner {
+
+    /** Number of files below which a hashing task does its work itself
+     *  rather than splitting it. */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    /** A scanner of directory DIR that hashes files on up to PARALLELISM
+     *  threads, consulting and updating INDEX, if not null, to avoid
+     *  hashing unchanged files. */
+    TreeScanner(File dir, int parallelism, StatIndex index) {
+        _dir = dir;
+        _parallelism = parallelism;
+        _index = index;
+    }
+
+    /** A scanner of directory DIR that hashes files on up to PARALLELISM
+     *  threads. */
+    TreeScanner(File dir, int parallelism) {
+        this(dir, parallelism, null);
+    }
+
+    /** A scanner of directory DIR that uses INDEX and all available
+     *  processors. */
+    TreeScanner(File dir, StatIndex index) {
+        this(dir, Runtime.getRuntime().availableProcessors(), index);
+    }
+
+    /** The categories of files reported by status.  Each list is in
+     *  lexicographic order. */
+    static class Status {
+        /** Files staged for addition. */
+        final List<String> staged = new ArrayList<>();
+        /** Files staged for removal. */
+        final List<String> removed = new ArrayList<>();
+        /** Files modified but not staged for commit, each followed by
+         *  " (modified)" or " (deleted)". */
+        final List<String> modified = new ArrayList<>();
+        /** Files present but neither staged for addition nor tracked. */
+        final List<String> untracked = new ArrayList<>();
+    }
+
+    /** Return the status of the working directory, given the blob ids of
+     *  the files tracked by the head commit, HEAD, the blob ids of the
+     *  files staged for addition, STAGED, and the names of the files
+     *  staged for removal, REMOVED. */
+    Status scan(Map<String, String> head, Map<String, String> staged,
+                Set<String> removed) {
+        List<String> present = plainFilenamesIn(_dir);
+        if (present == null) {
+            present = Collections.emptyList();
+        }
+        List<String> toHash = new ArrayList<>();
+        for (String name : present) {
+            if (staged.containsKey(name) || head.containsKey(name)) {
+                toHash.add(name);
+            }
+        }
+        Map<String, String> current = hashChanged(toHash);
+
+        Status result = new Status();
+        result.staged.addAll(staged.keySet());
+        result.removed.addAll(removed);
+
+        TreeSet<String> names = new TreeSet<>(head.keySet());
+        names.addAll(staged.keySet());
+        for (String name : names) {
+            String id = current.get(name);
+            String stagedId = staged.get(name);
+            if (stagedId != null) {
+                if (id == null) {
+                    result.modified.add(name + " (deleted)");
+                } else if (!id.equals(stagedId)) {
+                    result.modified.add(name + " (modified)");
+                }
+            } else if (!removed.contains(name)) {
+                if (id == null) {
+                    result.modified.add(name + " (deleted)");
+                } else if (!id.equals(head.get(name))) {
+                    result.modified.add(name + " (modified)");
+                }
+            }
+        }
+        for (String name : present) {
+            if (!staged.containsKey(name)
+                && (!head.containsKey(name) || removed.contains(name))) {
+                result.untracked.add(name);
+            }
+        }
+        Collections.sort(result.staged);
+        Collections.sort(result.removed);
+        return result;
+    }
+
+    /** Return a map from each of the file names NAMES in the scanned
+     *  directory to the blob id of its current contents, computing the
+     *  ids in parallel. */
+    Map<String, String> hash(List<String> names) {
+        return apply(names, Utils::sha1);
+    }
+
+    /** As for hash(NAMES), but take the ids of files whose stat data are
+     *  unchanged from the index, if there is one, and record the ids of
+     *  the others in it. */
+    Map<String, String> hashChanged(List<String> names) {
+        if (_index == null) {
+            return hash(names);
+        }
+        Map<String, String> result = new HashMap<>();
+        Map<String, StatIndex.Stat> stats = new HashMap<>();
+        List<String> changed = new ArrayList<>();
+        for (String name : names) {
+            StatIndex.Stat stat = StatIndex.stat(Utils.join(_dir, name));
+            String id = _index.lookup(name, stat);
+            if (id != null) {
+                result.put(name, id);
+            } else {
+                changed.add(name);
+                stats.put(name, stat);
+            }
+        }
+        Map<String, String> hashed = hash(changed);
+        for (Map.Entry<String, String> entry : hashed.entrySet()) {
+            StatIndex.Stat stat = stats.get(entry.getKey());
+            if (stat != null) {
+                _index.update(entry.getKey(), stat, entry.getValue());
+            }
+        }
+        _index.retain(names);
+        result.putAll(hashed);
+        return result;
+    }
+
+    /** Return a map from each of the file names NAMES in the scanned
+     *  directory to the result of applying OP to the file, applying OP to
+     *  different files in parallel. */
+    private Map<String, String> apply(List<String> names,
+                                      Function<File, String> op) {
+        String[] ids = new String[names.size()];
+        ForkJoinPool pool = new ForkJoinPool(_parallelism);
+        try {
+            pool.invoke(new HashTask(names, op, ids, 0, ids.length));
+        } finally {
+            pool.shutdown();
+        }
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < ids.length; i += 1) {
+            result.put(names.get(i), ids[i]);
+        }
+        return result;
+    }
+
+    /** Applies an operation to the files NAMES[LO .. HI-1], storing the
+     *  results in IDS[LO .. HI-1], splitting the range in half until it is
+     *  small. */
+    private class HashTask extends RecursiveAction {
+
+        /** A task applying OP to NAMES[LO .. HI-1] into IDS. */
+        HashTask(List<String> names, Function<File, String> op,
+                 String[] ids, int lo, int hi) {
+            _names = names;
+            _op = op;
+            _ids = ids;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= SPLIT_THRESHOLD) {
+                for (int i = _lo; i < _hi; i += 1) {
+                    _ids[i] = _op.apply(Utils.join(_dir, _names.get(i)));
+                }
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new HashTask(_names, _op, _ids, _lo, mid),
+                          new HashTask(_names, _op, _ids, mid, _hi));
+            }
+        }
+
+        /** The names of all files being processed. */
+        private final List<String> _names;
+        /** The operation applied to each file. */
+        private final Function<File, String> _op;
+        /** Receives the ids of the files in _names. */
+        private final String[] _ids;
+        /** Bounds of the range of _names handled by this task. */
+        private final int _lo, _hi;
+    }
+
+    /** The directory scanned. */
+    private final File _dir;
+    /** Number of threads used for hashing. */
+    private final int _parallelism;
+    /** Stat index consulted before hashing, or null. */
+    private final StatIndex _index;
+}
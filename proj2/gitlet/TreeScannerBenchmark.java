@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static gitlet.Utils.*;
+
+/** Measures how TreeScanner.scan scales with the number of threads.
+ *  Usage:
+ *      java gitlet.TreeScannerBenchmark [FILES [SIZE]]
+ *  creates a temporary directory of FILES files (default 20000) of SIZE
+ *  bytes each (default 8192), all tracked by a simulated head commit and
+ *  one in ten of them modified, and then times a full scan with 1, 2, 4,
+ *  ... threads up to the number of processors. */
+public class TreeScannerBenchmark {
+
+    /** Number of timed scans at each thread count; the best is reported. */
+    private static final int ROUNDS = 3;
+
+    /** Run the benchmark as described in the class comment, using ARGS. */
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 8192;
+        File dir = Files.createTempDirectory("gitlet-scan").toFile();
+        try {
+            Map<String, String> head = populate(dir, files, size);
+            int cores = Runtime.getRuntime().availableProcessors();
+            System.out.printf("%d files of %d bytes, %d processors%n",
+                              files, size, cores);
+            System.out.printf("%8s %12s %10s%n", "threads", "time (ms)",
+                              "speedup");
+            double base = 0;
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                double time = timeScan(new TreeScanner(dir, threads), head);
+                if (threads == 1) {
+                    base = time;
+                }
+                System.out.printf("%8d %12.1f %10.2f%n", threads, time,
+                                  base / time);
+            }
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /** Fill DIR with FILES random files of SIZE bytes, and return the blob
+     *  ids of a head commit that tracks all of them, with one in ten
+     *  differing from the files' contents. */
+    private static Map<String, String> populate(File dir, int files,
+                                                int size) {
+        Random random = new Random(61);
+        byte[] contents = new byte[size];
+        Map<String, String> head = new HashMap<>();
+        for (int i = 0; i < files; i += 1) {
+            random.nextBytes(contents);
+            String name = String.format("file%06d.txt", i);
+            writeContents(join(dir, name), contents);
+            head.put(name, i % 10 == 0 ? sha1(name) : sha1(contents));
+        }
+        return head;
+    }
+
+    /** Return the best time in milliseconds of ROUNDS scans by SCANNER
+     *  against the head commit HEAD, after one warm-up scan. */
+    private static double timeScan(TreeScanner scanner,
+                                   Map<String, String> head) {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round += 1) {
+            long start = System.nanoTime();
+            TreeScanner.Status status =
+                scanner.scan(head, Map.of(), Set.of());
+            double elapsed = (System.nanoTime() - start) / 1e6;
+            if (status.modified.isEmpty()) {
+                throw new IllegalStateException("scan found no changes");
+            }
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,112 @@
+package gitlet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/** Tests of the classification of working files by TreeScanner.scan. */
+public class TreeScannerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** The working directory under test. */
+    private File dir;
+
+    /** Files tracked by the head commit. */
+    private static final Map<String, String> HEAD =
+        Map.of("same.txt", Utils.sha1("same"),
+               "edited.txt", Utils.sha1("v1"),
+               "gone.txt", Utils.sha1("gone"),
+               "removed.txt", Utils.sha1("removed"),
+               "staged.txt", Utils.sha1("s1"));
+    /** Files staged for addition. */
+    private static final Map<String, String> STAGED =
+        Map.of("staged.txt", Utils.sha1("s2"),
+               "stagedEdited.txt", Utils.sha1("old"),
+               "stagedGone.txt", Utils.sha1("lost"));
+    /** Files staged for removal. */
+    private static final Set<String> REMOVED = Set.of("removed.txt");
+
+    @Before
+    public void setUp() throws IOException {
+        dir = tmp.newFolder("work");
+        write("same.txt", "same");
+        write("edited.txt", "v2");
+        write("removed.txt", "removed");
+        write("staged.txt", "s2");
+        write("stagedEdited.txt", "new");
+        write("new.txt", "new");
+        assertTrue(new File(dir, "sub").mkdir());
+        write("sub/nested.txt", "nested");
+    }
+
+    /** Write TEXT to the working file NAME, last modified long enough ago
+     *  that a stat index trusts it. */
+    private void write(String name, String text) {
+        File file = new File(dir, name);
+        Utils.writeContents(file, text);
+        assertTrue(file.setLastModified(System.currentTimeMillis()
+                                        - 10_000));
+    }
+
+    /** Assert that STATUS is the status expected of the working files,
+     *  with EXTRA added to the files modified but not staged. */
+    private static void assertStatus(TreeScanner.Status status,
+                                      String... extra) {
+        assertEquals(List.of("staged.txt", "stagedEdited.txt",
+                             "stagedGone.txt"), status.staged);
+        assertEquals(List.of("removed.txt"), status.removed);
+        List<String> modified =
+            new ArrayList<>(List.of("edited.txt (modified)",
+                                    "gone.txt (deleted)",
+                                    "stagedEdited.txt (modified)",
+                                    "stagedGone.txt (deleted)"));
+        modified.addAll(List.of(extra));
+        Collections.sort(modified);
+        assertEquals(modified, status.modified);
+        assertEquals(List.of("new.txt", "removed.txt"), status.untracked);
+    }
+
+    @Test
+    public void classifiesEveryFile() {
+        for (int threads : new int[] { 1, 4 }) {
+            assertStatus(new TreeScanner(dir, threads)
+                         .scan(HEAD, STAGED, REMOVED));
+        }
+    }
+
+    @Test
+    public void aStatIndexGivesTheSameStatus() throws IOException {
+        File indexFile = new File(tmp.newFolder(), "index");
+        StatIndex index = new StatIndex();
+        assertStatus(new TreeScanner(dir, 2, index)
+                     .scan(HEAD, STAGED, REMOVED));
+        index.write(indexFile);
+        index = StatIndex.read(indexFile);
+        File same = new File(dir, "same.txt");
+        assertEquals(Utils.sha1("same"),
+                     index.lookup("same.txt", StatIndex.stat(same)));
+
+        assertStatus(new TreeScanner(dir, 2, index)
+                     .scan(HEAD, STAGED, REMOVED));
+        assertTrue(same.delete());
+        assertStatus(new TreeScanner(dir, 2, index)
+                     .scan(HEAD, STAGED, REMOVED), "same.txt (deleted)");
+        write("same.txt", "different");
+        assertNull(index.lookup("same.txt", StatIndex.stat(same)));
+        assertStatus(new TreeScanner(dir, 2, index)
+                     .scan(HEAD, STAGED, REMOVED), "same.txt (modified)");
+    }
+}
@@ -0,0 +1,140 @@
+package gitlet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/** Tests of Trees and of commits that refer to their files by Tree. */
+public class TreeTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** The Tree store under test. */
+    private ObjectStore trees;
+
+    @Before
+    public void setUp() throws IOException {
+        trees = new ObjectStore(tmp.newFolder("trees"));
+    }
+
+    /** Return the id of a blob named after NAME. */
+    private static String blob(String name) {
+        return Utils.sha1("blob", name);
+    }
+
+    /** Return a map of the files NAMES, each with its blob(). */
+    private static TreeMap<String, String> files(String... names) {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (String name : names) {
+            result.put(name, blob(name));
+        }
+        return result;
+    }
+
+    @Test
+    public void writeAndList() {
+        TreeMap<String, String> files =
+            files("a.txt", "b/c.txt", "b/d/e.txt", "b/d/f.txt", "g.txt");
+        String root = Tree.write(trees, files);
+        assertEquals(files, Tree.files(trees, root));
+        Tree top = Tree.read(trees, root);
+        assertEquals(List.of("a.txt", "b/", "g.txt"),
+                     new ArrayList<>(top.entries().keySet()));
+        assertEquals(root, Tree.write(trees, new HashMap<>(files)));
+        assertArrayEquals(top.encode(),
+                          Tree.decode(trees.read(root)).encode());
+        assertEquals(Utils.sha1(trees.read(root)), root);
+    }
+
+    @Test
+    public void updateSharesUnchangedDirectories() {
+        String base = Tree.write(trees, files("x/1.txt", "y/2.txt",
+                                              "y/z/3.txt"));
+        TreeMap<String, String> changes = new TreeMap<>();
+        changes.put("y/z/3.txt", blob("changed"));
+        changes.put("x/1.txt", null);
+        changes.put("w.txt", blob("w.txt"));
+        String updated = Tree.update(trees, base, changes);
+
+        TreeMap<String, String> expected = files("w.txt", "y/2.txt");
+        expected.put("y/z/3.txt", blob("changed"));
+        assertEquals(expected, Tree.files(trees, updated));
+        assertEquals(updated, Tree.write(trees, expected));
+        assertFalse("emptied directory kept",
+                    Tree.read(trees, updated).entries().containsKey("x/"));
+
+        String other = Tree.update(trees, base,
+                                   new TreeMap<>(Map.of("x/1.txt",
+                                                        blob("other"))));
+        assertEquals(Tree.read(trees, base).entries().get("y/"),
+                     Tree.read(trees, other).entries().get("y/"));
+    }
+
+    @Test
+    public void compareReportsOnlyChangedFiles() {
+        String a = Tree.write(trees, files("same/1.txt", "same/2.txt",
+                                           "gone.txt", "dir/changed.txt"));
+        TreeMap<String, String> bFiles =
+            files("same/1.txt", "same/2.txt", "new/added.txt");
+        bFiles.put("dir/changed.txt", blob("edit"));
+        String b = Tree.write(trees, bFiles);
+        List<String> report = new ArrayList<>();
+        Tree.compare(trees, a, b, (name, inA, inB) ->
+            report.add(name + " " + (inA == null ? "-" : inA.substring(0, 4))
+                       + " " + (inB == null ? "-" : inB.substring(0, 4))));
+        assertEquals(List.of(
+            "dir/changed.txt " + blob("dir/changed.txt").substring(0, 4)
+                + " " + blob("edit").substring(0, 4),
+            "gone.txt " + blob("gone.txt").substring(0, 4) + " -",
+            "new/added.txt - " + blob("new/added.txt").substring(0, 4)),
+                     report);
+
+        List<String> none = new ArrayList<>();
+        Tree.compare(trees, a, a, (name, inA, inB) -> none.add(name));
+        assertEquals(List.of(), none);
+    }
+
+    @Test
+    public void commitFilesComeFromTheGivenStore() throws IOException {
+        ObjectStore other = new ObjectStore(tmp.newFolder("other"));
+        TreeMap<String, String> files = files("a.txt", "d/b.txt");
+        String root = Tree.write(other, files);
+        Commit commit = new Commit("remote", new Date(0), List.of(), root);
+        assertEquals(files, commit.getBlobs(other));
+        assertFalse(trees.contains(root));
+        try {
+            commit.getBlobs(trees);
+            fail("read a Tree from the wrong store");
+        } catch (IllegalArgumentException excp) {
+            /* Expected: this store lacks the Tree. */
+        }
+
+        Commit listed = new Commit("listed", new Date(0), List.of(), files);
+        assertEquals(files, listed.getBlobs(null));
+    }
+
+    @Test
+    public void gcKeepsListedCommitsAsTheyAre() throws IOException {
+        ObjectStore commits = new ObjectStore(tmp.newFolder("commits"),
+                                              Codec.DEFLATE);
+        byte[] data = CommitCodec.encode(new Commit(
+            "listed", new Date(0), List.of(), files("a.txt", "d/b.txt")));
+        String id = commits.write(data);
+        commits.gc();
+        assertArrayEquals(data, commits.read(id));
+        assertEquals(id, Utils.sha1(commits.read(id)));
+        assertNull(CommitCodec.decode(commits.read(id)).getTree());
+    }
+}
@@ -6,16 +6,23 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Formatter;
 import java.util.List;
 
 
@@ -31,36 +38,115 @@ class Utils {
     /** The length of a complete SHA-1 UID as a hexadecimal numeral. */
     static final int UID_LENGTH = 40;
 
+    /* SHA-1 hashes are passed around as Strings of UID_LENGTH hex digits.
+     * ObjectId is the equivalent binary form, for code that handles ids
+     * in bulk; ObjectId.fromHex and ObjectId.toString convert between
+     * the two. */
+
     /* SHA-1 HASH VALUES. */
 
     /** Returns the SHA-1 hash of the concatenation of VALS, which may
      *  be any mixture of byte arrays and Strings. */
     static String sha1(Object... vals) {
+        MessageDigest md = sha1Digest();
+        for (Object val : vals) {
+            if (val instanceof byte[]) {
+                md.update((byte[]) val);
+                Trace.count(Trace.Counter.BYTES_HASHED, ((byte[]) val).length);
+            } else if (val instanceof String) {
+                byte[] bytes = ((String) val).getBytes(StandardCharsets.UTF_8);
+                md.update(bytes);
+                Trace.count(Trace.Counter.BYTES_HASHED, bytes.length);
+            } else {
+                throw new IllegalArgumentException("improper type to sha1");
+            }
+        }
+        return hex(md.digest());
+    }
+
+    /** Returns the SHA-1 hash of the concatenation of the strings in
+     *  VALS. */
+    static String sha1(List<Object> vals) {
+        return sha1(vals.toArray(new Object[vals.size()]));
+    }
+
+    /** Returns the SHA-1 hash of the contents of FILE, which is read in
+     *  fixed-size pieces rather than all at once.  FILE must be a normal
+     *  file.  Throws IllegalArgumentException in case of problems. */
+    static String sha1(File file) {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("must be a normal file");
+        }
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            return sha1(in, null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the SHA-1 hash of the remaining contents of IN.  Does not
+     *  close IN.  Throws IllegalArgumentException in case of problems. */
+    static String sha1(InputStream in) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            for (Object val : vals) {
-                if (val instanceof byte[]) {
-                    md.update((byte[]) val);
-                } else if (val instanceof String) {
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
-                } else {
-                    throw new IllegalArgumentException("improper type to sha1");
+            return sha1(Channels.newChannel(in), null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the SHA-1 hash of the remaining contents of IN, reading it
+     *  through a fixed-size direct buffer.  If COPY is not null, also
+     *  writes everything read to COPY, so that contents may be hashed and
+     *  stored in one pass.  Closes neither channel. */
+    static String sha1(ReadableByteChannel in, WritableByteChannel copy)
+        throws IOException {
+        MessageDigest md = sha1Digest();
+        ByteBuffer buffer = STREAM_BUFFER.get();
+        buffer.clear();
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            buffer.mark();
+            Trace.count(Trace.Counter.BYTES_HASHED, buffer.remaining());
+            md.update(buffer);
+            if (copy != null) {
+                buffer.reset();
+                while (buffer.hasRemaining()) {
+                    copy.write(buffer);
                 }
             }
-            Formatter result = new Formatter();
-            for (byte b : md.digest()) {
-                result.format("%02x", b);
+            buffer.clear();
+        }
+        return hex(md.digest());
+    }
+
+    /** Size in bytes of the buffers through which file contents are
+     *  streamed. */
+    static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    /** Per-thread direct buffer used for streaming.  A class rather than
+     *  a lambda, since bootstrapping the first lambda that a JVM runs
+     *  loads scores of classes, a cost every command would pay. */
+    private static final ThreadLocal<ByteBuffer> STREAM_BUFFER =
+        new ThreadLocal<>() {
+            @Override
+            protected ByteBuffer initialValue() {
+                return ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
             }
-            return result.toString();
+        };
+
+    /** Returns a new SHA-1 MessageDigest. */
+    static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
         } catch (NoSuchAlgorithmException excp) {
             throw new IllegalArgumentException("System does not support SHA-1");
         }
     }
 
-    /** Returns the SHA-1 hash of the concatenation of the strings in
-     *  VALS. */
-    static String sha1(List<Object> vals) {
-        return sha1(vals.toArray(new Object[vals.size()]));
+    /** Returns DIGEST as a hexadecimal numeral. */
+    private static String hex(byte[] digest) {
+        return ObjectId.toHex(digest);
     }
 
     /* FILE DELETION */
@@ -136,6 +222,74 @@ class Utils {
         }
     }
 
+    /** Write the result of concatenating the bytes in CONTENTS to FILE
+     *  atomically: they go to a temporary file in the same directory that
+     *  is then renamed over FILE, so that readers, and FILE after a crash,
+     *  see either the old contents or all of the new ones, never a mix.
+     *  If FORCE, the temporary file is forced to storage before the rename
+     *  and the directory after it, so that the write is also durable.
+     *  Creates FILE's directory if necessary.  Throws
+     *  IllegalArgumentException in case of problems. */
+    static void writeAtomic(File file, boolean force, Object... contents) {
+        File tmp = null;
+        try {
+            if (file.isDirectory()) {
+                throw
+                    new IllegalArgumentException("cannot overwrite directory");
+            }
+            File dir = file.getAbsoluteFile().getParentFile();
+            Files.createDirectories(dir.toPath());
+            tmp = File.createTempFile("tmp-", ".new", dir);
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                                                    StandardOpenOption.WRITE)) {
+                for (Object obj : contents) {
+                    byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                        : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                    ByteBuffer buf = ByteBuffer.wrap(bytes);
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                }
+                if (force) {
+                    out.force(true);
+                    Trace.count(Trace.Counter.FSYNCS);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+            if (force) {
+                sync(dir);
+            }
+        } catch (IOException | ClassCastException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /** Force the contents and metadata of FILE, a plain file or a
+     *  directory, to storage.  For a directory this makes the creation,
+     *  renaming, and deletion of its entries durable; since not every
+     *  platform can sync a directory, failure to do so is ignored.  Throws
+     *  IllegalArgumentException if a plain file cannot be synced. */
+    static void sync(File file) {
+        boolean isDir = file.isDirectory();
+        try (FileChannel ch = FileChannel.open(file.toPath(), isDir
+                                               ? StandardOpenOption.READ
+                                               : StandardOpenOption.WRITE)) {
+            ch.force(true);
+            Trace.count(Trace.Counter.FSYNCS);
+        } catch (IOException excp) {
+            if (!isDir) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
     /** Return an object of type T read from FILE, casting it to EXPECTEDCLASS.
      *  Throws IllegalArgumentException in case of problems. */
     static <T extends Serializable> T readObject(File file,